@@ -0,0 +1,251 @@
+package org.example.ws.web.asset;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.util.DigestUtils;
+
+/**
+ * The AssetCompiler is the build-time stage of the static asset pipeline. It
+ * is not part of the application: it is compiled with the test classes and
+ * run on the compiled classes directory by the <code>assets</code> Maven
+ * profile, so no static file is compressed or hashed at request time.
+ *
+ * For every file under <code>static/</code> it writes a copy named with the
+ * MD5 hash of its content to <code>static/assets/</code>, e.g.
+ * <code>main.css</code> to <code>assets/main-{hash}.css</code>. Compressible
+ * files also get a gzip (<code>.gz</code>) variant and, when the
+ * <code>brotli</code> command is available, a brotli (<code>.br</code>)
+ * variant; a variant is only kept if it is smaller. The mapping of the
+ * original to the fingerprinted URLs is written to
+ * <code>static/assets/manifest.properties</code>, and the quoted original
+ * URLs in the Thymeleaf templates are replaced by the fingerprinted ones.
+ *
+ * The <code>static/assets/</code> directory is written from scratch on every
+ * run, so fingerprints of changed files do not pile up. Templates rewritten
+ * by an earlier run are updated to the new fingerprints.
+ *
+ * Usage: <code>AssetCompiler {classesDirectory} [brotliCommand]</code>
+ *
+ * @author Matt Warman
+ */
+public final class AssetCompiler {
+
+    private static final String ASSETS_DIRECTORY = StaticAssetConfiguration.ASSETS_DIRECTORY;
+
+    /**
+     * The seconds a brotli compression may take.
+     */
+    private static final long BROTLI_TIMEOUT_SECONDS = 60L;
+
+    private final Path classesDirectory;
+
+    private final String brotliCommand;
+
+    private boolean brotliAvailable = true;
+
+    AssetCompiler(Path classesDirectory, String brotliCommand) {
+        this.classesDirectory = classesDirectory;
+        this.brotliCommand = brotliCommand;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException(
+                    "Usage: AssetCompiler {classesDirectory} [brotliCommand]");
+        }
+        new AssetCompiler(Paths.get(args[0]),
+                args.length > 1 ? args[1] : "brotli").compile();
+    }
+
+    /**
+     * Writes the fingerprinted assets, their variants and the manifest, and
+     * rewrites the templates.
+     * @return The fingerprinted URL of each original asset URL.
+     */
+    Map<String, String> compile() throws IOException, InterruptedException {
+        Map<String, String> manifest = new TreeMap<String, String>();
+        Path staticDirectory = classesDirectory.resolve("static");
+        if (!Files.isDirectory(staticDirectory)) {
+            return manifest;
+        }
+        Path assetsDirectory = staticDirectory.resolve(ASSETS_DIRECTORY);
+        deleteRecursively(assetsDirectory);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(staticDirectory)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.startsWith(assetsDirectory))
+                    .filter(path -> !isVariant(path))
+                    .sorted().collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            byte[] content = Files.readAllBytes(file);
+            String relative = staticDirectory.relativize(file).toString()
+                    .replace('\\', '/');
+            String fingerprinted = fingerprint(relative,
+                    DigestUtils.md5DigestAsHex(content));
+            Path target = assetsDirectory.resolve(fingerprinted);
+            Files.createDirectories(target.getParent());
+            Files.write(target, content);
+            if (PrecompressedResourceResolver.isCompressible(relative)) {
+                gzip(target, content.length);
+                brotli(target, content.length);
+            }
+            manifest.put("/" + relative,
+                    "/" + ASSETS_DIRECTORY + "/" + fingerprinted);
+        }
+
+        writeManifest(assetsDirectory.resolve("manifest.properties"), manifest);
+        rewriteTemplates(classesDirectory.resolve("templates"), manifest);
+        System.out.println("Compiled " + manifest.size() + " static assets"
+                + (brotliAvailable ? "." : " without brotli variants."));
+        return manifest;
+    }
+
+    /**
+     * Returns the path of an asset with the content hash inserted before its
+     * extension.
+     */
+    static String fingerprint(String path, String hash) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot <= slash + 1) {
+            return path + "-" + hash;
+        }
+        return path.substring(0, dot) + "-" + hash + path.substring(dot);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    private static boolean isVariant(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".gz") || name.endsWith(".br");
+    }
+
+    private void gzip(Path file, long originalLength) throws IOException {
+        Path variant = file.resolveSibling(file.getFileName() + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(variant)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            Files.copy(file, out);
+        }
+        keepIfSmaller(variant, originalLength);
+    }
+
+    private void brotli(Path file, long originalLength)
+            throws IOException, InterruptedException {
+        if (!brotliAvailable) {
+            return;
+        }
+        Path variant = file.resolveSibling(file.getFileName() + ".br");
+        Process process;
+        try {
+            process = new ProcessBuilder(brotliCommand, "--quality=11",
+                    "--force", "--output=" + variant, file.toString())
+                    .inheritIO().start();
+        } catch (IOException e) {
+            System.out.println("The '" + brotliCommand
+                    + "' command is not available; brotli variants are skipped.");
+            brotliAvailable = false;
+            return;
+        }
+        if (!process.waitFor(BROTLI_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IOException("Brotli compression of " + file + " failed.");
+        }
+        keepIfSmaller(variant, originalLength);
+    }
+
+    private static void keepIfSmaller(Path variant, long originalLength)
+            throws IOException {
+        if (Files.size(variant) >= originalLength) {
+            Files.delete(variant);
+        }
+    }
+
+    private static void writeManifest(Path file, Map<String, String> manifest)
+            throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(manifest);
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "Fingerprinted URLs of the static assets");
+        }
+    }
+
+    /**
+     * Replaces the quoted asset URLs in the templates, e.g.
+     * <code>@{/main.css}</code> and <code>"/main.css"</code>, with the
+     * fingerprinted URLs. Fingerprinted URLs written by an earlier run, e.g.
+     * <code>"/assets/main-{oldHash}.css"</code>, are replaced too.
+     */
+    static void rewriteTemplates(Path templatesDirectory,
+            Map<String, String> manifest) throws IOException {
+        if (!Files.isDirectory(templatesDirectory)) {
+            return;
+        }
+        List<Path> templates;
+        try (Stream<Path> paths = Files.walk(templatesDirectory)) {
+            templates = paths.filter(path -> path.toString().endsWith(".html"))
+                    .collect(Collectors.toList());
+        }
+        for (Path template : templates) {
+            String html = new String(Files.readAllBytes(template),
+                    StandardCharsets.UTF_8);
+            String rewritten = html;
+            for (Map.Entry<String, String> asset : manifest.entrySet()) {
+                rewritten = urlPattern(asset.getKey()).matcher(rewritten)
+                        .replaceAll("$1" + Matcher.quoteReplacement(asset.getValue()) + "$2");
+            }
+            if (!rewritten.equals(html)) {
+                Files.write(template, rewritten.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Returns the pattern of an original asset URL, or any fingerprinted URL
+     * of it, quoted or in a Thymeleaf link expression.
+     */
+    private static Pattern urlPattern(String url) {
+        String marked = fingerprint("/" + ASSETS_DIRECTORY + url, "\u0000");
+        int hash = marked.indexOf('\u0000');
+        return Pattern.compile("(\"|@\\{)(?:" + Pattern.quote(url) + "|"
+                + Pattern.quote(marked.substring(0, hash)) + "[0-9a-f]{32}"
+                + Pattern.quote(marked.substring(hash + 1)) + ")(\"|\\})");
+    }
+
+}
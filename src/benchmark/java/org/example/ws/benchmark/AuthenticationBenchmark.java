@@ -0,0 +1,69 @@
+package org.example.ws.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.ws.security.AccountAuthenticationProvider;
+import org.example.ws.security.AuthenticationCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+/**
+ * JMH benchmarks of HTTP Basic credential verification by the
+ * AccountAuthenticationProvider, with and without the AuthenticationCache.
+ *
+ * @author Matt Warman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationBenchmark {
+
+    private ConfigurableApplicationContext context;
+
+    private AccountAuthenticationProvider authenticationProvider;
+
+    private AuthenticationCache authenticationCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        authenticationProvider = context
+                .getBean(AccountAuthenticationProvider.class);
+        authenticationCache = context.getBean(AuthenticationCache.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Authentication authenticateCached() {
+        return authenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken("user", "password"));
+    }
+
+    @Benchmark
+    public Authentication authenticateUncached() {
+        authenticationCache.invalidateAll();
+        return authenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken("user", "password"));
+    }
+
+}
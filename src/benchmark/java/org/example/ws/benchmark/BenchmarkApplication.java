@@ -0,0 +1,70 @@
+package org.example.ws.benchmark;
+
+import org.example.ws.Application;
+import org.example.ws.util.RequestContext;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The BenchmarkApplication starts the application context used by the JMH
+ * benchmarks. The context runs the embedded HSQLDB database of the
+ * <code>hsqldb</code> profile in place of the profile configured in
+ * <code>application.properties</code>, so that no database server is needed.
+ * It has no embedded web server, and logging is reduced so that it does not
+ * dominate the measurements.
+ *
+ * @author Matt Warman
+ */
+public final class BenchmarkApplication {
+
+    /**
+     * The profile activated in place of the configured one.
+     */
+    private static final String DATABASE_PROFILE = "hsqldb";
+
+    /**
+     * The Account.username attribute value used by the benchmarks.
+     */
+    public static final String USERNAME = "benchmark";
+
+    private BenchmarkApplication() {
+
+    }
+
+    /**
+     * Start the application context.
+     * @param properties Additional property values in
+     *        <code>key=value</code> form.
+     * @return A ConfigurableApplicationContext. Close it on tear down.
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        return start(new String[0], properties);
+    }
+
+    /**
+     * Start the application context with additional Spring profiles.
+     * @param profiles The names of the profiles activated in addition to the
+     *        <code>hsqldb</code> profile.
+     * @param properties Additional property values in
+     *        <code>key=value</code> form. They are passed as command line
+     *        arguments, so they override the profile configuration files.
+     * @return A ConfigurableApplicationContext. Close it on tear down.
+     */
+    public static ConfigurableApplicationContext start(String[] profiles,
+            String... properties) {
+        RequestContext.setUsername(USERNAME);
+        String[] args = new String[properties.length + 1];
+        args[0] = "--spring.profiles.active=" + DATABASE_PROFILE;
+        for (int i = 0; i < properties.length; i++) {
+            args[i + 1] = "--" + properties[i];
+        }
+        return new SpringApplicationBuilder(Application.class)
+                .profiles(profiles)
+                .web(false)
+                .properties("spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "logging.level.org.example.ws=WARN")
+                .run(args);
+    }
+
+}
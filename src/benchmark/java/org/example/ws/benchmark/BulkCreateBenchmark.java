@@ -0,0 +1,92 @@
+package org.example.ws.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.service.GreetingService;
+import org.example.ws.util.RequestContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * A JMH benchmark of creating <code>size</code> Greetings, either with one
+ * <code>GreetingService.createAll</code> call, which writes them in JDBC
+ * batches within one transaction, or with one <code>create</code> call, and
+ * transaction, per Greeting.
+ *
+ * @author Matt Warman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkCreateBenchmark {
+
+    @Param({ "createAll", "create" })
+    private String method;
+
+    @Param({ "500" })
+    private int size;
+
+    private ConfigurableApplicationContext context;
+
+    private GreetingService greetingService;
+
+    /**
+     * The per-thread RequestContext needed to persist entities.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RequestContext.setUsername(BenchmarkApplication.USERNAME);
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        greetingService = context.getBean(GreetingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int createGreetings(ThreadState threadState) {
+        List<Greeting> greetings = new ArrayList<Greeting>(size);
+        for (int i = 0; i < size; i++) {
+            Greeting greeting = new Greeting();
+            greeting.setText("benchmark " + i);
+            greetings.add(greeting);
+        }
+        if ("createAll".equals(method)) {
+            return greetingService.createAll(greetings).size();
+        }
+        for (Greeting greeting : greetings) {
+            greetingService.create(greeting);
+        }
+        return greetings.size();
+    }
+
+}
@@ -0,0 +1,149 @@
+package org.example.ws.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.repository.GreetingRepository;
+import org.example.ws.service.GreetingService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * A JMH benchmark of a thundering herd on the <code>greetings</code> cache:
+ * each invocation evicts a Greeting and releases <code>herdSize</code>
+ * threads which all look it up at the same moment.
+ *
+ * With <code>coalesced</code> loading, the lookups go through
+ * <code>GreetingService.findOne</code>, whose concurrent misses share one
+ * load. With <code>uncoalesced</code> loading, each thread reads the cache
+ * and loads on a miss by itself, as <code>findOne</code> did before. The
+ * mean number of SQL statements per herd, read from the Hibernate
+ * statistics, is printed when a trial ends: one for coalesced loading, up to
+ * <code>herdSize</code> for uncoalesced loading.
+ *
+ * @author Matt Warman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheStampedeBenchmark {
+
+    /**
+     * The id of a Greeting loaded by the seed data.
+     */
+    private static final Long GREETING_ID = 1L;
+
+    @Param({ "coalesced", "uncoalesced" })
+    private String loading;
+
+    @Param({ "32" })
+    private int herdSize;
+
+    private ConfigurableApplicationContext context;
+
+    private GreetingService greetingService;
+
+    private GreetingRepository greetingRepository;
+
+    private Cache greetingCache;
+
+    private Statistics statistics;
+
+    private ExecutorService executor;
+
+    private long herds;
+
+    private long statements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "spring.jpa.properties.hibernate.generate_statistics=true");
+        greetingService = context.getBean(GreetingService.class);
+        greetingRepository = context.getBean(GreetingRepository.class);
+        greetingCache = context.getBean(CacheManager.class).getCache("greetings");
+        statistics = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class).getStatistics();
+        executor = Executors.newFixedThreadPool(herdSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("SQL statements per herd (" + loading + ", "
+                + herdSize + " threads): "
+                + (herds == 0 ? 0.0 : (double) statements / herds));
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int herd() throws Exception {
+        greetingCache.evict(GREETING_ID);
+        final CyclicBarrier barrier = new CyclicBarrier(herdSize);
+        Callable<Greeting> lookup = () -> {
+            barrier.await();
+            return "coalesced".equals(loading)
+                    ? greetingService.findOne(GREETING_ID)
+                    : findOneUncoalesced(GREETING_ID);
+        };
+
+        long before = statistics.getPrepareStatementCount();
+        List<Future<Greeting>> lookups = new ArrayList<Future<Greeting>>(herdSize);
+        for (int i = 0; i < herdSize; i++) {
+            lookups.add(executor.submit(lookup));
+        }
+        int found = 0;
+        for (Future<Greeting> greeting : lookups) {
+            if (greeting.get() != null) {
+                found++;
+            }
+        }
+        statements += statistics.getPrepareStatementCount() - before;
+        herds++;
+        return found;
+    }
+
+    /**
+     * Looks up a Greeting the way a non-synchronized <code>@Cacheable</code>
+     * method does: read the cache, and on a miss load and put the Greeting.
+     */
+    private Greeting findOneUncoalesced(Long id) {
+        ValueWrapper cached = greetingCache.get(id);
+        if (cached != null) {
+            return (Greeting) cached.get();
+        }
+        Greeting greeting = greetingRepository.findOne(id);
+        greetingCache.put(id, greeting);
+        return greeting;
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.example.ws.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.NoResultException;
+
+import org.example.ws.web.DefaultExceptionAttributes;
+import org.example.ws.web.ExceptionAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * JMH benchmarks of the error response attributes rendered by
+ * DefaultExceptionAttributes.
+ *
+ * @author Matt Warman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExceptionAttributesBenchmark {
+
+    private final ExceptionAttributes exceptionAttributes = new DefaultExceptionAttributes();
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest(
+            "GET", "/api/greetings/0");
+
+    private final Exception exception = new NoResultException(
+            "Requested entity not found.");
+
+    @Benchmark
+    public Map<String, Object> notFound() {
+        return exceptionAttributes.getExceptionAttributes(exception, request,
+                HttpStatus.NOT_FOUND);
+    }
+
+    @Benchmark
+    public Map<String, Object> internalServerError() {
+        return exceptionAttributes.getExceptionAttributes(exception, request,
+                HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+}
@@ -0,0 +1,165 @@
+package org.example.ws.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.service.GreetingService;
+import org.example.ws.util.RequestContext;
+import org.example.ws.web.api.GreetingController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JMH benchmarks comparing the relational (JPA) and the document store
+ * Greeting backends under the same REST workload. Requests are dispatched
+ * through MockMvc to the GreetingController, so the measurements include
+ * the request mapping and JSON conversion but no network or security
+ * filters. Caches are cleared before every read, so reads reach the data
+ * store.
+ *
+ * The <code>document</code> backend uses the embedded in-memory document
+ * store, which measures the service without a database. The
+ * <code>mongodb</code> backend uses a MongoDB server at the URI given by the
+ * <code>benchmark.mongodb.uri</code> system property (by default a
+ * <code>greetings-benchmark</code> database on localhost); its Greetings are
+ * removed before each trial. Without a reachable server, the trials of that
+ * backend fail and the others still run.
+ *
+ * @author Matt Warman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GreetingBackendBenchmark {
+
+    /**
+     * The number of Greetings created before measuring.
+     */
+    private static final int GREETING_COUNT = 1000;
+
+    @Param({ "jpa", "document", "mongodb" })
+    private String backend;
+
+    private ConfigurableApplicationContext context;
+
+    private CacheManager cacheManager;
+
+    private ObjectMapper objectMapper;
+
+    private MockMvc mvc;
+
+    private Long greetingId;
+
+    /**
+     * The per-thread RequestContext needed to persist entities.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RequestContext.setUsername(BenchmarkApplication.USERNAME);
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("document".equals(backend)) {
+            context = BenchmarkApplication.start(new String[] { "mongodb" },
+                    "greeting.document-store.type=memory");
+        } else if ("mongodb".equals(backend)) {
+            context = BenchmarkApplication.start(new String[] { "mongodb" },
+                    "greeting.document-store.type=mongo",
+                    "spring.data.mongodb.uri=" + System.getProperty(
+                            "benchmark.mongodb.uri",
+                            "mongodb://localhost/greetings-benchmark"));
+            MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+            mongoTemplate.remove(new Query(), "greetings");
+            mongoTemplate.remove(new Query(), "greetingTombstones");
+        } else {
+            context = BenchmarkApplication.start();
+        }
+        cacheManager = context.getBean(CacheManager.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        mvc = MockMvcBuilders
+                .standaloneSetup(context.getBean(GreetingController.class))
+                .setMessageConverters(
+                        new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+
+        List<Greeting> greetings = new ArrayList<Greeting>(GREETING_COUNT);
+        for (int i = 0; i < GREETING_COUNT; i++) {
+            Greeting greeting = new Greeting();
+            greeting.setText("benchmark " + i);
+            greetings.add(greeting);
+        }
+        greetingId = context.getBean(GreetingService.class)
+                .createAll(greetings).iterator().next().getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getGreeting() throws Exception {
+        cacheManager.getCache("greetings").clear();
+        return mvc.perform(MockMvcRequestBuilders
+                .get("/api/greetings/{id}", greetingId)
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getGreetingsPage() throws Exception {
+        cacheManager.getCache("greetingLists").clear();
+        return mvc.perform(MockMvcRequestBuilders.get("/api/greetings")
+                .param("limit", "20")
+                .param("after", String.valueOf(greetingId))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse createAndDelete(ThreadState threadState)
+            throws Exception {
+        MockHttpServletResponse created = mvc.perform(MockMvcRequestBuilders
+                .post("/api/greetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"text\":\"benchmark\"}")).andReturn().getResponse();
+        Long id = objectMapper.readValue(created.getContentAsByteArray(),
+                Greeting.class).getId();
+        return mvc.perform(MockMvcRequestBuilders
+                .delete("/api/greetings/{id}", id)).andReturn().getResponse();
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.example.ws.benchmark;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.service.GreetingService;
+import org.example.ws.util.RequestContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * JMH benchmarks of the GreetingService against the HSQLDB data store,
+ * including the hit and miss paths of the <code>greetings</code> cache.
+ *
+ * @author Matt Warman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GreetingServiceBenchmark {
+
+    /**
+     * The id of a Greeting loaded by the seed data.
+     */
+    private static final Long GREETING_ID = 1L;
+
+    private ConfigurableApplicationContext context;
+
+    private GreetingService greetingService;
+
+    private Cache greetingCache;
+
+    /**
+     * The per-thread RequestContext needed to persist entities.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RequestContext.setUsername(BenchmarkApplication.USERNAME);
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        greetingService = context.getBean(GreetingService.class);
+        greetingCache = context.getBean(CacheManager.class)
+                .getCache("greetings");
+        greetingService.findOne(GREETING_ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Greeting findOneCacheHit() {
+        return greetingService.findOne(GREETING_ID);
+    }
+
+    @Benchmark
+    public Greeting findOneCacheMiss() {
+        greetingCache.evict(GREETING_ID);
+        return greetingService.findOne(GREETING_ID);
+    }
+
+    @Benchmark
+    public Collection<Greeting> findAll() {
+        return greetingService.findAll();
+    }
+
+    @Benchmark
+    public Collection<Greeting> findPage() {
+        return greetingService.findPage(null, 20);
+    }
+
+    @Benchmark
+    public Greeting update(ThreadState threadState) {
+        Greeting greeting = new Greeting();
+        greeting.setId(GREETING_ID);
+        greeting.setText("Hello World!");
+        return greetingService.update(greeting);
+    }
+
+    @Benchmark
+    public Long createAndDelete(ThreadState threadState) {
+        Greeting greeting = new Greeting();
+        greeting.setText("benchmark");
+        Long id = greetingService.create(greeting).getId();
+        greetingService.delete(id);
+        return id;
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.example.ws.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.web.converter.MappingJackson2CborHttpMessageConverter;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JMH benchmarks of the serialization of Greeting entities with the
+ * application's ObjectMappers, which include the Joda module, in each
+ * response format: JSON, Smile and CBOR. The payload sizes of each format
+ * are printed when a trial starts.
+ *
+ * @author Matt Warman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JacksonBenchmark {
+
+    /**
+     * The number of Greetings in a page, as returned by a listing request.
+     */
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "json", "smile", "cbor" })
+    private String format;
+
+    private ConfigurableApplicationContext context;
+
+    private ObjectMapper objectMapper;
+
+    private Greeting greeting;
+
+    private byte[] greetingBytes;
+
+    private List<Greeting> page;
+
+    private byte[] pageBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start();
+        if ("smile".equals(format)) {
+            objectMapper = context.getBean(
+                    MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+        } else if ("cbor".equals(format)) {
+            objectMapper = context.getBean(
+                    MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+        } else {
+            objectMapper = context.getBean(ObjectMapper.class);
+        }
+
+        greeting = greeting(1L);
+        greetingBytes = objectMapper.writeValueAsBytes(greeting);
+        page = new ArrayList<Greeting>(PAGE_SIZE);
+        for (long id = 1L; id <= PAGE_SIZE; id++) {
+            page.add(greeting(id));
+        }
+        pageBytes = objectMapper.writeValueAsBytes(page);
+        System.out.println("Payload bytes (" + format + "): greeting="
+                + greetingBytes.length + " page=" + pageBytes.length);
+    }
+
+    private static Greeting greeting(Long id) {
+        Greeting greeting = new Greeting();
+        greeting.setId(id);
+        greeting.setReferenceId("015f2b8e-6a3c-7b1d-9e4f-2a6c8d0e1f3a");
+        greeting.setText("Hello World!");
+        greeting.setVersion(0);
+        greeting.setCreatedBy("user");
+        greeting.setCreatedAt(new DateTime());
+        greeting.setUpdatedBy("user");
+        greeting.setUpdatedAt(new DateTime());
+        greeting.setChangedAt(new DateTime());
+        return greeting;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(greeting);
+    }
+
+    @Benchmark
+    public Greeting deserialize() throws IOException {
+        return objectMapper.readValue(greetingBytes, Greeting.class);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<Greeting> deserializePage() throws IOException {
+        return objectMapper.readValue(pageBytes,
+                new TypeReference<List<Greeting>>() { });
+    }
+
+}
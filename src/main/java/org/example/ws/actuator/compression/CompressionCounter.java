@@ -0,0 +1,103 @@
+package org.example.ws.actuator.compression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A CompressionCounter accumulates the response compression statistics of
+ * one endpoint: how many responses were compressed or skipped, the bytes
+ * before and after compression, and the time spent compressing.
+ *
+ * Recording is lock-free and does not allocate.
+ *
+ * @author Matt Warman
+ */
+public class CompressionCounter {
+
+    private final String name;
+
+    private final LongAdder compressed = new LongAdder();
+
+    private final LongAdder skippedSmall = new LongAdder();
+
+    private final LongAdder skippedType = new LongAdder();
+
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    private final LongAdder compressNanos = new LongAdder();
+
+    /**
+     * Create a CompressionCounter.
+     * @param name The String name under which the counter is reported.
+     */
+    public CompressionCounter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record a compressed response.
+     * @param uncompressedBytes The long size of the body before compression.
+     * @param compressedBytes The long size of the body sent.
+     * @param nanos The long nanoseconds spent compressing.
+     */
+    public void recordCompressed(long uncompressedBytes, long compressedBytes,
+            long nanos) {
+        compressed.increment();
+        bytesIn.add(uncompressedBytes);
+        bytesOut.add(compressedBytes);
+        compressNanos.add(nanos);
+    }
+
+    /**
+     * Record a response sent uncompressed because it was below the size
+     * threshold.
+     */
+    public void recordSkippedSmall() {
+        skippedSmall.increment();
+    }
+
+    /**
+     * Record a response sent uncompressed because its content type is not
+     * compressible or it was already encoded.
+     */
+    public void recordSkippedType() {
+        skippedType.increment();
+    }
+
+    /**
+     * Read the statistics since startup: the number of compressed and
+     * skipped responses, the bytes before and after compression, their
+     * ratio, and the total and mean microseconds spent compressing.
+     * @return A Map of statistic names to values.
+     */
+    public Map<String, Object> snapshot() {
+        long compressedCount = compressed.sum();
+        long in = bytesIn.sum();
+        long out = bytesOut.sum();
+        long micros = compressNanos.sum() / 1000L;
+
+        Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+        snapshot.put("compressed", compressedCount);
+        snapshot.put("skipped.small", skippedSmall.sum());
+        snapshot.put("skipped.type", skippedType.sum());
+        snapshot.put("bytes.in", in);
+        snapshot.put("bytes.out", out);
+        snapshot.put("ratio", in == 0 ? 0.0 : round((double) out / in));
+        snapshot.put("compress.micros", micros);
+        snapshot.put("compress.mean.micros",
+                compressedCount == 0 ? 0.0 : round((double) micros / compressedCount));
+        return snapshot;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+}
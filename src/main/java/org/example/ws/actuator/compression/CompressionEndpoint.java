@@ -0,0 +1,63 @@
+package org.example.ws.actuator.compression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.example.ws.web.compression.DeflaterPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * The CompressionEndpoint is a custom Spring Boot Actuator endpoint exposing
+ * the response compression statistics of every API endpoint, keyed by
+ * endpoint name, and the state of the DeflaterPool at
+ * <code>/actuators/compression</code>.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class CompressionEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    @Autowired
+    private CompressionRecorder compressionRecorder;
+
+    @Autowired
+    private DeflaterPool deflaterPool;
+
+    public CompressionEndpoint() {
+        super("compression");
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        List<CompressionCounter> counters = new ArrayList<CompressionCounter>(
+                compressionRecorder.getCounters());
+        Collections.sort(counters, new Comparator<CompressionCounter>() {
+            @Override
+            public int compare(CompressionCounter c1, CompressionCounter c2) {
+                return c1.getName().compareTo(c2.getName());
+            }
+        });
+
+        Map<String, Object> endpoints = new LinkedHashMap<String, Object>();
+        for (CompressionCounter counter : counters) {
+            endpoints.put(counter.getName(), counter.snapshot());
+        }
+
+        Map<String, Object> pool = new LinkedHashMap<String, Object>();
+        pool.put("level", deflaterPool.getLevel());
+        pool.put("created", deflaterPool.getCreated());
+        pool.put("idle", deflaterPool.getIdle());
+
+        Map<String, Object> compression = new LinkedHashMap<String, Object>();
+        compression.put("deflaters", pool);
+        compression.put("endpoints", endpoints);
+        return compression;
+    }
+
+}
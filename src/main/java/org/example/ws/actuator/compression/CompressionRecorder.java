@@ -0,0 +1,50 @@
+package org.example.ws.actuator.compression;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The CompressionRecorder holds the CompressionCounter of every endpoint
+ * whose responses pass through the CompressionFilter. Counters are named
+ * <code>{method} {pattern}</code> after the request mapping pattern, e.g.
+ * <code>GET /api/greetings/{id}</code>, and created on first use.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class CompressionRecorder {
+
+    /**
+     * The CompressionCounter of each endpoint.
+     */
+    private final ConcurrentMap<String, CompressionCounter> counters = new ConcurrentHashMap<String, CompressionCounter>();
+
+    /**
+     * Returns the CompressionCounter of an endpoint, creating it if needed.
+     * @param name The String endpoint name.
+     * @return A CompressionCounter.
+     */
+    public CompressionCounter counterFor(String name) {
+        CompressionCounter counter = counters.get(name);
+        if (counter == null) {
+            CompressionCounter created = new CompressionCounter(name);
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns all CompressionCounters created so far.
+     * @return A Collection of CompressionCounters.
+     */
+    public Collection<CompressionCounter> getCounters() {
+        return counters.values();
+    }
+
+}
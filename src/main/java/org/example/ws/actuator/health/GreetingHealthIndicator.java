@@ -1,12 +1,22 @@
 package org.example.ws.actuator.health;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
-import org.example.ws.model.Greeting;
+import javax.sql.DataSource;
+
+import org.example.ws.datasource.ReadWriteRoutingDataSource;
 import org.example.ws.service.GreetingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadata;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProviders;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
 import org.springframework.stereotype.Component;
 
 /**
@@ -15,32 +25,149 @@ import org.springframework.stereotype.Component;
  * 'health' endpoint is invoked. Each HealthIndicator class assesses some
  * portion of the application's health, returing a Health object which indicates
  * that status and, optionally, additional health attributes.
- * 
+ *
+ * The assessment issues a single existence query, reading one id from the
+ * id index rather than counting the Greetings, and its result is cached for
+ * the configured time-to-live, so frequent probes from load balancers do not
+ * reach the database. The probe latency and the state of the connection pool
+ * are reported as health details. When the application DataSource is a
+ * proxy, such as the LazyConnectionDataSourceProxy of the 'replica' profile,
+ * the pool described is the one of its (primary) target DataSource.
+ *
  * @author Matt Warman
  */
 @Component
 public class GreetingHealthIndicator implements HealthIndicator {
 
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
     /**
      * The GreetingService business service.
      */
     @Autowired
     private GreetingService greetingService;
 
+    /**
+     * The application DataSource.
+     */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * The DataSourcePoolMetadataProvider beans used to describe the
+     * connection pool. None are present for unsupported pool types.
+     */
+    @Autowired(required = false)
+    private Collection<DataSourcePoolMetadataProvider> metadataProviders;
+
+    /**
+     * The number of milliseconds an assessment is reused before the data
+     * store is probed again. Zero disables caching.
+     */
+    @Value("${greeting.health.cache-ttl:5000}")
+    private long cacheTtl;
+
+    /**
+     * The most recent assessment.
+     */
+    private volatile Health cachedHealth;
+
+    /**
+     * The System.nanoTime() value after which the cached assessment expires.
+     */
+    private volatile long cachedHealthExpiry;
+
     @Override
     public Health health() {
 
-        // Assess the application's Greeting health. If the application's
-        // Greeting components have data to service user requests, the Greeting
-        // component is considered 'healthy', otherwise it is not.
+        Health health = cachedHealth;
+        if (health != null && System.nanoTime() - cachedHealthExpiry < 0) {
+            return health;
+        }
+
+        synchronized (this) {
+            // Only one concurrent probe reaches the data store; the others
+            // wait and reuse its assessment.
+            health = cachedHealth;
+            if (health != null && System.nanoTime() - cachedHealthExpiry < 0) {
+                return health;
+            }
+
+            health = assess();
+            cachedHealthExpiry = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(cacheTtl);
+            cachedHealth = health;
+            return health;
+        }
+    }
 
-        Collection<Greeting> greetings = greetingService.findAll();
+    /**
+     * Assess the application's Greeting health. If the application's Greeting
+     * components have data to service user requests, the Greeting component
+     * is considered 'healthy', otherwise it is not.
+     * @return A Health object.
+     */
+    private Health assess() {
 
-        if (greetings == null || greetings.size() == 0) {
-            return Health.down().withDetail("count", 0).build();
+        Health.Builder builder;
+        long start = System.nanoTime();
+        try {
+            builder = greetingService.exists() ? Health.up() : Health.down();
+        } catch (Exception e) {
+            logger.error("Greeting health probe failed.", e);
+            builder = Health.down().withException(e);
         }
+        builder.withDetail("latencyMillis",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
-        return Health.up().withDetail("count", greetings.size()).build();
+        DataSourcePoolMetadata pool = new DataSourcePoolMetadataProviders(
+                metadataProviders).getDataSourcePoolMetadata(poolDataSource());
+        if (pool != null) {
+            withPoolDetail(builder, "pool.active", pool.getActive());
+            withPoolDetail(builder, "pool.max", pool.getMax());
+            withPoolDetail(builder, "pool.min", pool.getMin());
+            withPoolDetail(builder, "pool.usage", pool.getUsage());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Finds the DataSource holding the connection pool behind the application
+     * DataSource, unwrapping delegating proxies and routing to the primary
+     * DataSource.
+     * @return A DataSource.
+     */
+    private DataSource poolDataSource() {
+        DataSource target = dataSource;
+        while (true) {
+            if (target instanceof DelegatingDataSource) {
+                target = ((DelegatingDataSource) target).getTargetDataSource();
+            } else if (target instanceof ReadWriteRoutingDataSource
+                    && ((ReadWriteRoutingDataSource) target)
+                            .getPrimaryDataSource() != null) {
+                target = ((ReadWriteRoutingDataSource) target)
+                        .getPrimaryDataSource();
+            } else {
+                return target;
+            }
+        }
+    }
+
+    /**
+     * Adds a connection pool detail to the Health if the pool reports it.
+     * @param builder A Health.Builder.
+     * @param key The String detail key.
+     * @param value The detail value or <code>null</code> if not reported.
+     */
+    private void withPoolDetail(Health.Builder builder, String key,
+            Object value) {
+        if (value != null) {
+            builder.withDetail(key, value);
+        }
     }
 
 }
@@ -0,0 +1,56 @@
+package org.example.ws.actuator.latency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * The LatencyEndpoint is a custom Spring Boot Actuator endpoint exposing the
+ * latency statistics of every controller endpoint and service method, keyed
+ * by timer name, at <code>/actuators/latency</code>.
+ *
+ * Reading the statistics resets nothing, so any number of monitoring
+ * systems may poll the endpoint. Each timer reports cumulative figures since
+ * startup, whose counts a poller may subtract between two readings, and the
+ * same figures, percentiles included, over a rolling window of the last
+ * minute by default, under the <code>window.</code> prefix. Tail-latency
+ * regressions show in the window percentiles.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class LatencyEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    @Autowired
+    private LatencyRecorder latencyRecorder;
+
+    public LatencyEndpoint() {
+        super("latency");
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        List<LatencyTimer> timers = new ArrayList<LatencyTimer>(
+                latencyRecorder.getTimers());
+        Collections.sort(timers, new Comparator<LatencyTimer>() {
+            @Override
+            public int compare(LatencyTimer t1, LatencyTimer t2) {
+                return t1.getName().compareTo(t2.getName());
+            }
+        });
+
+        Map<String, Object> latencies = new LinkedHashMap<String, Object>();
+        for (LatencyTimer timer : timers) {
+            latencies.put(timer.getName(), timer.snapshot());
+        }
+        return latencies;
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.example.ws.actuator.latency;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.example.ws.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * The LatencyRecorder is an aspect which times every public method of the
+ * application's <code>@RestController</code> and <code>@Service</code>
+ * classes in a LatencyTimer.
+ *
+ * Timers are created on the first invocation of a method and looked up by
+ * the Method afterwards, so recording builds no String keys. Timers are
+ * named <code>{SimpleClassName}.{methodName}</code> after the class of the
+ * advised bean, whether it is proxied through its interfaces or its class. Sampled invocations are
+ * also recorded as Spans by the Tracer, under the timer name.
+ *
+ * The window of every timer is rotated each
+ * <code>latency.window.slice-millis</code> and holds
+ * <code>latency.window.slices</code> closed slices, one minute by default.
+ *
+ * @author Matt Warman
+ */
+@Aspect
+@Component
+public class LatencyRecorder {
+
+    /**
+     * The LatencyTimer of each method.
+     */
+    private final ConcurrentMap<Method, LatencyTimer> timers = new ConcurrentHashMap<Method, LatencyTimer>();
+
+    @Autowired
+    private Tracer tracer;
+
+    /**
+     * The number of closed slices in the window of each timer.
+     */
+    @Value("${latency.window.slices:6}")
+    private int windowSlices;
+
+    /**
+     * Times the invocation of a controller or service method.
+     * @param joinPoint The ProceedingJoinPoint of the invocation.
+     * @return The value returned by the method.
+     * @throws Throwable Thrown by the method.
+     */
+    @Around("(execution(public * org.example.ws.web.api..*(..)) && @within(org.springframework.web.bind.annotation.RestController))"
+            + " || (execution(public * org.example.ws.service..*(..)) && @within(org.springframework.stereotype.Service))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        LatencyTimer timer = timerFor(joinPoint);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            timer.record(System.nanoTime() - start, failed);
+            if (tracer.isSampled()) {
+                tracer.record(timer.getName(), start, failed);
+            }
+        }
+    }
+
+    /**
+     * Rotates the window of every timer.
+     */
+    @Scheduled(
+            initialDelayString = "${latency.window.slice-millis:10000}",
+            fixedRateString = "${latency.window.slice-millis:10000}")
+    public void rotate() {
+        for (LatencyTimer timer : timers.values()) {
+            timer.rotate();
+        }
+    }
+
+    /**
+     * Returns all LatencyTimers created so far.
+     * @return A Collection of LatencyTimers.
+     */
+    public Collection<LatencyTimer> getTimers() {
+        return timers.values();
+    }
+
+    private LatencyTimer timerFor(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        LatencyTimer timer = timers.get(method);
+        if (timer == null) {
+            LatencyTimer created = new LatencyTimer(
+                    ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName()
+                            + "." + method.getName(),
+                    windowSlices);
+            timer = timers.putIfAbsent(method, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+}
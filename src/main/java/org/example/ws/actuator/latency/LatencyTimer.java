@@ -0,0 +1,248 @@
+package org.example.ws.actuator.latency;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.IntCountsHistogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * A LatencyTimer records the latency of one method in an HdrHistogram.
+ *
+ * Recording is wait-free and does not allocate: the latency is written into
+ * the active histogram of a Recorder and the call and error counts are
+ * LongAdders. Reading a snapshot or rotating the window swaps the active
+ * histogram for an empty one and adds it to the histogram of the open time
+ * slice and to a cumulative histogram, so reads reset nothing and concurrent
+ * readers see the same data.
+ *
+ * A snapshot reports two sets of figures. The cumulative ones describe all
+ * invocations since startup; their counts may be subtracted between two
+ * readings, but their percentiles may not, and after hours of uptime a new
+ * tail-latency regression barely moves them. The window figures describe
+ * the invocations of the closed slices of a rolling window plus the open
+ * slice, so they follow a regression within one window. Each
+ * <code>rotate</code> closes the open slice and drops the oldest one.
+ *
+ * Latencies are recorded in microseconds with two significant digits, so
+ * percentiles are accurate to within 1%. Latencies above one hour are
+ * recorded as one hour.
+ *
+ * @author Matt Warman
+ */
+public class LatencyTimer {
+
+    /**
+     * The largest latency recorded, in microseconds.
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS
+            .toMicros(1);
+
+    /**
+     * The number of significant decimal digits of recorded values.
+     */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final String name;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS,
+            SIGNIFICANT_DIGITS);
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final Histogram totalHistogram = new Histogram(
+            HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * The closed slices of the window, used as a ring.
+     */
+    private final Slice[] closedSlices;
+
+    /**
+     * The slice collecting invocations since the last rotation.
+     */
+    private Slice openSlice = new Slice();
+
+    /**
+     * The index of the oldest closed slice.
+     */
+    private int oldestSlice;
+
+    /**
+     * The error count already attributed to a slice.
+     */
+    private long collectedErrors;
+
+    private Histogram intervalHistogram;
+
+    private final AbstractHistogram windowHistogram = newSliceHistogram();
+
+    /**
+     * Create a LatencyTimer.
+     * @param name The String name under which the timer is reported.
+     * @param windowSlices The number of closed slices kept in the window.
+     */
+    public LatencyTimer(String name, int windowSlices) {
+        this.name = name;
+        this.closedSlices = new Slice[Math.max(0, windowSlices)];
+        for (int i = 0; i < closedSlices.length; i++) {
+            closedSlices[i] = new Slice();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record one invocation.
+     * @param elapsedNanos The long latency of the invocation in nanoseconds.
+     * @param failed <code>true</code> if the invocation threw an exception.
+     */
+    public void record(long elapsedNanos, boolean failed) {
+        long micros = Math.min(HIGHEST_TRACKABLE_MICROS,
+                Math.max(0L, elapsedNanos / 1000L));
+        recorder.recordValue(micros);
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Close the open slice of the window, replacing the oldest closed slice,
+     * and open an empty one.
+     */
+    public synchronized void rotate() {
+        collect();
+        long now = System.nanoTime();
+        openSlice.nanos = now - openSlice.startNanos;
+        if (closedSlices.length == 0) {
+            openSlice.reset(now);
+            return;
+        }
+        Slice reused = closedSlices[oldestSlice];
+        closedSlices[oldestSlice] = openSlice;
+        oldestSlice = (oldestSlice + 1) % closedSlices.length;
+        reused.reset(now);
+        openSlice = reused;
+    }
+
+    /**
+     * Read the statistics since startup and over the window.
+     *
+     * The snapshot holds the number of calls and errors since startup, the
+     * mean throughput in calls per second, the error rate, and the 50th,
+     * 99th and 99.9th percentile and maximum latency in microseconds. The
+     * same figures over the window carry the <code>window.</code> prefix,
+     * with the length of the window in <code>window.seconds</code>. Reading
+     * a snapshot does not reset any statistic.
+     *
+     * @return A Map of statistic names to values.
+     */
+    public synchronized Map<String, Object> snapshot() {
+        collect();
+
+        long totalCalls = calls.sum();
+        long totalErrors = errors.sum();
+        double seconds = Math.max(1L, System.nanoTime() - startNanos) / 1e9;
+
+        Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+        snapshot.put("count", totalCalls);
+        snapshot.put("errors", totalErrors);
+        snapshot.put("seconds", round(seconds));
+        snapshot.put("throughput", round(totalCalls / seconds));
+        snapshot.put("errorRate", rate(totalErrors, totalCalls));
+        putPercentiles(snapshot, "", totalHistogram);
+
+        windowHistogram.reset();
+        windowHistogram.add(openSlice.histogram);
+        long windowErrors = openSlice.errors;
+        long windowNanos = System.nanoTime() - openSlice.startNanos;
+        for (Slice slice : closedSlices) {
+            windowHistogram.add(slice.histogram);
+            windowErrors += slice.errors;
+            windowNanos += slice.nanos;
+        }
+        long windowCalls = windowHistogram.getTotalCount();
+        double windowSeconds = Math.max(1L, windowNanos) / 1e9;
+        snapshot.put("window.count", windowCalls);
+        snapshot.put("window.errors", windowErrors);
+        snapshot.put("window.seconds", round(windowSeconds));
+        snapshot.put("window.throughput", round(windowCalls / windowSeconds));
+        snapshot.put("window.errorRate", rate(windowErrors, windowCalls));
+        putPercentiles(snapshot, "window.", windowHistogram);
+        return snapshot;
+    }
+
+    /**
+     * Moves the latencies and errors recorded since the last collection into
+     * the open slice and the cumulative histogram.
+     */
+    private void collect() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        totalHistogram.add(intervalHistogram);
+        openSlice.histogram.add(intervalHistogram);
+        long totalErrors = errors.sum();
+        openSlice.errors += totalErrors - collectedErrors;
+        collectedErrors = totalErrors;
+    }
+
+    private static void putPercentiles(Map<String, Object> snapshot,
+            String prefix, AbstractHistogram histogram) {
+        snapshot.put(prefix + "p50.micros", histogram.getValueAtPercentile(50.0));
+        snapshot.put(prefix + "p99.micros", histogram.getValueAtPercentile(99.0));
+        snapshot.put(prefix + "p999.micros", histogram.getValueAtPercentile(99.9));
+        snapshot.put(prefix + "max.micros", histogram.getMaxValue());
+    }
+
+    private static double rate(long errors, long calls) {
+        return calls == 0 ? 0.0 : round((double) errors / calls);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    /**
+     * Creates a histogram for the window, whose counts fit in an int.
+     */
+    private static AbstractHistogram newSliceHistogram() {
+        return new IntCountsHistogram(HIGHEST_TRACKABLE_MICROS,
+                SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * The latencies and errors of one time slice of the window.
+     */
+    private static final class Slice {
+
+        private final AbstractHistogram histogram = newSliceHistogram();
+
+        private long errors;
+
+        private long startNanos = System.nanoTime();
+
+        /**
+         * The length of the slice once closed.
+         */
+        private long nanos;
+
+        private void reset(long now) {
+            histogram.reset();
+            errors = 0L;
+            startNanos = now;
+            nanos = 0L;
+        }
+
+    }
+
+}
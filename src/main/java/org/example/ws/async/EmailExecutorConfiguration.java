@@ -0,0 +1,87 @@
+package org.example.ws.async;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The EmailExecutorConfiguration class supplies the bounded executor used by
+ * the <code>@Async</code> methods of the EmailService. Without it, Spring
+ * falls back to an unbounded thread-per-task executor and a burst of email
+ * requests exhausts the available threads.
+ * 
+ * The pool size, queue capacity and rejection policy are configured with the
+ * <code>async.email.*</code> properties.
+ * 
+ * @author Matt Warman
+ */
+@Configuration
+public class EmailExecutorConfiguration {
+
+    /**
+     * The bean name of the email executor. Use it as the value of
+     * <code>@Async</code> annotations.
+     */
+    public static final String EMAIL_EXECUTOR = "emailExecutor";
+
+    @Value("${async.email.core-pool-size:2}")
+    private int corePoolSize;
+
+    @Value("${async.email.max-pool-size:8}")
+    private int maxPoolSize;
+
+    @Value("${async.email.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${async.email.keep-alive-seconds:60}")
+    private int keepAliveSeconds;
+
+    @Value("${async.email.rejection-policy:CALLER_RUNS}")
+    private RejectionPolicy rejectionPolicy;
+
+    /**
+     * Supplies the bounded, instrumented email executor to the Spring
+     * ApplicationContext.
+     * 
+     * @return An InstrumentedThreadPoolTaskExecutor.
+     */
+    @Bean(name = EMAIL_EXECUTOR)
+    public InstrumentedThreadPoolTaskExecutor emailExecutor() {
+        InstrumentedThreadPoolTaskExecutor executor = new InstrumentedThreadPoolTaskExecutor(
+                "email");
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setThreadNamePrefix("email-");
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Returns the configured rejection policy.
+     * @return A RejectionPolicy.
+     */
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /**
+     * Maps the configured RejectionPolicy to a RejectedExecutionHandler. The
+     * SPILL policy aborts at the executor; the spilling of the payload is
+     * performed by the submitter, which owns it.
+     * @return A RejectedExecutionHandler.
+     */
+    private RejectedExecutionHandler rejectedExecutionHandler() {
+        if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+        return new ThreadPoolExecutor.AbortPolicy();
+    }
+
+}
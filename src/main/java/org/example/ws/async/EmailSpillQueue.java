@@ -0,0 +1,237 @@
+package org.example.ws.async;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.service.EmailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The EmailSpillQueue is a durable, file-backed queue of Greetings whose email
+ * could not be submitted because the email executor was saturated. It is used
+ * only when the email executor's rejection policy is
+ * {@link RejectionPolicy#SPILL}.
+ * 
+ * Each spilled Greeting is serialized to its own file in the spill directory,
+ * so spilled emails survive a restart. A scheduled drain resubmits spilled
+ * Greetings, oldest first, while the executor queue has free capacity.
+ * 
+ * @author Matt Warman
+ */
+@Component
+public class EmailSpillQueue implements PublicMetrics {
+
+    /**
+     * The file name extension of spilled entries.
+     */
+    private static final String EXTENSION = ".spill";
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The email executor configuration.
+     */
+    @Autowired
+    private EmailExecutorConfiguration emailExecutorConfiguration;
+
+    /**
+     * The email executor, inspected for free capacity before resubmitting.
+     */
+    @Autowired
+    @Qualifier(EmailExecutorConfiguration.EMAIL_EXECUTOR)
+    private InstrumentedThreadPoolTaskExecutor emailExecutor;
+
+    /**
+     * The EmailService business service.
+     */
+    @Autowired
+    private EmailService emailService;
+
+    /**
+     * The directory in which spilled Greetings are stored.
+     */
+    @Value("${async.email.spill-directory:${java.io.tmpdir}/greeting-email-spill}")
+    private String spillDirectory;
+
+    /**
+     * The spill directory Path.
+     */
+    private Path directory;
+
+    /**
+     * A sequence number which keeps entry file names unique and ordered.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The number of Greetings spilled since startup.
+     */
+    private final AtomicLong spilled = new AtomicLong();
+
+    /**
+     * Creates the spill directory when the SPILL policy is in use.
+     * @throws IOException Thrown when the directory cannot be created.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        directory = Paths.get(spillDirectory);
+        Files.createDirectories(directory);
+        logger.info("Email spill queue at {} holds {} pending entries.",
+                directory, pendingEntries().size());
+    }
+
+    /**
+     * Determines if the email executor spills rejected emails.
+     * @return A boolean that is TRUE when the SPILL policy is in use.
+     */
+    public boolean isEnabled() {
+        return emailExecutorConfiguration
+                .getRejectionPolicy() == RejectionPolicy.SPILL;
+    }
+
+    /**
+     * Writes the Greeting to the spill queue.
+     * @param greeting A Greeting whose email could not be submitted.
+     * @return A boolean that is TRUE if the Greeting was spilled, or FALSE if
+     *         the SPILL policy is not in use or the write failed.
+     */
+    public boolean offer(Greeting greeting) {
+        if (!isEnabled()) {
+            return false;
+        }
+        String name = String.format("%019d-%019d%s",
+                System.currentTimeMillis(), sequence.incrementAndGet(),
+                EXTENSION);
+        try {
+            Path temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                    ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(greeting);
+            }
+            Files.move(temp, directory.resolve(name),
+                    StandardCopyOption.ATOMIC_MOVE);
+            spilled.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            logger.error("Unable to spill the email for Greeting id:{}.",
+                    greeting.getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Resubmits spilled Greetings, oldest first, while the email executor has
+     * free queue capacity. An entry is deleted only once it was submitted.
+     */
+    @Scheduled(
+            fixedDelayString = "${async.email.spill-drain-interval:5000}")
+    public void drain() {
+        if (!isEnabled()) {
+            return;
+        }
+        for (Path entry : pendingEntries()) {
+            if (emailExecutor.getQueueRemainingCapacity() == 0) {
+                return;
+            }
+            try {
+                Greeting greeting = read(entry);
+                emailService.sendAsync(greeting);
+                Files.delete(entry);
+            } catch (TaskRejectedException e) {
+                return;
+            } catch (IOException | ClassNotFoundException e) {
+                logger.error("Unable to resubmit spilled email {}.", entry, e);
+                quarantine(entry);
+            }
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        if (isEnabled()) {
+            metrics.add(new Metric<Long>("executor.email.spilled",
+                    spilled.get()));
+        }
+        return metrics;
+    }
+
+    /**
+     * Lists the pending entries, oldest first.
+     * @return A List of entry file Paths.
+     */
+    private List<Path> pendingEntries() {
+        List<Path> entries = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files
+                .newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to list the email spill directory.", e);
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    /**
+     * Renames an unreadable entry so that it is no longer drained.
+     * @param entry The entry file Path.
+     */
+    private void quarantine(Path entry) {
+        try {
+            Files.move(entry, entry.resolveSibling(
+                    entry.getFileName().toString() + ".failed"));
+        } catch (IOException e) {
+            logger.error("Unable to quarantine spilled email {}.", entry, e);
+        }
+    }
+
+    /**
+     * Reads a spilled Greeting.
+     * @param entry The entry file Path.
+     * @return A Greeting.
+     * @throws IOException Thrown when the entry cannot be read.
+     * @throws ClassNotFoundException Thrown when the entry cannot be
+     *         deserialized.
+     */
+    private Greeting read(Path entry)
+            throws IOException, ClassNotFoundException {
+        try (InputStream in = Files.newInputStream(entry);
+                ObjectInputStream objectIn = new ObjectInputStream(in)) {
+            return (Greeting) objectIn.readObject();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.example.ws.async;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * A ThreadPoolTaskExecutor which exposes its pool size, active thread count,
+ * queue depth, completed task count and rejected task count as Spring Boot
+ * Actuator metrics.
+ * 
+ * Metrics are named <code>executor.{name}.*</code>.
+ * 
+ * @author Matt Warman
+ */
+public class InstrumentedThreadPoolTaskExecutor extends ThreadPoolTaskExecutor
+        implements PublicMetrics {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The metric name prefix.
+     */
+    private final String prefix;
+
+    /**
+     * The number of tasks rejected because the pool and queue were full.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Create a new InstrumentedThreadPoolTaskExecutor.
+     * @param name The executor name used in metric names.
+     */
+    public InstrumentedThreadPoolTaskExecutor(String name) {
+        this.prefix = "executor." + name + ".";
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(
+            RejectedExecutionHandler rejectedExecutionHandler) {
+        final RejectedExecutionHandler delegate = rejectedExecutionHandler != null
+                ? rejectedExecutionHandler : new ThreadPoolExecutor.AbortPolicy();
+        super.setRejectedExecutionHandler(
+                (Runnable task, ThreadPoolExecutor executor) -> {
+                    rejected.increment();
+                    delegate.rejectedExecution(task, executor);
+                });
+    }
+
+    /**
+     * Returns the number of additional tasks the queue can accept before
+     * tasks are rejected.
+     * @return An int.
+     */
+    public int getQueueRemainingCapacity() {
+        return getThreadPoolExecutor().getQueue().remainingCapacity();
+    }
+
+    /**
+     * Returns the number of tasks rejected since startup.
+     * @return A long.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        metrics.add(new Metric<Integer>(prefix + "active",
+                executor.getActiveCount()));
+        metrics.add(new Metric<Integer>(prefix + "pool.size",
+                executor.getPoolSize()));
+        metrics.add(new Metric<Integer>(prefix + "pool.max",
+                executor.getMaximumPoolSize()));
+        metrics.add(new Metric<Integer>(prefix + "queue.size",
+                executor.getQueue().size()));
+        metrics.add(new Metric<Integer>(prefix + "queue.remaining",
+                executor.getQueue().remainingCapacity()));
+        metrics.add(new Metric<Long>(prefix + "completed",
+                executor.getCompletedTaskCount()));
+        metrics.add(new Metric<Long>(prefix + "rejected", rejected.sum()));
+        return metrics;
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.example.ws.async;
+
+/**
+ * The RejectionPolicy enumerates what a bounded executor does with a task
+ * when all of its threads are busy and its queue is full.
+ * 
+ * @author Matt Warman
+ */
+public enum RejectionPolicy {
+
+    /**
+     * The submitting thread runs the task itself. This throttles producers
+     * but ties up the request thread for the duration of the task.
+     */
+    CALLER_RUNS,
+
+    /**
+     * The task is dropped and the submitter receives a
+     * <code>TaskRejectedException</code>, answered with HTTP status 503.
+     */
+    ABORT,
+
+    /**
+     * The task is dropped by the executor and its payload is written to a
+     * durable spill queue on disk, from which it is resubmitted once the
+     * executor has capacity again.
+     */
+    SPILL
+
+}
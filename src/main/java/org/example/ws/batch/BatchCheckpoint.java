@@ -0,0 +1,67 @@
+package org.example.ws.batch;
+
+/**
+ * A BatchCheckpoint records the progress of one partition of a batch job.
+ * A partition covers the primary key range from <code>lowerBound</code> to
+ * <code>upperBound</code>, inclusive. All rows with a primary key up to and
+ * including <code>lastId</code> have been processed and committed.
+ *
+ * @author Matt Warman
+ */
+public class BatchCheckpoint {
+
+    private final String jobName;
+
+    private final int partitionId;
+
+    private final long lowerBound;
+
+    private final long upperBound;
+
+    private final long lastId;
+
+    private final long rowsProcessed;
+
+    private final boolean completed;
+
+    public BatchCheckpoint(String jobName, int partitionId, long lowerBound,
+            long upperBound, long lastId, long rowsProcessed,
+            boolean completed) {
+        this.jobName = jobName;
+        this.partitionId = partitionId;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.lastId = lastId;
+        this.rowsProcessed = rowsProcessed;
+        this.completed = completed;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public int getPartitionId() {
+        return partitionId;
+    }
+
+    public long getLowerBound() {
+        return lowerBound;
+    }
+
+    public long getUpperBound() {
+        return upperBound;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+}
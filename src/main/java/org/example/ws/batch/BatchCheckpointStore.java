@@ -0,0 +1,97 @@
+package org.example.ws.batch;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+/**
+ * The BatchCheckpointStore reads and writes the BatchCheckpoint table. Writes
+ * join the current transaction, if there is one.
+ *
+ * @author Matt Warman
+ */
+@Profile("batch")
+@Component
+public class BatchCheckpointStore {
+
+    /**
+     * Maps BatchCheckpoint rows.
+     */
+    private static final RowMapper<BatchCheckpoint> ROW_MAPPER = new RowMapper<BatchCheckpoint>() {
+        @Override
+        public BatchCheckpoint mapRow(ResultSet rs, int rowNum)
+                throws SQLException {
+            return new BatchCheckpoint(rs.getString("jobName"),
+                    rs.getInt("partitionId"), rs.getLong("lowerBound"),
+                    rs.getLong("upperBound"), rs.getLong("lastId"),
+                    rs.getLong("rowsProcessed"), rs.getBoolean("completed"));
+        }
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Find the checkpoints of all partitions of a job.
+     * @param jobName A String job name.
+     * @return A List of BatchCheckpoints ordered by partition.
+     */
+    public List<BatchCheckpoint> findByJobName(String jobName) {
+        return jdbcTemplate.query(
+                "SELECT jobName, partitionId, lowerBound, upperBound, lastId, rowsProcessed, completed "
+                        + "FROM BatchCheckpoint WHERE jobName = ? ORDER BY partitionId",
+                ROW_MAPPER, jobName);
+    }
+
+    /**
+     * Create the checkpoint of a new partition.
+     * @param checkpoint A BatchCheckpoint.
+     */
+    public void create(BatchCheckpoint checkpoint) {
+        jdbcTemplate.update(
+                "INSERT INTO BatchCheckpoint (jobName, partitionId, lowerBound, upperBound, lastId, rowsProcessed, completed, updatedAt) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                checkpoint.getJobName(), checkpoint.getPartitionId(),
+                checkpoint.getLowerBound(), checkpoint.getUpperBound(),
+                checkpoint.getLastId(), checkpoint.getRowsProcessed(),
+                checkpoint.isCompleted(), now());
+    }
+
+    /**
+     * Record the progress of a partition.
+     * @param jobName A String job name.
+     * @param partitionId An int partition identifier.
+     * @param lastId The long primary key of the last processed row.
+     * @param rowsProcessed The long number of rows processed so far.
+     * @param completed <code>true</code> if the partition is complete.
+     */
+    public void update(String jobName, int partitionId, long lastId,
+            long rowsProcessed, boolean completed) {
+        jdbcTemplate.update(
+                "UPDATE BatchCheckpoint SET lastId = ?, rowsProcessed = ?, completed = ?, updatedAt = ? "
+                        + "WHERE jobName = ? AND partitionId = ?",
+                lastId, rowsProcessed, completed, now(), jobName,
+                partitionId);
+    }
+
+    /**
+     * Remove the checkpoints of a job.
+     * @param jobName A String job name.
+     */
+    public void deleteByJobName(String jobName) {
+        jdbcTemplate.update("DELETE FROM BatchCheckpoint WHERE jobName = ?",
+                jobName);
+    }
+
+    private Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+}
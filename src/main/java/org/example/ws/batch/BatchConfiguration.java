@@ -0,0 +1,51 @@
+package org.example.ws.batch;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.example.ws.async.InstrumentedThreadPoolTaskExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The BatchConfiguration class supplies the worker pool on which the
+ * partitions of batch jobs are processed. The pool size is configured with
+ * the <code>batch.workers</code> property.
+ *
+ * @author Matt Warman
+ */
+@Profile("batch")
+@Configuration
+public class BatchConfiguration {
+
+    /**
+     * The bean name of the batch executor.
+     */
+    public static final String BATCH_EXECUTOR = "batchExecutor";
+
+    @Value("${batch.workers:4}")
+    private int workers;
+
+    /**
+     * Supplies the fixed size, instrumented batch executor to the Spring
+     * ApplicationContext. Partitions beyond the pool size wait in the queue;
+     * none are rejected.
+     *
+     * @return An InstrumentedThreadPoolTaskExecutor.
+     */
+    @Bean(name = BATCH_EXECUTOR)
+    public InstrumentedThreadPoolTaskExecutor batchExecutor() {
+        InstrumentedThreadPoolTaskExecutor executor = new InstrumentedThreadPoolTaskExecutor(
+                "batch");
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setThreadNamePrefix("batch-");
+        executor.setRejectedExecutionHandler(
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+}
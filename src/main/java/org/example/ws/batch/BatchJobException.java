@@ -0,0 +1,18 @@
+package org.example.ws.batch;
+
+/**
+ * A BatchJobException is thrown when one or more partitions of a batch job
+ * fail. The chunks committed before the failure are kept and the job resumes
+ * after them on its next run.
+ *
+ * @author Matt Warman
+ */
+public class BatchJobException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BatchJobException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,27 @@
+package org.example.ws.batch;
+
+import java.util.List;
+
+/**
+ * A ChunkProcessor performs the work of a batch job on one chunk of
+ * entities. It runs inside the transaction of the chunk, which also records
+ * the checkpoint of the chunk: writes it makes through transactional
+ * services commit together with the checkpoint, and a failure rolls both
+ * back, so the chunk is processed again on the next run. The entities it
+ * receives are detached, so modifying them changes nothing in the data
+ * store. Implementations must be thread-safe, since partitions are
+ * processed concurrently.
+ *
+ * @author Matt Warman
+ *
+ * @param <T> The type of entity processed.
+ */
+public interface ChunkProcessor<T> {
+
+    /**
+     * Process a chunk of entities.
+     * @param chunk A List of detached entities ordered by primary key.
+     */
+    void process(List<T> chunk);
+
+}
@@ -1,42 +1,75 @@
 package org.example.ws.batch;
 
-import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.example.ws.model.Greeting;
-import org.example.ws.service.GreetingService;
+import org.example.ws.scheduling.ClusterJobLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
  * The GreetingBatchBean contains <code>@Scheduled</code> methods operating on
- * Greeting entities to perform batch operations.
- * 
+ * Greeting entities to perform batch operations. The jobs are executed by
+ * the GreetingBatchEngine. When several instances run the batch profile,
+ * the ClusterJobLock lets only one of them run each scheduled tick.
+ *
+ * The jobs only read Greetings; they never change what users wrote.
+ *
  * @author Matt Warman
  */
 @Profile("batch")
 @Component
 public class GreetingBatchBean {
 
+    /**
+     * The name of the Greeting text validation job.
+     */
+    public static final String VALIDATE_TEXT_JOB = "greetingValidateText";
+
     /**
      * The Logger for this class.
      */
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
     /**
-     * The GreetingService business service.
+     * The engine executing the batch jobs.
+     */
+    @Autowired
+    private GreetingBatchEngine batchEngine;
+
+    /**
+     * Lets one application instance run each scheduled tick.
+     */
+    @Autowired
+    private ClusterJobLock clusterJobLock;
+
+    /**
+     * Counts the invalid Greetings found.
      */
     @Autowired
-    private GreetingService greetingService;
+    private CounterService counterService;
+
+    /**
+     * Guards against overlapping runs when a run outlasts the schedule.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
 
     /**
      * Use a cron expression to execute logic on a schedule.
-     * 
+     *
      * Expression: second minute hour day-of-month month weekday
-     * 
+     *
+     * Validates the text of all Greetings, reporting the Greetings whose text
+     * is blank or has leading, trailing or repeated whitespace. Each one is
+     * logged and counted in the
+     * <code>counter.batch.greetingValidateText.invalid</code> metric.
+     *
      * @see http ://docs.spring.io/spring/docs/current/javadoc-api/org/
      *      springframework /scheduling/support/CronSequenceGenerator.html
      */
@@ -45,68 +78,53 @@ public class GreetingBatchBean {
     public void cronJob() {
         logger.info("> cronJob");
 
-        // Add scheduled logic here
-        Collection<Greeting> greetings = greetingService.findAll();
-        logger.info("There are {} greetings in the data store.",
-                greetings.size());
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Skipped; the previous run is still in progress.");
+            return;
+        }
+        try {
+            clusterJobLock.runExclusively(VALIDATE_TEXT_JOB, new Runnable() {
+                @Override
+                public void run() {
+                    batchEngine.run(VALIDATE_TEXT_JOB,
+                            new ValidateTextProcessor(counterService));
+                }
+            });
+        } finally {
+            running.set(false);
+        }
 
         logger.info("< cronJob");
     }
 
     /**
-     * Execute logic beginning at fixed intervals with a delay after the
-     * application starts. Use the <code>fixedRate</code> element to indicate
-     * how frequently the method is to be invoked. Use the
-     * <code>initialDelay</code> element to indicate how long to wait after
-     * application startup to schedule the first execution.
+     * Reports each Greeting of a chunk whose text is blank or not normalized.
      */
-    @Scheduled(
-            initialDelayString = "${batch.greeting.initialdelay}",
-            fixedRateString = "${batch.greeting.fixedrate}")
-    public void fixedRateJobWithInitialDelay() {
-        logger.info("> fixedRateJobWithInitialDelay");
-
-        // Add scheduled logic here
-
-        // Simulate job processing time
-        long pause = 5000;
-        long start = System.currentTimeMillis();
-        do {
-            if (start + pause < System.currentTimeMillis()) {
-                break;
-            }
-        } while (true);
-        logger.info("Processing time was {} seconds.", pause / 1000);
-
-        logger.info("< fixedRateJobWithInitialDelay");
-    }
-
-    /**
-     * Execute logic with a delay between the end of the last execution and the
-     * beginning of the next. Use the <code>fixedDelay</code> element to
-     * indicate the time to wait between executions. Use the
-     * <code>initialDelay</code> element to indicate how long to wait after
-     * application startup to schedule the first execution.
-     */
-    @Scheduled(
-            initialDelayString = "${batch.greeting.initialdelay}",
-            fixedDelayString = "${batch.greeting.fixeddelay}")
-    public void fixedDelayJobWithInitialDelay() {
-        logger.info("> fixedDelayJobWithInitialDelay");
-
-        // Add scheduled logic here
-
-        // Simulate job processing time
-        long pause = 5000;
-        long start = System.currentTimeMillis();
-        do {
-            if (start + pause < System.currentTimeMillis()) {
-                break;
+    private static class ValidateTextProcessor
+            implements ChunkProcessor<Greeting> {
+
+        private final Logger logger = LoggerFactory.getLogger(GreetingBatchBean.class);
+
+        private final CounterService counterService;
+
+        ValidateTextProcessor(CounterService counterService) {
+            this.counterService = counterService;
+        }
+
+        @Override
+        public void process(List<Greeting> chunk) {
+            for (Greeting greeting : chunk) {
+                String text = greeting.getText();
+                if (text == null || text.trim().isEmpty()
+                        || !text.trim().replaceAll("\\s+", " ").equals(text)) {
+                    logger.warn("Greeting {} has blank or unnormalized text.",
+                            greeting.getId());
+                    counterService.increment(
+                            "batch." + VALIDATE_TEXT_JOB + ".invalid");
+                }
             }
-        } while (true);
-        logger.info("Processing time was {} seconds.", pause / 1000);
+        }
 
-        logger.info("< fixedDelayJobWithInitialDelay");
     }
 
 }
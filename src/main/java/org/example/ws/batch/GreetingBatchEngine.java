@@ -0,0 +1,297 @@
+package org.example.ws.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.example.ws.async.InstrumentedThreadPoolTaskExecutor;
+import org.example.ws.model.Greeting;
+import org.example.ws.repository.GreetingStore;
+import org.example.ws.util.RequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The GreetingBatchEngine runs batch jobs over all Greeting entities, read
+ * from the GreetingStore of the active backend. The checkpoints are kept in
+ * the relational database.
+ *
+ * The id range of the Greetings is split into partitions which
+ * are processed concurrently on the batch executor. Each partition is read
+ * in keyset chunks; every chunk is read, passed to the ChunkProcessor as
+ * detached entities and recorded in the checkpoint of its partition, all in
+ * one transaction per chunk.
+ * When a job is interrupted, the next run of the same job resumes every
+ * partition after its last recorded chunk. The checkpoints of a job are
+ * removed once all of its partitions are complete.
+ *
+ * The throughput of each run and the latency of each chunk are published as
+ * the <code>gauge.batch.{job}.rowsPerSecond</code> and
+ * <code>gauge.batch.{job}.chunkMillis</code> metrics.
+ *
+ * @author Matt Warman
+ */
+@Profile("batch")
+@Component
+public class GreetingBatchEngine {
+
+    /**
+     * The username in the RequestContext of the batch worker threads.
+     */
+    public static final String BATCH_USERNAME = "batch";
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private GreetingStore greetingStore;
+
+    @Autowired
+    private BatchCheckpointStore checkpointStore;
+
+    @Autowired
+    private GaugeService gaugeService;
+
+    @Autowired
+    @Qualifier(BatchConfiguration.BATCH_EXECUTOR)
+    private InstrumentedThreadPoolTaskExecutor batchExecutor;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${batch.partitions:4}")
+    private int partitions;
+
+    @Value("${batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    public void setTransactionManager(
+            PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Run a batch job over all Greeting entities, resuming a previous,
+     * incomplete run of the same job if one exists.
+     *
+     * @param jobName A String job name identifying the checkpoints.
+     * @param processor The ChunkProcessor performing the work.
+     * @return The long number of rows processed by this run.
+     * @throws BatchJobException Thrown when a partition fails. Recorded
+     *         chunks are kept and the job resumes after them on its next run.
+     */
+    public long run(String jobName, ChunkProcessor<Greeting> processor) {
+        logger.info("> run {}", jobName);
+
+        List<BatchCheckpoint> checkpoints = checkpointStore
+                .findByJobName(jobName);
+        if (checkpoints.isEmpty()) {
+            checkpoints = createCheckpoints(jobName);
+        } else {
+            logger.info("Resuming job {} from {} checkpoints.", jobName,
+                    checkpoints.size());
+        }
+
+        long start = System.nanoTime();
+        List<Future<Long>> futures = new ArrayList<Future<Long>>();
+        for (BatchCheckpoint checkpoint : checkpoints) {
+            if (!checkpoint.isCompleted()) {
+                futures.add(batchExecutor.submit(
+                        new PartitionTask(checkpoint, processor)));
+            }
+        }
+
+        long rows = 0;
+        Throwable failure = null;
+        for (Future<Long> future : futures) {
+            try {
+                rows += future.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (InterruptedException e) {
+                // The lease of the job was lost: stop the partitions, which
+                // resume from their checkpoints on the next run.
+                Thread.currentThread().interrupt();
+                failure = e;
+                for (Future<Long> partition : futures) {
+                    partition.cancel(true);
+                }
+                break;
+            }
+        }
+
+        long elapsedMillis = Math.max(1L,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        double rowsPerSecond = rows * 1000.0 / elapsedMillis;
+        gaugeService.submit("batch." + jobName + ".rowsPerSecond",
+                rowsPerSecond);
+        logger.info("Job {} processed {} rows in {} ms ({} rows/sec).",
+                jobName, rows, elapsedMillis, Math.round(rowsPerSecond));
+
+        if (failure != null) {
+            logger.error("Job {} failed. It resumes from its checkpoints on the next run.",
+                    jobName, failure);
+            throw new BatchJobException("Batch job " + jobName + " failed.",
+                    failure);
+        }
+
+        checkpointStore.deleteByJobName(jobName);
+
+        logger.info("< run {}", jobName);
+        return rows;
+    }
+
+    /**
+     * Split the current primary key range into partitions and record a
+     * checkpoint for each.
+     * @param jobName A String job name.
+     * @return A List of BatchCheckpoints.
+     */
+    private List<BatchCheckpoint> createCheckpoints(final String jobName) {
+        return transactionTemplate.execute(
+                new TransactionCallback<List<BatchCheckpoint>>() {
+                    @Override
+                    public List<BatchCheckpoint> doInTransaction(
+                            TransactionStatus status) {
+                        List<BatchCheckpoint> checkpoints = new ArrayList<BatchCheckpoint>();
+                        Long minId = greetingStore.findMinId();
+                        Long maxId = greetingStore.findMaxId();
+                        if (minId == null || maxId == null) {
+                            return checkpoints;
+                        }
+
+                        long span = maxId - minId + 1;
+                        long partitionSize = (span + partitions - 1)
+                                / partitions;
+                        int partitionId = 0;
+                        for (long lower = minId; lower <= maxId; lower += partitionSize) {
+                            long upper = Math.min(maxId,
+                                    lower + partitionSize - 1);
+                            BatchCheckpoint checkpoint = new BatchCheckpoint(
+                                    jobName, partitionId++, lower, upper,
+                                    lower - 1, 0, false);
+                            checkpointStore.create(checkpoint);
+                            checkpoints.add(checkpoint);
+                        }
+                        return checkpoints;
+                    }
+                });
+    }
+
+    /**
+     * Processes one partition, chunk by chunk, from its checkpoint.
+     */
+    private class PartitionTask implements Callable<Long> {
+
+        private final BatchCheckpoint checkpoint;
+
+        private final ChunkProcessor<Greeting> processor;
+
+        private long lastId;
+
+        private long rowsProcessed;
+
+        PartitionTask(BatchCheckpoint checkpoint,
+                ChunkProcessor<Greeting> processor) {
+            this.checkpoint = checkpoint;
+            this.processor = processor;
+            this.lastId = checkpoint.getLastId();
+            this.rowsProcessed = checkpoint.getRowsProcessed();
+        }
+
+        @Override
+        public Long call() {
+            RequestContext.setUsername(BATCH_USERNAME);
+            try {
+                long rows = 0;
+                ChunkResult result;
+                do {
+                    long start = System.nanoTime();
+                    result = processChunk();
+                    gaugeService.submit(
+                            "batch." + checkpoint.getJobName() + ".chunkMillis",
+                            (System.nanoTime() - start) / 1000000.0);
+
+                    // Advance only after the chunk is recorded.
+                    lastId = result.lastId;
+                    rowsProcessed += result.rows;
+                    rows += result.rows;
+                } while (!result.completed);
+                return rows;
+            } finally {
+                RequestContext.init();
+            }
+        }
+
+        /**
+         * Reads, processes and checkpoints the next chunk of the partition
+         * in one read-write transaction, since the checkpoint is written to
+         * the primary database. The chunk is committed with its checkpoint
+         * or, when the processor fails, rolled back without it.
+         * @return The ChunkResult.
+         */
+        private ChunkResult processChunk() {
+            return transactionTemplate.execute(
+                    new TransactionCallback<ChunkResult>() {
+                        @Override
+                        public ChunkResult doInTransaction(
+                                TransactionStatus status) {
+                            List<Greeting> chunk = greetingStore.findRange(
+                                    lastId, checkpoint.getUpperBound(),
+                                    chunkSize);
+                            if (!chunk.isEmpty()) {
+                                processor.process(chunk);
+                            }
+
+                            long chunkLastId = chunk.isEmpty() ? lastId
+                                    : chunk.get(chunk.size() - 1).getId();
+                            boolean completed = chunk.size() < chunkSize
+                                    || chunkLastId >= checkpoint
+                                            .getUpperBound();
+                            checkpointStore.update(checkpoint.getJobName(),
+                                    checkpoint.getPartitionId(), chunkLastId,
+                                    rowsProcessed + chunk.size(), completed);
+
+                            return new ChunkResult(chunk.size(), chunkLastId,
+                                    completed);
+                        }
+                    });
+        }
+
+    }
+
+    /**
+     * The outcome of a recorded chunk.
+     */
+    private static class ChunkResult {
+
+        private final int rows;
+
+        private final long lastId;
+
+        private final boolean completed;
+
+        ChunkResult(int rows, long lastId, boolean completed) {
+            this.rows = rows;
+            this.lastId = lastId;
+            this.completed = completed;
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package org.example.ws.datasource;
+
+/**
+ * The DataSourceType enumerates the targets of the ReadWriteRoutingDataSource.
+ *
+ * @author Matt Warman
+ */
+public enum DataSourceType {
+
+    /**
+     * The primary database, which receives all writes.
+     */
+    PRIMARY,
+
+    /**
+     * The read replica of the primary database.
+     */
+    REPLICA
+
+}
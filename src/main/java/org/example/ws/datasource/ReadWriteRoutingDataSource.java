@@ -0,0 +1,91 @@
+package org.example.ws.datasource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The ReadWriteRoutingDataSource sends the connections of read-only
+ * transactions to the replica DataSource and all other connections to the
+ * primary DataSource.
+ *
+ * The read-only flag of a transaction is only known once the transaction is
+ * synchronized, after the transaction manager asked for its connection, so
+ * this DataSource must be wrapped in a LazyConnectionDataSourceProxy which
+ * defers the lookup to the first statement.
+ *
+ * Reads fall back to the primary DataSource while the ReplicaLagMonitor
+ * reports the replica unusable. The number of connections routed to each
+ * target is exposed as Actuator metrics. The primary DataSource is the
+ * default target DataSource.
+ *
+ * @author Matt Warman
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource
+        implements PublicMetrics {
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    private final LongAdder primaryRoutes = new LongAdder();
+
+    private final LongAdder replicaRoutes = new LongAdder();
+
+    private final LongAdder fallbackRoutes = new LongAdder();
+
+    private DataSource primaryDataSource;
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    @Override
+    public void setDefaultTargetDataSource(Object defaultTargetDataSource) {
+        super.setDefaultTargetDataSource(defaultTargetDataSource);
+        primaryDataSource = defaultTargetDataSource instanceof DataSource
+                ? (DataSource) defaultTargetDataSource : null;
+    }
+
+    /**
+     * Returns the primary DataSource, for instance to describe its
+     * connection pool.
+     * @return A DataSource or <code>null</code> if the default target is not
+     *         given as a DataSource instance.
+     */
+    public DataSource getPrimaryDataSource() {
+        return primaryDataSource;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return DataSourceType.PRIMARY;
+        }
+        if (!replicaLagMonitor.isReplicaUsable()) {
+            fallbackRoutes.increment();
+            return DataSourceType.PRIMARY;
+        }
+        replicaRoutes.increment();
+        return DataSourceType.REPLICA;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        metrics.add(new Metric<Long>("datasource.routing.primary",
+                primaryRoutes.sum()));
+        metrics.add(new Metric<Long>("datasource.routing.replica",
+                replicaRoutes.sum()));
+        metrics.add(new Metric<Long>("datasource.routing.fallback",
+                fallbackRoutes.sum()));
+        return metrics;
+    }
+
+}
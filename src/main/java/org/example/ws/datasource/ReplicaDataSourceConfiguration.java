@@ -0,0 +1,118 @@
+package org.example.ws.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * The ReplicaDataSourceConfiguration class replaces the auto-configured
+ * DataSource with one routing read-only transactions to a replica database
+ * and everything else to the primary database, when the 'replica' Spring
+ * profile is active.
+ *
+ * The primary connection pool is configured with the usual
+ * <code>spring.datasource</code> properties. The replica connection pool is a
+ * Tomcat JDBC pool configured with the <code>replica.datasource</code>
+ * properties, which must at least name the replica URL.
+ *
+ * @author Matt Warman
+ */
+@Profile("replica")
+@Configuration
+public class ReplicaDataSourceConfiguration {
+
+    /**
+     * The bean name of the primary connection pool.
+     */
+    public static final String PRIMARY_DATA_SOURCE = "primaryDataSource";
+
+    /**
+     * The bean name of the replica connection pool.
+     */
+    public static final String REPLICA_DATA_SOURCE = "replicaDataSource";
+
+    /**
+     * Supplies the primary connection pool, built as Spring Boot builds the
+     * default Tomcat JDBC pool.
+     *
+     * @param properties The <code>spring.datasource</code> DataSourceProperties.
+     * @return A Tomcat JDBC DataSource.
+     */
+    @Bean(name = PRIMARY_DATA_SOURCE)
+    @ConfigurationProperties(prefix = "spring.datasource.tomcat")
+    public org.apache.tomcat.jdbc.pool.DataSource primaryDataSource(
+            DataSourceProperties properties) {
+        return (org.apache.tomcat.jdbc.pool.DataSource) properties
+                .initializeDataSourceBuilder()
+                .type(org.apache.tomcat.jdbc.pool.DataSource.class).build();
+    }
+
+    /**
+     * Supplies the replica connection pool. The replica has no default
+     * location: the application fails to start without a
+     * <code>replica.datasource.url</code>.
+     *
+     * @param url The String JDBC URL of the replica.
+     * @return A Tomcat JDBC DataSource.
+     */
+    @Bean(name = REPLICA_DATA_SOURCE)
+    @ConfigurationProperties(prefix = "replica.datasource")
+    public org.apache.tomcat.jdbc.pool.DataSource replicaDataSource(
+            @Value("${replica.datasource.url}") String url) {
+        org.apache.tomcat.jdbc.pool.DataSource dataSource = new org.apache.tomcat.jdbc.pool.DataSource();
+        dataSource.setUrl(url);
+        return dataSource;
+    }
+
+    /**
+     * Supplies the DataSource choosing between the primary and the replica
+     * connection pools.
+     *
+     * @param primaryDataSource The primary DataSource.
+     * @param replicaDataSource The replica DataSource.
+     * @param replicaLagMonitor The ReplicaLagMonitor.
+     * @return A ReadWriteRoutingDataSource.
+     */
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            @Qualifier(PRIMARY_DATA_SOURCE) DataSource primaryDataSource,
+            @Qualifier(REPLICA_DATA_SOURCE) DataSource replicaDataSource,
+            ReplicaLagMonitor replicaLagMonitor) {
+        Map<Object, Object> targets = new HashMap<Object, Object>();
+        targets.put(DataSourceType.PRIMARY, primaryDataSource);
+        targets.put(DataSourceType.REPLICA, replicaDataSource);
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(
+                replicaLagMonitor);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        return routingDataSource;
+    }
+
+    /**
+     * Supplies the application DataSource used by JPA, JDBC and the schema
+     * migrations. Connections are fetched from the ReadWriteRoutingDataSource
+     * on their first statement, once the read-only flag of the transaction is
+     * known.
+     *
+     * @param routingDataSource The ReadWriteRoutingDataSource.
+     * @return A LazyConnectionDataSourceProxy.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+}
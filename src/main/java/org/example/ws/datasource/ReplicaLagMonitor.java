@@ -0,0 +1,173 @@
+package org.example.ws.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The ReplicaLagMonitor periodically measures how far the replica database
+ * trails the primary and decides whether read-only transactions may use it.
+ *
+ * When <code>replica.lag.query</code> is set, it is executed on the replica
+ * and the lag in seconds is read from its <code>Seconds_Behind_Master</code>
+ * column, if present, or else its first column; MySQL replicas use
+ * <code>SHOW SLAVE STATUS</code>. A missing row or a NULL lag means
+ * replication is not running. Without a lag query, the replica is only
+ * checked for a valid connection.
+ *
+ * The replica is unusable while its lag exceeds
+ * <code>replica.lag.max-seconds</code>, or it cannot be reached, and reads
+ * are then routed to the primary. The last measured lag and the usable flag
+ * are exposed as Actuator metrics.
+ *
+ * @author Matt Warman
+ */
+@Profile("replica")
+@Component
+public class ReplicaLagMonitor implements PublicMetrics {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The lag reported when it could not be measured.
+     */
+    private static final long UNKNOWN_LAG = -1L;
+
+    @Autowired
+    @Qualifier(ReplicaDataSourceConfiguration.REPLICA_DATA_SOURCE)
+    private DataSource replicaDataSource;
+
+    /**
+     * The query returning the replica lag in seconds. Empty to only check the
+     * replica connection.
+     */
+    @Value("${replica.lag.query:}")
+    private String lagQuery;
+
+    /**
+     * The largest lag, in seconds, at which the replica serves reads.
+     */
+    @Value("${replica.lag.max-seconds:5}")
+    private long maxLagSeconds;
+
+    /**
+     * The seconds to wait for the replica connection to be validated.
+     */
+    @Value("${replica.lag.timeout-seconds:2}")
+    private int timeoutSeconds;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean replicaUsable;
+
+    private volatile long lagSeconds = UNKNOWN_LAG;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(replicaDataSource);
+        jdbcTemplate.setQueryTimeout(timeoutSeconds);
+        check();
+    }
+
+    /**
+     * Determines if read-only transactions may use the replica.
+     * @return <code>true</code> if the replica is reachable and within the
+     *         allowed lag.
+     */
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Measures the replica lag and updates the usable flag.
+     */
+    @Scheduled(
+            initialDelayString = "${replica.lag.check-interval:5000}",
+            fixedDelayString = "${replica.lag.check-interval:5000}")
+    public void check() {
+        long lag;
+        try {
+            lag = lagQuery.trim().isEmpty() ? ping() : queryLag();
+        } catch (DataAccessException e) {
+            logger.warn("The replica lag could not be measured.", e);
+            lag = UNKNOWN_LAG;
+        }
+
+        boolean usable = lag != UNKNOWN_LAG && lag <= maxLagSeconds;
+        if (usable != replicaUsable) {
+            if (usable) {
+                logger.info("Routing reads to the replica; lag:{}s.", lag);
+            } else {
+                logger.warn("Routing reads to the primary; replica lag:{}s.",
+                        lag);
+            }
+        }
+        lagSeconds = lag;
+        replicaUsable = usable;
+    }
+
+    private long ping() {
+        return jdbcTemplate.execute(new ConnectionCallback<Long>() {
+            @Override
+            public Long doInConnection(Connection connection)
+                    throws SQLException {
+                return connection.isValid(timeoutSeconds) ? 0L : UNKNOWN_LAG;
+            }
+        });
+    }
+
+    private long queryLag() {
+        return jdbcTemplate.query(lagQuery, new ResultSetExtractor<Long>() {
+            @Override
+            public Long extractData(ResultSet rs) throws SQLException {
+                if (!rs.next()) {
+                    return UNKNOWN_LAG;
+                }
+                long lag = rs.getLong(lagColumn(rs));
+                return rs.wasNull() ? UNKNOWN_LAG : lag;
+            }
+        });
+    }
+
+    private static int lagColumn(ResultSet rs) {
+        try {
+            return rs.findColumn("Seconds_Behind_Master");
+        } catch (SQLException e) {
+            return 1;
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        metrics.add(new Metric<Long>("datasource.replica.lagSeconds",
+                lagSeconds));
+        metrics.add(new Metric<Integer>("datasource.replica.usable",
+                replicaUsable ? 1 : 0));
+        return metrics;
+    }
+
+}
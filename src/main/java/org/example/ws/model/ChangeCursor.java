@@ -0,0 +1,64 @@
+package org.example.ws.model;
+
+/**
+ * A ChangeCursor is the position of a client in the change feed: the change
+ * timestamp and the Greeting id of the last change it received. Changes are
+ * ordered by timestamp, then id, so the pair is strictly increasing.
+ *
+ * The cursor is exchanged as the String <code>{epochMillis}.{id}</code>.
+ *
+ * @author Matt Warman
+ */
+public final class ChangeCursor {
+
+    /**
+     * The position before the first change.
+     */
+    public static final ChangeCursor START = new ChangeCursor(0L, 0L);
+
+    private final long changedAtMillis;
+
+    private final long id;
+
+    public ChangeCursor(long changedAtMillis, long id) {
+        this.changedAtMillis = changedAtMillis;
+        this.id = id;
+    }
+
+    /**
+     * Parse a cursor String.
+     * @param cursor A cursor String, or <code>null</code> for the start of
+     *        the feed.
+     * @return A ChangeCursor.
+     * @throws IllegalArgumentException Thrown when the String is not a cursor.
+     */
+    public static ChangeCursor parse(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return START;
+        }
+        int dot = cursor.indexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Invalid change cursor: " + cursor);
+        }
+        try {
+            return new ChangeCursor(Long.parseLong(cursor.substring(0, dot)),
+                    Long.parseLong(cursor.substring(dot + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid change cursor: " + cursor, e);
+        }
+    }
+
+    public long getChangedAtMillis() {
+        return changedAtMillis;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return changedAtMillis + "." + id;
+    }
+
+}
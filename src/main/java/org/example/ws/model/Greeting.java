@@ -1,6 +1,10 @@
 package org.example.ws.model;
 
 import javax.persistence.Entity;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+import org.joda.time.DateTime;
 
 /**
  * The Greeting class is an entity model object.
@@ -15,6 +19,12 @@ public class Greeting extends TransactionalEntity {
     private static final long serialVersionUID = 1L;//the SENDER and RECIEVER should have same class version for Serializable
     private String text;
 
+    /**
+     * The time of the last insert or update, indexed with the id as the
+     * cursor of the change feed.
+     */
+    private DateTime changedAt;
+
 
     //this empty constructor is for JPA
     public Greeting()
@@ -33,4 +43,26 @@ public class Greeting extends TransactionalEntity {
         this.text = text;
     }
 
+    public DateTime getChangedAt()
+    {
+        return changedAt;
+    }
+
+    public void setChangedAt(DateTime changedAt)
+    {
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * A listener method which is invoked before the Greeting is inserted or
+     * updated, after the TransactionalEntity listener methods. Sets the
+     * <code>changedAt</code> value to the current timestamp.
+     */
+    @PrePersist
+    @PreUpdate
+    public void beforeChange()
+    {
+        setChangedAt(new DateTime());
+    }
+
 }
@@ -0,0 +1,73 @@
+package org.example.ws.model;
+
+import org.joda.time.DateTime;
+
+/**
+ * A GreetingChange is one entry of the change feed: the current state of an
+ * inserted or updated Greeting, or the tombstone of a deleted one.
+ *
+ * @author Matt Warman
+ */
+public class GreetingChange {
+
+    public static final String UPSERT = "upsert";
+
+    public static final String DELETE = "delete";
+
+    /**
+     * The kind of change: <code>upsert</code> or <code>delete</code>.
+     */
+    private final String type;
+
+    private final Long id;
+
+    private final DateTime changedAt;
+
+    /**
+     * The Greeting; <code>null</code> for deletes.
+     */
+    private final Greeting greeting;
+
+    private GreetingChange(String type, Long id, DateTime changedAt,
+            Greeting greeting) {
+        this.type = type;
+        this.id = id;
+        this.changedAt = changedAt;
+        this.greeting = greeting;
+    }
+
+    public static GreetingChange upsert(Greeting greeting) {
+        return new GreetingChange(UPSERT, greeting.getId(),
+                greeting.getChangedAt(), greeting);
+    }
+
+    public static GreetingChange delete(GreetingTombstone tombstone) {
+        return new GreetingChange(DELETE, tombstone.getGreetingId(),
+                tombstone.getDeletedAt(), null);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public DateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public Greeting getGreeting() {
+        return greeting;
+    }
+
+    /**
+     * Returns the cursor positioned at this change.
+     * @return A ChangeCursor.
+     */
+    public ChangeCursor toCursor() {
+        return new ChangeCursor(changedAt.getMillis(), id);
+    }
+
+}
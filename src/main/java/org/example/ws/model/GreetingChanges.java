@@ -0,0 +1,73 @@
+package org.example.ws.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GreetingChanges is one page of the change feed: the changes after a
+ * cursor, oldest first, and the cursor from which to request the next page.
+ *
+ * @author Matt Warman
+ */
+public class GreetingChanges {
+
+    private final List<GreetingChange> changes;
+
+    /**
+     * The cursor of the last change, or the requested cursor when there are
+     * no changes.
+     */
+    private final String next;
+
+    public GreetingChanges(List<GreetingChange> changes, ChangeCursor next) {
+        this.changes = changes;
+        this.next = next.toString();
+    }
+
+    /**
+     * Merge the upserts and deletes after a cursor, each ordered by change
+     * time and id, into one page of at most <code>limit</code> changes.
+     * @param upserts The changed Greetings, ordered by changedAt and id.
+     * @param deletes The GreetingTombstones, ordered by deletedAt and
+     *        greetingId.
+     * @param since The ChangeCursor the changes were read after.
+     * @param limit The maximum number of changes.
+     * @return A GreetingChanges page.
+     */
+    public static GreetingChanges merge(List<Greeting> upserts,
+            List<GreetingTombstone> deletes, ChangeCursor since, int limit) {
+        List<GreetingChange> changes = new ArrayList<GreetingChange>(
+                Math.min(limit, upserts.size() + deletes.size()));
+        int u = 0;
+        int d = 0;
+        while (changes.size() < limit
+                && (u < upserts.size() || d < deletes.size())) {
+            if (d == deletes.size() || (u < upserts.size()
+                    && precedes(upserts.get(u), deletes.get(d)))) {
+                changes.add(GreetingChange.upsert(upserts.get(u++)));
+            } else {
+                changes.add(GreetingChange.delete(deletes.get(d++)));
+            }
+        }
+
+        ChangeCursor next = changes.isEmpty() ? since
+                : changes.get(changes.size() - 1).toCursor();
+        return new GreetingChanges(changes, next);
+    }
+
+    private static boolean precedes(Greeting greeting,
+            GreetingTombstone tombstone) {
+        int byTime = greeting.getChangedAt().compareTo(tombstone.getDeletedAt());
+        return byTime < 0 || (byTime == 0
+                && greeting.getId() < tombstone.getGreetingId());
+    }
+
+    public List<GreetingChange> getChanges() {
+        return changes;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.example.ws.model;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.validation.constraints.NotNull;
+
+import org.joda.time.DateTime;
+
+/**
+ * The GreetingTombstone class is an entity model object recording the
+ * deletion of a Greeting, so that the change feed can report deletes. It is
+ * removed once the tombstone retention period has passed.
+ *
+ * @author Matt Warman
+ */
+@Entity
+public class GreetingTombstone implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The primary key identifier of the deleted Greeting.
+     */
+    @Id
+    private Long greetingId;
+
+    /**
+     * The time of the deletion.
+     */
+    @NotNull
+    private DateTime deletedAt;
+
+    //this empty constructor is for JPA
+    public GreetingTombstone() {
+
+    }
+
+    public GreetingTombstone(Long greetingId, DateTime deletedAt) {
+        this.greetingId = greetingId;
+        this.deletedAt = deletedAt;
+    }
+
+    public Long getGreetingId() {
+        return greetingId;
+    }
+
+    public void setGreetingId(Long greetingId) {
+        this.greetingId = greetingId;
+    }
+
+    public DateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(DateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+}
@@ -1,12 +1,14 @@
 package org.example.ws.model;
 
+import org.example.ws.util.ReferenceIds;
 import org.example.ws.util.RequestContext;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.joda.time.DateTime;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
-import java.util.UUID;
 
 /**
  * The parent class for all transactional persistent entities.
@@ -25,9 +27,24 @@ public class TransactionalEntity implements Serializable {
     /**  The default serial version UID.  */
     private static final long serialVersionUID = 1L;
 
-    /**  The primary key identifier.  */
+    /**  The primary key identifier.
+     * Identifiers are allocated in blocks from the IdSequence table, one row per
+     * entity table, instead of by an identity column. Identity generation forces
+     * Hibernate to execute every INSERT immediately; pooled allocation lets
+     * inserts be grouped into JDBC batches.
+     */
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "transactionalEntityIdGenerator")
+    @GenericGenerator(
+            name = "transactionalEntityIdGenerator",
+            strategy = "org.hibernate.id.enhanced.TableGenerator",
+            parameters = {
+                    @Parameter(name = "table_name", value = "IdSequence"),
+                    @Parameter(name = "segment_column_name", value = "sequenceName"),
+                    @Parameter(name = "value_column_name", value = "nextValue"),
+                    @Parameter(name = "prefer_entity_table_as_segment_value", value = "true"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo") })
     private Long id;
 
     /**
@@ -36,9 +53,12 @@ public class TransactionalEntity implements Serializable {
      * advantages:
      * more portable-easier to migrate db engine
      * more secure  -hacker cannot guess the id's
+     * The value is assigned by the configured ReferenceIdGenerator when the
+     * entity is first persisted, not when an instance is constructed, so
+     * instances created only to hold request data never generate one.
      */
     @NotNull
-    private String referenceId = UUID.randomUUID().toString();
+    private String referenceId;
 
     /**
      * The entity instance version used for optimistic locking(better performance) on updating a row.
@@ -128,7 +148,8 @@ public class TransactionalEntity implements Serializable {
     /**
      * A listener method which is invoked on instances of TransactionalEntity
      * (or their subclasses) prior to initial persistence. Sets the
-     * <code>created</code> audit values for the entity. Attempts to obtain this
+     * <code>created</code> audit values for the entity and assigns a
+     * <code>referenceId</code> if none is set. Attempts to obtain this
      * thread's instance of a username from the RequestContext. If none exists,
      * throws an IllegalArgumentException. The username is used to set the
      * <code>createdBy</code> value. The <code>createdAt</code> value is set to
@@ -145,6 +166,10 @@ public class TransactionalEntity implements Serializable {
         setCreatedBy(username);
 
         setCreatedAt(new DateTime());
+
+        if (getReferenceId() == null) {
+            setReferenceId(ReferenceIds.generate());
+        }
     }
 
     /**
@@ -0,0 +1,89 @@
+package org.example.ws.outbox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+
+/**
+ * The AmqpEventPublisher publishes OutboxEvents to a RabbitMQ topic exchange,
+ * when the 'amqp' Spring profile is active.
+ *
+ * Each event is a persistent JSON message whose routing key is
+ * <code>greeting.{eventType}</code> and whose message id is
+ * <code>outbox-{id}</code>. A batch is published on one channel in publisher
+ * confirm mode and succeeds once the broker confirmed every message.
+ *
+ * @author Matt Warman
+ */
+@Profile("amqp")
+@Component
+public class AmqpEventPublisher implements EventPublisher {
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    /**
+     * The name of the exchange the events are published to.
+     */
+    @Value("${outbox.amqp.exchange:greetings}")
+    private String exchange;
+
+    /**
+     * The milliseconds to wait for the broker to confirm a batch.
+     */
+    @Value("${outbox.amqp.confirm-timeout:5000}")
+    private long confirmTimeout;
+
+    @Override
+    public void publish(final List<OutboxEvent> events) {
+        try {
+            rabbitTemplate.execute(channel -> {
+                publishConfirmed(channel, events);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            throw new EventPublishException("The broker did not accept the events.", e);
+        }
+    }
+
+    private void publishConfirmed(Channel channel, List<OutboxEvent> events)
+            throws IOException, InterruptedException, TimeoutException {
+        channel.confirmSelect();
+        for (OutboxEvent event : events) {
+            AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                    .contentType("application/json")
+                    .contentEncoding(StandardCharsets.UTF_8.name())
+                    .deliveryMode(2)
+                    .messageId("outbox-" + event.getId())
+                    .type(event.getEventType())
+                    .timestamp(event.getCreatedAt().toDate())
+                    .build();
+            channel.basicPublish(exchange, routingKey(event), properties,
+                    event.getPayload().getBytes(StandardCharsets.UTF_8));
+        }
+        channel.waitForConfirmsOrDie(confirmTimeout);
+    }
+
+    /**
+     * Builds the routing key of an event, e.g. <code>greeting.updated</code>
+     * for a GreetingUpdated event.
+     * @param event An OutboxEvent.
+     * @return A String routing key.
+     */
+    private static String routingKey(OutboxEvent event) {
+        String type = event.getEventType();
+        String change = type.startsWith("Greeting") ? type.substring("Greeting".length()) : type;
+        return "greeting." + change.toLowerCase();
+    }
+
+}
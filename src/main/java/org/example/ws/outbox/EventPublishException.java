@@ -0,0 +1,17 @@
+package org.example.ws.outbox;
+
+/**
+ * The EventPublishException is thrown when an EventPublisher cannot hand a
+ * batch of OutboxEvents to the message broker.
+ *
+ * @author Matt Warman
+ */
+public class EventPublishException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public EventPublishException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,23 @@
+package org.example.ws.outbox;
+
+import java.util.List;
+
+/**
+ * The EventPublisher interface hands batches of OutboxEvents to a message
+ * broker on behalf of the OutboxRelay.
+ *
+ * @author Matt Warman
+ */
+public interface EventPublisher {
+
+    /**
+     * Publish a batch of events, in order. Returns only once the broker has
+     * accepted every event of the batch.
+     * @param events A List of OutboxEvents, ordered by id.
+     * @throws EventPublishException Thrown when the batch was not accepted.
+     *         Some events of the batch may have been published; they are
+     *         published again with the next attempt.
+     */
+    void publish(List<OutboxEvent> events);
+
+}
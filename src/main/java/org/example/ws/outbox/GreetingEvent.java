@@ -0,0 +1,123 @@
+package org.example.ws.outbox;
+
+import org.example.ws.model.Greeting;
+import org.joda.time.DateTime;
+
+/**
+ * A GreetingEvent describes one committed change of a Greeting. It is the
+ * JSON payload of the OutboxEvents published to subscribers.
+ *
+ * @author Matt Warman
+ */
+public class GreetingEvent {
+
+    public static final String CREATED = "GreetingCreated";
+
+    public static final String UPDATED = "GreetingUpdated";
+
+    public static final String DELETED = "GreetingDeleted";
+
+    /**
+     * The kind of change: GreetingCreated, GreetingUpdated or GreetingDeleted.
+     */
+    private String type;
+
+    private Long greetingId;
+
+    private String referenceId;
+
+    /**
+     * The Greeting text after the change; <code>null</code> for deletions.
+     */
+    private String text;
+
+    /**
+     * The Greeting version after the change; <code>null</code> for deletions.
+     */
+    private Integer version;
+
+    private DateTime occurredAt;
+
+    public GreetingEvent() {
+
+    }
+
+    /**
+     * Create a GreetingEvent of a created or updated Greeting.
+     * @param type The String event type.
+     * @param greeting The Greeting after the change.
+     * @return A GreetingEvent.
+     */
+    public static GreetingEvent of(String type, Greeting greeting) {
+        GreetingEvent event = new GreetingEvent();
+        event.setType(type);
+        event.setGreetingId(greeting.getId());
+        event.setReferenceId(greeting.getReferenceId());
+        event.setText(greeting.getText());
+        event.setVersion(greeting.getVersion());
+        event.setOccurredAt(new DateTime());
+        return event;
+    }
+
+    /**
+     * Create a GreetingEvent of a deleted Greeting.
+     * @param greetingId The Long id of the deleted Greeting.
+     * @return A GreetingEvent.
+     */
+    public static GreetingEvent deleted(Long greetingId) {
+        GreetingEvent event = new GreetingEvent();
+        event.setType(DELETED);
+        event.setGreetingId(greetingId);
+        event.setOccurredAt(new DateTime());
+        return event;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getGreetingId() {
+        return greetingId;
+    }
+
+    public void setGreetingId(Long greetingId) {
+        this.greetingId = greetingId;
+    }
+
+    public String getReferenceId() {
+        return referenceId;
+    }
+
+    public void setReferenceId(String referenceId) {
+        this.referenceId = referenceId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public DateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(DateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+}
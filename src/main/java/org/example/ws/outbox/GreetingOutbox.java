@@ -0,0 +1,127 @@
+package org.example.ws.outbox;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The GreetingOutbox is the transactional outbox of GreetingEvents. Events
+ * are appended to the OutboxEvent table in the transaction which changes the
+ * Greeting, so an event exists if and only if its change committed. The
+ * OutboxRelay reads the committed events in id order, publishes them and
+ * removes them.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class GreetingOutbox {
+
+    private static final String INSERT = "INSERT INTO OutboxEvent (eventType, aggregateId, payload, createdAt) VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The ObjectMapper writing the JSON payloads.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Append an event to the outbox within the current transaction.
+     * @param event A GreetingEvent.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(GreetingEvent event) {
+        jdbcTemplate.update(INSERT, event.getType(), event.getGreetingId(),
+                toJson(event), new Timestamp(event.getOccurredAt().getMillis()));
+    }
+
+    /**
+     * Append events to the outbox within the current transaction, with a
+     * single JDBC batch.
+     * @param events A List of GreetingEvents.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<GreetingEvent> events) {
+        List<Object[]> rows = new ArrayList<Object[]>(events.size());
+        for (GreetingEvent event : events) {
+            rows.add(new Object[] { event.getType(), event.getGreetingId(),
+                    toJson(event),
+                    new Timestamp(event.getOccurredAt().getMillis()) });
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    /**
+     * Find the oldest committed events.
+     * @param limit The maximum number of events.
+     * @return A List of OutboxEvents ordered by id.
+     */
+    public List<OutboxEvent> findBatch(final int limit) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, eventType, aggregateId, payload, createdAt FROM OutboxEvent ORDER BY id");
+            statement.setMaxRows(limit);
+            return statement;
+        }, new OutboxEventRowMapper());
+    }
+
+    /**
+     * Remove published events.
+     * @param events The published OutboxEvents.
+     */
+    public void delete(List<OutboxEvent> events) {
+        List<Object[]> ids = new ArrayList<Object[]>(events.size());
+        for (OutboxEvent event : events) {
+            ids.add(new Object[] { event.getId() });
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM OutboxEvent WHERE id = ?", ids);
+    }
+
+    /**
+     * Count the events awaiting publication.
+     * @return A long count.
+     */
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OutboxEvent",
+                Long.class);
+    }
+
+    private String toJson(GreetingEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("The event cannot be written as JSON.", e);
+        }
+    }
+
+    /**
+     * Maps a row of the OutboxEvent table to an OutboxEvent.
+     */
+    private static class OutboxEventRowMapper implements RowMapper<OutboxEvent> {
+
+        @Override
+        public OutboxEvent mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new OutboxEvent(rs.getLong("id"), rs.getString("eventType"),
+                    rs.getLong("aggregateId"), rs.getString("payload"),
+                    new DateTime(rs.getTimestamp("createdAt").getTime()));
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.example.ws.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * The InMemoryEventPublisher is an in-JVM stand-in for the message broker,
+ * active unless the 'amqp' Spring profile is. Published events are delivered
+ * synchronously to the subscribers registered with this bean.
+ *
+ * @author Matt Warman
+ */
+@Profile("!amqp")
+@Component
+public class InMemoryEventPublisher implements EventPublisher {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final List<Consumer<OutboxEvent>> subscribers = new CopyOnWriteArrayList<Consumer<OutboxEvent>>();
+
+    /**
+     * Register a subscriber receiving every event published from now on.
+     * @param subscriber A Consumer of OutboxEvents.
+     */
+    public void subscribe(Consumer<OutboxEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Remove a subscriber.
+     * @param subscriber A Consumer of OutboxEvents.
+     */
+    public void unsubscribe(Consumer<OutboxEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            for (Consumer<OutboxEvent> subscriber : subscribers) {
+                // As with a broker, a failing subscriber does not fail the
+                // publication.
+                try {
+                    subscriber.accept(event);
+                } catch (RuntimeException e) {
+                    logger.error("A subscriber failed to handle outbox event {}.",
+                            event.getId(), e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.example.ws.outbox;
+
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The OutboxAmqpConfiguration class declares the durable topic exchange the
+ * AmqpEventPublisher publishes to. Subscribers bind their own queues to it,
+ * e.g. with the routing key <code>greeting.*</code>.
+ *
+ * @author Matt Warman
+ */
+@Profile("amqp")
+@Configuration
+public class OutboxAmqpConfiguration {
+
+    @Value("${outbox.amqp.exchange:greetings}")
+    private String exchange;
+
+    /**
+     * Supplies the exchange, declared on the broker by the RabbitAdmin.
+     *
+     * @return A durable TopicExchange.
+     */
+    @Bean
+    public TopicExchange greetingExchange() {
+        return new TopicExchange(exchange, true, false);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.example.ws.outbox;
+
+import org.joda.time.DateTime;
+
+/**
+ * An OutboxEvent is an immutable row of the OutboxEvent table: an event
+ * written in the transaction which caused it and awaiting publication.
+ *
+ * @author Matt Warman
+ */
+public final class OutboxEvent {
+
+    /**
+     * The identifier, ascending in insertion order. Subscribers may use it to
+     * discard events delivered more than once.
+     */
+    private final Long id;
+
+    private final String eventType;
+
+    private final Long aggregateId;
+
+    /**
+     * The JSON event body.
+     */
+    private final String payload;
+
+    private final DateTime createdAt;
+
+    public OutboxEvent(Long id, String eventType, Long aggregateId,
+            String payload, DateTime createdAt) {
+        this.id = id;
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public DateTime getCreatedAt() {
+        return createdAt;
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.example.ws.outbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.ws.scheduling.ClusterJobLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The OutboxRelay publishes the committed events of the GreetingOutbox in
+ * batches through the EventPublisher and then removes them from the outbox.
+ *
+ * The relay runs on a fixed delay under the ClusterJobLock, so one instance
+ * at a time publishes and events leave in id order. Delivery is at least
+ * once: if an instance fails between publishing a batch and removing it,
+ * the batch is published again. A failed batch stays in the outbox and is
+ * retried on the next run.
+ *
+ * The number of relayed events, failed batches and pending events are
+ * exposed as Actuator metrics.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class OutboxRelay implements PublicMetrics {
+
+    /**
+     * The name of the relay job lease.
+     */
+    public static final String RELAY_JOB = "outboxRelay";
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private GreetingOutbox greetingOutbox;
+
+    @Autowired
+    private EventPublisher eventPublisher;
+
+    @Autowired
+    private ClusterJobLock clusterJobLock;
+
+    /**
+     * The number of events published per batch.
+     */
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * The largest number of batches published per run, so that one run does
+     * not hold the lease indefinitely under sustained load.
+     */
+    @Value("${outbox.relay.max-batches:50}")
+    private int maxBatches;
+
+    private final LongAdder relayed = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Publishes pending events on one application instance.
+     */
+    @Scheduled(
+            initialDelayString = "${outbox.relay.interval:1000}",
+            fixedDelayString = "${outbox.relay.interval:1000}")
+    public void relay() {
+        clusterJobLock.runExclusively(RELAY_JOB, new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+    }
+
+    /**
+     * Publishes and removes batches of events until the outbox is empty, a
+     * batch fails, the batch limit of the run is reached or the thread is
+     * interrupted because the lease of the run was lost.
+     */
+    public void drain() {
+        for (int i = 0; i < maxBatches; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            List<OutboxEvent> batch;
+            try {
+                batch = greetingOutbox.findBatch(batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                eventPublisher.publish(batch);
+                greetingOutbox.delete(batch);
+            } catch (EventPublishException | DataAccessException e) {
+                failures.increment();
+                logger.error("Unable to relay outbox events; retrying on the next run.", e);
+                return;
+            }
+            relayed.add(batch.size());
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        metrics.add(new Metric<Long>("outbox.relayed", relayed.sum()));
+        metrics.add(new Metric<Long>("outbox.relay.failures", failures.sum()));
+        metrics.add(new Metric<Long>("outbox.pending", greetingOutbox.count()));
+        return metrics;
+    }
+
+}
@@ -1,7 +1,19 @@
 package org.example.ws.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import org.example.ws.model.Greeting;
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 /**<Greeting, Long> the 1st param is the entity, the 2nd param is the primary identifier type(private static final long serialVersionUID = 1L;)
 the interface can be empty cause
@@ -10,4 +22,159 @@ the interface can be empty cause
 @Repository
 public interface GreetingRepository extends JpaRepository<Greeting, Long> {
 
+    /**
+     * Query for a page of Greeting entities whose primary key is greater than
+     * the supplied cursor value, ordered by primary key. This is a keyset
+     * (a.k.a. seek) query: the database walks the primary key index from the
+     * cursor instead of counting and skipping OFFSET rows.
+     *
+     * @param id The Long primary key cursor. Only entities with a greater id
+     *        are returned.
+     * @param pageable A Pageable whose page size limits the number of rows.
+     *        The page number should always be zero.
+     * @return A List of Greeting entities ordered by id.
+     */
+    List<Greeting> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Query for a chunk of Greeting entities whose primary key is greater
+     * than the supplied cursor value and no greater than the supplied upper
+     * bound, ordered by primary key. Used to walk one partition of the
+     * primary key range in keyset chunks.
+     *
+     * @param id The Long primary key cursor. Only entities with a greater id
+     *        are returned.
+     * @param upperBound The Long upper bound (inclusive) of the partition.
+     * @param pageable A Pageable whose page size limits the number of rows.
+     *        The page number should always be zero.
+     * @return A List of Greeting entities ordered by id.
+     */
+    List<Greeting> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(Long id,
+            Long upperBound, Pageable pageable);
+
+    /**
+     * Query for the Greeting entities whose primary key is one of the
+     * supplied values, with a single <code>IN</code> query.
+     *
+     * @param ids The Long primary keys.
+     * @return A List of Greeting entities, in no particular order.
+     */
+    List<Greeting> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Query for the smallest Greeting primary key value.
+     * @return A Long id or <code>null</code> if there are no Greetings.
+     */
+    @Query("SELECT MIN(g.id) FROM Greeting g")
+    Long findMinId();
+
+    /**
+     * Query for the largest Greeting primary key value.
+     * @return A Long id or <code>null</code> if there are no Greetings.
+     */
+    @Query("SELECT MAX(g.id) FROM Greeting g")
+    Long findMaxId();
+
+    /**
+     * Query for the latest Greeting changedAt value.
+     * @return A DateTime or <code>null</code> if there are no Greetings.
+     */
+    @Query("SELECT MAX(g.changedAt) FROM Greeting g")
+    DateTime findLastChangedAt();
+
+    /**
+     * Stream all Greeting entities ordered by primary key. The JDBC fetch size
+     * hint keeps the driver from materializing the whole result set in memory.
+     * The Stream must be consumed inside a transaction and must be closed
+     * by the caller.
+     *
+     * @return A Stream of Greeting entities ordered by id.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT g FROM Greeting g ORDER BY g.id ASC")
+    Stream<Greeting> streamAllOrderById();
+
+    /**
+     * Query for the version watermark of the Greeting table: the number of
+     * rows, the latest changedAt value and the sum of all versions. Inserts
+     * and updates advance the latest changedAt value, updates also advance
+     * the version sum and deletes change the row count. Unlike the largest
+     * primary key, the latest changedAt value does not depend on the order in
+     * which ids are allocated.
+     *
+     * @return A List holding a single Object[] of the Long count, the
+     *         DateTime latest changedAt value and the Long version sum,
+     *         which are <code>null</code> (except the count) when the table
+     *         is empty.
+     */
+    @Query("SELECT COUNT(g), MAX(g.changedAt), SUM(g.version) FROM Greeting g")
+    List<Object[]> findVersionWatermark();
+
+    /**
+     * Update the text of a Greeting, incrementing the version. The entity is
+     * not read first.
+     *
+     * @param id The Long primary key of the Greeting.
+     * @param text The new String text value.
+     * @param updatedBy The String updatedBy audit value.
+     * @param updatedAt The DateTime updatedAt audit and changedAt value.
+     * @return The int number of updated rows; zero if the Greeting does not
+     *         exist.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Greeting g SET g.text = :text, g.version = g.version + 1, g.updatedBy = :updatedBy, g.updatedAt = :updatedAt, "
+            + "g.changedAt = :updatedAt WHERE g.id = :id")
+    int updateText(@Param("id") Long id, @Param("text") String text,
+            @Param("updatedBy") String updatedBy,
+            @Param("updatedAt") DateTime updatedAt);
+
+    /**
+     * Update the text of a Greeting only if its version matches the supplied
+     * version, incrementing the version. The entity is not read first.
+     *
+     * @param id The Long primary key of the Greeting.
+     * @param version The Integer version the Greeting is expected to have.
+     * @param text The new String text value.
+     * @param updatedBy The String updatedBy audit value.
+     * @param updatedAt The DateTime updatedAt audit and changedAt value.
+     * @return The int number of updated rows; zero if the Greeting does not
+     *         exist or its version does not match.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Greeting g SET g.text = :text, g.version = g.version + 1, g.updatedBy = :updatedBy, g.updatedAt = :updatedAt, "
+            + "g.changedAt = :updatedAt WHERE g.id = :id AND g.version = :version")
+    int updateTextIfVersion(@Param("id") Long id,
+            @Param("version") Integer version, @Param("text") String text,
+            @Param("updatedBy") String updatedBy,
+            @Param("updatedAt") DateTime updatedAt);
+
+    /**
+     * Delete a Greeting only if its version matches the supplied version.
+     *
+     * @param id The Long primary key of the Greeting.
+     * @param version The Integer version the Greeting is expected to have.
+     * @return The int number of deleted rows; zero if the Greeting does not
+     *         exist or its version does not match.
+     */
+    @Modifying
+    @Query("DELETE FROM Greeting g WHERE g.id = :id AND g.version = :version")
+    int deleteIfVersion(@Param("id") Long id,
+            @Param("version") Integer version);
+
+    /**
+     * Query for the Greetings changed after a change feed cursor, ordered by
+     * changedAt and id. Uses the IX_Greeting_ChangedAt index.
+     *
+     * @param changedAt The DateTime changedAt value of the cursor.
+     * @param id The Long id value of the cursor.
+     * @param until The DateTime of the latest change to include.
+     * @param pageable The Pageable limiting the number of results.
+     * @return A List of Greeting entity model classes.
+     */
+    @Query("SELECT g FROM Greeting g WHERE (g.changedAt > :changedAt OR (g.changedAt = :changedAt AND g.id > :id)) "
+            + "AND g.changedAt <= :until ORDER BY g.changedAt ASC, g.id ASC")
+    List<Greeting> findChangedAfter(@Param("changedAt") DateTime changedAt,
+            @Param("id") Long id, @Param("until") DateTime until,
+            Pageable pageable);
+
 }
@@ -0,0 +1,176 @@
+package org.example.ws.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.model.GreetingTombstone;
+import org.joda.time.DateTime;
+
+/**
+ * The GreetingStore is the data store of the Greetings and the tombstones of
+ * deleted Greetings, used by the GreetingServiceBean. The JpaGreetingStore
+ * keeps them in the relational database; with the <code>mongodb</code>
+ * profile, a document store keeps them as documents, one per Greeting.
+ *
+ * Greetings are keyed by id, assigned by the store on insert. Callers must
+ * not modify the returned Greetings. Every write is published as an
+ * EntityChangeEvent once the surrounding transaction, if any, commits. The
+ * JpaGreetingStore joins the surrounding transaction and rolls back with it;
+ * document stores apply each write immediately, whatever the outcome of the
+ * transaction.
+ *
+ * @author Matt Warman
+ */
+public interface GreetingStore {
+
+    /**
+     * Find a Greeting by id.
+     * @param id A Long Greeting identifier.
+     * @return A Greeting or <code>null</code> if none exists.
+     */
+    Greeting findById(Long id);
+
+    /**
+     * Find the Greetings with the given ids in one query.
+     * @param ids The Long Greeting identifiers.
+     * @return A List of the Greetings found, in no particular order.
+     */
+    List<Greeting> findByIds(Collection<Long> ids);
+
+    /**
+     * Find a page of Greetings ordered by id.
+     * @param after The id after which the page starts, or <code>null</code>
+     *        for the first page.
+     * @param limit The maximum number of Greetings returned.
+     * @return A List of Greetings.
+     */
+    List<Greeting> findPage(Long after, int limit);
+
+    /**
+     * Find a chunk of the Greetings in an id range, ordered by id. Used to
+     * walk one partition of the id range in keyset chunks. The Greetings are
+     * detached even when read inside a transaction, so modifying them
+     * changes nothing in the data store.
+     * @param after The id after which the chunk starts.
+     * @param upperBound The highest id (inclusive) of the range.
+     * @param limit The maximum number of Greetings returned.
+     * @return A List of Greetings.
+     */
+    List<Greeting> findRange(Long after, Long upperBound, int limit);
+
+    /**
+     * Find the smallest Greeting id.
+     * @return A Long id or <code>null</code> if there are no Greetings.
+     */
+    Long findMinId();
+
+    /**
+     * Find the largest Greeting id.
+     * @return A Long id or <code>null</code> if there are no Greetings.
+     */
+    Long findMaxId();
+
+    /**
+     * Pass every Greeting, ordered by id, to a Consumer without loading them
+     * all at once.
+     * @param consumer The Consumer receiving each Greeting.
+     * @param fields The names of the Greeting attributes read, in addition to
+     *        the id; none to read whole Greetings. A store may read whole
+     *        Greetings regardless.
+     */
+    void forEach(Consumer<Greeting> consumer, String... fields);
+
+    /**
+     * Returns the number of Greetings.
+     * @return A long count.
+     */
+    long count();
+
+    /**
+     * Returns a value which changes whenever a Greeting is created, updated
+     * or deleted, composed of the count, the latest <code>changedAt</code>
+     * value and the sum of the versions. Ids allocated in blocks are not
+     * increasing across instances, so the highest id is not part of it.
+     * @return A String watermark.
+     */
+    String findVersionWatermark();
+
+    /**
+     * Returns the latest <code>changedAt</code> value of the Greetings.
+     * @return A DateTime, or <code>null</code> if there are no Greetings.
+     */
+    DateTime findLastChangedAt();
+
+    /**
+     * Insert new Greetings in bulk. Assigns the id, version, audit values
+     * and <code>changedAt</code> value of each Greeting.
+     * @param greetings The Greetings to insert, with <code>null</code> ids.
+     */
+    void insert(List<Greeting> greetings);
+
+    /**
+     * Replace the text of a Greeting and set its update audit values,
+     * advancing its version and <code>changedAt</code> value, in a single
+     * atomic operation.
+     * @param id A Long Greeting identifier.
+     * @param version The Integer version the Greeting must have, or
+     *        <code>null</code> to update it unconditionally.
+     * @param text The new text.
+     * @param updatedBy The username updating the Greeting.
+     * @param updatedAt The time of the update.
+     * @return The updated Greeting, or <code>null</code> if no Greeting with
+     *         the id (and version) exists.
+     */
+    Greeting updateText(Long id, Integer version, String text,
+            String updatedBy, DateTime updatedAt);
+
+    /**
+     * Delete a Greeting. Does not insert its tombstone.
+     * @param id A Long Greeting identifier.
+     * @param version The Integer version the Greeting must have, or
+     *        <code>null</code> to delete it unconditionally.
+     * @return <code>true</code> if a Greeting was deleted.
+     */
+    boolean delete(Long id, Integer version);
+
+    /**
+     * Find the Greetings changed after a change cursor position and no later
+     * than a settle time, ordered by <code>changedAt</code> and id.
+     * @param changedAt The change time of the cursor.
+     * @param id The Greeting id of the cursor.
+     * @param until The latest change time returned.
+     * @param limit The maximum number of Greetings returned.
+     * @return A List of Greetings.
+     */
+    List<Greeting> findChangedAfter(DateTime changedAt, Long id,
+            DateTime until, int limit);
+
+    /**
+     * Insert the tombstone of a deleted Greeting.
+     * @param tombstone A GreetingTombstone.
+     */
+    void insertTombstone(GreetingTombstone tombstone);
+
+    /**
+     * Find the tombstones of the Greetings deleted after a change cursor
+     * position and no later than a settle time, ordered by
+     * <code>deletedAt</code> and Greeting id.
+     * @param deletedAt The change time of the cursor.
+     * @param greetingId The Greeting id of the cursor.
+     * @param until The latest deletion time returned.
+     * @param limit The maximum number of tombstones returned.
+     * @return A List of GreetingTombstones.
+     */
+    List<GreetingTombstone> findDeletedAfter(DateTime deletedAt,
+            Long greetingId, DateTime until, int limit);
+
+    /**
+     * Delete the tombstones of Greetings deleted before a time.
+     * @param before The time before which tombstones are deleted.
+     * @return The number of tombstones deleted.
+     */
+    int deleteTombstonesBefore(DateTime before);
+
+}
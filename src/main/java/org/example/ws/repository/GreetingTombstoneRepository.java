@@ -0,0 +1,52 @@
+package org.example.ws.repository;
+
+import java.util.List;
+
+import org.example.ws.model.GreetingTombstone;
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The GreetingTombstoneRepository interface is a Spring Data JPA data
+ * repository for GreetingTombstone entities.
+ *
+ * @author Matt Warman
+ */
+@Repository
+public interface GreetingTombstoneRepository
+        extends JpaRepository<GreetingTombstone, Long> {
+
+    /**
+     * Query for the tombstones of Greetings deleted after a change feed
+     * cursor, ordered by deletedAt and greetingId. Uses the
+     * IX_GreetingTombstone_DeletedAt index.
+     *
+     * @param deletedAt The DateTime change time of the cursor.
+     * @param greetingId The Long id value of the cursor.
+     * @param until The DateTime of the latest deletion to include.
+     * @param pageable The Pageable limiting the number of results.
+     * @return A List of GreetingTombstone entity model classes.
+     */
+    @Query("SELECT t FROM GreetingTombstone t WHERE (t.deletedAt > :deletedAt OR (t.deletedAt = :deletedAt AND t.greetingId > :greetingId)) "
+            + "AND t.deletedAt <= :until ORDER BY t.deletedAt ASC, t.greetingId ASC")
+    List<GreetingTombstone> findDeletedAfter(
+            @Param("deletedAt") DateTime deletedAt,
+            @Param("greetingId") Long greetingId,
+            @Param("until") DateTime until, Pageable pageable);
+
+    /**
+     * Delete the tombstones of Greetings deleted before a point in time.
+     *
+     * @param before The DateTime before which tombstones are deleted.
+     * @return The int number of deleted tombstones.
+     */
+    @Modifying
+    @Query("DELETE FROM GreetingTombstone t WHERE t.deletedAt < :before")
+    int deleteByDeletedAtBefore(@Param("before") DateTime before);
+
+}
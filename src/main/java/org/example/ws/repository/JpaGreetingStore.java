@@ -0,0 +1,221 @@
+package org.example.ws.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.model.GreetingTombstone;
+import org.example.ws.repository.event.EntityChangeEvent.ChangeType;
+import org.example.ws.repository.event.EntityChangeEventPublisher;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The JpaGreetingStore is the GreetingStore keeping Greetings and their
+ * tombstones in the relational database, through the Spring Data
+ * repositories. It is replaced by a document store when the 'mongodb' Spring
+ * profile is active.
+ *
+ * Inserts and unconditional deletes go through the persistence context, so
+ * Hibernate sets the audit values and publishes the EntityChangeEvents.
+ * Updates and conditional deletes are single bulk statements, which bypass
+ * Hibernate; their events are published here.
+ *
+ * @author Matt Warman
+ */
+@Profile("!mongodb")
+@Repository
+@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+public class JpaGreetingStore implements GreetingStore {
+
+    /**
+     * The Spring Data repository for Greeting entities.
+     */
+    @Autowired
+    private GreetingRepository greetingRepository;
+
+    /**
+     * The Spring Data repository for the tombstones of deleted Greetings.
+     */
+    @Autowired
+    private GreetingTombstoneRepository greetingTombstoneRepository;
+
+    /**
+     * The JPA EntityManager, used to batch inserts and to detach streamed
+     * and chunked entities from the persistence context.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Publishes the changes made by bulk statements.
+     */
+    @Autowired
+    private EntityChangeEventPublisher entityChangeEventPublisher;
+
+    @Override
+    public Greeting findById(Long id) {
+        return greetingRepository.findOne(id);
+    }
+
+    @Override
+    public List<Greeting> findByIds(Collection<Long> ids) {
+        return greetingRepository.findByIdIn(ids);
+    }
+
+    @Override
+    public List<Greeting> findPage(Long after, int limit) {
+        Long cursor = after == null ? Long.valueOf(0) : after;
+        return greetingRepository.findByIdGreaterThanOrderByIdAsc(cursor,
+                new PageRequest(0, limit));
+    }
+
+    @Override
+    public List<Greeting> findRange(Long after, Long upperBound, int limit) {
+        List<Greeting> greetings = greetingRepository
+                .findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(after,
+                        upperBound, new PageRequest(0, limit));
+        if (entityManager.isJoinedToTransaction()) {
+            // Inside a batch chunk transaction, keep changes to the chunk
+            // from being flushed on commit.
+            for (Greeting greeting : greetings) {
+                entityManager.detach(greeting);
+            }
+        }
+        return greetings;
+    }
+
+    @Override
+    public Long findMinId() {
+        return greetingRepository.findMinId();
+    }
+
+    @Override
+    public Long findMaxId() {
+        return greetingRepository.findMaxId();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void forEach(Consumer<Greeting> consumer, String... fields) {
+        // The Stream holds an open cursor and must be closed; each entity is
+        // detached once consumed so the persistence context stays empty.
+        try (Stream<Greeting> greetings = greetingRepository.streamAllOrderById()) {
+            greetings.forEach(greeting -> {
+                consumer.accept(greeting);
+                entityManager.detach(greeting);
+            });
+        }
+    }
+
+    @Override
+    public long count() {
+        return greetingRepository.count();
+    }
+
+    @Override
+    public String findVersionWatermark() {
+        Object[] watermark = greetingRepository.findVersionWatermark().get(0);
+        DateTime changedAt = (DateTime) watermark[1];
+
+        return watermark[0] + "-"
+                + (changedAt == null ? null : changedAt.getMillis()) + "-"
+                + watermark[2];
+    }
+
+    @Override
+    public DateTime findLastChangedAt() {
+        return greetingRepository.findLastChangedAt();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = false)
+    public void insert(List<Greeting> greetings) {
+        // Flushing once sends the inserts as JDBC batches; clearing keeps the
+        // persistence context from growing over a bulk insert.
+        for (Greeting greeting : greetings) {
+            entityManager.persist(greeting);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = false)
+    public Greeting updateText(Long id, Integer version, String text,
+            String updatedBy, DateTime updatedAt) {
+        // A single UPDATE replaces the read-before-write; the audit values
+        // normally set by @PreUpdate are set by the statement. The updated
+        // row is read back so the event carries the whole Greeting.
+        int updated = version == null
+                ? greetingRepository.updateText(id, text, updatedBy, updatedAt)
+                : greetingRepository.updateTextIfVersion(id, version, text,
+                        updatedBy, updatedAt);
+        if (updated == 0) {
+            return null;
+        }
+        Greeting greeting = greetingRepository.findOne(id);
+        entityChangeEventPublisher.publishAfterCommit(greeting, ChangeType.UPDATE);
+
+        return greeting;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = false)
+    public boolean delete(Long id, Integer version) {
+        if (version == null) {
+            Greeting greeting = greetingRepository.findOne(id);
+            if (greeting == null) {
+                return false;
+            }
+            greetingRepository.delete(greeting);
+            return true;
+        }
+
+        boolean deleted = greetingRepository.deleteIfVersion(id, version) == 1;
+        if (deleted) {
+            Greeting removed = new Greeting();
+            removed.setId(id);
+            entityChangeEventPublisher.publishAfterCommit(removed, ChangeType.DELETE);
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public List<Greeting> findChangedAfter(DateTime changedAt, Long id,
+            DateTime until, int limit) {
+        return greetingRepository.findChangedAfter(changedAt, id, until,
+                new PageRequest(0, limit));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = false)
+    public void insertTombstone(GreetingTombstone tombstone) {
+        greetingTombstoneRepository.save(tombstone);
+    }
+
+    @Override
+    public List<GreetingTombstone> findDeletedAfter(DateTime deletedAt,
+            Long greetingId, DateTime until, int limit) {
+        return greetingTombstoneRepository.findDeletedAfter(deletedAt,
+                greetingId, until, new PageRequest(0, limit));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = false)
+    public int deleteTombstonesBefore(DateTime before) {
+        return greetingTombstoneRepository.deleteByDeletedAtBefore(before);
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.example.ws.repository.document;
+
+import org.example.ws.repository.GreetingStore;
+import org.example.ws.repository.event.EntityChangeEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+
+/**
+ * The GreetingDocumentStoreConfiguration class supplies a document
+ * GreetingStore, in place of the JpaGreetingStore, when the 'mongodb' Spring
+ * profile is active.
+ *
+ * The <code>greeting.document-store.type</code> property selects the store:
+ * <code>mongo</code> (the default) connects to the MongoDB database at
+ * <code>spring.data.mongodb.uri</code>; <code>memory</code> uses the embedded
+ * InMemoryGreetingDocumentStore. The Spring Boot MongoDB auto-configuration
+ * is excluded, so no connection is opened unless the MongoDB store is used.
+ *
+ * @author Matt Warman
+ */
+@Profile("mongodb")
+@Configuration
+public class GreetingDocumentStoreConfiguration {
+
+    /**
+     * Supplies the embedded, in-memory GreetingStore.
+     *
+     * @param entityChangeEventPublisher Publishes the writes to the store.
+     * @return An InMemoryGreetingDocumentStore.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "greeting.document-store.type", havingValue = "memory")
+    public GreetingStore inMemoryGreetingDocumentStore(
+            EntityChangeEventPublisher entityChangeEventPublisher) {
+        return new InMemoryGreetingDocumentStore(entityChangeEventPublisher);
+    }
+
+    /**
+     * The MongoDB GreetingStore and its connection.
+     */
+    @Profile("mongodb")
+    @Configuration
+    @ConditionalOnProperty(name = "greeting.document-store.type", havingValue = "mongo", matchIfMissing = true)
+    static class MongoConfiguration {
+
+        @Value("${spring.data.mongodb.uri:mongodb://localhost/greetings}")
+        private String uri;
+
+        @Value("${greeting.document-store.id-block-size:100}")
+        private int idBlockSize;
+
+        /**
+         * Supplies the MongoClient, which pools the connections.
+         *
+         * @return A MongoClient.
+         */
+        @Bean
+        public MongoClient mongoClient() {
+            return new MongoClient(new MongoClientURI(uri));
+        }
+
+        /**
+         * Supplies the MongoTemplate for the database named by the URI.
+         *
+         * @param mongoClient The MongoClient.
+         * @return A MongoTemplate.
+         */
+        @Bean
+        public MongoTemplate mongoTemplate(MongoClient mongoClient) {
+            return new MongoTemplate(new SimpleMongoDbFactory(mongoClient,
+                    new MongoClientURI(uri).getDatabase()));
+        }
+
+        /**
+         * Supplies the MongoDB GreetingStore.
+         *
+         * @param mongoTemplate The MongoTemplate.
+         * @param entityChangeEventPublisher Publishes the writes to the store.
+         * @return A MongoGreetingDocumentStore.
+         */
+        @Bean
+        public GreetingStore mongoGreetingDocumentStore(
+                MongoTemplate mongoTemplate,
+                EntityChangeEventPublisher entityChangeEventPublisher) {
+            return new MongoGreetingDocumentStore(mongoTemplate,
+                    entityChangeEventPublisher, idBlockSize);
+        }
+
+    }
+
+}
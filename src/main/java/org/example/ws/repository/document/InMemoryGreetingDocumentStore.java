@@ -0,0 +1,439 @@
+package org.example.ws.repository.document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.model.GreetingTombstone;
+import org.example.ws.repository.GreetingStore;
+import org.example.ws.repository.event.EntityChangeEvent.ChangeType;
+import org.example.ws.repository.event.EntityChangeEventPublisher;
+import org.joda.time.DateTime;
+import org.springframework.dao.DuplicateKeyException;
+
+/**
+ * The InMemoryGreetingDocumentStore is an embedded document GreetingStore
+ * holding its documents in the heap. It stands in for MongoDB in tests and
+ * benchmarks, selected with <code>greeting.document-store.type=memory</code>.
+ *
+ * Documents are copied on the way in and out, so callers never share an
+ * instance with the store. The <code>referenceId</code> index enforces
+ * uniqueness like the MongoDB index; the <code>changedAt</code> index orders
+ * the change feed. All operations are atomic under a read/write lock.
+ *
+ * @author Matt Warman
+ */
+public class InMemoryGreetingDocumentStore implements GreetingStore {
+
+    /**
+     * The number of documents copied per read lock by forEach.
+     */
+    private static final int FOR_EACH_BATCH_SIZE = 500;
+
+    private final EntityChangeEventPublisher entityChangeEventPublisher;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<Long, Greeting> documents = new TreeMap<Long, Greeting>();
+
+    private final Map<String, Long> referenceIdIndex = new HashMap<String, Long>();
+
+    private final NavigableMap<IndexKey, Long> changedAtIndex = new TreeMap<IndexKey, Long>();
+
+    private final NavigableMap<IndexKey, GreetingTombstone> tombstones = new TreeMap<IndexKey, GreetingTombstone>();
+
+    private long lastId;
+
+    public InMemoryGreetingDocumentStore(
+            EntityChangeEventPublisher entityChangeEventPublisher) {
+        this.entityChangeEventPublisher = entityChangeEventPublisher;
+    }
+
+    @Override
+    public Greeting findById(Long id) {
+        lock.readLock().lock();
+        try {
+            Greeting greeting = documents.get(id);
+            return greeting == null ? null : copyOf(greeting);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Greeting> findByIds(Collection<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Greeting> greetings = new ArrayList<Greeting>(ids.size());
+            for (Long id : ids) {
+                Greeting greeting = documents.get(id);
+                if (greeting != null) {
+                    greetings.add(copyOf(greeting));
+                }
+            }
+            return greetings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Greeting> findPage(Long after, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Long, Greeting> tail = after == null ? documents
+                    : documents.tailMap(after, false);
+            List<Greeting> greetings = new ArrayList<Greeting>(
+                    Math.min(limit, tail.size()));
+            for (Greeting greeting : tail.values()) {
+                if (greetings.size() == limit) {
+                    break;
+                }
+                greetings.add(copyOf(greeting));
+            }
+            return greetings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Greeting> findRange(Long after, Long upperBound, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Greeting> greetings = new ArrayList<Greeting>();
+            for (Greeting greeting : documents
+                    .subMap(after, false, upperBound, true).values()) {
+                if (greetings.size() == limit) {
+                    break;
+                }
+                greetings.add(copyOf(greeting));
+            }
+            return greetings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Long findMinId() {
+        lock.readLock().lock();
+        try {
+            return documents.isEmpty() ? null : documents.firstKey();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Long findMaxId() {
+        lock.readLock().lock();
+        try {
+            return documents.isEmpty() ? null : documents.lastKey();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<Greeting> consumer, String... fields) {
+        // Copies a batch at a time, so the consumer runs without the lock.
+        List<String> projection = Arrays.asList(fields);
+        Long after = null;
+        List<Greeting> batch;
+        do {
+            batch = findPage(after, FOR_EACH_BATCH_SIZE);
+            for (Greeting greeting : batch) {
+                consumer.accept(projection.isEmpty() ? greeting
+                        : project(greeting, projection));
+                after = greeting.getId();
+            }
+        } while (batch.size() == FOR_EACH_BATCH_SIZE);
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String findVersionWatermark() {
+        lock.readLock().lock();
+        try {
+            long versionSum = 0L;
+            for (Greeting greeting : documents.values()) {
+                versionSum += greeting.getVersion();
+            }
+            return documents.size() + "-"
+                    + (documents.isEmpty() ? null : changedAtIndex.lastKey().millis) + "-"
+                    + (documents.isEmpty() ? null : versionSum);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public DateTime findLastChangedAt() {
+        lock.readLock().lock();
+        try {
+            return changedAtIndex.isEmpty() ? null
+                    : new DateTime(changedAtIndex.lastKey().millis);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insert(List<Greeting> greetings) {
+        // Sets the values JPA sets on persist.
+        for (Greeting greeting : greetings) {
+            greeting.beforePersist();
+            greeting.beforeChange();
+            greeting.setVersion(0);
+        }
+        lock.writeLock().lock();
+        try {
+            // Check the unique index for the whole batch before writing.
+            Map<String, Greeting> batchReferenceIds = new HashMap<String, Greeting>();
+            for (Greeting greeting : greetings) {
+                if (referenceIdIndex.containsKey(greeting.getReferenceId())
+                        || batchReferenceIds.put(greeting.getReferenceId(), greeting) != null) {
+                    throw new DuplicateKeyException("Duplicate referenceId "
+                            + greeting.getReferenceId());
+                }
+            }
+            for (Greeting greeting : greetings) {
+                greeting.setId(++lastId);
+                Greeting document = copyOf(greeting);
+                documents.put(document.getId(), document);
+                referenceIdIndex.put(document.getReferenceId(), document.getId());
+                changedAtIndex.put(IndexKey.of(document.getChangedAt(), document.getId()), document.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Greeting greeting : greetings) {
+            entityChangeEventPublisher.publishAfterCommit(greeting, ChangeType.INSERT);
+        }
+    }
+
+    @Override
+    public Greeting updateText(Long id, Integer version, String text,
+            String updatedBy, DateTime updatedAt) {
+        Greeting updated;
+        lock.writeLock().lock();
+        try {
+            Greeting document = documents.get(id);
+            if (document == null || (version != null
+                    && !version.equals(document.getVersion()))) {
+                return null;
+            }
+            changedAtIndex.remove(IndexKey.of(document.getChangedAt(), id));
+            document.setText(text);
+            document.setUpdatedBy(updatedBy);
+            document.setUpdatedAt(updatedAt);
+            document.setChangedAt(updatedAt);
+            document.setVersion(document.getVersion() + 1);
+            changedAtIndex.put(IndexKey.of(updatedAt, id), id);
+            updated = copyOf(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        entityChangeEventPublisher.publishAfterCommit(updated, ChangeType.UPDATE);
+        return updated;
+    }
+
+    @Override
+    public boolean delete(Long id, Integer version) {
+        lock.writeLock().lock();
+        try {
+            Greeting document = documents.get(id);
+            if (document == null || (version != null
+                    && !version.equals(document.getVersion()))) {
+                return false;
+            }
+            documents.remove(id);
+            referenceIdIndex.remove(document.getReferenceId());
+            changedAtIndex.remove(IndexKey.of(document.getChangedAt(), id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Greeting removed = new Greeting();
+        removed.setId(id);
+        entityChangeEventPublisher.publishAfterCommit(removed, ChangeType.DELETE);
+        return true;
+    }
+
+    @Override
+    public List<Greeting> findChangedAfter(DateTime changedAt, Long id,
+            DateTime until, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Greeting> greetings = new ArrayList<Greeting>();
+            for (Long changedId : changedAtIndex.subMap(
+                    IndexKey.of(changedAt, id), false,
+                    IndexKey.of(until, Long.MAX_VALUE), true).values()) {
+                if (greetings.size() == limit) {
+                    break;
+                }
+                greetings.add(copyOf(documents.get(changedId)));
+            }
+            return greetings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insertTombstone(GreetingTombstone tombstone) {
+        lock.writeLock().lock();
+        try {
+            tombstones.put(IndexKey.of(tombstone.getDeletedAt(),
+                    tombstone.getGreetingId()), new GreetingTombstone(
+                            tombstone.getGreetingId(), tombstone.getDeletedAt()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<GreetingTombstone> findDeletedAfter(DateTime deletedAt,
+            Long greetingId, DateTime until, int limit) {
+        lock.readLock().lock();
+        try {
+            List<GreetingTombstone> deleted = new ArrayList<GreetingTombstone>();
+            for (GreetingTombstone tombstone : tombstones.subMap(
+                    IndexKey.of(deletedAt, greetingId), false,
+                    IndexKey.of(until, Long.MAX_VALUE), true).values()) {
+                if (deleted.size() == limit) {
+                    break;
+                }
+                deleted.add(new GreetingTombstone(tombstone.getGreetingId(),
+                        tombstone.getDeletedAt()));
+            }
+            return deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteTombstonesBefore(DateTime before) {
+        lock.writeLock().lock();
+        try {
+            NavigableMap<IndexKey, GreetingTombstone> expired = tombstones
+                    .headMap(IndexKey.of(before, Long.MIN_VALUE), false);
+            int purged = expired.size();
+            expired.clear();
+            return purged;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Greeting copyOf(Greeting greeting) {
+        Greeting copy = new Greeting();
+        copy.setId(greeting.getId());
+        copy.setReferenceId(greeting.getReferenceId());
+        copy.setVersion(greeting.getVersion());
+        copy.setCreatedBy(greeting.getCreatedBy());
+        copy.setCreatedAt(greeting.getCreatedAt());
+        copy.setUpdatedBy(greeting.getUpdatedBy());
+        copy.setUpdatedAt(greeting.getUpdatedAt());
+        copy.setText(greeting.getText());
+        copy.setChangedAt(greeting.getChangedAt());
+        return copy;
+    }
+
+    /**
+     * Returns a Greeting carrying only the id and the named attributes of
+     * another, like a MongoDB projection.
+     */
+    private static Greeting project(Greeting greeting, List<String> fields) {
+        Greeting projected = new Greeting();
+        projected.setId(greeting.getId());
+        for (String field : fields) {
+            switch (field) {
+            case "referenceId":
+                projected.setReferenceId(greeting.getReferenceId());
+                break;
+            case "version":
+                projected.setVersion(greeting.getVersion());
+                break;
+            case "createdBy":
+                projected.setCreatedBy(greeting.getCreatedBy());
+                break;
+            case "createdAt":
+                projected.setCreatedAt(greeting.getCreatedAt());
+                break;
+            case "updatedBy":
+                projected.setUpdatedBy(greeting.getUpdatedBy());
+                break;
+            case "updatedAt":
+                projected.setUpdatedAt(greeting.getUpdatedAt());
+                break;
+            case "text":
+                projected.setText(greeting.getText());
+                break;
+            case "changedAt":
+                projected.setChangedAt(greeting.getChangedAt());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Greeting field " + field);
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * The key of the time-ordered indexes: a timestamp and a Greeting id.
+     */
+    private static final class IndexKey implements Comparable<IndexKey> {
+
+        private final long millis;
+
+        private final long id;
+
+        private IndexKey(long millis, long id) {
+            this.millis = millis;
+            this.id = id;
+        }
+
+        private static IndexKey of(DateTime time, Long id) {
+            return new IndexKey(time.getMillis(), id);
+        }
+
+        @Override
+        public int compareTo(IndexKey that) {
+            int byMillis = Long.compare(millis, that.millis);
+            return byMillis != 0 ? byMillis : Long.compare(id, that.id);
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            return that instanceof IndexKey
+                    && compareTo((IndexKey) that) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(millis) * 31 + Long.hashCode(id);
+        }
+
+    }
+
+}
@@ -0,0 +1,307 @@
+package org.example.ws.repository.document;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+
+import org.example.ws.model.Greeting;
+import org.example.ws.model.GreetingTombstone;
+import org.example.ws.repository.GreetingStore;
+import org.example.ws.repository.event.EntityChangeEvent.ChangeType;
+import org.example.ws.repository.event.EntityChangeEventPublisher;
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBObject;
+
+/**
+ * The MongoGreetingDocumentStore is the document GreetingStore backed by a
+ * MongoDB database, accessed through a MongoTemplate.
+ *
+ * Greetings are stored in the <code>greetings</code> collection, keyed by
+ * id in <code>_id</code>, and tombstones in the
+ * <code>greetingTombstones</code> collection. Ids are allocated from a
+ * counter document in blocks, so a bulk insert of a block costs one counter
+ * round trip. The indexes are created on start up if they do not exist.
+ *
+ * @author Matt Warman
+ */
+public class MongoGreetingDocumentStore implements GreetingStore {
+
+    static final String GREETINGS = "greetings";
+
+    static final String TOMBSTONES = "greetingTombstones";
+
+    static final String COUNTERS = "counters";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final EntityChangeEventPublisher entityChangeEventPublisher;
+
+    /**
+     * The number of ids allocated per counter increment.
+     */
+    private final int idBlockSize;
+
+    /**
+     * The next id of the current block and the last id it holds. Guarded by
+     * this store.
+     */
+    private long nextId = 1L;
+
+    private long lastId = 0L;
+
+    public MongoGreetingDocumentStore(MongoTemplate mongoTemplate,
+            EntityChangeEventPublisher entityChangeEventPublisher,
+            int idBlockSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.entityChangeEventPublisher = entityChangeEventPublisher;
+        this.idBlockSize = idBlockSize;
+    }
+
+    /**
+     * Creates the secondary indexes.
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(GREETINGS).ensureIndex(new Index()
+                .on("referenceId", Direction.ASC).unique()
+                .named("UQ_Greeting_ReferenceId"));
+        mongoTemplate.indexOps(GREETINGS).ensureIndex(new Index()
+                .on("createdAt", Direction.ASC)
+                .named("IX_Greeting_CreatedAt"));
+        mongoTemplate.indexOps(GREETINGS).ensureIndex(new Index()
+                .on("changedAt", Direction.ASC).on("_id", Direction.ASC)
+                .named("IX_Greeting_ChangedAt"));
+        mongoTemplate.indexOps(TOMBSTONES).ensureIndex(new Index()
+                .on("deletedAt", Direction.ASC).on("greetingId", Direction.ASC)
+                .named("IX_GreetingTombstone_DeletedAt"));
+    }
+
+    @Override
+    public Greeting findById(Long id) {
+        return mongoTemplate.findById(id, Greeting.class, GREETINGS);
+    }
+
+    @Override
+    public List<Greeting> findByIds(Collection<Long> ids) {
+        return mongoTemplate.find(query(where("id").in(ids)), Greeting.class, GREETINGS);
+    }
+
+    @Override
+    public List<Greeting> findPage(Long after, int limit) {
+        Query query = after == null ? new Query()
+                : query(where("id").gt(after));
+        query.with(new Sort(Direction.ASC, "id")).limit(limit);
+        return mongoTemplate.find(query, Greeting.class, GREETINGS);
+    }
+
+    @Override
+    public List<Greeting> findRange(Long after, Long upperBound, int limit) {
+        Query query = query(where("id").gt(after).lte(upperBound))
+                .with(new Sort(Direction.ASC, "id")).limit(limit);
+        return mongoTemplate.find(query, Greeting.class, GREETINGS);
+    }
+
+    @Override
+    public Long findMinId() {
+        return findBoundaryId(Direction.ASC);
+    }
+
+    @Override
+    public Long findMaxId() {
+        return findBoundaryId(Direction.DESC);
+    }
+
+    /**
+     * Reads the id of the first Greeting in id order, from the id index.
+     */
+    private Long findBoundaryId(Direction direction) {
+        Query query = new Query().with(new Sort(direction, "id"));
+        query.fields().include("id");
+        Greeting greeting = mongoTemplate.findOne(query, Greeting.class, GREETINGS);
+        return greeting == null ? null : greeting.getId();
+    }
+
+    @Override
+    public void forEach(Consumer<Greeting> consumer, String... fields) {
+        Query query = new Query().with(new Sort(Direction.ASC, "id"));
+        for (String field : fields) {
+            query.fields().include(field);
+        }
+        // Documents are converted one at a time as the cursor advances.
+        mongoTemplate.executeQuery(query, GREETINGS, document -> consumer
+                .accept(mongoTemplate.getConverter().read(Greeting.class, document)));
+    }
+
+    @Override
+    public long count() {
+        return mongoTemplate.count(new Query(), GREETINGS);
+    }
+
+    @Override
+    public String findVersionWatermark() {
+        DBObject group = new BasicDBObject("_id", null)
+                .append("count", new BasicDBObject("$sum", 1))
+                .append("maxChangedAt", new BasicDBObject("$max", "$changedAt"))
+                .append("versionSum", new BasicDBObject("$sum", "$version"));
+        try (Cursor cursor = mongoTemplate.getCollection(GREETINGS).aggregate(
+                Arrays.<DBObject> asList(new BasicDBObject("$group", group)),
+                AggregationOptions.builder().build())) {
+            if (!cursor.hasNext()) {
+                return "0-null-null";
+            }
+            DBObject watermark = cursor.next();
+            Date changedAt = (Date) watermark.get("maxChangedAt");
+            return watermark.get("count") + "-"
+                    + (changedAt == null ? null : changedAt.getTime()) + "-"
+                    + watermark.get("versionSum");
+        }
+    }
+
+    @Override
+    public DateTime findLastChangedAt() {
+        Query query = new Query().with(new Sort(Direction.DESC, "changedAt"));
+        query.fields().include("changedAt");
+        Greeting greeting = mongoTemplate.findOne(query, Greeting.class, GREETINGS);
+        return greeting == null ? null : greeting.getChangedAt();
+    }
+
+    @Override
+    public void insert(List<Greeting> greetings) {
+        if (greetings.isEmpty()) {
+            return;
+        }
+        // Sets the values JPA sets on persist.
+        for (Greeting greeting : greetings) {
+            greeting.beforePersist();
+            greeting.beforeChange();
+            greeting.setVersion(0);
+        }
+        allocateIds(greetings);
+        mongoTemplate.bulkOps(BulkMode.UNORDERED, Greeting.class, GREETINGS)
+                .insert(greetings).execute();
+        for (Greeting greeting : greetings) {
+            entityChangeEventPublisher.publishAfterCommit(greeting, ChangeType.INSERT);
+        }
+    }
+
+    /**
+     * Assigns ids to new Greetings from the current block, incrementing the
+     * counter document when the block is used up.
+     */
+    private synchronized void allocateIds(List<Greeting> greetings) {
+        for (Greeting greeting : greetings) {
+            if (nextId > lastId) {
+                int blockSize = Math.max(idBlockSize, greetings.size());
+                DBObject counter = mongoTemplate.findAndModify(
+                        query(where("_id").is(GREETINGS)),
+                        new Update().inc("seq", blockSize),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        BasicDBObject.class, COUNTERS);
+                lastId = ((Number) counter.get("seq")).longValue();
+                nextId = lastId - blockSize + 1;
+            }
+            greeting.setId(nextId++);
+        }
+    }
+
+    @Override
+    public Greeting updateText(Long id, Integer version, String text,
+            String updatedBy, DateTime updatedAt) {
+        Criteria criteria = where("id").is(id);
+        if (version != null) {
+            criteria.and("version").is(version);
+        }
+        Update update = new Update()
+                .set("text", text)
+                .set("updatedBy", updatedBy)
+                .set("updatedAt", updatedAt.toDate())
+                .set("changedAt", updatedAt.toDate())
+                .inc("version", 1);
+        Greeting updated = mongoTemplate.findAndModify(query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true),
+                Greeting.class, GREETINGS);
+        if (updated != null) {
+            entityChangeEventPublisher.publishAfterCommit(updated, ChangeType.UPDATE);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(Long id, Integer version) {
+        Criteria criteria = where("id").is(id);
+        if (version != null) {
+            criteria.and("version").is(version);
+        }
+        boolean deleted = mongoTemplate.remove(query(criteria), GREETINGS).getN() == 1;
+        if (deleted) {
+            Greeting removed = new Greeting();
+            removed.setId(id);
+            entityChangeEventPublisher.publishAfterCommit(removed, ChangeType.DELETE);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Greeting> findChangedAfter(DateTime changedAt, Long id,
+            DateTime until, int limit) {
+        Query query = query(after("changedAt", changedAt, "id", id, until))
+                .with(new Sort(Direction.ASC, "changedAt", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Greeting.class, GREETINGS);
+    }
+
+    @Override
+    public void insertTombstone(GreetingTombstone tombstone) {
+        mongoTemplate.insert(tombstone, TOMBSTONES);
+    }
+
+    @Override
+    public List<GreetingTombstone> findDeletedAfter(DateTime deletedAt,
+            Long greetingId, DateTime until, int limit) {
+        Query query = query(after("deletedAt", deletedAt, "greetingId",
+                greetingId, until))
+                .with(new Sort(Direction.ASC, "deletedAt", "greetingId"))
+                .limit(limit);
+        return mongoTemplate.find(query, GreetingTombstone.class, TOMBSTONES);
+    }
+
+    @Override
+    public int deleteTombstonesBefore(DateTime before) {
+        return mongoTemplate.remove(query(where("deletedAt").lt(before.toDate())),
+                TOMBSTONES).getN();
+    }
+
+    /**
+     * Builds the criteria of a change cursor: changed after the cursor
+     * position, ordered by time then id, and no later than a settle time.
+     */
+    private static Criteria after(String timeField, DateTime time,
+            String idField, Long id, DateTime until) {
+        return new Criteria().andOperator(
+                new Criteria().orOperator(
+                        where(timeField).gt(time.toDate()),
+                        where(timeField).is(time.toDate()).and(idField).gt(id)),
+                where(timeField).lte(until.toDate()));
+    }
+
+}
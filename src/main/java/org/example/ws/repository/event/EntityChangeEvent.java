@@ -0,0 +1,67 @@
+package org.example.ws.repository.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * The EntityChangeEvent is a Spring ApplicationEvent published after a
+ * transaction which inserted, updated or deleted a persistent entity has
+ * committed. Components which hold derived copies of entity data, such as
+ * caches and in-memory indexes, listen for this event to stay consistent
+ * with the data store.
+ * 
+ * @see EntityChangeEventPublisher
+ * 
+ * @author Matt Warman
+ */
+public class EntityChangeEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kind of change applied to the entity.
+     */
+    public enum ChangeType {
+        INSERT, UPDATE, DELETE
+    }
+
+    /**
+     * The kind of change applied to the entity.
+     */
+    private final ChangeType changeType;
+
+    /**
+     * Create a new EntityChangeEvent.
+     * @param entity The changed entity instance.
+     * @param changeType The kind of change applied to the entity.
+     */
+    public EntityChangeEvent(Object entity, ChangeType changeType) {
+        super(entity);
+        this.changeType = changeType;
+    }
+
+    /**
+     * Returns the changed entity instance.
+     * @return An Object.
+     */
+    public Object getEntity() {
+        return getSource();
+    }
+
+    /**
+     * Returns the kind of change applied to the entity.
+     * @return A ChangeType.
+     */
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * Determines if the changed entity is an instance of the supplied class.
+     * @param entityClass A Class.
+     * @return A boolean that is TRUE if the entity is an instance of the class.
+     */
+    public boolean isFor(Class<?> entityClass) {
+        return entityClass.isInstance(getSource());
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.example.ws.repository.event;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.example.ws.repository.event.EntityChangeEvent.ChangeType;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The EntityChangeEventPublisher registers itself with the Hibernate event
+ * system and republishes entity inserts, updates and deletes as Spring
+ * {@link EntityChangeEvent} application events.
+ * 
+ * Hibernate raises its events while the transaction is flushed. The Spring
+ * event is deferred until the surrounding transaction commits, so listeners
+ * never observe changes which are later rolled back.
+ * 
+ * @author Matt Warman
+ */
+@Component
+public class EntityChangeEventPublisher implements PostInsertEventListener,
+        PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionUpdateEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The Logger for this class.
+     */
+    private transient Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The JPA EntityManagerFactory whose Hibernate event system is observed.
+     */
+    @Autowired
+    private transient EntityManagerFactory entityManagerFactory;
+
+    /**
+     * The Spring ApplicationEventPublisher.
+     */
+    @Autowired
+    private transient ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * Registers this bean as a listener with the Hibernate
+     * EventListenerRegistry.
+     */
+    @PostConstruct
+    public void register() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+
+        logger.info("Registered entity change listeners with Hibernate.");
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publishAfterCommit(event.getEntity(), ChangeType.INSERT);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publishAfterCommit(event.getEntity(), ChangeType.UPDATE);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publishAfterCommit(event.getEntity(), ChangeType.DELETE);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        Object owner = event.getAffectedOwnerOrNull();
+        if (owner != null) {
+            publishAfterCommit(owner, ChangeType.UPDATE);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Publishes an EntityChangeEvent once the current transaction commits. If
+     * no transaction synchronization is active, publishes immediately.
+     * 
+     * Changes made with bulk JPQL or SQL statements bypass the Hibernate event
+     * system, so the code issuing them calls this method directly.
+     * @param entity The changed entity.
+     * @param changeType The kind of change.
+     */
+    public void publishAfterCommit(Object entity, ChangeType changeType) {
+        final EntityChangeEvent event = new EntityChangeEvent(entity,
+                changeType);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applicationEventPublisher.publishEvent(event);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        applicationEventPublisher.publishEvent(event);
+                    }
+                });
+    }
+
+}
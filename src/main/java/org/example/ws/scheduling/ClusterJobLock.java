@@ -0,0 +1,339 @@
+package org.example.ws.scheduling;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * The ClusterJobLock ensures that a scheduled job runs on only one instance
+ * of the application at a time, when several instances share a data store.
+ *
+ * A job holds a lease, a row of the JobLock table naming the owning instance
+ * and the time the lease expires. An instance acquires the lease with a
+ * single conditional UPDATE which only succeeds when the lease has expired,
+ * so exactly one instance wins each tick and the others skip it. While the
+ * job runs, the lease is renewed in the background every third of its
+ * duration; if the instance dies, the lease expires and another instance
+ * takes over on a later tick. Lease times are taken from the clock of each
+ * instance, so instance clocks must agree to well within the lease duration.
+ *
+ * A finished job keeps its lease for at least
+ * <code>scheduling.lock.at-least-millis</code> after it was acquired, so that
+ * an instance whose tick comes a little later, or whose clock runs a little
+ * behind, does not run the same tick again. It must exceed that skew and stay
+ * below the shortest interval of the jobs.
+ *
+ * If a renewal finds the lease taken by another instance, or cannot renew it
+ * before it expires, the lease is lost: the thread running the job is
+ * interrupted, and the job should stop as soon as it sees the interrupt.
+ *
+ * The number of runs, skipped runs, lost leases and the lock hold time of
+ * each job are exposed as Actuator metrics.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class ClusterJobLock implements PublicMetrics {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The number of milliseconds a lease is held without renewal.
+     */
+    @Value("${scheduling.lock.lease-millis:60000}")
+    private long leaseMillis;
+
+    /**
+     * The number of milliseconds a lease is held from its acquisition, even
+     * when the job finishes sooner.
+     */
+    @Value("${scheduling.lock.at-least-millis:500}")
+    private long atLeastMillis;
+
+    /**
+     * The identity of this application instance recorded as the lease owner.
+     */
+    private final String instanceId = ManagementFactory.getRuntimeMXBean()
+            .getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * Renews the leases of running jobs.
+     */
+    private final ScheduledExecutorService renewer = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "job-lock-renewer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * The statistics of each job, keyed by job name.
+     */
+    private final ConcurrentMap<String, JobStats> stats = new ConcurrentHashMap<String, JobStats>();
+
+    /**
+     * Run a job if this instance acquires its lease; otherwise skip it.
+     *
+     * @param jobName A String job name identifying the lease.
+     * @param job The Runnable job.
+     * @return <code>true</code> if the job was run on this instance.
+     */
+    public boolean runExclusively(final String jobName, Runnable job) {
+        JobStats jobStats = statsFor(jobName);
+        long acquiredAt = System.currentTimeMillis();
+        if (!tryAcquire(jobName, acquiredAt)) {
+            jobStats.skipped.incrementAndGet();
+            logger.debug("Skipped job {}; its lease is held by another instance.",
+                    jobName);
+            return false;
+        }
+
+        final Lease lease = new Lease(Thread.currentThread(),
+                acquiredAt + leaseMillis);
+        long period = Math.max(1L, leaseMillis / 3);
+        ScheduledFuture<?> renewal = renewer.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                renew(jobName, lease);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        try {
+            job.run();
+            return true;
+        } finally {
+            renewal.cancel(false);
+            if (lease.finish()) {
+                // Clear the interrupt of the lost lease from the scheduler
+                // thread.
+                Thread.interrupted();
+            }
+            release(jobName, acquiredAt);
+            long holdMillis = TimeUnit.NANOSECONDS
+                    .toMillis(System.nanoTime() - start);
+            jobStats.runs.incrementAndGet();
+            jobStats.lastHoldMillis.set(holdMillis);
+            jobStats.totalHoldMillis.addAndGet(holdMillis);
+        }
+    }
+
+    /**
+     * Acquire the lease of a job if it is not held by a live instance.
+     * @param jobName A String job name.
+     * @param now The long current time in milliseconds.
+     * @return <code>true</code> if the lease was acquired.
+     */
+    private boolean tryAcquire(String jobName, long now) {
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE JobLock SET lockedBy = ?, lockedAt = ?, lockedUntil = ? "
+                            + "WHERE jobName = ? AND lockedUntil <= ?",
+                    instanceId, new Timestamp(now),
+                    new Timestamp(now + leaseMillis), jobName,
+                    new Timestamp(now));
+            if (updated == 1) {
+                return true;
+            }
+            // The first run of a job creates its row.
+            jdbcTemplate.update(
+                    "INSERT INTO JobLock (jobName, lockedBy, lockedAt, lockedUntil) VALUES (?, ?, ?, ?)",
+                    jobName, instanceId, new Timestamp(now),
+                    new Timestamp(now + leaseMillis));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataAccessException e) {
+            logger.error("Unable to acquire the lease of job {}.", jobName, e);
+            return false;
+        }
+    }
+
+    /**
+     * Extend the lease of a running job, or interrupt the job if the lease
+     * was lost.
+     * @param jobName A String job name.
+     * @param lease The Lease of the running job.
+     */
+    private void renew(String jobName, Lease lease) {
+        if (lease.lost) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE JobLock SET lockedUntil = ? WHERE jobName = ? AND lockedBy = ?",
+                    new Timestamp(now + leaseMillis), jobName, instanceId);
+            if (updated == 1) {
+                lease.expiresAt = now + leaseMillis;
+                return;
+            }
+            logger.warn("Lost the lease of running job {}; interrupting it.",
+                    jobName);
+        } catch (DataAccessException e) {
+            if (now + Math.max(1L, leaseMillis / 3) < lease.expiresAt) {
+                logger.error("Unable to renew the lease of job {}; retrying.",
+                        jobName, e);
+                return;
+            }
+            logger.error("Unable to renew the lease of job {} before it expires; interrupting it.",
+                    jobName, e);
+        }
+        if (lease.lose()) {
+            statsFor(jobName).lost.incrementAndGet();
+        }
+    }
+
+    /**
+     * Release the lease of a finished job. The lease is kept until at least
+     * <code>scheduling.lock.at-least-millis</code> after its acquisition;
+     * after that the next tick may run anywhere.
+     * @param jobName A String job name.
+     * @param acquiredAt The long time in milliseconds the lease was acquired.
+     */
+    private void release(String jobName, long acquiredAt) {
+        long until = Math.max(System.currentTimeMillis(),
+                acquiredAt + atLeastMillis);
+        try {
+            jdbcTemplate.update(
+                    "UPDATE JobLock SET lockedUntil = ? WHERE jobName = ? AND lockedBy = ?",
+                    new Timestamp(until), jobName, instanceId);
+        } catch (DataAccessException e) {
+            logger.error("Unable to release the lease of job {}; it expires on its own.",
+                    jobName, e);
+        }
+    }
+
+    private JobStats statsFor(String jobName) {
+        JobStats jobStats = stats.get(jobName);
+        if (jobStats == null) {
+            stats.putIfAbsent(jobName, new JobStats());
+            jobStats = stats.get(jobName);
+        }
+        return jobStats;
+    }
+
+    /**
+     * Stops lease renewal when the application shuts down.
+     */
+    @PreDestroy
+    public void destroy() {
+        renewer.shutdownNow();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        for (Map.Entry<String, JobStats> entry : stats.entrySet()) {
+            String prefix = "joblock." + entry.getKey() + ".";
+            JobStats jobStats = entry.getValue();
+            metrics.add(new Metric<Long>(prefix + "runs",
+                    jobStats.runs.get()));
+            metrics.add(new Metric<Long>(prefix + "skipped",
+                    jobStats.skipped.get()));
+            metrics.add(new Metric<Long>(prefix + "lost",
+                    jobStats.lost.get()));
+            metrics.add(new Metric<Long>(prefix + "hold.last",
+                    jobStats.lastHoldMillis.get()));
+            metrics.add(new Metric<Long>(prefix + "hold.total",
+                    jobStats.totalHoldMillis.get()));
+        }
+        return metrics;
+    }
+
+    /**
+     * The lease of a job running on this instance.
+     */
+    private static class Lease {
+
+        private final Thread thread;
+
+        /**
+         * The time in milliseconds the lease expires, as last renewed.
+         */
+        private volatile long expiresAt;
+
+        private volatile boolean lost;
+
+        private boolean finished;
+
+        private Lease(Thread thread, long expiresAt) {
+            this.thread = thread;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Marks the lease lost and interrupts the job, unless it finished.
+         * @return <code>true</code> if the lease was lost by this call.
+         */
+        private synchronized boolean lose() {
+            if (lost || finished) {
+                return false;
+            }
+            lost = true;
+            thread.interrupt();
+            return true;
+        }
+
+        /**
+         * Marks the job finished, so that the lease is no longer lost.
+         * @return <code>true</code> if the lease was lost while the job ran.
+         */
+        private synchronized boolean finish() {
+            finished = true;
+            return lost;
+        }
+
+    }
+
+    /**
+     * The statistics of one job on this instance.
+     */
+    private static class JobStats {
+
+        private final AtomicLong runs = new AtomicLong();
+
+        private final AtomicLong skipped = new AtomicLong();
+
+        private final AtomicLong lost = new AtomicLong();
+
+        private final AtomicLong lastHoldMillis = new AtomicLong();
+
+        private final AtomicLong totalHoldMillis = new AtomicLong();
+
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.example.ws.scheduling;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * The SchedulerConfiguration class supplies the TaskScheduler running the
+ * application's <code>@Scheduled</code> methods. Without it, Spring runs
+ * them all on one thread, so a long job such as the batch validation of
+ * every Greeting holds up the outbox relay, the search index refresh and the
+ * replica lag check until it ends.
+ *
+ * The pool size and thread name prefix are configured with the
+ * <code>scheduling.pool.*</code> properties. The pool must be larger than
+ * the number of long-running jobs which may overlap.
+ *
+ * @author Matt Warman
+ */
+@Configuration
+public class SchedulerConfiguration {
+
+    /**
+     * The bean name under which Spring looks up the TaskScheduler of
+     * <code>@Scheduled</code> methods.
+     */
+    public static final String TASK_SCHEDULER = "taskScheduler";
+
+    @Value("${scheduling.pool.size:5}")
+    private int poolSize;
+
+    @Value("${scheduling.pool.thread-name-prefix:scheduler-}")
+    private String threadNamePrefix;
+
+    /**
+     * Supplies the pooled TaskScheduler to the Spring ApplicationContext.
+     * Running jobs are given time to complete on shutdown.
+     *
+     * @return A ThreadPoolTaskScheduler.
+     */
+    @Bean(name = TASK_SCHEDULER)
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+
+}
@@ -0,0 +1,372 @@
+package org.example.ws.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.MMapDirectory;
+import org.example.ws.outbox.GreetingEvent;
+import org.example.ws.service.GreetingService;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The GreetingIndex is an embedded Lucene inverted index over the text of
+ * all Greetings, stored in memory-mapped segment files in the directory
+ * configured with <code>search.index.directory</code>.
+ *
+ * The index is kept in sync incrementally from the GreetingEvents relayed
+ * from the transactional outbox, so every application instance indexes the
+ * changes made on every instance: with the 'amqp' profile each instance
+ * consumes the broker exchange through its own queue, otherwise the
+ * in-memory publisher delivers the events of this instance. Changes become
+ * visible to searches at the next refresh, every
+ * <code>search.index.refresh-interval</code> milliseconds, and are made
+ * durable at the next commit, every <code>search.index.commit-interval</code>
+ * milliseconds and on shutdown.
+ *
+ * Each commit records the time of the latest change indexed in the commit
+ * user data. On startup the index is rebuilt in bulk from the data store
+ * when its document count differs from the number of Greetings, or when the
+ * data store holds a change later than the one recorded, i.e. events were
+ * missed while the instance was down. Changes arriving while the index is
+ * rebuilt are held and applied once the rebuild ends.
+ *
+ * Queries use the Lucene query string syntax, the syntax of the
+ * Elasticsearch <code>query_string</code> query: terms, quoted phrases,
+ * <code>AND</code>/<code>OR</code>/<code>NOT</code>, <code>+</code>/<code>-</code>,
+ * grouping, trailing wildcards, fuzzy terms and boosts.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class GreetingIndex implements PublicMetrics {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final String ID = "id";
+
+    private static final String TEXT = "text";
+
+    /**
+     * The commit user data key of the time of the latest change indexed.
+     */
+    private static final String CHANGED_AT = "changedAt";
+
+    /**
+     * The GreetingService from which the index is rebuilt.
+     */
+    @Lazy
+    @Autowired
+    private GreetingService greetingService;
+
+    /**
+     * The directory holding the index segment files.
+     */
+    @Value("${search.index.directory:${java.io.tmpdir}/greeting-index}")
+    private String directory;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private MMapDirectory indexDirectory;
+
+    private IndexWriter writer;
+
+    private SearcherManager searcherManager;
+
+    /**
+     * The monitor guarding <code>rebuilding</code> and
+     * <code>pendingChanges</code>.
+     */
+    private final Object lock = new Object();
+
+    private boolean rebuilding;
+
+    /**
+     * The changes received during a rebuild, by Greeting id.
+     */
+    private final Map<Long, GreetingEvent> pendingChanges = new LinkedHashMap<Long, GreetingEvent>();
+
+    /**
+     * The time in milliseconds of the latest change indexed.
+     */
+    private final AtomicLong changedAt = new AtomicLong();
+
+    private final LongAdder queries = new LongAdder();
+
+    /**
+     * Opens the index, creating it if it does not exist.
+     * @throws IOException Thrown when the index cannot be opened.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        indexDirectory = new MMapDirectory(Paths.get(directory));
+        writer = new IndexWriter(indexDirectory,
+                new IndexWriterConfig(analyzer)
+                        .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (CHANGED_AT.equals(entry.getKey())) {
+                    changedAt.set(Long.parseLong(entry.getValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Commits pending changes and closes the index.
+     * @throws IOException Thrown when the index cannot be written.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        try {
+            searcherManager.close();
+            writer.close();
+        } finally {
+            indexDirectory.close();
+        }
+    }
+
+    /**
+     * Rebuilds the index once the application has started if it does not
+     * hold one document per Greeting, or misses changes made since its last
+     * commit.
+     * @param event The ApplicationReadyEvent.
+     */
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        long count = greetingService.count();
+        long documents = size();
+        DateTime lastChangedAt = greetingService.findLastChangedAt();
+        long indexedChangedAt = changedAt.get();
+        if (documents != count || (lastChangedAt != null
+                && lastChangedAt.getMillis() > indexedChangedAt)) {
+            logger.info("Rebuilding the greeting index; documents:{} greetings:{} indexed:{} changed:{}.",
+                    documents, count, new DateTime(indexedChangedAt), lastChangedAt);
+            rebuild();
+        }
+    }
+
+    /**
+     * Applies a committed Greeting change, relayed from the outbox, to the
+     * index.
+     * @param event A GreetingEvent.
+     */
+    public void apply(GreetingEvent event) {
+        synchronized (lock) {
+            if (rebuilding) {
+                pendingChanges.put(event.getGreetingId(), event);
+                return;
+            }
+            write(event);
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the Greetings in the data store.
+     */
+    public void rebuild() {
+        synchronized (lock) {
+            rebuilding = true;
+        }
+        try {
+            writer.deleteAll();
+            greetingService.streamAll(greeting -> {
+                write(greeting.getId(), greeting.getText());
+                if (greeting.getChangedAt() != null) {
+                    advance(greeting.getChangedAt());
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            synchronized (lock) {
+                for (GreetingEvent change : pendingChanges.values()) {
+                    write(change);
+                }
+                pendingChanges.clear();
+                rebuilding = false;
+            }
+        }
+        commit();
+        refresh();
+    }
+
+    /**
+     * Search the text of the Greetings.
+     * @param queryString A query in the Lucene query string syntax.
+     * @param limit The maximum number of results.
+     * @return A List of Greeting ids, best match first.
+     * @throws SearchQueryException Thrown when the query cannot be parsed or
+     *         expands to too many terms.
+     */
+    public List<Long> search(String queryString, int limit) {
+        Query query;
+        try {
+            query = new QueryParser(TEXT, analyzer).parse(queryString);
+        } catch (ParseException e) {
+            throw new SearchQueryException("The search query is invalid.", e);
+        }
+
+        queries.increment();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                ScoreDoc[] hits = searcher.search(query, limit).scoreDocs;
+                List<Long> ids = new ArrayList<Long>(hits.length);
+                for (ScoreDoc hit : hits) {
+                    ids.add(Long.valueOf(searcher.doc(hit.doc).get(ID)));
+                }
+                return ids;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (BooleanQuery.TooManyClauses e) {
+            throw new SearchQueryException("The search query matches too many terms.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes the changes written so far visible to searches.
+     */
+    @Scheduled(
+            initialDelayString = "${search.index.refresh-interval:1000}",
+            fixedDelayString = "${search.index.refresh-interval:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            logger.error("The greeting index could not be refreshed.", e);
+        }
+    }
+
+    /**
+     * Makes the changes written so far durable, together with the time of
+     * the latest change indexed.
+     */
+    @Scheduled(
+            initialDelayString = "${search.index.commit-interval:30000}",
+            fixedDelayString = "${search.index.commit-interval:30000}")
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.setLiveCommitData(Collections.singletonMap(CHANGED_AT,
+                        Long.toString(changedAt.get())).entrySet());
+                writer.commit();
+            }
+        } catch (IOException e) {
+            logger.error("The greeting index could not be committed.", e);
+        }
+    }
+
+    /**
+     * Returns the number of documents visible to searches.
+     * @return A long document count.
+     */
+    public long size() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.getIndexReader().numDocs();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes or deletes the document of the Greeting of an event.
+     * @param event The GreetingEvent.
+     */
+    private void write(GreetingEvent event) {
+        if (GreetingEvent.DELETED.equals(event.getType())) {
+            try {
+                writer.deleteDocuments(new Term(ID, event.getGreetingId().toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            write(event.getGreetingId(), event.getText());
+        }
+        if (event.getOccurredAt() != null) {
+            advance(event.getOccurredAt());
+        }
+    }
+
+    /**
+     * Writes the document of one Greeting.
+     * @param id The Greeting id.
+     * @param text The Greeting text.
+     */
+    private void write(Long id, String text) {
+        Document document = new Document();
+        document.add(new StringField(ID, id.toString(), Field.Store.YES));
+        document.add(new TextField(TEXT, text == null ? "" : text,
+                Field.Store.NO));
+        try {
+            writer.updateDocument(new Term(ID, id.toString()), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void advance(DateTime time) {
+        changedAt.accumulateAndGet(time.getMillis(), Math::max);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        metrics.add(new Metric<Long>("search.index.documents", size()));
+        metrics.add(new Metric<Long>("search.queries", queries.sum()));
+        return metrics;
+    }
+
+}
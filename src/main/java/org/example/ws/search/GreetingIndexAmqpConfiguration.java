@@ -0,0 +1,102 @@
+package org.example.ws.search;
+
+import java.io.IOException;
+
+import org.example.ws.outbox.GreetingEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The GreetingIndexAmqpConfiguration class feeds the GreetingIndex of this
+ * application instance from the broker, when the 'amqp' Spring profile is
+ * active.
+ *
+ * Each instance binds its own exclusive, auto-deleted queue to the greeting
+ * exchange, so every instance receives the events of every instance. Events
+ * published while an instance is down are not queued for it; the
+ * GreetingIndex detects them on startup and rebuilds.
+ *
+ * @author Matt Warman
+ */
+@Profile("amqp")
+@Configuration
+public class GreetingIndexAmqpConfiguration {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private GreetingIndex greetingIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Supplies the queue of this instance, named by the broker client.
+     *
+     * @return An AnonymousQueue.
+     */
+    @Bean
+    public AnonymousQueue greetingIndexQueue() {
+        return new AnonymousQueue();
+    }
+
+    /**
+     * Supplies the binding of the queue to every greeting event.
+     *
+     * @param greetingIndexQueue The queue of this instance.
+     * @param greetingExchange The exchange the outbox events are published to.
+     * @return A Binding.
+     */
+    @Bean
+    public Binding greetingIndexBinding(AnonymousQueue greetingIndexQueue,
+            TopicExchange greetingExchange) {
+        return BindingBuilder.bind(greetingIndexQueue).to(greetingExchange)
+                .with("greeting.*");
+    }
+
+    /**
+     * Supplies the single consumer applying the events, in order, to the
+     * GreetingIndex.
+     *
+     * @param connectionFactory The broker ConnectionFactory.
+     * @param greetingIndexQueue The queue of this instance.
+     * @return A SimpleMessageListenerContainer.
+     */
+    @Bean
+    public SimpleMessageListenerContainer greetingIndexListener(
+            ConnectionFactory connectionFactory,
+            AnonymousQueue greetingIndexQueue) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(
+                connectionFactory);
+        container.setQueues(greetingIndexQueue);
+        container.setConcurrentConsumers(1);
+        container.setMessageListener(
+                (MessageListener) message -> {
+                    try {
+                        greetingIndex.apply(objectMapper.readValue(
+                                message.getBody(), GreetingEvent.class));
+                    } catch (IOException e) {
+                        logger.error("Message {} is not a GreetingEvent.",
+                                message.getMessageProperties().getMessageId(), e);
+                    }
+                });
+        return container;
+    }
+
+}
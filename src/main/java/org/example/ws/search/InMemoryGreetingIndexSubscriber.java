@@ -0,0 +1,69 @@
+package org.example.ws.search;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.example.ws.outbox.GreetingEvent;
+import org.example.ws.outbox.InMemoryEventPublisher;
+import org.example.ws.outbox.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The InMemoryGreetingIndexSubscriber feeds the GreetingIndex with the
+ * GreetingEvents delivered by the InMemoryEventPublisher, when the 'amqp'
+ * Spring profile is not active.
+ *
+ * @author Matt Warman
+ */
+@Profile("!amqp")
+@Component
+public class InMemoryGreetingIndexSubscriber implements Consumer<OutboxEvent> {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private InMemoryEventPublisher eventPublisher;
+
+    @Autowired
+    private GreetingIndex greetingIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void subscribe() {
+        eventPublisher.subscribe(this);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        eventPublisher.unsubscribe(this);
+    }
+
+    @Override
+    public void accept(OutboxEvent event) {
+        if (!event.getEventType().startsWith("Greeting")) {
+            return;
+        }
+        try {
+            greetingIndex.apply(objectMapper.readValue(event.getPayload(),
+                    GreetingEvent.class));
+        } catch (IOException e) {
+            logger.error("Outbox event {} is not a GreetingEvent.",
+                    event.getId(), e);
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.example.ws.search;
+
+/**
+ * The SearchQueryException is thrown when a full-text search query cannot be
+ * parsed or is too expensive to execute.
+ *
+ * @author Matt Warman
+ */
+public class SearchQueryException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SearchQueryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
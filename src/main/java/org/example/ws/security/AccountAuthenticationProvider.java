@@ -20,6 +20,10 @@ import org.springframework.stereotype.Component;
  * A PasswordEncoder compares the supplied authentication credentials to those
  * in the UserDetails.
  * 
+ * Credentials verified by the PasswordEncoder are remembered by the
+ * <code>AuthenticationCache</code>. Subsequent requests presenting the same
+ * credentials skip both the Account lookup and the password hash comparison.
+ * 
  * @author Matt Warman
  */
 @Component
@@ -40,6 +44,11 @@ public class AccountAuthenticationProvider  extends AbstractUserDetailsAuthentic
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    /**  The cache of recently verified credentials.
+     */
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @Override
     protected void additionalAuthenticationChecks(UserDetails userDetails,  UsernamePasswordAuthenticationToken token)  throws AuthenticationException {
         logger.debug("> additionalAuthenticationChecks");
@@ -48,8 +57,11 @@ public class AccountAuthenticationProvider  extends AbstractUserDetailsAuthentic
             throw new BadCredentialsException("Credentials may not be null.");
         }
 
-        if (!passwordEncoder.matches((String) token.getCredentials(), userDetails.getPassword())) {
-            throw new BadCredentialsException("Invalid credentials.");
+        if (!authenticationCache.isVerified(userDetails)) {
+            if (!passwordEncoder.matches((String) token.getCredentials(), userDetails.getPassword())) {
+                throw new BadCredentialsException("Invalid credentials.");
+            }
+            authenticationCache.put(userDetails, token.getCredentials());
         }
 
         /*** ensures that every request will require authentication and the user name will be added to the request context*/
@@ -62,7 +74,10 @@ public class AccountAuthenticationProvider  extends AbstractUserDetailsAuthentic
     protected UserDetails retrieveUser(String username,     UsernamePasswordAuthenticationToken token)          throws AuthenticationException {
         logger.debug("> retrieveUser");
 
-        UserDetails userDetails = userDetailsService  .loadUserByUsername(username);
+        UserDetails userDetails = authenticationCache.get(username, token.getCredentials());
+        if (userDetails == null) {
+            userDetails = userDetailsService  .loadUserByUsername(username);
+        }
 
         logger.debug("< retrieveUser");
         return userDetails;
@@ -0,0 +1,234 @@
+package org.example.ws.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.example.ws.model.Account;
+import org.example.ws.model.Role;
+import org.example.ws.repository.event.EntityChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * The AuthenticationCache remembers credentials which were recently verified
+ * by the <code>AccountAuthenticationProvider</code>. The API is stateless
+ * HTTP Basic, so every request presents the same username and password;
+ * caching the outcome of a successful verification avoids an Account query
+ * and a BCrypt comparison on every request.
+ * 
+ * Entries are keyed by an HMAC digest of the username and the presented
+ * password. The HMAC key is random and generated at startup, so the cache
+ * never holds clear text passwords and its keys cannot be attacked offline.
+ * Entries expire after a configurable time-to-live and the cache is cleared
+ * whenever an Account or Role changes.
+ * 
+ * The cache is local to the application instance and is only cleared by
+ * Account and Role changes committed on that instance. On the other
+ * instances a changed or revoked password keeps authenticating until its
+ * entry expires, so the time-to-live is the longest such window and is kept
+ * short.
+ * 
+ * Hit and miss counts are exposed as Actuator metrics.
+ * 
+ * @author Matt Warman
+ */
+@Component
+public class AuthenticationCache implements PublicMetrics {
+
+    /**
+     * The HMAC algorithm used to digest credentials.
+     */
+    private static final String DIGEST_ALGORITHM = "HmacSHA256";
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * TRUE if verified credentials are cached. Otherwise FALSE.
+     */
+    @Value("${security.authentication.cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * The maximum number of verified credentials held in the cache.
+     */
+    @Value("${security.authentication.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    /**
+     * The number of seconds a verified credential remains in the cache, and
+     * so the longest time a changed password keeps authenticating on other
+     * application instances.
+     */
+    @Value("${security.authentication.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    /**
+     * The cache of verified UserDetails keyed by credential digest.
+     */
+    private Cache<String, VerifiedUser> cache;
+
+    /**
+     * The per-thread HMAC instances. Mac objects are not thread-safe.
+     */
+    private ThreadLocal<Mac> macs;
+
+    /**
+     * Builds the cache and generates the HMAC key.
+     */
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).recordStats()
+                .build();
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        final SecretKeySpec key = new SecretKeySpec(secret, DIGEST_ALGORITHM);
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(
+                        "Unable to initialize the credential digest.", e);
+            }
+        });
+
+        logger.info("Authentication cache enabled:{} maximumSize:{} ttl:{}s",
+                enabled, maximumSize, ttlSeconds);
+    }
+
+    /**
+     * Returns the UserDetails previously verified with the supplied username
+     * and credentials.
+     * @param username A String username.
+     * @param credentials The credentials presented by the client.
+     * @return A verified UserDetails or <code>null</code> if not cached.
+     */
+    public UserDetails get(String username, Object credentials) {
+        if (!enabled || !(credentials instanceof String)) {
+            return null;
+        }
+        return cache.getIfPresent(digest(username, (String) credentials));
+    }
+
+    /**
+     * Determines if the supplied UserDetails was served from this cache, in
+     * which case the presented credentials have already been verified.
+     * @param userDetails A UserDetails.
+     * @return A boolean that is TRUE if the UserDetails came from the cache.
+     */
+    public boolean isVerified(UserDetails userDetails) {
+        return userDetails instanceof VerifiedUser;
+    }
+
+    /**
+     * Remembers that the supplied credentials were verified for the
+     * UserDetails.
+     * @param userDetails The UserDetails the credentials were verified against.
+     * @param credentials The credentials presented by the client.
+     */
+    public void put(UserDetails userDetails, Object credentials) {
+        if (!enabled || !(credentials instanceof String)) {
+            return;
+        }
+        cache.put(digest(userDetails.getUsername(), (String) credentials),
+                new VerifiedUser(userDetails));
+    }
+
+    /**
+     * Removes all verified credentials from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Clears the cache when an Account or Role changes, since the cached
+     * UserDetails carry the password, status flags and authorities.
+     * @param event An EntityChangeEvent.
+     */
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Account.class) || event.isFor(Role.class)) {
+            logger.debug("Authentication cache cleared after {} {}.",
+                    event.getEntity().getClass().getSimpleName(),
+                    event.getChangeType());
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = cache.stats();
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        metrics.add(new Metric<Long>("cache.authentication.size",
+                cache.estimatedSize()));
+        metrics.add(new Metric<Long>("cache.authentication.hit",
+                stats.hitCount()));
+        metrics.add(new Metric<Long>("cache.authentication.miss",
+                stats.missCount()));
+        metrics.add(new Metric<Double>("cache.authentication.hit.ratio",
+                stats.hitRate()));
+        metrics.add(new Metric<Long>("cache.authentication.eviction",
+                stats.evictionCount()));
+        return metrics;
+    }
+
+    /**
+     * Computes the cache key for a username and password pair.
+     * @param username A String username.
+     * @param password A String clear text password.
+     * @return A String digest.
+     */
+    private String digest(String username, String password) {
+        Mac mac = macs.get();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    /**
+     * A copy of a UserDetails whose credentials have been verified.
+     */
+    private static class VerifiedUser extends User {
+
+        private static final long serialVersionUID = 1L;
+
+        VerifiedUser(UserDetails userDetails) {
+            super(userDetails.getUsername(), userDetails.getPassword(),
+                    userDetails.isEnabled(),
+                    userDetails.isAccountNonExpired(),
+                    userDetails.isCredentialsNonExpired(),
+                    userDetails.isAccountNonLocked(),
+                    userDetails.getAuthorities());
+        }
+
+    }
+
+}
@@ -29,10 +29,8 @@ public class AccountServiceBean implements AccountService {
 
     @Override
     public Account findByUsername(String username) {
-        logger.info("> findByUsername");
         Account account = accountRepository.findByUsername(username);
 
-        logger.info("< findByUsername");
         return account;
     }
 
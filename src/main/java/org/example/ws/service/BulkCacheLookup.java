@@ -0,0 +1,109 @@
+package org.example.ws.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.example.ws.model.Greeting;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.NullValue;
+
+/**
+ * The BulkCacheLookup serves a lookup of many Greetings by id from the
+ * "greetings" cache and loads the misses with one query.
+ *
+ * The Spring Cache abstraction reads one key at a time; when the cache is
+ * backed by Caffeine, the hits are read with a single
+ * <code>getAllPresent</code>. Ids cached as not found by <code>findOne</code>
+ * are not queried again.
+ *
+ * The loaded Greetings are added with <code>putIfAbsent</code>: an entry
+ * cached while they were loaded, e.g. by a concurrent update, is newer than
+ * the loaded Greeting, so it is kept and returned instead.
+ *
+ * @author Matt Warman
+ */
+final class BulkCacheLookup {
+
+    private BulkCacheLookup() {
+    }
+
+    /**
+     * Find the Greetings with the given ids, in the order of the ids. Missing
+     * Greetings are left out, and each Greeting is returned once.
+     * @param cache The "greetings" Cache, keyed by id.
+     * @param ids The Long Greeting identifiers.
+     * @param loader Loads the Greetings of the ids not cached.
+     * @return A List of Greetings.
+     */
+    static List<Greeting> findByIds(Cache cache, Collection<Long> ids,
+            Function<Collection<Long>, Collection<Greeting>> loader) {
+        Set<Long> unique = new LinkedHashSet<Long>(ids);
+        unique.remove(null);
+        Map<Long, Greeting> found = new HashMap<Long, Greeting>(unique.size() * 2);
+        Set<Long> misses = new LinkedHashSet<Long>(unique);
+
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine = caffeineOf(cache);
+        if (caffeine != null) {
+            for (Map.Entry<Object, Object> hit : caffeine.getAllPresent(unique).entrySet()) {
+                resolve(found, misses, (Long) hit.getKey(), hit.getValue());
+            }
+        } else {
+            for (Long id : unique) {
+                ValueWrapper hit = cache.get(id);
+                if (hit != null) {
+                    resolve(found, misses, id, hit.get());
+                }
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            for (Greeting greeting : loader.apply(misses)) {
+                Object cached;
+                if (caffeine != null) {
+                    cached = caffeine.asMap().putIfAbsent(greeting.getId(), greeting);
+                } else {
+                    ValueWrapper wrapper = cache.putIfAbsent(greeting.getId(), greeting);
+                    cached = wrapper == null ? null : wrapper.get();
+                }
+                found.put(greeting.getId(), cached instanceof Greeting
+                        ? (Greeting) cached : greeting);
+            }
+        }
+
+        List<Greeting> greetings = new ArrayList<Greeting>(found.size());
+        for (Long id : unique) {
+            Greeting greeting = found.get(id);
+            if (greeting != null) {
+                greetings.add(greeting);
+            }
+        }
+        return greetings;
+    }
+
+    private static void resolve(Map<Long, Greeting> found, Set<Long> misses,
+            Long id, Object value) {
+        if (value instanceof Greeting) {
+            found.put(id, (Greeting) value);
+            misses.remove(id);
+        } else if (value == null || value instanceof NullValue) {
+            // Cached as not found.
+            misses.remove(id);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeineOf(Cache cache) {
+        Object nativeCache = cache.getNativeCache();
+        return nativeCache instanceof com.github.benmanes.caffeine.cache.Cache
+                ? (com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache
+                : null;
+    }
+
+}
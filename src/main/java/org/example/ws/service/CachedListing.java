@@ -0,0 +1,43 @@
+package org.example.ws.service;
+
+import java.util.Collection;
+
+/**
+ * A CachedListing is an entry of the "greetingLists" cache: a listing, or
+ * the version watermark of the listings, stamped with the listing
+ * generation which was current before it was loaded. The
+ * GreetingServiceBean serves an entry only while its generation is still
+ * the current one.
+ *
+ * @author Matt Warman
+ */
+final class CachedListing {
+
+    private final long generation;
+
+    private final Object value;
+
+    CachedListing(long generation, Object value) {
+        this.generation = generation;
+        this.value = value;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the weight of the entry for a <code>maximumWeight</code>
+     * bound: the number of Greetings held, at least one.
+     * @return An int weight.
+     */
+    int weight() {
+        return value instanceof Collection
+                ? Math.max(1, ((Collection<?>) value).size()) : 1;
+    }
+
+}
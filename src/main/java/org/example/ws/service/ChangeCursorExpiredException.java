@@ -0,0 +1,18 @@
+package org.example.ws.service;
+
+/**
+ * The ChangeCursorExpiredException is thrown when a change feed cursor is
+ * older than the tombstone retention period, so deletions after it may no
+ * longer be known. The client must synchronize all Greetings again.
+ *
+ * @author Matt Warman
+ */
+public class ChangeCursorExpiredException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ChangeCursorExpiredException(String message) {
+        super(message);
+    }
+
+}
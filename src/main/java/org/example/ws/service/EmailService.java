@@ -1,6 +1,6 @@
 package org.example.ws.service;
 
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
 import org.example.ws.model.Greeting;
 
@@ -30,13 +30,13 @@ public interface EmailService {
     void sendAsync(Greeting greeting);
 
     /**
-     * Send a Greeting via email asynchronously. Returns a Future&lt;Boolean&gt;
-     * response allowing the client to obtain the status of the operation once
-     * it is completed.
+     * Send a Greeting via email asynchronously. Returns a
+     * CompletableFuture&lt;Boolean&gt; response allowing the client to register
+     * a callback which is invoked once the operation is completed.
      * @param greeting A Greeting to send.
-     * @return A Future&lt;Boolean&gt; whose value is TRUE if sent successfully;
-     *         otherwise, FALSE.
+     * @return A CompletableFuture&lt;Boolean&gt; whose value is TRUE if sent
+     *         successfully; otherwise, FALSE.
      */
-    Future<Boolean> sendAsyncWithResult(Greeting greeting);
+    CompletableFuture<Boolean> sendAsyncWithResult(Greeting greeting);
 
 }
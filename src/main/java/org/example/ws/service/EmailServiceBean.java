@@ -1,7 +1,8 @@
 package org.example.ws.service;
 
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
+import org.example.ws.async.EmailExecutorConfiguration;
 import org.example.ws.model.Greeting;
 import org.example.ws.util.AsyncResponse;
 import org.slf4j.Logger;
@@ -13,6 +14,9 @@ import org.springframework.stereotype.Service;
  * The EmailServiceBean implements all business behaviors defined by the
  * EmailService interface.
  * 
+ * Asynchronous methods run on the bounded email executor supplied by
+ * <code>EmailExecutorConfiguration</code>.
+ * 
  * @author Matt Warman
  */
 @Service
@@ -25,8 +29,6 @@ public class EmailServiceBean implements EmailService {
 
     @Override
     public Boolean send(Greeting greeting) {
-        logger.info("> send");
-
         Boolean success = Boolean.FALSE;
 
         // Simulate method execution time
@@ -40,29 +42,22 @@ public class EmailServiceBean implements EmailService {
 
         success = Boolean.TRUE;
 
-        logger.info("< send");
         return success;
     }
 
-    @Async
+    @Async(EmailExecutorConfiguration.EMAIL_EXECUTOR)
     @Override
     public void sendAsync(Greeting greeting) {
-        logger.info("> sendAsync");
-
         try {
             send(greeting);
         } catch (Exception e) {
             logger.warn("Exception caught sending asynchronous mail.", e);
         }
-
-        logger.info("< sendAsync");
     }
 
-    @Async
+    @Async(EmailExecutorConfiguration.EMAIL_EXECUTOR)
     @Override
-    public Future<Boolean> sendAsyncWithResult(Greeting greeting) {
-        logger.info("> sendAsyncWithResult");
-
+    public CompletableFuture<Boolean> sendAsyncWithResult(Greeting greeting) {
         AsyncResponse<Boolean> response = new AsyncResponse<Boolean>();
 
         try {
@@ -73,7 +68,6 @@ public class EmailServiceBean implements EmailService {
             response.completeExceptionally(e);
         }
 
-        logger.info("< sendAsyncWithResult");
         return response;
     }
 
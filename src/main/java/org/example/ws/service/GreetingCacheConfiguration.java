@@ -0,0 +1,65 @@
+package org.example.ws.service;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * The GreetingCacheConfiguration class supplies the CacheManager holding the
+ * Greeting caches, each built from its own Caffeine specification.
+ *
+ * The "greetings" cache holds single Greetings by id and is configured with
+ * <code>greeting.cache.spec</code>. The "greetingLists" cache holds listings
+ * and is configured with <code>greeting.cache.lists.spec</code>. A listing
+ * may hold every Greeting, so when that specification sets a
+ * <code>maximumWeight</code>, each listing weighs the number of Greetings it
+ * holds.
+ *
+ * Both caches are local to the application instance. Writes evict them on the
+ * instance which made the write only; other instances keep serving their
+ * entries until they expire, so both specifications should set
+ * <code>expireAfterWrite</code> to bound that staleness.
+ *
+ * @author Matt Warman
+ */
+@Configuration
+public class GreetingCacheConfiguration {
+
+    @Value("${greeting.cache.spec:maximumSize=250,expireAfterWrite=600s}")
+    private String greetingsSpec;
+
+    @Value("${greeting.cache.lists.spec:maximumWeight=10000,expireAfterWrite=60s}")
+    private String greetingListsSpec;
+
+    /**
+     * Supplies the CacheManager of the "greetings" and "greetingLists"
+     * caches. Both store <code>null</code> values, so lookups of missing
+     * Greetings are cached too. The "greetingLists" cache holds
+     * CachedListings.
+     *
+     * @return A CacheManager.
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        Caffeine<Object, Object> lists = Caffeine.from(greetingListsSpec);
+        if (greetingListsSpec.contains("maximumWeight")) {
+            lists.weigher((Object key, Object value) -> value instanceof CachedListing
+                    ? ((CachedListing) value).weight() : 1);
+        }
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Arrays.asList(
+                new CaffeineCache("greetings",
+                        Caffeine.from(greetingsSpec).build(), true),
+                new CaffeineCache("greetingLists", lists.build(), true)));
+        return cacheManager;
+    }
+
+}
@@ -1,8 +1,13 @@
 package org.example.ws.service;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
+import org.example.ws.model.ChangeCursor;
 import org.example.ws.model.Greeting;
+import org.example.ws.model.GreetingChanges;
+import org.joda.time.DateTime;
 
 /**
  * The GreetingService interface defines all public business behaviors for
@@ -21,6 +26,86 @@ public interface GreetingService {
      */
     Collection<Greeting> findAll();
 
+    /**
+     * Find a page of Greeting entities using keyset pagination. Returns at
+     * most <code>limit</code> entities whose id is greater than the
+     * <code>after</code> cursor, ordered by id. To fetch the next page, pass
+     * the id of the last entity of this page as the next cursor.
+     * @param after A Long id cursor. May be <code>null</code> to start from the
+     *        first Greeting.
+     * @param limit The maximum number of Greeting entities to return.
+     * @return A Collection of Greeting objects ordered by id.
+     */
+    Collection<Greeting> findPage(Long after, int limit);
+
+    /**
+     * Stream all Greeting entities, ordered by id, to the supplied Consumer.
+     * Entities are handed to the Consumer one at a time as they are read from
+     * the data store and are detached afterwards, so memory use does not grow
+     * with the size of the table.
+     * @param consumer A Consumer receiving each Greeting.
+     */
+    void streamAll(Consumer<Greeting> consumer);
+
+    /**
+     * Count the Greeting entities in the data store. The count is always
+     * read from the data store and is never cached.
+     * @return The long number of Greeting entities.
+     */
+    long count();
+
+    /**
+     * Determines whether any Greeting entity exists. Unlike
+     * <code>count</code>, it reads a single id from the id index, so its cost
+     * does not grow with the number of Greetings. Always read from the data
+     * store and never cached.
+     * @return <code>true</code> if at least one Greeting exists.
+     */
+    boolean exists();
+
+    /**
+     * Find the latest time a Greeting was created or updated. Always read
+     * from the data store and never cached.
+     * @return A DateTime, or <code>null</code> if there are no Greetings.
+     */
+    DateTime findLastChangedAt();
+
+    /**
+     * Find the Greeting inserts, updates and deletes after a change feed
+     * cursor, oldest first. Changes are read from the primary database.
+     * Changes younger than the settle window are not returned yet, so that
+     * transactions still committing cannot appear behind a cursor already
+     * handed out.
+     * @param since The ChangeCursor of the last change received.
+     * @param limit The maximum number of changes to return.
+     * @return A GreetingChanges page.
+     * @throws ChangeCursorExpiredException Thrown when the cursor is older
+     *         than the tombstone retention period.
+     */
+    GreetingChanges findChanges(ChangeCursor since, int limit);
+
+    /**
+     * Removes the tombstones of deleted Greetings older than the tombstone
+     * retention period, on one application instance at a time.
+     */
+    void purgeTombstones();
+
+    /**
+     * Find the version watermark of all Greeting entities. The watermark
+     * changes whenever a Greeting is created, updated or deleted, so it may be
+     * used as the entity tag of the collection of all Greetings.
+     * @return A String version watermark.
+     */
+    String findAllVersion();
+
+    /**
+     * Search the text of all Greeting entities.
+     * @param query A query in the Lucene query string syntax.
+     * @param limit The maximum number of Greetings to return.
+     * @return A List of Greeting objects, best match first.
+     */
+    List<Greeting> search(String query, int limit);
+
     /**
      * Find a single Greeting entity by primary key identifier.
      * @param id A Long primary key identifier.
@@ -28,6 +113,16 @@ public interface GreetingService {
      */
     Greeting findOne(Long id);
 
+    /**
+     * Find the Greeting entities with the given primary key identifiers.
+     * Greetings in the "greetings" cache are read from it in bulk; the others
+     * are loaded with a single query and added to the cache.
+     * @param ids A Collection of Long primary key identifiers.
+     * @return A List of the Greetings found, in the order of the ids. Missing
+     *         Greetings are left out and each Greeting is returned once.
+     */
+    List<Greeting> findByIds(Collection<Long> ids);
+
     /**
      * Persists a Greeting entity in the data store.
      * @param greeting A Greeting object to be persisted.
@@ -35,6 +130,18 @@ public interface GreetingService {
      */
     Greeting create(Greeting greeting);
 
+    /**
+     * Persists a collection of Greeting entities in the data store. The
+     * entities are written in chunks using JDBC batch inserts, all in one
+     * transaction: either every Greeting is persisted or none is. The
+     * document stores of the <code>mongodb</code> profile do not take part
+     * in transactions, so with them a failure keeps the chunks written
+     * before it.
+     * @param greetings A Collection of Greeting objects to be persisted.
+     * @return The persisted Greeting entities.
+     */
+    Collection<Greeting> createAll(Collection<Greeting> greetings);
+
     /**
      * Updates a previously persisted Greeting entity in the data store.
      * @param greeting A Greeting object to be updated.
@@ -42,12 +149,34 @@ public interface GreetingService {
      */
     Greeting update(Greeting greeting);
 
+    /**
+     * Updates the text of a previously persisted Greeting entity only if its
+     * version matches the supplied version. The entity is not read before it
+     * is written.
+     * @param greeting A Greeting object holding the id and new text.
+     * @param version The Integer version the Greeting is expected to have.
+     * @return <code>true</code> if updated; the new version is
+     *         <code>version + 1</code>. <code>false</code> if the Greeting
+     *         does not exist or its version does not match.
+     */
+    boolean updateIfVersion(Greeting greeting, Integer version);
+
     /**
      * Removes a previously persisted Greeting entity from the data store.
      * @param id A Long primary key identifier.
      */
     void delete(Long id);
 
+    /**
+     * Removes a previously persisted Greeting entity from the data store only
+     * if its version matches the supplied version.
+     * @param id A Long primary key identifier.
+     * @param version The Integer version the Greeting is expected to have.
+     * @return <code>true</code> if deleted. <code>false</code> if the
+     *         Greeting does not exist or its version does not match.
+     */
+    boolean deleteIfVersion(Long id, Integer version);
+
     /**
      * Evicts all members of the "greetings" cache.
      */
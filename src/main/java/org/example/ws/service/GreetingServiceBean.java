@@ -1,79 +1,277 @@
 package org.example.ws.service;
 
+import org.example.ws.model.ChangeCursor;
 import org.example.ws.model.Greeting;
-import org.example.ws.repository.GreetingRepository;
+import org.example.ws.model.GreetingChanges;
+import org.example.ws.model.GreetingTombstone;
+import org.example.ws.outbox.GreetingEvent;
+import org.example.ws.outbox.GreetingOutbox;
+import org.example.ws.repository.GreetingStore;
+import org.example.ws.scheduling.ClusterJobLock;
+import org.example.ws.search.GreetingIndex;
+import org.example.ws.util.RequestContext;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityExistsException;
 import javax.persistence.NoResultException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * The GreetingServiceBean encapsulates all business behaviors operating on the
  * Greeting entity model object.
  * 
+ * Single Greetings are cached in the "greetings" cache by id. Concurrent
+ * misses for the same id share a single load from the data store. Listings and
+ * their version watermark are cached in the "greetingLists" cache, stamped
+ * with a listing generation which every write advances when its transaction
+ * completes; entries of an older generation are neither served nor stored.
+ * Both caches are local to this instance; see the GreetingCacheConfiguration.
+ * 
+ * The reads filling the caches, and the change feed, do not run in read-only
+ * transactions, so that with the 'replica' profile they use the primary
+ * database: a lagging replica could otherwise cache a Greeting older than a
+ * write which already cleared the caches. The remaining reads may use the
+ * replica.
+ * 
+ * Greetings are kept in a GreetingStore: the relational database, or a
+ * document store with the 'mongodb' profile. Every write appends its
+ * GreetingEvent to the transactional outbox in the transaction of the write.
+ * A document store does not take part in database transactions, so with it a
+ * failed write appends no event, but a failure to commit the outbox after a
+ * successful write loses the event of that write.
+ * 
  * @author Matt Warman
  */
 @Service
 @Transactional( propagation = Propagation.SUPPORTS,  readOnly = true)
 public class GreetingServiceBean implements GreetingService {
 
+    /**
+     * The name of the ClusterJobLock lease of the tombstone purge.
+     */
+    private static final String TOMBSTONE_PURGE_JOB = "greetingTombstonePurge";
+
+    /**
+     * The transaction resource key marking a transaction which changed the
+     * Greetings, and so must not read or fill the "greetingLists" cache.
+     */
+    private static final Object LISTINGS_CHANGED = new Object();
+
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
     /**
-     * The <code>CounterService</code> captures metrics for Spring Actuator.
+     * The data store of the Greetings and their tombstones.
      */
     @Autowired
-    private CounterService counterService;
+    private GreetingStore greetingStore;
 
     /**
-     * The Spring Data repository for Greeting entities is injected here.
+     * The full-text index of the Greeting text.
      */
     @Autowired
-    private GreetingRepository greetingRepository;
+    private GreetingIndex greetingIndex;
+
+    /**
+     * The transactional outbox receiving a GreetingEvent for every write.
+     */
+    @Autowired
+    private GreetingOutbox greetingOutbox;
+
+    /**
+     * The number of Greetings createAll writes to the store at a time.
+     */
+    @Value("${greeting.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    /**
+     * The milliseconds a change must have aged before the change feed
+     * returns it. The feed reads the primary database, so replica lag does
+     * not count; the window must exceed the longest write transaction,
+     * including a whole createAll, and the clock skew between application
+     * instances, since changedAt is stamped on the clock of the writing
+     * instance.
+     */
+    @Value("${greeting.changes.settle-millis:5000}")
+    private long changesSettleMillis;
+
+    /**
+     * The milliseconds the tombstones of deleted Greetings are kept.
+     */
+    @Value("${greeting.changes.tombstone-retention:2592000000}")
+    private long tombstoneRetention;
+
+    /**
+     * The lock running the tombstone purge on one application instance.
+     */
+    @Autowired
+    private ClusterJobLock clusterJobLock;
+
+    /**
+     * The CacheManager holding the "greetings" cache, read in bulk by
+     * findByIds, and the "greetingLists" cache, cleared by every write.
+     */
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * The generation of the cached listings, advanced by every completed
+     * write.
+     */
+    private final AtomicLong listingGeneration = new AtomicLong();
 
     @Override
+    @Transactional( propagation = Propagation.REQUIRED,  readOnly = false)
     public Collection<Greeting> findAll() {
-        logger.info("> findAll");
+        // Joins the streaming read to a read-write transaction, so that the
+        // cached listing is read from the primary database.
+        Collection<Greeting> greetings = cachedListing("all", () -> {
+            List<Greeting> all = new ArrayList<Greeting>();
+            greetingStore.forEach(all::add);
+            return Collections.unmodifiableList(all);
+        });
 
-        counterService.increment("method.invoked.greetingServiceBean.findAll");
+        return greetings;
+    }
 
-        Collection<Greeting> greetings = greetingRepository.findAll();
+    @Override
+    @Transactional( propagation = Propagation.SUPPORTS,  readOnly = false)
+    public Collection<Greeting> findPage(Long after, int limit) {
+        Collection<Greeting> greetings = cachedListing(
+                "page:" + after + ":" + limit,
+                () -> Collections.unmodifiableList(
+                        greetingStore.findPage(after, limit)));
 
-        logger.info("< findAll");
         return greetings;
     }
 
     @Override
-    @Cacheable( value = "greetings",  key = "#id")
-    public Greeting findOne(Long id) {
-        logger.info("> findOne id:{}", id);
+    public void streamAll(Consumer<Greeting> consumer) {
+        greetingStore.forEach(consumer);
+    }
+
+    @Override
+    public long count() {
+        long count = greetingStore.count();
+
+        return count;
+    }
+
+    @Override
+    public boolean exists() {
+        boolean exists = greetingStore.findMinId() != null;
+
+        return exists;
+    }
+
+    @Override
+    public DateTime findLastChangedAt() {
+        DateTime lastChangedAt = greetingStore.findLastChangedAt();
+
+        return lastChangedAt;
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.REQUIRED,  readOnly = false)
+    public GreetingChanges findChanges(ChangeCursor since, int limit) {
+        long now = System.currentTimeMillis();
+        if (since.getChangedAtMillis() > 0L
+                && since.getChangedAtMillis() < now - tombstoneRetention) {
+            throw new ChangeCursorExpiredException(
+                    "The change cursor is older than the tombstone retention; synchronize all greetings again.");
+        }
+
+        DateTime after = new DateTime(since.getChangedAtMillis());
+        DateTime until = new DateTime(now - changesSettleMillis);
+        List<Greeting> upserts = greetingStore.findChangedAfter(after, since.getId(), until, limit);
+        List<GreetingTombstone> deletes = greetingStore.findDeletedAfter(after, since.getId(), until, limit);
+
+        return GreetingChanges.merge(upserts, deletes, since, limit);
+    }
+
+    @Override
+    @Scheduled(
+            initialDelayString = "${greeting.changes.purge-interval:3600000}",
+            fixedDelayString = "${greeting.changes.purge-interval:3600000}")
+    @Transactional( propagation = Propagation.NOT_SUPPORTED)
+    public void purgeTombstones() {
+        clusterJobLock.runExclusively(TOMBSTONE_PURGE_JOB, new Runnable() {
+            @Override
+            public void run() {
+                int purged = greetingStore.deleteTombstonesBefore(
+                        new DateTime(System.currentTimeMillis() - tombstoneRetention));
+                if (purged > 0) {
+                    logger.info("Purged {} greeting tombstones.", purged);
+                }
+            }
+        });
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.SUPPORTS,  readOnly = false)
+    public String findAllVersion() {
+        String watermark = cachedListing("version",
+                greetingStore::findVersionWatermark);
+
+        return watermark;
+    }
 
-        counterService.increment("method.invoked.greetingServiceBean.findOne");
+    @Override
+    @Transactional( propagation = Propagation.SUPPORTS,  readOnly = false)
+    public List<Greeting> search(String query, int limit) {
+        // The index may briefly trail the data store; hits deleted since the
+        // last refresh are skipped by findByIds.
+        List<Greeting> greetings = findByIds(greetingIndex.search(query, limit));
 
-        Greeting greeting = greetingRepository.findOne(id);
+        return greetings;
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.SUPPORTS,  readOnly = false)
+    @Cacheable( value = "greetings",  key = "#id",  sync = true)
+    public Greeting findOne(Long id) {
+        // With sync, concurrent misses for the same id wait for this load
+        // instead of each querying the data store.
+        Greeting greeting = greetingStore.findById(id);
 
-        logger.info("< findOne id:{}", id);
         return greeting;
     }
 
+    @Override
+    @Transactional( propagation = Propagation.SUPPORTS,  readOnly = false)
+    public List<Greeting> findByIds(Collection<Long> ids) {
+        List<Greeting> greetings = BulkCacheLookup.findByIds(
+                cacheManager.getCache("greetings"), ids, greetingStore::findByIds);
+
+        return greetings;
+    }
+
     @Override
     @Transactional( propagation = Propagation.REQUIRED,  readOnly = false)
     @CachePut     ( value = "greetings",  key = "#result.id")
     public Greeting create(Greeting greeting) {
-        logger.info("> create");
-
-        counterService.increment("method.invoked.greetingServiceBean.create");
-
         // Ensure the entity object to be created does NOT exist in the repository.
         // Prevent the default behavior of save() which will update
         // an existing entity if the entity matching the supplied id exists.
@@ -83,60 +281,219 @@ public class GreetingServiceBean implements GreetingService {
             throw new EntityExistsException(  "The id attribute must be null to persist a new entity.");
         }
 
-        Greeting savedGreeting = greetingRepository.save(greeting);
+        greetingStore.insert(Collections.singletonList(greeting));
+        greetingOutbox.append(GreetingEvent.of(GreetingEvent.CREATED, greeting));
+        invalidateLists();
 
-        logger.info("< create");
-        return savedGreeting;
+        return greeting;
     }
 
 
 
+    @Override
+    @Transactional( propagation = Propagation.REQUIRED,  readOnly = false)
+    public Collection<Greeting> createAll(Collection<Greeting> greetings) {
+        // Validate the whole request before writing anything.
+        for (Greeting greeting : greetings) {
+            if (greeting.getId() != null) {
+                logger.error( "Attempted to create a Greeting, but id attribute was not null.");
+                throw new EntityExistsException(  "The id attribute must be null to persist a new entity.");
+            }
+        }
+
+        // All chunks are inserted in one transaction, so a failing chunk
+        // rolls back the chunks before it. Each chunk is one bulk write to
+        // the store, which keeps the persistence context small.
+        List<Greeting> savedGreetings = new ArrayList<Greeting>(greetings.size());
+        List<Greeting> chunk = new ArrayList<Greeting>(bulkChunkSize);
+        for (Greeting greeting : greetings) {
+            chunk.add(greeting);
+            if (chunk.size() == bulkChunkSize) {
+                insertChunk(chunk);
+                savedGreetings.addAll(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk);
+            savedGreetings.addAll(chunk);
+        }
+        invalidateLists();
+
+        return savedGreetings;
+    }
+
+    /**
+     * Inserts a chunk of new Greetings and appends their events to the
+     * outbox.
+     * @param chunk The Greetings to be inserted.
+     */
+    private void insertChunk(List<Greeting> chunk) {
+        greetingStore.insert(chunk);
+        List<GreetingEvent> events = new ArrayList<GreetingEvent>(chunk.size());
+        for (Greeting greeting : chunk) {
+            events.add(GreetingEvent.of(GreetingEvent.CREATED, greeting));
+        }
+        greetingOutbox.appendAll(events);
+    }
 
     @Override
     @Transactional( propagation = Propagation.REQUIRED, readOnly = false)
     @CachePut ( value = "greetings",  key = "#greeting.id")
     public Greeting update(Greeting greeting) {
-        logger.info("> update id:{}", greeting.getId());
-
-        counterService.increment("method.invoked.greetingServiceBean.update");
-
-        // Ensure the entity object to be updated exists in the repository to
-        // prevent the default behavior of save() which will persist a new
-        // entity if the entity matching the id does not exist
-        Greeting greetingToUpdate = findOne(greeting.getId());
-        if (greetingToUpdate == null) {
+        // A single atomic update replaces the read-before-write.
+        Greeting updatedGreeting = updateText(greeting, null);
+        if (updatedGreeting == null) {
             // Cannot update Greeting that hasn't been persisted
             logger.error(  "Attempted to update a Greeting, but the entity does not exist.");
             throw new NoResultException("Requested entity not found.");
         }
 
-        greetingToUpdate.setText(greeting.getText());
-        Greeting updatedGreeting = greetingRepository.save(greetingToUpdate);
-
-        logger.info("< update id:{}", greeting.getId());
         return updatedGreeting;
     }
 
+    @Override
+    @Transactional( propagation = Propagation.REQUIRED, readOnly = false)
+    @CacheEvict   ( value = "greetings",  key = "#greeting.id")
+    public boolean updateIfVersion(Greeting greeting, Integer version) {
+        return updateText(greeting, version) != null;
+    }
 
+    /**
+     * Replaces the text of a Greeting, if it exists with the version, and
+     * appends the event of the update to the outbox.
+     * @param greeting The Greeting carrying the id and the new text.
+     * @param version The Integer version required, or <code>null</code>.
+     * @return The updated Greeting or <code>null</code>.
+     */
+    private Greeting updateText(Greeting greeting, Integer version) {
+        String username = RequestContext.getUsername();
+        if (username == null) {
+            throw new IllegalArgumentException(
+                    "Cannot update a Greeting without a username "
+                            + "in the RequestContext for this thread.");
+        }
+
+        Greeting updated = greetingStore.updateText(greeting.getId(), version,
+                greeting.getText(), username, new DateTime());
+        if (updated != null) {
+            greetingOutbox.append(GreetingEvent.of(GreetingEvent.UPDATED, updated));
+            invalidateLists();
+        }
 
+        return updated;
+    }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRED,  readOnly = false)
     @CacheEvict    (value = "greetings",   key = "#id")
     public void delete(Long id) {
-        logger.info("> delete id:{}", id);
+        if (!deleteGreeting(id, null)) {
+            throw new EmptyResultDataAccessException(
+                    "No Greeting with id " + id + " exists.", 1);
+        }
+    }
 
-        counterService.increment("method.invoked.greetingServiceBean.delete");
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED,  readOnly = false)
+    @CacheEvict    (value = "greetings",   key = "#id")
+    public boolean deleteIfVersion(Long id, Integer version) {
+        return deleteGreeting(id, version);
+    }
 
-        greetingRepository.delete(id);
+    /**
+     * Deletes a Greeting, if it exists with the version, leaving a tombstone
+     * and appending the event of the deletion to the outbox.
+     * @param id The Long Greeting identifier.
+     * @param version The Integer version required, or <code>null</code>.
+     * @return <code>true</code> if the Greeting was deleted.
+     */
+    private boolean deleteGreeting(Long id, Integer version) {
+        boolean deleted = greetingStore.delete(id, version);
+        if (deleted) {
+            greetingStore.insertTombstone(new GreetingTombstone(id, new DateTime()));
+            greetingOutbox.append(GreetingEvent.deleted(id));
+            invalidateLists();
+        }
 
-        logger.info("< delete id:{}", id);
+        return deleted;
     }
 
     @Override
-    @CacheEvict(  value = "greetings",  allEntries = true)
+    @CacheEvict(  value = { "greetings", "greetingLists" },  allEntries = true)
     public void evictCache() {
-        logger.info("> evictCache");
-        logger.info("< evictCache");
+        // The caches are cleared by the @CacheEvict annotation.
+    }
+
+    /**
+     * Returns a cached listing of the current generation or loads and caches
+     * it. The generation is read before the load, so a listing loaded while
+     * a write commits is stored under the generation that write ends, and
+     * never served afterwards. Transactions which changed the Greetings load
+     * without the cache, so they see their own writes and never cache them
+     * before they commit.
+     * @param key The String key of the listing in the "greetingLists" cache.
+     * @param loader A Supplier loading the listing.
+     * @return The listing.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cachedListing(String key, Supplier<T> loader) {
+        if (TransactionSynchronizationManager.hasResource(LISTINGS_CHANGED)) {
+            return loader.get();
+        }
+
+        Cache greetingLists = cacheManager.getCache("greetingLists");
+        long generation = listingGeneration.get();
+        ValueWrapper cached = greetingLists.get(key);
+        if (cached != null && cached.get() instanceof CachedListing) {
+            CachedListing listing = (CachedListing) cached.get();
+            if (listing.getGeneration() == generation) {
+                return (T) listing.getValue();
+            }
+        }
+
+        T listing = loader.get();
+        if (listingGeneration.get() == generation) {
+            greetingLists.put(key, new CachedListing(generation, listing));
+        }
+        return listing;
     }
+
+    /**
+     * Invalidates the cached Greeting listings after a write. The listings
+     * are cleared at once and the current transaction is marked, so that it
+     * neither reads nor fills the cache. When the transaction completes, the
+     * listing generation advances, which retires every listing loaded
+     * before, including one stored after this point by a concurrent reader,
+     * and the listings are cleared again. Without a transaction, the
+     * generation advances at once.
+     */
+    private void invalidateLists() {
+        final Cache greetingLists = cacheManager.getCache("greetingLists");
+        greetingLists.clear();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            listingGeneration.incrementAndGet();
+            return;
+        }
+
+        final boolean marked = !TransactionSynchronizationManager
+                .hasResource(LISTINGS_CHANGED);
+        if (marked) {
+            TransactionSynchronizationManager.bindResource(LISTINGS_CHANGED,
+                    Boolean.TRUE);
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (marked) {
+                            TransactionSynchronizationManager
+                                    .unbindResourceIfPossible(LISTINGS_CHANGED);
+                        }
+                        listingGeneration.incrementAndGet();
+                        greetingLists.clear();
+                    }
+                });
+    }
+
 }
@@ -0,0 +1,173 @@
+package org.example.ws.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.example.ws.model.Role;
+import org.joda.time.DateTime;
+
+/**
+ * The RoleIndex is an immutable, time-sliced index of Role entities.
+ *
+ * The effectiveAt and expiresAt values of all Roles divide the time line
+ * into slices during which the set of effective Roles does not change. The
+ * effective Roles of every slice, ordered by ordinal and keyed by code, are
+ * computed once when the index is built. A lookup is a binary search for the
+ * slice containing the requested instant, so crossing an effectiveAt or
+ * expiresAt boundary never requires a rebuild.
+ *
+ * A Role is effective at an instant T when effectiveAt &lt;= T and expiresAt
+ * is <code>null</code> or &gt; T, matching the queries of the RoleRepository.
+ *
+ * The Role instances held by the index are shared by all threads and must be
+ * treated as read-only.
+ *
+ * @author Matt Warman
+ */
+public final class RoleIndex {
+
+    /**
+     * Orders Roles by their ordinal attribute.
+     */
+    private static final Comparator<Role> BY_ORDINAL = new Comparator<Role>() {
+        @Override
+        public int compare(Role r1, Role r2) {
+            return Integer.compare(r1.getOrdinal(), r2.getOrdinal());
+        }
+    };
+
+    /**
+     * The start instant, in epoch milliseconds, of each slice in ascending
+     * order. Before the first start instant no Role is effective.
+     */
+    private final long[] sliceStarts;
+
+    /**
+     * The effective Roles of each slice, ordered by ordinal.
+     */
+    private final List<List<Role>> sliceRoles;
+
+    /**
+     * The effective Roles of each slice, keyed by code.
+     */
+    private final List<Map<String, Role>> sliceCodes;
+
+    /**
+     * The number of Roles in the index.
+     */
+    private final int size;
+
+    /**
+     * Build a RoleIndex from a Collection of Role entities.
+     * @param roles A Collection of Role entities.
+     */
+    public RoleIndex(Collection<Role> roles) {
+
+        TreeSet<Long> boundaries = new TreeSet<Long>();
+        for (Role role : roles) {
+            boundaries.add(role.getEffectiveAt().getMillis());
+            if (role.getExpiresAt() != null) {
+                boundaries.add(role.getExpiresAt().getMillis());
+            }
+        }
+
+        this.sliceStarts = new long[boundaries.size()];
+        this.sliceRoles = new ArrayList<List<Role>>(boundaries.size());
+        this.sliceCodes = new ArrayList<Map<String, Role>>(boundaries.size());
+        this.size = roles.size();
+
+        int slice = 0;
+        for (Long start : boundaries) {
+            List<Role> effective = new ArrayList<Role>();
+            Map<String, Role> codes = new HashMap<String, Role>();
+            for (Role role : roles) {
+                if (isEffective(role, start)) {
+                    effective.add(role);
+                    codes.put(role.getCode(), role);
+                }
+            }
+            Collections.sort(effective, BY_ORDINAL);
+
+            sliceStarts[slice++] = start;
+            sliceRoles.add(Collections.unmodifiableList(effective));
+            sliceCodes.add(Collections.unmodifiableMap(codes));
+        }
+    }
+
+    /**
+     * Find the Roles effective at the supplied instant.
+     * @param at A DateTime instant.
+     * @return An unmodifiable List of Roles ordered by ordinal.
+     */
+    public List<Role> findAllEffective(DateTime at) {
+        int slice = sliceAt(at.getMillis());
+        if (slice < 0) {
+            return Collections.emptyList();
+        }
+        return sliceRoles.get(slice);
+    }
+
+    /**
+     * Find the Role with the supplied code effective at the supplied instant.
+     * @param code A String code attribute value.
+     * @param at A DateTime instant.
+     * @return A Role or <code>null</code> if none is effective.
+     */
+    public Role findByCode(String code, DateTime at) {
+        int slice = sliceAt(at.getMillis());
+        if (slice < 0) {
+            return null;
+        }
+        return sliceCodes.get(slice).get(code);
+    }
+
+    /**
+     * Returns the number of Roles in the index, effective or not.
+     * @return An int size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of time slices in the index.
+     * @return An int number of slices.
+     */
+    public int getSliceCount() {
+        return sliceStarts.length;
+    }
+
+    /**
+     * Returns the index of the slice containing the instant.
+     * @param millis An instant in epoch milliseconds.
+     * @return The int slice index or -1 if the instant precedes all slices.
+     */
+    private int sliceAt(long millis) {
+        int position = Arrays.binarySearch(sliceStarts, millis);
+        if (position >= 0) {
+            return position;
+        }
+        // The insertion point is the first slice starting after the instant.
+        return -position - 2;
+    }
+
+    /**
+     * Determines if a Role is effective at an instant.
+     * @param role A Role.
+     * @param millis An instant in epoch milliseconds.
+     * @return <code>true</code> if the Role is effective.
+     */
+    private static boolean isEffective(Role role, long millis) {
+        return role.getEffectiveAt().getMillis() <= millis
+                && (role.getExpiresAt() == null
+                        || role.getExpiresAt().getMillis() > millis);
+    }
+
+}
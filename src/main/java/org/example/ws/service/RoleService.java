@@ -0,0 +1,48 @@
+package org.example.ws.service;
+
+import java.util.Collection;
+
+import org.example.ws.model.Role;
+import org.example.ws.repository.event.EntityChangeEvent;
+import org.joda.time.DateTime;
+
+/**
+ * The RoleService interface defines all public business behaviors for
+ * operations on the Role entity model.
+ *
+ * This interface should be injected into RoleService clients, not the
+ * implementation bean.
+ *
+ * @author Matt Warman
+ */
+public interface RoleService {
+
+    /**
+     * Find the Role entities effective at the supplied instant.
+     * @param at A DateTime instant.
+     * @return A Collection of Role objects ordered by ordinal.
+     */
+    Collection<Role> findAllEffective(DateTime at);
+
+    /**
+     * Find the Role with the supplied code effective at the supplied instant.
+     * @param code A String code attribute value.
+     * @param at A DateTime instant.
+     * @return A Role or <code>null</code> if none found.
+     */
+    Role findByCode(String code, DateTime at);
+
+    /**
+     * Reload all Role entities from the data store and atomically replace
+     * the index used to answer lookups.
+     */
+    void refresh();
+
+    /**
+     * Rebuild the index after a committed Role change. Declared here so the
+     * event listener stays invocable through an interface-based proxy.
+     * @param event An EntityChangeEvent.
+     */
+    void onEntityChange(EntityChangeEvent event);
+
+}
@@ -0,0 +1,93 @@
+package org.example.ws.service;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+
+import org.example.ws.model.Role;
+import org.example.ws.repository.RoleRepository;
+import org.example.ws.repository.event.EntityChangeEvent;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * The RoleServiceBean encapsulates all business behaviors operating on the
+ * Role entity model object.
+ *
+ * Roles are reference data. Lookups are answered from an in-memory
+ * RoleIndex without querying the data store. The index is rebuilt and
+ * swapped atomically when a Role changes, and periodically to pick up
+ * changes made outside of the application.
+ *
+ * @author Matt Warman
+ */
+@Service
+public class RoleServiceBean implements RoleService {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The Spring Data repository for Role entities.
+     */
+    @Autowired
+    private RoleRepository roleRepository;
+
+    /**
+     * The current RoleIndex.
+     */
+    private final AtomicReference<RoleIndex> index = new AtomicReference<RoleIndex>();
+
+    /**
+     * Builds the initial RoleIndex.
+     */
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    @Override
+    public Collection<Role> findAllEffective(DateTime at) {
+        return index.get().findAllEffective(at);
+    }
+
+    @Override
+    public Role findByCode(String code, DateTime at) {
+        return index.get().findByCode(code, at);
+    }
+
+    @Override
+    @Scheduled(
+            initialDelayString = "${role.index.refresh-interval:300000}",
+            fixedDelayString = "${role.index.refresh-interval:300000}")
+    public void refresh() {
+        logger.info("> refresh");
+
+        RoleIndex rebuilt = new RoleIndex(roleRepository.findAll());
+        index.set(rebuilt);
+
+        logger.info("< refresh roles:{} slices:{}", rebuilt.size(),
+                rebuilt.getSliceCount());
+    }
+
+    /**
+     * Rebuilds the index after a Role change is committed.
+     * @param event An EntityChangeEvent.
+     */
+    @Override
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Role.class)) {
+            refresh();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.example.ws.tracing;
+
+/**
+ * A Span is the immutable timing of one traced operation: an HTTP request,
+ * a controller endpoint or a service method.
+ *
+ * @author Matt Warman
+ */
+public final class Span {
+
+    private final long traceId;
+
+    private final String name;
+
+    private final long startMillis;
+
+    private final long durationNanos;
+
+    private final boolean failed;
+
+    private final String threadName;
+
+    public Span(long traceId, String name, long startMillis,
+            long durationNanos, boolean failed, String threadName) {
+        this.traceId = traceId;
+        this.name = name;
+        this.startMillis = startMillis;
+        this.durationNanos = durationNanos;
+        this.failed = failed;
+        this.threadName = threadName;
+    }
+
+    /**
+     * Returns the identifier of the trace, shared by all spans of one
+     * request, or zero if the span was recorded outside of a request.
+     * @return A long trace identifier.
+     */
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the wall clock time at which the operation started.
+     * @return A long epoch milliseconds value.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.example.ws.tracing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The SpanRingBuffer is a bounded, lock-free queue of Spans with many
+ * producers and a single consumer.
+ *
+ * Each slot carries a sequence number which tells producers when the slot is
+ * free and the consumer when it is filled. A producer claims a slot with a
+ * single compare-and-set on the tail; when the buffer is full,
+ * <code>offer</code> fails immediately instead of blocking, and the caller
+ * drops the Span.
+ *
+ * @author Matt Warman
+ */
+public class SpanRingBuffer {
+
+    private final Span[] slots;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /**
+     * The position of the next slot to be claimed by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next slot to be read by the consumer. Written by
+     * the consumer thread only.
+     */
+    private volatile long head;
+
+    /**
+     * Create a SpanRingBuffer.
+     * @param capacity The int capacity, rounded up to a power of two.
+     */
+    public SpanRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Span[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add a Span if there is room. Safe for concurrent producers.
+     * @param span A Span.
+     * @return <code>true</code> if added; <code>false</code> if the buffer is
+     *         full.
+     */
+    public boolean offer(Span span) {
+        long position = tail.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = span;
+                    // Publishes the slot to the consumer.
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest Span. Must only be called by the single consumer.
+     * @return A Span or <code>null</code> if the buffer is empty.
+     */
+    public Span poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        Span span = slots[index];
+        slots[index] = null;
+        // Hands the slot back to the producers one lap later.
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return span;
+    }
+
+    /**
+     * Returns the approximate number of Spans in the buffer.
+     * @return An int size.
+     */
+    public int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+}
@@ -0,0 +1,223 @@
+package org.example.ws.tracing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Tracer records sampled entry/exit timings (Spans) of requests,
+ * controller endpoints and service methods, replacing synchronous
+ * <code>&gt; method</code> / <code>&lt; method</code> log statements.
+ *
+ * The sampling decision is made once per request, when the trace is
+ * started, so a request is either traced completely or not at all. Spans
+ * recorded outside of a request are sampled individually. Unsampled calls
+ * cost a ThreadLocal read and do not allocate.
+ *
+ * Sampled Spans are handed to a bounded, lock-free SpanRingBuffer. A single
+ * background thread drains the buffer and writes the Spans to the
+ * <code>org.example.ws.tracing.Tracer</code> logger at INFO. When the buffer
+ * is full, Spans are dropped and counted; request threads never block.
+ *
+ * Recorded, dropped and written Span counts are exposed as Actuator metrics.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class Tracer implements PublicMetrics {
+
+    /**
+     * The Logger to which Spans are written.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * TRUE if Spans are recorded. Otherwise FALSE.
+     */
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * The fraction of requests traced, from 0.0 to 1.0.
+     */
+    @Value("${tracing.sample-rate:0.01}")
+    private double sampleRate;
+
+    /**
+     * The number of Spans buffered before new Spans are dropped.
+     */
+    @Value("${tracing.buffer-size:8192}")
+    private int bufferSize;
+
+    /**
+     * The trace of each thread. The TraceContext is reused across requests.
+     */
+    private final ThreadLocal<TraceContext> traces = new ThreadLocal<TraceContext>() {
+        @Override
+        protected TraceContext initialValue() {
+            return new TraceContext();
+        }
+    };
+
+    private final AtomicLong traceIds = new AtomicLong();
+
+    private final LongAdder recorded = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private SpanRingBuffer buffer;
+
+    private Thread drainer;
+
+    private volatile boolean running;
+
+    /**
+     * Starts the thread writing buffered Spans.
+     */
+    @PostConstruct
+    public void start() {
+        buffer = new SpanRingBuffer(bufferSize);
+        running = true;
+        drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "span-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Stops the writer thread after writing the buffered Spans.
+     * @throws InterruptedException Thrown when interrupted while waiting for
+     *         the writer thread.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Start the trace of a request on the current thread and make the
+     * sampling decision for it.
+     * @return <code>true</code> if the request is sampled.
+     */
+    public boolean startTrace() {
+        TraceContext trace = traces.get();
+        trace.active = true;
+        trace.sampled = sample();
+        trace.traceId = trace.sampled ? traceIds.incrementAndGet() : 0L;
+        return trace.sampled;
+    }
+
+    /**
+     * End the trace of the current thread.
+     */
+    public void endTrace() {
+        TraceContext trace = traces.get();
+        trace.active = false;
+        trace.sampled = false;
+        trace.traceId = 0L;
+    }
+
+    /**
+     * Determines if Spans recorded now on the current thread are sampled.
+     * Inside a trace, the decision of the trace applies; outside of one, a
+     * new decision is made.
+     * @return <code>true</code> if a Span should be recorded.
+     */
+    public boolean isSampled() {
+        TraceContext trace = traces.get();
+        return trace.active ? trace.sampled : sample();
+    }
+
+    /**
+     * Record a Span which ended now. Call only after <code>isSampled</code>
+     * returned <code>true</code>, so that unsampled calls never build Span
+     * names.
+     * @param name The String name of the operation.
+     * @param startNanos The System.nanoTime() value at which the operation
+     *        started.
+     * @param failed <code>true</code> if the operation threw an exception.
+     */
+    public void record(String name, long startNanos, boolean failed) {
+        long durationNanos = System.nanoTime() - startNanos;
+        Span span = new Span(traces.get().traceId, name,
+                System.currentTimeMillis()
+                        - TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                durationNanos, failed, Thread.currentThread().getName());
+        recorded.increment();
+        if (!buffer.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    private boolean sample() {
+        return enabled && (sampleRate >= 1.0
+                || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Writes buffered Spans until stopped, parking briefly when the buffer
+     * is empty.
+     */
+    private void drain() {
+        while (running || buffer.size() > 0) {
+            Span span = buffer.poll();
+            if (span == null) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+            logger.info("trace:{} span:{} start:{} micros:{} failed:{} thread:{}",
+                    span.getTraceId(), span.getName(), span.getStartMillis(),
+                    TimeUnit.NANOSECONDS.toMicros(span.getDurationNanos()),
+                    span.isFailed(), span.getThreadName());
+            written.increment();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+        metrics.add(new Metric<Long>("tracing.spans.recorded", recorded.sum()));
+        metrics.add(new Metric<Long>("tracing.spans.dropped", dropped.sum()));
+        metrics.add(new Metric<Long>("tracing.spans.written", written.sum()));
+        metrics.add(new Metric<Integer>("tracing.buffer.size", buffer.size()));
+        metrics.add(new Metric<Integer>("tracing.buffer.capacity",
+                buffer.capacity()));
+        return metrics;
+    }
+
+    /**
+     * The trace state of one thread.
+     */
+    private static final class TraceContext {
+
+        private boolean active;
+
+        private boolean sampled;
+
+        private long traceId;
+
+    }
+
+}
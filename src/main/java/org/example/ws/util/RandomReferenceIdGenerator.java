@@ -0,0 +1,20 @@
+package org.example.ws.util;
+
+import java.util.UUID;
+
+/**
+ * A ReferenceIdGenerator which creates random (version 4) UUIDs with
+ * <code>UUID.randomUUID()</code>. All threads share a single SecureRandom,
+ * which contends under concurrent inserts, and the values are scattered
+ * across the referenceId index. Prefer the TimeOrderedReferenceIdGenerator.
+ *
+ * @author Matt Warman
+ */
+public class RandomReferenceIdGenerator implements ReferenceIdGenerator {
+
+    @Override
+    public String generate() {
+        return UUID.randomUUID().toString();
+    }
+
+}
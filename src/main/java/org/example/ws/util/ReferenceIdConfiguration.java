@@ -0,0 +1,43 @@
+package org.example.ws.util;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The ReferenceIdConfiguration installs the ReferenceIdGenerator named by the
+ * <code>entity.reference-id.generator</code> property into ReferenceIds at
+ * application startup. The property holds the fully qualified name of a
+ * ReferenceIdGenerator class with a public no-argument constructor.
+ *
+ * @author Matt Warman
+ */
+@Configuration
+public class ReferenceIdConfiguration {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The ReferenceIdGenerator implementation class.
+     */
+    @Value("${entity.reference-id.generator:org.example.ws.util.TimeOrderedReferenceIdGenerator}")
+    private Class<? extends ReferenceIdGenerator> generatorClass;
+
+    /**
+     * Installs the configured ReferenceIdGenerator.
+     */
+    @PostConstruct
+    public void init() {
+        ReferenceIds.setGenerator(BeanUtils.instantiateClass(generatorClass));
+        logger.info("Entity referenceId values are generated by {}.",
+                generatorClass.getSimpleName());
+    }
+
+}
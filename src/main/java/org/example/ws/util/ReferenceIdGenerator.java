@@ -0,0 +1,19 @@
+package org.example.ws.util;
+
+/**
+ * A ReferenceIdGenerator creates the <code>referenceId</code> values of
+ * TransactionalEntity instances. Implementations must be thread-safe.
+ *
+ * @see ReferenceIds
+ *
+ * @author Matt Warman
+ */
+public interface ReferenceIdGenerator {
+
+    /**
+     * Generate a new, unique reference identifier.
+     * @return A String reference identifier.
+     */
+    String generate();
+
+}
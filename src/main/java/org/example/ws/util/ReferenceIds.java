@@ -0,0 +1,52 @@
+package org.example.ws.util;
+
+/**
+ * The ReferenceIds class holds the ReferenceIdGenerator used by all
+ * TransactionalEntity instances. Entities are not Spring beans, so the
+ * generator is held statically, like the attributes of the RequestContext,
+ * and is replaced once at application startup.
+ *
+ * The default generator is the TimeOrderedReferenceIdGenerator.
+ *
+ * @author Matt Warman
+ */
+public final class ReferenceIds {
+
+    /**
+     * The ReferenceIdGenerator used by all entities.
+     */
+    private static volatile ReferenceIdGenerator generator = new TimeOrderedReferenceIdGenerator();
+
+    private ReferenceIds() {
+
+    }
+
+    /**
+     * Generate a new reference identifier with the configured generator.
+     * @return A String reference identifier.
+     */
+    public static String generate() {
+        return generator.generate();
+    }
+
+    /**
+     * Get the configured ReferenceIdGenerator.
+     * @return A ReferenceIdGenerator.
+     */
+    public static ReferenceIdGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Set the ReferenceIdGenerator used by all entities.
+     * @param referenceIdGenerator A ReferenceIdGenerator.
+     */
+    public static void setGenerator(ReferenceIdGenerator referenceIdGenerator) {
+        if (referenceIdGenerator == null) {
+            throw new IllegalArgumentException(
+                    "The ReferenceIdGenerator must not be null.");
+        }
+        generator = referenceIdGenerator;
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.example.ws.util;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * A ReferenceIdGenerator which creates time-ordered, version 7 style UUIDs.
+ *
+ * The most significant 48 bits hold the Unix time in milliseconds, followed
+ * by the version, 12 random bits, the variant and 62 random bits. Values
+ * created later sort after values created earlier, both as UUIDs and as
+ * their lower case String form, so new rows are appended to the end of the
+ * referenceId unique index instead of being scattered across it.
+ *
+ * Each thread draws its random bits from its own SecureRandom, so threads
+ * never contend on a shared generator. Random bytes are fetched in blocks to
+ * amortize the cost of the generator.
+ *
+ * @author Matt Warman
+ */
+public class TimeOrderedReferenceIdGenerator implements ReferenceIdGenerator {
+
+    /**
+     * The number of random bytes consumed by each identifier.
+     */
+    private static final int BYTES_PER_ID = 10;
+
+    /**
+     * The number of identifiers served from each block of random bytes.
+     */
+    private static final int IDS_PER_BLOCK = 64;
+
+    /**
+     * The random byte block of each thread.
+     */
+    private static final ThreadLocal<RandomBlock> blocks = new ThreadLocal<RandomBlock>() {
+        @Override
+        protected RandomBlock initialValue() {
+            return new RandomBlock();
+        }
+    };
+
+    @Override
+    public String generate() {
+        return next(System.currentTimeMillis()).toString();
+    }
+
+    /**
+     * Create a time-ordered UUID for the supplied timestamp.
+     * @param millis The Unix time in milliseconds.
+     * @return A UUID.
+     */
+    public UUID next(long millis) {
+        RandomBlock block = blocks.get();
+
+        long msb = (millis & 0xFFFFFFFFFFFFL) << 16;
+        msb |= 0x7000L;
+        msb |= block.nextBits(12);
+
+        long lsb = 0x8000000000000000L;
+        lsb |= block.nextBits(62);
+
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * A block of random bytes owned by a single thread.
+     */
+    private static final class RandomBlock {
+
+        private final SecureRandom random = createSecureRandom();
+
+        private final byte[] bytes = new byte[BYTES_PER_ID * IDS_PER_BLOCK];
+
+        private int position = bytes.length;
+
+        /**
+         * Returns the next random bits.
+         * @param count The number of bits, at most 64.
+         * @return A long holding the random bits in its least significant
+         *         bits.
+         */
+        private long nextBits(int count) {
+            int byteCount = (count + 7) / 8;
+            if (position + byteCount > bytes.length) {
+                random.nextBytes(bytes);
+                position = 0;
+            }
+            long value = 0;
+            for (int i = 0; i < byteCount; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return count == 64 ? value : value & ((1L << count) - 1);
+        }
+
+        /**
+         * Creates the SecureRandom of a thread. SHA1PRNG keeps its state in
+         * the instance, unlike NativePRNG, whose instances share one lock.
+         * @return A SecureRandom.
+         */
+        private static SecureRandom createSecureRandom() {
+            try {
+                return SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+
+    }
+
+}
@@ -5,6 +5,8 @@ import java.util.Map;
 import javax.persistence.NoResultException;
 import javax.servlet.http.HttpServletRequest;
 
+import org.example.ws.search.SearchQueryException;
+import org.example.ws.service.ChangeCursorExpiredException;
 import org.example.ws.web.DefaultExceptionAttributes;
 import org.example.ws.web.ExceptionAttributes;
 import org.slf4j.Logger;
@@ -56,6 +58,59 @@ public class BaseController {
                 HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Handles SearchQueryExceptions thrown from web service controller
+     * methods. Creates a response with Exception Attributes as JSON and HTTP
+     * status code 400, bad request.
+     * 
+     * @param searchQueryException A SearchQueryException instance.
+     * @param request The HttpServletRequest in which the SearchQueryException
+     *        was raised.
+     * @return A ResponseEntity containing the Exception Attributes in the body
+     *         and HTTP status code 400.
+     */
+    @ExceptionHandler(SearchQueryException.class)
+    public ResponseEntity<Map<String, Object>> handleSearchQueryException(
+            SearchQueryException searchQueryException,
+            HttpServletRequest request) {
+
+        ExceptionAttributes exceptionAttributes = new DefaultExceptionAttributes();
+
+        Map<String, Object> responseBody = exceptionAttributes
+                .getExceptionAttributes(searchQueryException, request,
+                        HttpStatus.BAD_REQUEST);
+
+        return new ResponseEntity<Map<String, Object>>(responseBody,
+                HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles ChangeCursorExpiredExceptions thrown from web service controller
+     * methods. Creates a response with Exception Attributes as JSON and HTTP
+     * status code 410, gone.
+     * 
+     * @param changeCursorExpiredException A ChangeCursorExpiredException
+     *        instance.
+     * @param request The HttpServletRequest in which the
+     *        ChangeCursorExpiredException was raised.
+     * @return A ResponseEntity containing the Exception Attributes in the body
+     *         and HTTP status code 410.
+     */
+    @ExceptionHandler(ChangeCursorExpiredException.class)
+    public ResponseEntity<Map<String, Object>> handleChangeCursorExpiredException(
+            ChangeCursorExpiredException changeCursorExpiredException,
+            HttpServletRequest request) {
+
+        ExceptionAttributes exceptionAttributes = new DefaultExceptionAttributes();
+
+        Map<String, Object> responseBody = exceptionAttributes
+                .getExceptionAttributes(changeCursorExpiredException, request,
+                        HttpStatus.GONE);
+
+        return new ResponseEntity<Map<String, Object>>(responseBody,
+                HttpStatus.GONE);
+    }
+
     /**
      * Handles all Exceptions not addressed by more specific
      * <code>@ExceptionHandler</code> methods. Creates a response with the
@@ -1,23 +1,50 @@
 package org.example.ws.web.api;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.ws.async.EmailSpillQueue;
+import org.example.ws.model.ChangeCursor;
 import org.example.ws.model.Greeting;
+import org.example.ws.model.GreetingChanges;
 import org.example.ws.service.EmailService;
 import org.example.ws.service.GreetingService;
+import org.example.ws.web.compression.GzipEntityTags;
+import org.example.ws.web.converter.MappingJackson2CborHttpMessageConverter;
+import org.example.ws.web.converter.MappingJackson2SmileHttpMessageConverter;
+import org.example.ws.web.converter.MediaTypes;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.Future;
+import java.util.List;
 
 /**
  * The GreetingController class is a RESTful web service controller.
  * The <code>@RestController</code> annotation informs Spring that each
  * <code>@RequestMapping</code> method returns a <code>@ResponseBody</code>
  * which, by default, contains a ResponseEntity converted into JSON with an
- * associated HTTP status code.
+ * associated HTTP status code. Clients may exchange the compact binary
+ * Smile or CBOR encodings instead, chosen with the Accept and Content-Type
+ * headers. Every response therefore varies by the Accept header, and the
+ * ETag of a Smile or CBOR representation carries a <code>-smile</code> or
+ * <code>-cbor</code> suffix, so caches never serve one encoding for another.
+ * The CompressionFilter likewise adds <code>-gzip</code> to the ETag of a
+ * compressed response.
  *
  * url      :http://localhost:8080/api/greetings
  * user name: user      or operations
@@ -28,6 +55,9 @@ import java.util.concurrent.Future;
 @RestController
 public class GreetingController extends BaseController {
 
+    /**  The largest page size a client may request from the paginated endpoint. */
+    public static final int MAX_PAGE_LIMIT = 1000;
+
     /**  The GreetingService business service. */
     @Autowired
     private GreetingService greetingService;
@@ -36,19 +66,287 @@ public class GreetingController extends BaseController {
     @Autowired
     private EmailService emailService;
 
+    /**  The durable queue for emails rejected by a saturated email executor. */
+    @Autowired
+    private EmailSpillQueue emailSpillQueue;
+
+    /**  The Jackson ObjectMapper used to write streamed responses. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**  The Smile converter, whose ObjectMapper writes streamed Smile responses. */
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
+    /**  The CBOR converter, whose ObjectMapper writes streamed CBOR responses. */
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
+    /**  The largest number of Greetings accepted by one bulk create request. */
+    @Value("${greeting.bulk.max-size:10000}")
+    private int bulkMaxSize;
+
+    /**  The largest number of ids accepted by one batch lookup request. */
+    @Value("${greeting.lookup.max-ids:1000}")
+    private int lookupMaxIds;
+
+    /**  The number of milliseconds a client may wait for an email to be sent. */
+    @Value("${greeting.send.timeout:30000}")
+    private long sendTimeout;
+
+    /**
+     * Marks every response as negotiated on the Accept header, including the
+     * 304 responses written before a handler returns.
+     * @param response The HttpServletResponse.
+     */
+    @ModelAttribute
+    public void varyByAccept(HttpServletResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
     /**
      * Web service endpoint to fetch all Greeting entities. The service returns
      * the collection of Greeting entities as JSON.
+     *
+     * The response carries an ETag derived from the version watermark of all
+     * Greetings. When the If-None-Match request header matches it, the
+     * service returns an empty response body with HTTP status 304 without
+     * loading or serializing the Greetings.
+     *
+     * @param webRequest The WebRequest holding the conditional request headers.
+     * @param accept The Accept request header value, if any.
+     * @return A ResponseEntity containing a Collection of Greeting objects, or
+     *         <code>null</code> when the collection is not modified.*/
+    @RequestMapping(
+            value = "/api/greetings",
+            method = RequestMethod.GET,
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<Collection<Greeting>> getGreetings(WebRequest webRequest,
+            @RequestHeader(value = "Accept", required = false) String accept) {
+        String version = greetingService.findAllVersion();
+        if (version != null && webRequest.checkNotModified(
+                entityTag(version, preferredBinaryType(accept)))) {
+            return null;
+        }
+        Collection<Greeting> greetings = greetingService.findAll();
+        return new ResponseEntity<Collection<Greeting>>(greetings, HttpStatus.OK);
+    }
+
+    /**
+     * Web service endpoint to fetch a page of Greeting entities using keyset
+     * pagination on the Greeting id. The service returns at most
+     * <code>limit</code> Greetings whose id is greater than <code>after</code>,
+     * ordered by id, as JSON.
+     *
+     * When the page is full, a <code>Link</code> header with
+     * <code>rel="next"</code> carries the URL of the following page.
+     *
+     * url      :http://localhost:8080/api/greetings?limit=100&amp;after=200
+     *
+     * @param limit The maximum number of Greetings to return, capped at
+     *        {@link #MAX_PAGE_LIMIT}.
+     * @param after The id cursor. Omit to start from the first Greeting.
      * @return A ResponseEntity containing a Collection of Greeting objects.*/
     @RequestMapping(
             value = "/api/greetings",
             method = RequestMethod.GET,
-            produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Collection<Greeting>> getGreetings() {
+            params = { "limit", "!ids" },
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<Collection<Greeting>> getGreetingsPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "after", required = false) Long after) {
+        int pageLimit = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+        Collection<Greeting> greetings = greetingService.findPage(after, pageLimit);
 
-        logger.info("> getGreetings");
-        Collection<Greeting> greetings = greetingService.findAll();
-        logger.info("< getGreetings");
+        HttpHeaders headers = new HttpHeaders();
+        if (greetings.size() == pageLimit) {
+            Long lastId = null;
+            for (Greeting greeting : greetings) {
+                lastId = greeting.getId();
+            }
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("limit", pageLimit)
+                    .replaceQueryParam("after", lastId).toUriString();
+            headers.add("Link", "<" + next + ">; rel=\"next\"");
+        }
+        return new ResponseEntity<Collection<Greeting>>(greetings, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Web service endpoint to fetch many Greeting entities by id in one
+     * request. The Greetings found are returned as JSON, in the order of the
+     * ids; ids without a Greeting are left out. Cached Greetings are read from
+     * the cache in bulk and the others are loaded with a single query.
+     *
+     * If more ids are supplied than allowed, the service returns an empty response body with HTTP status 413.
+     * The ids cannot be combined with the <code>limit</code> of a page; if both are supplied, the service
+     * returns an empty response body with HTTP status 400.
+     *
+     * url      :http://localhost:8080/api/greetings?ids=1,2,3
+     *
+     * @param ids The Long Greeting primary key identifiers, comma separated.
+     * @param limit The page size, which must be absent.
+     * @return A ResponseEntity containing a Collection of Greeting objects.*/
+    @RequestMapping(
+            value = "/api/greetings",
+            method = RequestMethod.GET,
+            params = "ids",
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<Collection<Greeting>> getGreetingsByIds(
+            @RequestParam("ids") List<Long> ids,
+            @RequestParam(value = "limit", required = false) String limit) {
+        if (limit != null) {
+            return new ResponseEntity<Collection<Greeting>>(HttpStatus.BAD_REQUEST);
+        }
+        return lookupGreetings(ids);
+    }
+
+    /**
+     * Web service endpoint to fetch many Greeting entities by id, for id lists
+     * too long for a URL. The HTTP request body is expected to contain a JSON
+     * array of ids. The response is that of <code>GET /api/greetings?ids=</code>.
+     *
+     * url      :http://localhost:8080/api/greetings/lookup
+     *
+     * @param ids The Long Greeting primary key identifiers.
+     * @return A ResponseEntity containing a Collection of Greeting objects.*/
+    @RequestMapping(
+            value = "/api/greetings/lookup",
+            method = RequestMethod.POST,
+            consumes = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE },
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<Collection<Greeting>> lookupGreetings(  @RequestBody List<Long> ids) {
+        if (ids.size() > lookupMaxIds) {
+            return new ResponseEntity<Collection<Greeting>>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        Collection<Greeting> greetings = greetingService.findByIds(ids);
+        return new ResponseEntity<Collection<Greeting>>(greetings, HttpStatus.OK);
+    }
+
+    /**
+     * Web service endpoint to stream all Greeting entities as a JSON array.
+     * Each Greeting is serialized and written to the response as soon as it is
+     * read from the data store, so memory use stays flat regardless of the
+     * number of Greetings. The array is written as Smile or CBOR instead when
+     * the Accept header prefers one of them.
+     *
+     * url      :http://localhost:8080/api/greetings/stream
+     *
+     * @param accept The Accept request header, if any.
+     * @param response The HttpServletResponse the JSON array is written to.
+     * @throws IOException Thrown when the response cannot be written.
+     */
+    @RequestMapping(
+            value = "/api/greetings/stream",
+            method = RequestMethod.GET,
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public void streamGreetings(
+            @RequestHeader(value = "Accept", required = false) String accept,
+            HttpServletResponse response) throws IOException {
+        ObjectMapper streamMapper = objectMapper;
+        String contentType = MediaType.APPLICATION_JSON_UTF8_VALUE;
+        MediaType binaryType = preferredBinaryType(accept);
+        if (MediaTypes.APPLICATION_SMILE.equals(binaryType)) {
+            streamMapper = smileHttpMessageConverter.getObjectMapper();
+            contentType = MediaTypes.APPLICATION_SMILE_VALUE;
+        } else if (MediaTypes.APPLICATION_CBOR.equals(binaryType)) {
+            streamMapper = cborHttpMessageConverter.getObjectMapper();
+            contentType = MediaTypes.APPLICATION_CBOR_VALUE;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(contentType);
+
+        final JsonGenerator generator = streamMapper.getFactory()
+                .createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        try {
+            generator.writeStartArray();
+            greetingService.streamAll(greeting -> {
+                try {
+                    generator.writeObject(greeting);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Web service endpoint to fetch the Greeting changes after a cursor, so
+     * that clients mirroring the Greetings synchronize incrementally. The
+     * service returns at most <code>limit</code> changes, oldest first, as
+     * JSON: each is an <code>upsert</code> carrying the Greeting or a
+     * <code>delete</code> carrying its id. The <code>next</code> value is the
+     * cursor to send with the following request; omit <code>since</code> to
+     * start from the beginning.
+     *
+     * If the cursor is invalid, the service returns an empty response body
+     * with HTTP status 400. If the cursor is older than the tombstone
+     * retention, the service returns the Exception Attributes as JSON with
+     * HTTP status 410 and the client must fetch all Greetings again.
+     *
+     * url      :http://localhost:8080/api/greetings/changes?since=1488326400000.42
+     *
+     * @param since The cursor returned as <code>next</code> by the previous
+     *        request, if any.
+     * @param limit The maximum number of changes to return, capped at
+     *        {@link #MAX_PAGE_LIMIT}.
+     * @return A ResponseEntity containing the GreetingChanges.*/
+    @RequestMapping(
+            value = "/api/greetings/changes",
+            method = RequestMethod.GET,
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<GreetingChanges> getGreetingChanges(
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        ChangeCursor cursor;
+        try {
+            cursor = ChangeCursor.parse(since);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<GreetingChanges>(HttpStatus.BAD_REQUEST);
+        }
+        int changesLimit = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+        GreetingChanges changes = greetingService.findChanges(cursor, changesLimit);
+        return new ResponseEntity<GreetingChanges>(changes, HttpStatus.OK);
+    }
+
+    /**
+     * Web service endpoint to search the text of the Greeting entities. The
+     * query uses the Lucene query string syntax, as the Elasticsearch
+     * <code>query_string</code> query does, e.g. <code>hello AND "good day"</code>.
+     * The service returns at most <code>limit</code> matching Greetings, best
+     * match first, as JSON.
+     *
+     * If the query is invalid, the service returns the Exception Attributes as
+     * JSON with HTTP status 400.
+     *
+     * url      :http://localhost:8080/api/greetings/search?q=hello
+     *
+     * @param query The search query.
+     * @param limit The maximum number of Greetings to return, capped at
+     *        {@link #MAX_PAGE_LIMIT}.
+     * @return A ResponseEntity containing a Collection of Greeting objects.*/
+    @RequestMapping(
+            value = "/api/greetings/search",
+            method = RequestMethod.GET,
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<Collection<Greeting>> searchGreetings(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        int searchLimit = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+        Collection<Greeting> greetings = greetingService.search(query, searchLimit);
         return new ResponseEntity<Collection<Greeting>>(greetings, HttpStatus.OK);
     }
 
@@ -56,22 +354,26 @@ public class GreetingController extends BaseController {
      * Web service endpoint to fetch a single Greeting entity by primary key identifier.
      * If     found, the Greeting is returned as JSON           with HTTP status 200.
      * If not found, the service returns an empty response body with HTTP status 404.
+     *
+     * The response carries a strong ETag holding the Greeting version. When the
+     * If-None-Match request header matches it, the service returns an empty
+     * response body with HTTP status 304.
      * 
      * @param id A Long URL path variable containing the Greeting primary key   identifier.
+     * @param accept The Accept request header value, if any.
      * @return A ResponseEntity containing a single Greeting object, if found, and a HTTP status code as described in the method comment.
      */
     @RequestMapping( value    = "/api/greetings/{id}",
                      method   = RequestMethod.GET,
-                     produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Greeting> getGreeting(@PathVariable("id") Long id) {
-
-        logger.info("> getGreeting id:{}", id);
+                     produces = { MediaType.APPLICATION_JSON_VALUE,
+                             MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<Greeting> getGreeting(@PathVariable("id") Long id,
+            @RequestHeader(value = "Accept", required = false) String accept) {
         Greeting greeting = greetingService.findOne(id);
         if (greeting == null) {
             return new ResponseEntity<Greeting>(HttpStatus.NOT_FOUND);
         }
-        logger.info("< getGreeting id:{}", id);
-        return new ResponseEntity<Greeting>(greeting, HttpStatus.OK);
+        return new ResponseEntity<Greeting>(greeting, versionHeaders(greeting.getVersion(), accept), HttpStatus.OK);
     }
 
     /**
@@ -89,15 +391,46 @@ public class GreetingController extends BaseController {
     @RequestMapping(
             value = "/api/greetings",
             method = RequestMethod.POST,
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE)
+            consumes = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE },
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
     public ResponseEntity<Greeting> createGreeting(  @RequestBody Greeting greeting) {
-        logger.info("> createGreeting");
         Greeting savedGreeting = greetingService.create(greeting);
-        logger.info("< createGreeting");
         return new ResponseEntity<Greeting>(savedGreeting, HttpStatus.CREATED);
     }
 
+    /**
+     * Web service endpoint to create many Greeting entities in one request.
+     * The HTTP request body is expected to contain a JSON array of Greeting
+     * objects. The Greetings are persisted with JDBC batch inserts, in chunks,
+     * in a single transaction, so the request is atomic.
+     * 
+     * If created successfully, the persisted Greetings are returned as JSON with HTTP status 201.
+     * If any Greeting fails to persist, none is persisted and the error response of the failure is returned.
+     * If the array holds more Greetings than allowed, the service returns an empty response body with HTTP status 413.
+     * 
+     * url      :http://localhost:8080/api/greetings/batch
+     * 
+     * @param greetings The Greeting objects to be created.
+     * @return A ResponseEntity containing the created Greeting objects and a
+     *         HTTP status code as described in the method comment.
+     */
+    @RequestMapping(
+            value = "/api/greetings/batch",
+            method = RequestMethod.POST,
+            consumes = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE },
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<Collection<Greeting>> createGreetings(  @RequestBody List<Greeting> greetings) {
+        if (greetings.size() > bulkMaxSize) {
+            return new ResponseEntity<Collection<Greeting>>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        Collection<Greeting> savedGreetings = greetingService.createAll(greetings);
+        return new ResponseEntity<Collection<Greeting>>(savedGreetings, HttpStatus.CREATED);
+    }
+
     /**
      * Web service endpoint to update a single Greeting entity. The HTTP request
      * body is expected to contain a Greeting object in JSON format. The
@@ -110,7 +443,16 @@ public class GreetingController extends BaseController {
      * If not updated successfully, the service returns an empty response body
      * with HTTP status 500.
      * 
+     * When the If-Match request header holds the ETag of the Greeting, the
+     * Greeting is updated with a single conditional statement, without being
+     * read first. If updated, the service returns an empty response body with
+     * the new ETag and HTTP status 204. If the Greeting was changed or removed
+     * since the ETag was issued, the service returns an empty response body
+     * with HTTP status 412.
+     * 
      * @param greeting The Greeting object to be updated.
+     * @param ifMatch The If-Match request header value, if any.
+     * @param accept The Accept request header value, if any.
      * @return A ResponseEntity containing a single Greeting object, if updated
      *         successfully, and a HTTP status code as described in the method
      *         comment.
@@ -118,11 +460,23 @@ public class GreetingController extends BaseController {
     @RequestMapping(
             value = "/api/greetings/{id}",
             method = RequestMethod.PUT,
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE)
+            consumes = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE },
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
     public ResponseEntity<Greeting> updateGreeting(
-            @RequestBody Greeting greeting) {
-        logger.info("> updateGreeting id:{}", greeting.getId());
+            @RequestBody Greeting greeting,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestHeader(value = "Accept", required = false) String accept) {
+        List<Integer> versions = matchedVersions(ifMatch);
+        if (versions != null) {
+            for (Integer version : versions) {
+                if (greetingService.updateIfVersion(greeting, version)) {
+                    return new ResponseEntity<Greeting>(versionHeaders(version + 1, accept), HttpStatus.NO_CONTENT);
+                }
+            }
+            return new ResponseEntity<Greeting>(HttpStatus.PRECONDITION_FAILED);
+        }
 
         Greeting updatedGreeting = greetingService.update(greeting);
         if (updatedGreeting == null) {
@@ -130,8 +484,7 @@ public class GreetingController extends BaseController {
                     HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
-        logger.info("< updateGreeting id:{}", greeting.getId());
-        return new ResponseEntity<Greeting>(updatedGreeting, HttpStatus.OK);
+        return new ResponseEntity<Greeting>(updatedGreeting, versionHeaders(updatedGreeting.getVersion(), accept), HttpStatus.OK);
     }
 
     /**
@@ -143,20 +496,33 @@ public class GreetingController extends BaseController {
      * 
      * If not deleted successfully, the service returns an empty response body with HTTP status 500.
      * 
+     * When the If-Match request header holds the ETag of the Greeting, the
+     * Greeting is deleted only if it is unchanged since the ETag was issued;
+     * otherwise the service returns an empty response body with HTTP status 412.
+     * 
      * @param id A Long URL path variable containing the Greeting primary key   identifier.
+     * @param ifMatch The If-Match request header value, if any.
      * @return A ResponseEntity with an empty response body and a HTTP status code as described in the method comment.
      */
     @RequestMapping( value = "/api/greetings/{id}",  method = RequestMethod.DELETE)
     public ResponseEntity<Greeting> deleteGreeting(
-            @PathVariable("id") Long id) {
-        logger.info("> deleteGreeting id:{}", id);
+            @PathVariable("id") Long id,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        List<Integer> versions = matchedVersions(ifMatch);
+        if (versions != null) {
+            for (Integer version : versions) {
+                if (greetingService.deleteIfVersion(id, version)) {
+                    return new ResponseEntity<Greeting>(HttpStatus.NO_CONTENT);
+                }
+            }
+            return new ResponseEntity<Greeting>(HttpStatus.PRECONDITION_FAILED);
+        }
+
         greetingService.delete(id);
-        logger.info("< deleteGreeting id:{}", id);
         return new ResponseEntity<Greeting>(HttpStatus.NO_CONTENT);
     }
 
 
-
     /**
      * Web service endpoint to fetch a single Greeting entity by primary key
      * identifier and send it as an email.
@@ -167,48 +533,197 @@ public class GreetingController extends BaseController {
      * If not found, the service returns an empty response body with HTTP status
      * 404.
      * 
+     * The response is a DeferredResult. When the client asks to wait for the
+     * email transmission, the request thread is released immediately and the
+     * response is written by the email completion callback. If the email is
+     * not sent within the configured timeout, HTTP status 503 is returned.
+     * 
+     * If the email executor is saturated, the Greeting is either spilled to a
+     * durable queue and HTTP status 202 is returned, or, when spilling is not
+     * configured, HTTP status 503 is returned with a Retry-After header.
+     * 
      * @param id A Long URL path variable containing the Greeting primary key
      *        identifier.
      * @param waitForAsyncResult A boolean indicating if the web service should
      *        wait for the asynchronous email transmission.
-     * @return A ResponseEntity containing a single Greeting object, if found,
-     *         and a HTTP status code as described in the method comment.
+     * @return A DeferredResult of a ResponseEntity containing a single Greeting
+     *         object, if found, and a HTTP status code as described in the
+     *         method comment.
      */
     @RequestMapping(
             value = "/api/greetings/{id}/send",
             method = RequestMethod.POST,
-            produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Greeting> sendGreeting(   @PathVariable("id") Long id,
+            produces = { MediaType.APPLICATION_JSON_VALUE,
+                    MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_CBOR_VALUE })
+    public DeferredResult<ResponseEntity<Greeting>> sendGreeting(   @PathVariable("id") Long id,
                                                     @RequestParam(  value = "wait",
                                                                     defaultValue = "false") boolean waitForAsyncResult) {
 
-        logger.info("> sendGreeting id:{}", id);
-
-        Greeting greeting = null;
+        final DeferredResult<ResponseEntity<Greeting>> deferredResult = new DeferredResult<ResponseEntity<Greeting>>(
+                sendTimeout, new ResponseEntity<Greeting>(HttpStatus.SERVICE_UNAVAILABLE));
 
         try {
-            greeting = greetingService.findOne(id);
+            final Greeting greeting = greetingService.findOne(id);
             if (greeting == null) {
-                logger.info("< sendGreeting id:{}", id);
-                return new ResponseEntity<Greeting>(HttpStatus.NOT_FOUND);
+                deferredResult.setResult(new ResponseEntity<Greeting>(HttpStatus.NOT_FOUND));
+                return deferredResult;
             }
 
             if (waitForAsyncResult) {
-                Future<Boolean> asyncResponse = emailService
-                        .sendAsyncWithResult(greeting);
-                boolean emailSent = asyncResponse.get();
-                logger.info("- greeting email sent? {}", emailSent);
+                emailService.sendAsyncWithResult(greeting)
+                        .whenComplete((emailSent, ex) -> {
+                            if (ex != null) {
+                                logger.error("A problem occurred sending the Greeting.", ex);
+                                deferredResult.setResult(new ResponseEntity<Greeting>(
+                                        HttpStatus.INTERNAL_SERVER_ERROR));
+                                return;
+                            }
+                            logger.info("- greeting email sent? {}", emailSent);
+                            deferredResult.setResult(new ResponseEntity<Greeting>(greeting, HttpStatus.OK));
+                        });
             } else {
                 emailService.sendAsync(greeting);
+                deferredResult.setResult(new ResponseEntity<Greeting>(greeting, HttpStatus.OK));
             }
+        } catch (TaskRejectedException e) {
+            logger.warn("The email executor rejected the Greeting id:{}.", id);
+            deferredResult.setResult(emailRejected(id));
         } catch (Exception e) {
             logger.error("A problem occurred sending the Greeting.", e);
-            return new ResponseEntity<Greeting>(
-                    HttpStatus.INTERNAL_SERVER_ERROR);
+            deferredResult.setResult(new ResponseEntity<Greeting>(
+                    HttpStatus.INTERNAL_SERVER_ERROR));
+        }
+
+        return deferredResult;
+    }
+
+    /**
+     * Builds the response for a Greeting whose email was rejected by the
+     * saturated email executor. Spills the Greeting when the spill policy is
+     * configured.
+     * @param id The Greeting primary key identifier.
+     * @return A ResponseEntity with HTTP status 202 if spilled, otherwise 503.
+     */
+    private ResponseEntity<Greeting> emailRejected(Long id) {
+        Greeting greeting = greetingService.findOne(id);
+        if (emailSpillQueue.offer(greeting)) {
+            return new ResponseEntity<Greeting>(greeting, HttpStatus.ACCEPTED);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Retry-After", "5");
+        return new ResponseEntity<Greeting>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Builds the strong entity tag of a version in a representation.
+     * @param version The version value.
+     * @param binaryType The binary media type of the representation, or
+     *        <code>null</code> for JSON.
+     * @return The quoted String entity tag.
+     */
+    private static String entityTag(Object version, MediaType binaryType) {
+        return "\"" + version + entityTagSuffix(binaryType) + "\"";
+    }
+
+    /**
+     * Returns the entity tag suffix of a representation.
+     * @param binaryType The binary media type of the representation, or
+     *        <code>null</code> for JSON.
+     * @return <code>-smile</code>, <code>-cbor</code> or an empty String.
+     */
+    private static String entityTagSuffix(MediaType binaryType) {
+        if (MediaTypes.APPLICATION_SMILE.equals(binaryType)) {
+            return "-smile";
+        }
+        if (MediaTypes.APPLICATION_CBOR.equals(binaryType)) {
+            return "-cbor";
         }
+        return "";
+    }
+
+    /**
+     * Builds the response headers carrying the ETag of a Greeting version.
+     * @param version The Integer Greeting version, which may be
+     *        <code>null</code> for a Greeting not yet persisted.
+     * @param accept The Accept request header value, if any, choosing the
+     *        representation.
+     * @return HttpHeaders, empty when the version is <code>null</code>.
+     */
+    private static HttpHeaders versionHeaders(Integer version, String accept) {
+        HttpHeaders headers = new HttpHeaders();
+        if (version != null) {
+            headers.setETag(entityTag(version, preferredBinaryType(accept)));
+        }
+        return headers;
+    }
 
-        logger.info("< sendGreeting id:{}", id);
-        return new ResponseEntity<Greeting>(greeting, HttpStatus.OK);
+    /**
+     * Parses the Greeting versions listed in an If-Match request header.
+     * Weak tags never match, as If-Match requires a strong comparison. The
+     * tag of any representation of a version, gzip-encoded or not, matches
+     * that version, since writes depend on the version only.
+     * @param ifMatch The If-Match request header value, if any.
+     * @return A List of Integer versions, possibly empty when no tag can match,
+     *         or <code>null</code> when the header is absent or <code>*</code>
+     *         and the request is unconditional.
+     */
+    private static List<Integer> matchedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        List<Integer> versions = new ArrayList<Integer>();
+        for (String tag : ifMatch.split(",")) {
+            // The tag of a gzip-encoded response names the same version.
+            tag = GzipEntityTags.stripSuffix(tag.trim());
+            if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                continue;
+            }
+            String version = tag.substring(1, tag.length() - 1);
+            for (MediaType binaryType : new MediaType[] {
+                    MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR }) {
+                String suffix = entityTagSuffix(binaryType);
+                if (version.endsWith(suffix)) {
+                    version = version.substring(0, version.length() - suffix.length());
+                }
+            }
+            try {
+                versions.add(Integer.valueOf(version));
+            } catch (NumberFormatException e) {
+                // Not a Greeting version; the tag cannot match.
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Determines the binary media type preferred by an Accept header.
+     * @param accept The Accept request header value, if any.
+     * @return MediaTypes.APPLICATION_SMILE or MediaTypes.APPLICATION_CBOR, or
+     *         <code>null</code> when JSON is preferred or acceptable first.
+     */
+    private static MediaType preferredBinaryType(String accept) {
+        if (accept == null) {
+            return null;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+            if (mediaType.includes(MediaTypes.APPLICATION_SMILE)) {
+                return MediaTypes.APPLICATION_SMILE;
+            }
+            if (mediaType.includes(MediaTypes.APPLICATION_CBOR)) {
+                return MediaTypes.APPLICATION_CBOR;
+            }
+        }
+        return null;
     }
 
 }
@@ -1,7 +1,7 @@
 package org.example.ws.web.api;
 
 import org.example.ws.model.Role;
-import org.example.ws.repository.RoleRepository;
+import org.example.ws.service.RoleService;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -18,9 +18,8 @@ import java.util.Collection;
  * <code>@RestController</code> annotation informs Spring that each
  * <code>@RequestMapping</code> method returns a <code>@ResponseBody</code>.
  * 
- * Note: This controller class was created for demonstration and testing
- * purposes. Typically, a Repository is not wired directly into a Controller,
- * but rather into a Service component which encapsulates the Repository behaviors.
+ * Roles are served by the RoleService from its in-memory index, so no query
+ * is issued per request.
  *
  * url      :http://localhost:8080/api/roles
  * user name: user
@@ -32,11 +31,11 @@ import java.util.Collection;
 @RestController
 public class RoleController extends BaseController {
 
-    /** directly injects repository without a service(like in GreetingController) is also allowed
-     * The Spring Data JPA Repository for the Role entity model class.
+    /**
+     * The RoleService business service.
      */
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleService roleService;
 
     /**
      * Web service endpoint to fetch all Role entities. The service returns the
@@ -49,7 +48,7 @@ public class RoleController extends BaseController {
                     produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Collection<Role>> getRoles() {
 
-        Collection<Role> roles = roleRepository.findAllEffective(new DateTime());
+        Collection<Role> roles = roleService.findAllEffective(new DateTime());
 
         return new ResponseEntity<Collection<Role>>(roles, HttpStatus.OK);
     }
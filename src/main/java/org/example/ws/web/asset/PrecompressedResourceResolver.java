@@ -0,0 +1,233 @@
+package org.example.ws.web.asset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.EncodedResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+/**
+ * The PrecompressedResourceResolver serves the brotli (<code>.br</code>) or
+ * gzip (<code>.gz</code>) variant written next to a static resource by the
+ * AssetCompiler, chosen by the <code>Accept-Encoding</code> request header.
+ * Brotli is preferred when the client accepts both. Nothing is compressed at
+ * request time; resources without a variant are served as they are.
+ *
+ * The variants found for a resource are remembered, so each variant is
+ * looked up once. Variant responses carry the <code>Content-Encoding</code>
+ * header. The <code>Vary: Accept-Encoding</code> header of every response of
+ * a compressible asset, whether a variant or not, is added by the
+ * StaticAssetConfiguration.
+ *
+ * @author Matt Warman
+ */
+public class PrecompressedResourceResolver extends AbstractResourceResolver {
+
+    /**
+     * The content codings served, in order of preference, with the file
+     * extension of their variants.
+     */
+    private static final String[][] ENCODINGS = { { "br", ".br" }, { "gzip", ".gz" } };
+
+    /**
+     * The extensions, in lower case, of the files which get precompressed
+     * variants.
+     */
+    private static final Set<String> COMPRESSIBLE = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList(
+                    "css", "js", "map", "svg", "json", "txt", "html", "xml", "ico")));
+
+    /**
+     * The variants of each resolved resource, indexed like ENCODINGS, with
+     * <code>null</code> for a missing variant.
+     */
+    private final ConcurrentMap<Resource, Resource[]> variants = new ConcurrentHashMap<Resource, Resource[]>();
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request,
+            String requestPath, List<? extends Resource> locations,
+            ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null || request == null) {
+            return resource;
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return resource;
+        }
+
+        Resource[] found = variants.get(resource);
+        if (found == null) {
+            found = findVariants(resource);
+            variants.putIfAbsent(resource, found);
+        }
+        for (int i = 0; i < ENCODINGS.length; i++) {
+            if (found[i] != null && accepts(acceptEncoding, ENCODINGS[i][0])) {
+                return new PrecompressedResource(resource, found[i], ENCODINGS[i][0]);
+            }
+        }
+        return resource;
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath,
+            List<? extends Resource> locations, ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    private Resource[] findVariants(Resource resource) {
+        Resource[] found = new Resource[ENCODINGS.length];
+        for (int i = 0; i < ENCODINGS.length; i++) {
+            try {
+                Resource variant = resource.createRelative(
+                        resource.getFilename() + ENCODINGS[i][1]);
+                if (variant.exists() && variant.isReadable()) {
+                    found[i] = variant;
+                }
+            } catch (IOException e) {
+                logger.trace("No " + ENCODINGS[i][0] + " variant of " + resource, e);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Determines if a file gets precompressed variants, judged by its
+     * extension.
+     * @param path The file name or path.
+     * @return <code>true</code> if the file is compressible.
+     */
+    public static boolean isCompressible(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 && dot > path.lastIndexOf('/')
+                && COMPRESSIBLE.contains(path.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Determines if an Accept-Encoding header value accepts a content coding,
+     * i.e. lists it without a zero quality value.
+     * @param acceptEncoding The Accept-Encoding request header value.
+     * @param coding The content coding, e.g. <code>gzip</code>.
+     * @return <code>true</code> if the coding is accepted.
+     */
+    public static boolean accepts(String acceptEncoding, String coding) {
+        for (String candidate : StringUtils.tokenizeToStringArray(acceptEncoding, ",")) {
+            String[] parts = StringUtils.tokenizeToStringArray(candidate, ";");
+            if (parts.length == 0 || !parts[0].equalsIgnoreCase(coding)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].replace(" ", "");
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0.0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A precompressed variant of a resource. The file name, and thereby the
+     * response content type, is that of the original resource. The resource
+     * handler sends its coding as the <code>Content-Encoding</code>.
+     */
+    static final class PrecompressedResource extends AbstractResource
+            implements EncodedResource {
+
+        private final Resource original;
+
+        private final Resource encoded;
+
+        private final String coding;
+
+        PrecompressedResource(Resource original, Resource encoded, String coding) {
+            this.original = original;
+            this.encoded = encoded;
+            this.coding = coding;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return encoded.getInputStream();
+        }
+
+        @Override
+        public boolean exists() {
+            return encoded.exists();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return encoded.isReadable();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return encoded.getURL();
+        }
+
+        @Override
+        public URI getURI() throws IOException {
+            return encoded.getURI();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return encoded.getFile();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return encoded.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return encoded.lastModified();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return encoded.createRelative(relativePath);
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return encoded.getDescription();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return coding;
+        }
+
+    }
+
+}
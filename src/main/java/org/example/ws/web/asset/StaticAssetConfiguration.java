@@ -0,0 +1,115 @@
+package org.example.ws.web.asset;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+/**
+ * The StaticAssetConfiguration class serves the fingerprinted static assets
+ * written by the AssetCompiler at <code>/assets/**</code>.
+ *
+ * A fingerprinted URL names one version of a file forever, so responses are
+ * cached for a year and marked <code>immutable</code>, and browsers do not
+ * revalidate them. The precompressed variants are chosen by the
+ * PrecompressedResourceResolver. Every response of a compressible asset
+ * carries <code>Vary: Accept-Encoding</code>, the unencoded one included, so
+ * shared caches keep the codings of a URL apart. The original, unversioned
+ * files remain available with the default Spring Boot handling.
+ *
+ * @author Matt Warman
+ */
+@Configuration
+public class StaticAssetConfiguration extends WebMvcConfigurerAdapter {
+
+    /**
+     * The directory below <code>static/</code> holding the fingerprinted
+     * assets, served at the same path.
+     */
+    public static final String ASSETS_DIRECTORY = "assets";
+
+    /**
+     * The seconds the fingerprinted assets are cached.
+     */
+    @Value("${static.assets.cache-seconds:31536000}")
+    private long cacheSeconds;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/" + ASSETS_DIRECTORY + "/**")
+                .addResourceLocations("classpath:/static/" + ASSETS_DIRECTORY + "/")
+                .setCacheControl(new ImmutableCacheControl(cacheSeconds))
+                .resourceChain(false)
+                .addResolver(new PrecompressedResourceResolver())
+                .addResolver(new PathResourceResolver());
+    }
+
+    /**
+     * Registers the VaryAcceptEncodingFilter for the fingerprinted assets.
+     *
+     * @return A FilterRegistrationBean.
+     */
+    @Bean
+    public FilterRegistrationBean varyAcceptEncodingFilter() {
+        FilterRegistrationBean registration = new FilterRegistrationBean(
+                new VaryAcceptEncodingFilter());
+        registration.addUrlPatterns("/" + ASSETS_DIRECTORY + "/*");
+        return registration;
+    }
+
+    /**
+     * A public CacheControl with the <code>immutable</code> extension
+     * (RFC 8246), which the Spring CacheControl builder does not offer.
+     */
+    static final class ImmutableCacheControl extends CacheControl {
+
+        private final String headerValue;
+
+        ImmutableCacheControl(long maxAgeSeconds) {
+            this.headerValue = "max-age=" + maxAgeSeconds + ", public, immutable";
+        }
+
+        @Override
+        public String getHeaderValue() {
+            return headerValue;
+        }
+
+    }
+
+    /**
+     * Adds <code>Vary: Accept-Encoding</code> to the responses of compressible
+     * assets before the resource handler writes them, as the Spring 4 resource
+     * handler only sends the <code>Content-Encoding</code> of a variant.
+     */
+    static final class VaryAcceptEncodingFilter extends OncePerRequestFilter {
+
+        @Override
+        protected boolean shouldNotFilter(HttpServletRequest request) {
+            return !PrecompressedResourceResolver
+                    .isCompressible(request.getRequestURI());
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request,
+                HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            filterChain.doFilter(request, response);
+        }
+
+    }
+
+}
@@ -0,0 +1,478 @@
+package org.example.ws.web.compression;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * The CompressingResponseWrapper gzip-compresses a response body when it is
+ * large enough to be worth it.
+ *
+ * The body is buffered up to the size threshold. If it ends below the
+ * threshold, it is sent as it is, with a Content-Length. Once it exceeds the
+ * threshold, the decision is made: a successful response with a compressible
+ * content type and no Content-Encoding of its own is compressed as it is
+ * written, so large and streamed bodies are never held in memory; any other
+ * response is passed through. A compressed body is not byte-identical to
+ * its identity form, so a strong ETag gets the suffix of the GzipEntityTags.
+ *
+ * Compression uses a Deflater borrowed from the DeflaterPool, framed as gzip
+ * (RFC 1952) by writing the header and the CRC-32 trailer directly. The
+ * Deflater is returned to the pool when the body is complete.
+ *
+ * @author Matt Warman
+ */
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    /**
+     * The gzip member header: magic number, deflate method, no flags, no
+     * modification time, no extra flags, unknown operating system.
+     */
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b,
+            Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /**
+     * The size of the buffer receiving the deflated output.
+     */
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+
+    /**
+     * The outcome of a response, once its body is complete.
+     */
+    public enum Outcome {
+        /** The response has no body. */
+        NONE,
+        /** The body was below the size threshold. */
+        SKIPPED_SMALL,
+        /** The body was not compressible or already encoded. */
+        SKIPPED_TYPE,
+        /** The body was compressed. */
+        COMPRESSED
+    }
+
+    private enum Mode {
+        BUFFERING, RAW, COMPRESSING
+    }
+
+    private final DeflaterPool deflaterPool;
+
+    private final int minSize;
+
+    private final Predicate<String> compressibleContentType;
+
+    private CompressingOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    /**
+     * The Content-Length set by the application, applied only if the body is
+     * not compressed.
+     */
+    private long contentLength = -1L;
+
+    private Outcome outcome = Outcome.NONE;
+
+    /**
+     * Create a CompressingResponseWrapper.
+     * @param response The HttpServletResponse to wrap.
+     * @param deflaterPool The DeflaterPool.
+     * @param minSize The int number of body bytes from which the body is
+     *        compressed.
+     * @param compressibleContentType Determines if a content type is
+     *        compressible.
+     */
+    public CompressingResponseWrapper(HttpServletResponse response,
+            DeflaterPool deflaterPool, int minSize,
+            Predicate<String> compressibleContentType) {
+        super(response);
+        this.deflaterPool = deflaterPool;
+        this.minSize = Math.max(1, minSize);
+        this.compressibleContentType = compressibleContentType;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called.");
+        }
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called.");
+            }
+            outputStream = new CompressingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream,
+                    getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (isContentLength(name)) {
+            contentLength = value == null ? -1L : Long.parseLong(value);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (isContentLength(name)) {
+            contentLength = Long.parseLong(value);
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (isContentLength(name)) {
+            contentLength = value;
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (isContentLength(name)) {
+            contentLength = value;
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+        if (outputStream == null || outputStream.mode != Mode.BUFFERING) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        contentLength = -1L;
+        if (outputStream != null) {
+            outputStream.count = 0;
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (outputStream != null) {
+            outputStream.count = 0;
+        }
+    }
+
+    /**
+     * Completes the body: sends a buffered body or finishes the compressed
+     * stream. Does nothing if the body is already complete.
+     * @throws IOException Thrown when the body cannot be written.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Returns the Deflater to the pool if it is still held, e.g. after the
+     * request failed.
+     */
+    public void release() {
+        if (outputStream != null) {
+            outputStream.releaseDeflater();
+        }
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Returns the number of body bytes written by the application.
+     * @return A long byte count.
+     */
+    public long getBytesIn() {
+        return outputStream == null ? 0L : outputStream.bytesIn;
+    }
+
+    /**
+     * Returns the number of compressed body bytes sent, including the gzip
+     * header and trailer.
+     * @return A long byte count.
+     */
+    public long getBytesOut() {
+        return outputStream == null ? 0L : outputStream.bytesOut;
+    }
+
+    /**
+     * Returns the time spent compressing the body.
+     * @return A long number of nanoseconds.
+     */
+    public long getCompressNanos() {
+        return outputStream == null ? 0L : outputStream.compressNanos;
+    }
+
+    private static boolean isContentLength(String name) {
+        return "Content-Length".equalsIgnoreCase(name);
+    }
+
+    /**
+     * Determines if the response may be compressed: a successful response
+     * with content, a compressible content type and no Content-Encoding.
+     */
+    private boolean isCompressible() {
+        int status = getStatus();
+        return status >= 200 && status < 300
+                && status != HttpServletResponse.SC_NO_CONTENT
+                && status != HttpServletResponse.SC_PARTIAL_CONTENT
+                && !containsHeader("Content-Encoding")
+                && getContentType() != null
+                && compressibleContentType.test(getContentType());
+    }
+
+    /**
+     * The body stream, buffering until the compression decision and then
+     * writing to the wrapped response, compressed or not.
+     */
+    private final class CompressingOutputStream extends ServletOutputStream {
+
+        private final byte[] buffer = new byte[minSize];
+
+        private final byte[] single = new byte[1];
+
+        private int count;
+
+        private Mode mode = Mode.BUFFERING;
+
+        private ServletOutputStream target;
+
+        private Deflater deflater;
+
+        private final CRC32 crc = new CRC32();
+
+        private byte[] deflateBuffer;
+
+        private long bytesIn;
+
+        private long bytesOut;
+
+        private long compressNanos;
+
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (mode == Mode.BUFFERING && count < buffer.length && !closed) {
+                buffer[count++] = (byte) b;
+                return;
+            }
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("The response body is complete.");
+            }
+            switch (mode) {
+            case BUFFERING:
+                if (count + len <= buffer.length) {
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                decide();
+                write(b, off, len);
+                return;
+            case RAW:
+                bytesIn += len;
+                target.write(b, off, len);
+                return;
+            default:
+                deflate(b, off, len);
+            }
+        }
+
+        /**
+         * Makes the compression decision for a body exceeding the threshold
+         * and writes the buffered bytes.
+         */
+        private void decide() throws IOException {
+            if (!isCompressible()) {
+                outcome = Outcome.SKIPPED_TYPE;
+                startRaw();
+                return;
+            }
+            outcome = Outcome.COMPRESSED;
+            CompressingResponseWrapper.super.setHeader("Content-Encoding", "gzip");
+            String etag = getHeader(HttpHeaders.ETAG);
+            if (etag != null) {
+                CompressingResponseWrapper.super.setHeader(HttpHeaders.ETAG,
+                        GzipEntityTags.toGzip(etag));
+            }
+            target = getResponse().getOutputStream();
+            deflater = deflaterPool.borrow();
+            deflateBuffer = new byte[DEFLATE_BUFFER_SIZE];
+            mode = Mode.COMPRESSING;
+            target.write(GZIP_HEADER);
+            bytesOut = GZIP_HEADER.length;
+            int buffered = count;
+            count = 0;
+            deflate(buffer, 0, buffered);
+        }
+
+        private void startRaw() throws IOException {
+            if (contentLength >= 0L) {
+                getResponse().setContentLengthLong(contentLength);
+            }
+            target = getResponse().getOutputStream();
+            mode = Mode.RAW;
+            bytesIn = count;
+            if (count > 0) {
+                target.write(buffer, 0, count);
+            }
+            count = 0;
+        }
+
+        private void deflate(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            crc.update(b, off, len);
+            bytesIn += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            compressNanos += System.nanoTime() - start;
+        }
+
+        private int drain(int flushMode) throws IOException {
+            int deflated = deflater.deflate(deflateBuffer, 0,
+                    deflateBuffer.length, flushMode);
+            if (deflated > 0) {
+                target.write(deflateBuffer, 0, deflated);
+                bytesOut += deflated;
+            }
+            return deflated;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (closed || mode == Mode.BUFFERING) {
+                // Undecided bodies stay buffered until they are complete or
+                // exceed the threshold.
+                return;
+            }
+            if (mode == Mode.COMPRESSING) {
+                long start = System.nanoTime();
+                while (drain(Deflater.SYNC_FLUSH) == deflateBuffer.length) {
+                    // The output buffer was full; more output is pending.
+                }
+                compressNanos += System.nanoTime() - start;
+            }
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (mode == Mode.BUFFERING) {
+                    outcome = count > 0 ? Outcome.SKIPPED_SMALL : Outcome.NONE;
+                    if (contentLength < 0L) {
+                        contentLength = count;
+                    }
+                    startRaw();
+                } else if (mode == Mode.COMPRESSING) {
+                    finishGzip();
+                }
+                target.flush();
+            } finally {
+                releaseDeflater();
+            }
+        }
+
+        private void finishGzip() throws IOException {
+            long start = System.nanoTime();
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            compressNanos += System.nanoTime() - start;
+            writeIntLittleEndian((int) crc.getValue());
+            writeIntLittleEndian((int) bytesIn);
+            bytesOut += 8;
+        }
+
+        private void writeIntLittleEndian(int value) throws IOException {
+            target.write(value & 0xff);
+            target.write((value >>> 8) & 0xff);
+            target.write((value >>> 16) & 0xff);
+            target.write((value >>> 24) & 0xff);
+        }
+
+        private void releaseDeflater() {
+            if (deflater != null) {
+                deflaterPool.release(deflater);
+                deflater = null;
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException(
+                    "Non-blocking output is not supported by compressed responses.");
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.example.ws.web.compression;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The CompressionConfiguration class creates the DeflaterPool shared by the
+ * CompressionFilter for all compressed responses.
+ *
+ * @author Matt Warman
+ */
+@Configuration
+public class CompressionConfiguration {
+
+    /**
+     * The compression level, from 1 (fastest) to 9 (smallest).
+     */
+    @Value("${compression.level:6}")
+    private int level;
+
+    /**
+     * The maximum number of idle Deflaters kept for reuse.
+     */
+    @Value("${compression.pool.max-idle:32}")
+    private int maxIdle;
+
+    @Bean
+    public DeflaterPool deflaterPool() {
+        return new DeflaterPool(level, maxIdle);
+    }
+
+}
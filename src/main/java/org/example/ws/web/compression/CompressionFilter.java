@@ -0,0 +1,250 @@
+package org.example.ws.web.compression;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.example.ws.actuator.compression.CompressionCounter;
+import org.example.ws.actuator.compression.CompressionRecorder;
+import org.example.ws.web.asset.PrecompressedResourceResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * The CompressionFilter gzip-compresses the large API responses, e.g. the
+ * greeting and role lists, for clients sending
+ * <code>Accept-Encoding: gzip</code>.
+ *
+ * Only GET requests below the configured path prefix are considered. Bodies
+ * below the size threshold, unsuccessful responses, bodies of a content type
+ * not listed as compressible and bodies already carrying a
+ * <code>Content-Encoding</code> are sent as they are. Compression reuses the
+ * Deflaters of the DeflaterPool. The outcome of every response, with the
+ * compression ratio and the time spent compressing, is recorded per endpoint
+ * by the CompressionRecorder.
+ *
+ * A compressed body carries the <code>-gzip</code> form of a strong ETag
+ * (see GzipEntityTags). The suffix is removed from the If-None-Match and
+ * If-Match headers before the request reaches the controllers, and a 304
+ * response to a request which sent the gzip tag repeats that tag.
+ *
+ * @author Matt Warman
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+
+    /**
+     * The name under which responses of requests without a handler mapping
+     * are recorded.
+     */
+    private static final String UNMAPPED = "(unmapped)";
+
+    @Autowired
+    private DeflaterPool deflaterPool;
+
+    @Autowired
+    private CompressionRecorder compressionRecorder;
+
+    /**
+     * Whether API responses are compressed.
+     */
+    @Value("${compression.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * The request path prefix of the responses compressed.
+     */
+    @Value("${compression.path-prefix:/api/}")
+    private String pathPrefix;
+
+    /**
+     * The minimum body size, in bytes, of a compressed response.
+     */
+    @Value("${compression.min-size:2048}")
+    private int minSize;
+
+    /**
+     * The compressible media types. A subtype may be a wildcard or a
+     * <code>*+suffix</code> pattern.
+     */
+    @Value("${compression.mime-types:application/json,application/*+json,application/xml,text/*,application/x-jackson-smile,application/cbor}")
+    private String[] mimeTypes;
+
+    /**
+     * The decision for each response content type seen.
+     */
+    private final ConcurrentMap<String, Boolean> compressible = new ConcurrentHashMap<String, Boolean>();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod())
+                || !request.getRequestURI().startsWith(
+                        request.getContextPath() + pathPrefix);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (response instanceof CompressingResponseWrapper) {
+            // An async dispatch resuming a response wrapped by the initial
+            // request; the body is completed here.
+            CompressingResponseWrapper wrapper = (CompressingResponseWrapper) response;
+            try {
+                filterChain.doFilter(new EntityTagRequestWrapper(request),
+                        wrapper);
+                complete(request, wrapper);
+            } finally {
+                wrapper.release();
+            }
+            return;
+        }
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null
+                || !PrecompressedResourceResolver.accepts(acceptEncoding, "gzip")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(
+                response, deflaterPool, minSize, this::isCompressible);
+        boolean asyncStarted = false;
+        try {
+            filterChain.doFilter(new EntityTagRequestWrapper(request), wrapper);
+            asyncStarted = isAsyncStarted(request);
+            if (!asyncStarted) {
+                complete(request, wrapper);
+            }
+        } finally {
+            if (!asyncStarted) {
+                wrapper.release();
+            }
+        }
+    }
+
+    /**
+     * Completes the body and records the outcome of the response.
+     */
+    private void complete(HttpServletRequest request,
+            CompressingResponseWrapper wrapper) throws IOException {
+        if (isAsyncStarted(request)) {
+            return;
+        }
+        wrapper.finish();
+        if (wrapper.getStatus() == HttpServletResponse.SC_NOT_MODIFIED
+                && !wrapper.isCommitted()) {
+            // The client validated the gzip form of the representation.
+            String etag = wrapper.getHeader(HttpHeaders.ETAG);
+            if (GzipEntityTags.listsGzipTag(
+                    request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                wrapper.setHeader(HttpHeaders.ETAG, GzipEntityTags.toGzip(etag));
+            }
+        }
+
+        Object pattern = request.getAttribute(
+                HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        CompressionCounter counter = compressionRecorder.counterFor(
+                request.getMethod() + " " + (pattern != null ? pattern : UNMAPPED));
+        switch (wrapper.getOutcome()) {
+        case COMPRESSED:
+            counter.recordCompressed(wrapper.getBytesIn(),
+                    wrapper.getBytesOut(), wrapper.getCompressNanos());
+            break;
+        case SKIPPED_SMALL:
+            counter.recordSkippedSmall();
+            break;
+        case SKIPPED_TYPE:
+            counter.recordSkippedType();
+            break;
+        default:
+            break;
+        }
+    }
+
+    private boolean isCompressible(String contentType) {
+        Boolean decision = compressible.get(contentType);
+        if (decision == null) {
+            decision = matchesMimeType(contentType);
+            compressible.putIfAbsent(contentType, decision);
+        }
+        return decision;
+    }
+
+    private boolean matchesMimeType(String contentType) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (String mimeType : mimeTypes) {
+            if (StringUtils.hasText(mimeType)
+                    && MediaType.parseMediaType(mimeType.trim()).includes(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Presents the If-None-Match and If-Match headers with the tags of the
+     * identity forms, so that the controllers match the tags they issue.
+     */
+    private static final class EntityTagRequestWrapper
+            extends HttpServletRequestWrapper {
+
+        EntityTagRequestWrapper(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            String value = super.getHeader(name);
+            return isConditional(name) ? GzipEntityTags.stripSuffixes(value)
+                    : value;
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            Enumeration<String> values = super.getHeaders(name);
+            if (!isConditional(name) || values == null) {
+                return values;
+            }
+            List<String> stripped = new ArrayList<String>();
+            while (values.hasMoreElements()) {
+                stripped.add(GzipEntityTags.stripSuffixes(values.nextElement()));
+            }
+            return Collections.enumeration(stripped);
+        }
+
+        private static boolean isConditional(String name) {
+            return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)
+                    || HttpHeaders.IF_MATCH.equalsIgnoreCase(name);
+        }
+
+    }
+
+}
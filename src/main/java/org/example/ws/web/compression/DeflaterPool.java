@@ -0,0 +1,81 @@
+package org.example.ws.web.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * The DeflaterPool keeps idle Deflaters for reuse, so that compressing a
+ * response does not allocate a Deflater and its native zlib state.
+ *
+ * Deflaters produce raw deflate data (no zlib wrapper), to be framed as
+ * gzip by the caller. A borrowed Deflater must be released exactly once. At
+ * most <code>maxIdle</code> Deflaters are kept; surplus Deflaters are ended
+ * on release, freeing their native memory immediately.
+ *
+ * @author Matt Warman
+ */
+public class DeflaterPool {
+
+    private final int level;
+
+    private final BlockingQueue<Deflater> idle;
+
+    private final LongAdder created = new LongAdder();
+
+    /**
+     * Create a DeflaterPool.
+     * @param level The compression level, from 1 (fastest) to 9 (smallest).
+     * @param maxIdle The maximum number of idle Deflaters kept.
+     */
+    public DeflaterPool(int level, int maxIdle) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be 1-9: " + level);
+        }
+        this.level = level;
+        this.idle = new ArrayBlockingQueue<Deflater>(Math.max(1, maxIdle));
+    }
+
+    /**
+     * Borrow a reset Deflater, creating one if none is idle.
+     * @return A Deflater.
+     */
+    public Deflater borrow() {
+        Deflater deflater = idle.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+            created.increment();
+        }
+        return deflater;
+    }
+
+    /**
+     * Return a borrowed Deflater to the pool.
+     * @param deflater The Deflater.
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the number of Deflaters created since startup. Far fewer than
+     * the number of compressed responses while the pool is large enough.
+     * @return A long count.
+     */
+    public long getCreated() {
+        return created.sum();
+    }
+
+    public int getIdle() {
+        return idle.size();
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.example.ws.web.compression;
+
+/**
+ * The GzipEntityTags convert between the entity tag of a representation and
+ * the tag of its gzip-encoded form.
+ *
+ * A strong tag may only be shared by byte-identical representations (RFC
+ * 7232, section 2.3.3), so the CompressionFilter gives a compressed body the
+ * strong tag of its identity form with a <code>-gzip</code> suffix. Weak tags
+ * already stand for semantically equivalent representations and are kept.
+ * Tags sent back by clients in If-None-Match or If-Match headers are matched
+ * without the suffix.
+ *
+ * @author Matt Warman
+ */
+public final class GzipEntityTags {
+
+    /**
+     * The suffix of the opaque tag of a gzip-encoded representation.
+     */
+    public static final String SUFFIX = "-gzip";
+
+    private static final String QUOTED_SUFFIX = SUFFIX + "\"";
+
+    private GzipEntityTags() {
+    }
+
+    /**
+     * Returns the entity tag of the gzip-encoded form of a representation.
+     * @param etag The quoted entity tag of the representation.
+     * @return The strong tag with the suffix, or the tag unchanged if it is
+     *         weak, malformed or already suffixed.
+     */
+    public static String toGzip(String etag) {
+        if (etag == null || etag.length() < 2 || !etag.startsWith("\"")
+                || !etag.endsWith("\"") || etag.endsWith(QUOTED_SUFFIX)) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + QUOTED_SUFFIX;
+    }
+
+    /**
+     * Removes the gzip suffix from an entity tag.
+     * @param etag A quoted entity tag, strong or weak.
+     * @return The tag of the identity form, or the tag unchanged if it has no
+     *         suffix.
+     */
+    public static String stripSuffix(String etag) {
+        if (etag == null || !etag.endsWith(QUOTED_SUFFIX)
+                || etag.length() < QUOTED_SUFFIX.length() + 1) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - QUOTED_SUFFIX.length()) + "\"";
+    }
+
+    /**
+     * Removes the gzip suffix from every tag of an If-None-Match or If-Match
+     * header value.
+     * @param tags The header value: <code>*</code> or a comma separated list
+     *        of entity tags.
+     * @return The header value with the tags of the identity forms.
+     */
+    public static String stripSuffixes(String tags) {
+        if (tags == null || !tags.contains(QUOTED_SUFFIX)) {
+            return tags;
+        }
+        StringBuilder stripped = new StringBuilder(tags.length());
+        for (String tag : tags.split(",")) {
+            if (stripped.length() > 0) {
+                stripped.append(", ");
+            }
+            stripped.append(stripSuffix(tag.trim()));
+        }
+        return stripped.toString();
+    }
+
+    /**
+     * Determines if a conditional request header lists the gzip tag of an
+     * entity tag.
+     * @param tags The If-None-Match or If-Match header value, if any.
+     * @param etag The quoted entity tag of the identity form.
+     * @return <code>true</code> if the header lists its gzip tag.
+     */
+    public static boolean listsGzipTag(String tags, String etag) {
+        if (tags == null || etag == null) {
+            return false;
+        }
+        String gzipTag = toGzip(etag);
+        if (gzipTag.equals(etag)) {
+            return false;
+        }
+        for (String tag : tags.split(",")) {
+            if (tag.trim().equals(gzipTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
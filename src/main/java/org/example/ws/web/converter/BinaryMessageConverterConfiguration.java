@@ -0,0 +1,72 @@
+package org.example.ws.web.converter;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * The BinaryMessageConverterConfiguration class supplies the
+ * HttpMessageConverters reading and writing Smile and CBOR request and
+ * response bodies. Spring Boot adds them to the JSON converter, and the
+ * media type is chosen by content negotiation.
+ *
+ * The ObjectMappers are built with the Spring Boot customizers, so the
+ * <code>spring.jackson</code> properties and the Joda DateTime handling of
+ * the JSON ObjectMapper apply unchanged. They are not exposed as beans, so
+ * that the JSON ObjectMapper remains the only ObjectMapper bean.
+ *
+ * @author Matt Warman
+ */
+@Configuration
+public class BinaryMessageConverterConfiguration {
+
+    /**
+     * Supplies the Smile HttpMessageConverter.
+     *
+     * @param customizers The Jackson2ObjectMapperBuilderCustomizers of the
+     *        application.
+     * @return A MappingJackson2SmileHttpMessageConverter.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        return new MappingJackson2SmileHttpMessageConverter(
+                build(new ObjectMapper(new SmileFactory()), customizers));
+    }
+
+    /**
+     * Supplies the CBOR HttpMessageConverter.
+     *
+     * @param customizers The Jackson2ObjectMapperBuilderCustomizers of the
+     *        application.
+     * @return A MappingJackson2CborHttpMessageConverter.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        return new MappingJackson2CborHttpMessageConverter(
+                build(new ObjectMapper(new CBORFactory()), customizers));
+    }
+
+    /**
+     * Applies the Spring Boot customizers to an ObjectMapper built on a
+     * binary JsonFactory.
+     */
+    private ObjectMapper build(ObjectMapper objectMapper,
+            List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        for (Jackson2ObjectMapperBuilderCustomizer customizer : customizers) {
+            customizer.customize(builder);
+        }
+        builder.configure(objectMapper);
+        return objectMapper;
+    }
+
+}
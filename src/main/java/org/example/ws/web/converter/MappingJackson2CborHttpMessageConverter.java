@@ -0,0 +1,28 @@
+package org.example.ws.web.converter;
+
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * The MappingJackson2CborHttpMessageConverter reads and writes CBOR
+ * (<code>application/cbor</code>) with a Jackson ObjectMapper built on a
+ * CBORFactory.
+ *
+ * @author Matt Warman
+ */
+public class MappingJackson2CborHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    /**
+     * Create a MappingJackson2CborHttpMessageConverter.
+     * @param objectMapper An ObjectMapper using a CBORFactory.
+     */
+    public MappingJackson2CborHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, MediaTypes.APPLICATION_CBOR);
+        Assert.isInstanceOf(CBORFactory.class, objectMapper.getFactory(),
+                "CBORFactory required");
+    }
+
+}
@@ -0,0 +1,28 @@
+package org.example.ws.web.converter;
+
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * The MappingJackson2SmileHttpMessageConverter reads and writes Jackson
+ * Smile binary JSON (<code>application/x-jackson-smile</code>) with a
+ * Jackson ObjectMapper built on a SmileFactory.
+ *
+ * @author Matt Warman
+ */
+public class MappingJackson2SmileHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    /**
+     * Create a MappingJackson2SmileHttpMessageConverter.
+     * @param objectMapper An ObjectMapper using a SmileFactory.
+     */
+    public MappingJackson2SmileHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, MediaTypes.APPLICATION_SMILE);
+        Assert.isInstanceOf(SmileFactory.class, objectMapper.getFactory(),
+                "SmileFactory required");
+    }
+
+}
@@ -0,0 +1,37 @@
+package org.example.ws.web.converter;
+
+import org.springframework.http.MediaType;
+
+/**
+ * The MediaTypes class holds the binary media types the web services read
+ * and write in addition to JSON.
+ *
+ * @author Matt Warman
+ */
+public final class MediaTypes {
+
+    /**
+     * The String value of the Jackson Smile binary JSON media type.
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    /**
+     * The Jackson Smile binary JSON media type.
+     */
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    /**
+     * The String value of the CBOR (RFC 7049) media type.
+     */
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+    /**
+     * The CBOR (RFC 7049) media type.
+     */
+    public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+    private MediaTypes() {
+
+    }
+
+}
@@ -1,8 +1,8 @@
 package org.example.ws.web.filter;
 
+import org.example.ws.tracing.Tracer;
 import org.example.ws.util.RequestContext;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -12,12 +12,15 @@ import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 
 /** Filtering in security is a mechanism for authentication, auditing and logging all request and respnoses
  * The RequestContextInitializationFilter is executed for every web request.
  * The filter initializes the RequestContext for the current thread, preventing
  * leaking of RequestContext attributes from the previous thread's execution.
+ * It also starts the trace of the request, which decides whether the Spans
+ * of the request are sampled, and records the Span of the whole request.
  * Component annotation helps spring boot scanner to detect the class upon startup
  * @author Matt Warman
  */
@@ -26,17 +29,29 @@ import java.io.IOException;
 public class RequestContextInitializationFilter extends GenericFilterBean {
 
     /**
-     * The Logger for this class.
+     * The Tracer recording request Spans.
      */
-    private Logger logger = LoggerFactory.getLogger(this.getClass());
+    @Autowired
+    private Tracer tracer;
 
     @Override
     public void doFilter(ServletRequest req, ServletResponse resp,  FilterChain chain)
                          throws IOException, ServletException {
-        logger.info("> doFilter");
         RequestContext.init();
-        chain.doFilter(req, resp);
-        logger.info("< doFilter");
+        boolean sampled = tracer.startTrace();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(req, resp);
+            failed = false;
+        } finally {
+            if (sampled) {
+                HttpServletRequest request = (HttpServletRequest) req;
+                tracer.record(request.getMethod() + " " + request.getRequestURI(),
+                        start, failed);
+            }
+            tracer.endTrace();
+        }
     }
 
 }
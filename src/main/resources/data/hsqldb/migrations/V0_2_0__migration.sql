@@ -0,0 +1,21 @@
+/*
+ * Engine: HSQLDB
+ * Version: 0.2.0
+ * Description: 
+ *   Database changes for version 0.2.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE IdSequence (
+  sequenceName VARCHAR(255) NOT NULL,
+  nextValue    BIGINT       NOT NULL,
+  PRIMARY KEY (sequenceName)
+);
+
+/*
+ * Data
+ */
+INSERT INTO IdSequence (sequenceName, nextValue) SELECT 'Greeting', COALESCE(MAX(id), 0) + 1 FROM Greeting;
+INSERT INTO IdSequence (sequenceName, nextValue) SELECT 'Account' , COALESCE(MAX(id), 0) + 1 FROM Account;
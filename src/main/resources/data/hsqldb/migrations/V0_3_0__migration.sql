@@ -0,0 +1,21 @@
+/*
+ * Engine: HSQLDB
+ * Version: 0.3.0
+ * Description: 
+ *   Database changes for version 0.3.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE BatchCheckpoint (
+  jobName       VARCHAR(100)          NOT NULL,
+  partitionId   INT                   NOT NULL,
+  lowerBound    BIGINT                NOT NULL,
+  upperBound    BIGINT                NOT NULL,
+  lastId        BIGINT                NOT NULL,
+  rowsProcessed BIGINT                NOT NULL,
+  completed     BOOLEAN DEFAULT false NOT NULL,
+  updatedAt     DATETIME              NOT NULL,
+  PRIMARY KEY (jobName, partitionId)
+);
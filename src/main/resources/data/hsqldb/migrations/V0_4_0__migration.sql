@@ -0,0 +1,17 @@
+/*
+ * Engine: HSQLDB
+ * Version: 0.4.0
+ * Description: 
+ *   Database changes for version 0.4.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE JobLock (
+  jobName     VARCHAR(100) NOT NULL,
+  lockedBy    VARCHAR(255) NOT NULL,
+  lockedAt    DATETIME     NOT NULL,
+  lockedUntil DATETIME     NOT NULL,
+  PRIMARY KEY (jobName)
+);
@@ -0,0 +1,18 @@
+/*
+ * Engine: HSQLDB
+ * Version: 0.5.0
+ * Description: 
+ *   Database changes for version 0.5.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE OutboxEvent (
+  id          BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) NOT NULL,
+  eventType   VARCHAR(50)   NOT NULL,
+  aggregateId BIGINT        NOT NULL,
+  payload     VARCHAR(2000) NOT NULL,
+  createdAt   DATETIME      NOT NULL,
+  PRIMARY KEY (id)
+);
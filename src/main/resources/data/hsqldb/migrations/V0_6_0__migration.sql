@@ -0,0 +1,21 @@
+/*
+ * Engine: HSQLDB
+ * Version: 0.6.0
+ * Description: 
+ *   Database changes for version 0.6.0.
+ */
+
+/*
+ * Structure
+ */
+ALTER TABLE Greeting ADD COLUMN changedAt DATETIME;
+UPDATE Greeting SET changedAt = COALESCE(updatedAt, createdAt);
+ALTER TABLE Greeting ALTER COLUMN changedAt SET NOT NULL;
+CREATE INDEX IX_Greeting_ChangedAt ON Greeting (changedAt, id);
+
+CREATE TABLE GreetingTombstone (
+  greetingId BIGINT   NOT NULL,
+  deletedAt  DATETIME NOT NULL,
+  PRIMARY KEY (greetingId)
+);
+CREATE INDEX IX_GreetingTombstone_DeletedAt ON GreetingTombstone (deletedAt, greetingId);
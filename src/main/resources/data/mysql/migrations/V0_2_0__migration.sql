@@ -0,0 +1,21 @@
+/*
+ * Engine: MySQL
+ * Version: 0.2.0
+ * Description: 
+ *   Database version changes from version 0.1.0 to version 0.2.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE `IdSequence` (
+  `sequenceName` varchar(255)        NOT NULL,
+  `nextValue`    bigint(20) unsigned NOT NULL,
+  PRIMARY KEY (`sequenceName`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+/*
+ * Data
+ */
+INSERT INTO IdSequence (sequenceName, nextValue) SELECT 'Greeting', COALESCE(MAX(id), 0) + 1 FROM Greeting;
+INSERT INTO IdSequence (sequenceName, nextValue) SELECT 'Account', COALESCE(MAX(id), 0) + 1 FROM Account;
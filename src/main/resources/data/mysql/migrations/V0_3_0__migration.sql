@@ -0,0 +1,21 @@
+/*
+ * Engine: MySQL
+ * Version: 0.3.0
+ * Description: 
+ *   Database version changes from version 0.2.0 to version 0.3.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE `BatchCheckpoint` (
+  `jobName`       varchar(100)        NOT NULL,
+  `partitionId`   int(10)             NOT NULL,
+  `lowerBound`    bigint(20)          NOT NULL,
+  `upperBound`    bigint(20)          NOT NULL,
+  `lastId`        bigint(20)          NOT NULL,
+  `rowsProcessed` bigint(20) unsigned NOT NULL,
+  `completed`     tinyint(1)          NOT NULL DEFAULT 0,
+  `updatedAt`     datetime            NOT NULL,
+  PRIMARY KEY (`jobName`, `partitionId`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -0,0 +1,17 @@
+/*
+ * Engine: MySQL
+ * Version: 0.4.0
+ * Description: 
+ *   Database version changes from version 0.3.0 to version 0.4.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE `JobLock` (
+  `jobName`     varchar(100) NOT NULL,
+  `lockedBy`    varchar(255) NOT NULL,
+  `lockedAt`    datetime(3)  NOT NULL,
+  `lockedUntil` datetime(3)  NOT NULL,
+  PRIMARY KEY (`jobName`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
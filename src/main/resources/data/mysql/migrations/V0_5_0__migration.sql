@@ -0,0 +1,18 @@
+/*
+ * Engine: MySQL
+ * Version: 0.5.0
+ * Description: 
+ *   Database version changes from version 0.4.0 to version 0.5.0.
+ */
+
+/*
+ * Structure
+ */
+CREATE TABLE `OutboxEvent` (
+  `id`          bigint(20) unsigned NOT NULL auto_increment,
+  `eventType`   varchar(50)         NOT NULL,
+  `aggregateId` bigint(20) unsigned NOT NULL,
+  `payload`     varchar(2000)       NOT NULL,
+  `createdAt`   datetime(3)         NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
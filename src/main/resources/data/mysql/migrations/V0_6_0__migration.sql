@@ -0,0 +1,21 @@
+/*
+ * Engine: MySQL
+ * Version: 0.6.0
+ * Description: 
+ *   Database version changes from version 0.5.0 to version 0.6.0.
+ */
+
+/*
+ * Structure
+ */
+ALTER TABLE `Greeting` ADD COLUMN `changedAt` datetime(3) NULL;
+UPDATE `Greeting` SET `changedAt` = COALESCE(`updatedAt`, `createdAt`);
+ALTER TABLE `Greeting` MODIFY `changedAt` datetime(3) NOT NULL;
+CREATE INDEX `IX_Greeting_ChangedAt` ON `Greeting` (`changedAt`, `id`);
+
+CREATE TABLE `GreetingTombstone` (
+  `greetingId` bigint(20) unsigned NOT NULL,
+  `deletedAt`  datetime(3)         NOT NULL,
+  PRIMARY KEY (`greetingId`),
+  KEY `IX_GreetingTombstone_DeletedAt` (`deletedAt`, `greetingId`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
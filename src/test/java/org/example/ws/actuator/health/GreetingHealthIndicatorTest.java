@@ -0,0 +1,155 @@
+package org.example.ws.actuator.health;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.example.ws.datasource.DataSourceType;
+import org.example.ws.datasource.ReadWriteRoutingDataSource;
+import org.example.ws.datasource.ReplicaLagMonitor;
+import org.example.ws.service.GreetingService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.autoconfigure.jdbc.metadata.TomcatDataSourcePoolMetadata;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit test methods for the GreetingHealthIndicator.
+ *
+ * The GreetingService is a Mockito mock. The connection pools are Tomcat JDBC
+ * pools which are never connected.
+ *
+ * @author Matt Warman
+ */
+public class GreetingHealthIndicatorTest {
+
+    /**
+     * A mocked GreetingService
+     */
+    @Mock
+    private GreetingService greetingService;
+
+    @Mock
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    private org.apache.tomcat.jdbc.pool.DataSource primaryDataSource;
+
+    private GreetingHealthIndicator healthIndicator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        primaryDataSource = new org.apache.tomcat.jdbc.pool.DataSource();
+        primaryDataSource.setMaxActive(7);
+        org.apache.tomcat.jdbc.pool.DataSource replicaDataSource = new org.apache.tomcat.jdbc.pool.DataSource();
+        replicaDataSource.setMaxActive(3);
+
+        // The application DataSource of the 'replica' profile.
+        Map<Object, Object> targets = new HashMap<Object, Object>();
+        targets.put(DataSourceType.PRIMARY, primaryDataSource);
+        targets.put(DataSourceType.REPLICA, replicaDataSource);
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(
+                replicaLagMonitor);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        DataSourcePoolMetadataProvider tomcatProvider = dataSource -> dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource
+                ? new TomcatDataSourcePoolMetadata(
+                        (org.apache.tomcat.jdbc.pool.DataSource) dataSource)
+                : null;
+
+        healthIndicator = new GreetingHealthIndicator();
+        ReflectionTestUtils.setField(healthIndicator, "greetingService",
+                greetingService);
+        ReflectionTestUtils.setField(healthIndicator, "dataSource",
+                new LazyConnectionDataSourceProxy(routingDataSource));
+        ReflectionTestUtils.setField(healthIndicator, "metadataProviders",
+                Collections.singletonList(tomcatProvider));
+        ReflectionTestUtils.setField(healthIndicator, "cacheTtl", 0L);
+    }
+
+    @Test
+    public void testHealthUpWhenGreetingsExist() {
+
+        when(greetingService.exists()).thenReturn(true);
+
+        Health health = healthIndicator.health();
+
+        Assert.assertEquals("failure - expected status UP", Status.UP,
+                health.getStatus());
+        Assert.assertTrue("failure - expected probe latency",
+                health.getDetails().containsKey("latencyMillis"));
+        verify(greetingService, never()).count();
+
+    }
+
+    @Test
+    public void testHealthDownWithoutGreetings() {
+
+        when(greetingService.exists()).thenReturn(false);
+
+        Health health = healthIndicator.health();
+
+        Assert.assertEquals("failure - expected status DOWN", Status.DOWN,
+                health.getStatus());
+
+    }
+
+    @Test
+    public void testHealthDownWhenProbeFails() {
+
+        when(greetingService.exists())
+                .thenThrow(new IllegalStateException("Database down."));
+
+        Health health = healthIndicator.health();
+
+        Assert.assertEquals("failure - expected status DOWN", Status.DOWN,
+                health.getStatus());
+        Assert.assertTrue("failure - expected error detail",
+                health.getDetails().containsKey("error"));
+
+    }
+
+    @Test
+    public void testHealthDescribesPrimaryPoolBehindProxy() {
+
+        when(greetingService.exists()).thenReturn(true);
+
+        Health health = healthIndicator.health();
+
+        Assert.assertEquals("failure - expected primary pool max", 7,
+                health.getDetails().get("pool.max"));
+        Assert.assertEquals("failure - expected primary pool active", 0,
+                health.getDetails().get("pool.active"));
+
+    }
+
+    @Test
+    public void testHealthCachedForTtl() {
+
+        ReflectionTestUtils.setField(healthIndicator, "cacheTtl", 60000L);
+        when(greetingService.exists()).thenReturn(true);
+
+        Health first = healthIndicator.health();
+        Health second = healthIndicator.health();
+
+        Assert.assertSame("failure - expected cached health", first, second);
+        verify(greetingService, times(1)).exists();
+
+    }
+
+}
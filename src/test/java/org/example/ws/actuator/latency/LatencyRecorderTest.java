@@ -0,0 +1,102 @@
+package org.example.ws.actuator.latency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.NoResultException;
+
+import org.example.ws.AbstractTest;
+import org.example.ws.model.Greeting;
+import org.example.ws.service.GreetingService;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Unit test methods for the LatencyRecorder aspect and the LatencyEndpoint.
+ *
+ * @author Matt Warman
+ */
+@Transactional
+public class LatencyRecorderTest extends AbstractTest {
+
+    @Autowired
+    private GreetingService greetingService;
+
+    @Autowired
+    private LatencyEndpoint latencyEndpoint;
+
+    @Test
+    public void testServiceMethodTimed() {
+
+        long before = count("GreetingServiceBean.count");
+
+        greetingService.count();
+        greetingService.count();
+
+        Assert.assertEquals("failure - expected two calls timed", before + 2,
+                count("GreetingServiceBean.count"));
+
+    }
+
+    @Test
+    public void testFailedCallCountedAsError() {
+
+        long before = errors("GreetingServiceBean.update");
+        Greeting greeting = new Greeting();
+        greeting.setId(Long.MAX_VALUE);
+        greeting.setText("test");
+
+        try {
+            greetingService.update(greeting);
+            Assert.fail("failure - expected NoResultException");
+        } catch (NoResultException e) {
+            // The failure is recorded before it propagates.
+        }
+
+        Assert.assertEquals("failure - expected error recorded", before + 1,
+                errors("GreetingServiceBean.update"));
+
+    }
+
+    @Test
+    public void testEndpointSortedAndRepeatable() {
+
+        greetingService.count();
+
+        Map<String, Object> first = latencyEndpoint.invoke();
+        Map<String, Object> second = latencyEndpoint.invoke();
+
+        List<String> names = new ArrayList<String>(first.keySet());
+        for (int i = 1; i < names.size(); i++) {
+            Assert.assertTrue("failure - expected timers sorted by name",
+                    names.get(i - 1).compareTo(names.get(i)) < 0);
+        }
+        Assert.assertEquals("failure - expected reading resets nothing",
+                snapshot(first, "GreetingServiceBean.count").get("count"),
+                snapshot(second, "GreetingServiceBean.count").get("count"));
+
+    }
+
+    private long count(String name) {
+        return statistic(name, "count");
+    }
+
+    private long errors(String name) {
+        return statistic(name, "errors");
+    }
+
+    private long statistic(String name, String statistic) {
+        Map<String, Object> snapshot = snapshot(latencyEndpoint.invoke(), name);
+        return snapshot == null ? 0L : ((Number) snapshot.get(statistic)).longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> snapshot(Map<String, Object> latencies,
+            String name) {
+        return (Map<String, Object>) latencies.get(name);
+    }
+
+}
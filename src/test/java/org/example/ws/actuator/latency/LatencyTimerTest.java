@@ -0,0 +1,157 @@
+package org.example.ws.actuator.latency;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test methods for the LatencyTimer.
+ *
+ * @author Matt Warman
+ */
+public class LatencyTimerTest {
+
+    private static final int SLICES = 3;
+
+    @Test
+    public void testSnapshotPercentiles() {
+
+        LatencyTimer timer = new LatencyTimer("test", SLICES);
+        for (int micros = 1; micros <= 1000; micros++) {
+            timer.record(TimeUnit.MICROSECONDS.toNanos(micros), micros % 100 == 0);
+        }
+
+        Map<String, Object> snapshot = timer.snapshot();
+
+        Assert.assertEquals("failure - expected count", 1000L,
+                snapshot.get("count"));
+        Assert.assertEquals("failure - expected errors", 10L,
+                snapshot.get("errors"));
+        Assert.assertEquals("failure - expected error rate", 0.01,
+                (Double) snapshot.get("errorRate"), 0.0);
+        assertWithinOnePercent("p50", 500L, snapshot.get("p50.micros"));
+        assertWithinOnePercent("p99", 990L, snapshot.get("p99.micros"));
+        assertWithinOnePercent("max", 1000L, snapshot.get("max.micros"));
+
+    }
+
+    @Test
+    public void testSnapshotsAreCumulative() {
+
+        LatencyTimer timer = new LatencyTimer("test", SLICES);
+        timer.record(TimeUnit.MILLISECONDS.toNanos(50L), false);
+
+        Map<String, Object> first = timer.snapshot();
+        Map<String, Object> second = timer.snapshot();
+
+        // A second reader sees the latency the first reader saw.
+        Assert.assertEquals("failure - expected same count", first.get("count"),
+                second.get("count"));
+        Assert.assertEquals("failure - expected same max",
+                first.get("max.micros"), second.get("max.micros"));
+        assertWithinOnePercent("max", 50000L, second.get("max.micros"));
+
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1L), true);
+        Map<String, Object> third = timer.snapshot();
+
+        Assert.assertEquals("failure - expected accumulated count", 2L,
+                third.get("count"));
+        Assert.assertEquals("failure - expected accumulated errors", 1L,
+                third.get("errors"));
+        assertWithinOnePercent("max", 50000L, third.get("max.micros"));
+
+    }
+
+    @Test
+    public void testWindowShowsRecentRegression() {
+
+        LatencyTimer timer = new LatencyTimer("test", SLICES);
+        for (int i = 0; i < 1000; i++) {
+            timer.record(TimeUnit.MICROSECONDS.toNanos(100L), false);
+        }
+        timer.snapshot();
+        // Slide the fast calls out of the window.
+        for (int i = 0; i <= SLICES; i++) {
+            timer.rotate();
+        }
+        for (int i = 0; i < 20; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(50L), i % 2 == 0);
+        }
+
+        Map<String, Object> snapshot = timer.snapshot();
+
+        Assert.assertEquals("failure - expected cumulative count", 1020L,
+                snapshot.get("count"));
+        assertWithinOnePercent("p50", 100L, snapshot.get("p50.micros"));
+        Assert.assertEquals("failure - expected window count", 20L,
+                snapshot.get("window.count"));
+        Assert.assertEquals("failure - expected window errors", 10L,
+                snapshot.get("window.errors"));
+        Assert.assertEquals("failure - expected window error rate", 0.5,
+                (Double) snapshot.get("window.errorRate"), 0.0);
+        assertWithinOnePercent("window p50", 50000L,
+                snapshot.get("window.p50.micros"));
+        assertWithinOnePercent("window p99", 50000L,
+                snapshot.get("window.p99.micros"));
+
+    }
+
+    @Test
+    public void testWindowKeepsClosedSlices() {
+
+        LatencyTimer timer = new LatencyTimer("test", SLICES);
+        timer.record(TimeUnit.MILLISECONDS.toNanos(5L), false);
+        timer.rotate();
+        timer.record(TimeUnit.MILLISECONDS.toNanos(7L), true);
+
+        Map<String, Object> first = timer.snapshot();
+        Map<String, Object> second = timer.snapshot();
+
+        Assert.assertEquals("failure - expected both slices", 2L,
+                first.get("window.count"));
+        Assert.assertEquals("failure - expected window kept between reads",
+                first.get("window.count"), second.get("window.count"));
+        Assert.assertEquals("failure - expected window errors", 1L,
+                second.get("window.errors"));
+        assertWithinOnePercent("window max", 7000L,
+                second.get("window.max.micros"));
+
+        // Close the open slice, then replace every closed slice.
+        for (int i = 0; i <= SLICES; i++) {
+            timer.rotate();
+        }
+        Map<String, Object> third = timer.snapshot();
+
+        Assert.assertEquals("failure - expected slices slid out", 0L,
+                third.get("window.count"));
+        Assert.assertEquals("failure - expected cumulative count kept", 2L,
+                third.get("count"));
+
+    }
+
+    @Test
+    public void testRecordClampsLatency() {
+
+        LatencyTimer timer = new LatencyTimer("test", SLICES);
+        timer.record(-1L, false);
+        timer.record(TimeUnit.HOURS.toNanos(2L), false);
+
+        Map<String, Object> snapshot = timer.snapshot();
+
+        Assert.assertEquals("failure - expected count", 2L,
+                snapshot.get("count"));
+        assertWithinOnePercent("max", TimeUnit.HOURS.toMicros(1L),
+                snapshot.get("max.micros"));
+
+    }
+
+    private static void assertWithinOnePercent(String statistic, long expected,
+            Object actual) {
+        long value = ((Number) actual).longValue();
+        Assert.assertTrue("failure - expected " + statistic + " near " + expected
+                + " but was " + value, Math.abs(value - expected) <= expected / 100 + 1);
+    }
+
+}
@@ -0,0 +1,120 @@
+package org.example.ws.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit test methods for the rejection policies of the email executor built
+ * by the EmailExecutorConfiguration.
+ *
+ * The executor has one thread and a queue of one task; a blocked task and a
+ * queued task saturate it.
+ *
+ * @author Matt Warman
+ */
+public class EmailExecutorConfigurationTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private InstrumentedThreadPoolTaskExecutor executor;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCallerRunsWhenSaturated() {
+
+        executor = saturatedExecutor(RejectionPolicy.CALLER_RUNS);
+        AtomicReference<Thread> runner = new AtomicReference<Thread>();
+
+        executor.execute(() -> runner.set(Thread.currentThread()));
+
+        Assert.assertEquals("failure - expected task run by the caller",
+                Thread.currentThread(), runner.get());
+        Assert.assertEquals("failure - expected rejection counted", 1L,
+                executor.getRejectedCount());
+
+    }
+
+    @Test
+    public void testAbortWhenSaturated() {
+
+        executor = saturatedExecutor(RejectionPolicy.ABORT);
+
+        assertRejected(executor);
+
+    }
+
+    @Test
+    public void testSpillAbortsAtExecutor() {
+
+        // The submitter spills the payload it owns.
+        executor = saturatedExecutor(RejectionPolicy.SPILL);
+
+        assertRejected(executor);
+
+    }
+
+    private static void assertRejected(InstrumentedThreadPoolTaskExecutor executor) {
+        AtomicReference<Thread> runner = new AtomicReference<Thread>();
+        try {
+            executor.execute(() -> runner.set(Thread.currentThread()));
+            Assert.fail("failure - expected TaskRejectedException");
+        } catch (TaskRejectedException e) {
+            // The request is answered with 503 or spilled.
+        }
+        Assert.assertNull("failure - expected task not run", runner.get());
+        Assert.assertEquals("failure - expected rejection counted", 1L,
+                executor.getRejectedCount());
+    }
+
+    /**
+     * Builds the email executor for a policy and fills its thread and queue.
+     */
+    private InstrumentedThreadPoolTaskExecutor saturatedExecutor(
+            RejectionPolicy policy) {
+        EmailExecutorConfiguration configuration = new EmailExecutorConfiguration();
+        ReflectionTestUtils.setField(configuration, "corePoolSize", 1);
+        ReflectionTestUtils.setField(configuration, "maxPoolSize", 1);
+        ReflectionTestUtils.setField(configuration, "queueCapacity", 1);
+        ReflectionTestUtils.setField(configuration, "keepAliveSeconds", 60);
+        ReflectionTestUtils.setField(configuration, "rejectionPolicy", policy);
+
+        InstrumentedThreadPoolTaskExecutor emailExecutor = configuration
+                .emailExecutor();
+        emailExecutor.initialize();
+        CountDownLatch started = new CountDownLatch(1);
+        emailExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        emailExecutor.execute(() -> {
+        });
+        try {
+            Assert.assertTrue("failure - expected blocking task started",
+                    started.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        Assert.assertEquals("failure - expected full queue", 0,
+                emailExecutor.getQueueRemainingCapacity());
+        return emailExecutor;
+    }
+
+}
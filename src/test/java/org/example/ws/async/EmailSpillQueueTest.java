@@ -0,0 +1,237 @@
+package org.example.ws.async;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.ws.AbstractTest;
+import org.example.ws.model.Greeting;
+import org.example.ws.service.EmailService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Unit test methods for the EmailSpillQueue.
+ *
+ * The drain behavior is tested on an EmailSpillQueue whose EmailService and
+ * email executor are Mockito mocks. The scheduled drain is tested on the
+ * application EmailSpillQueue.
+ *
+ * @author Matt Warman
+ */
+@TestPropertySource(properties = {
+        "async.email.rejection-policy=SPILL",
+        "async.email.spill-directory=${java.io.tmpdir}/greeting-email-spill-test",
+        "async.email.spill-drain-interval=100" })
+public class EmailSpillQueueTest extends AbstractTest {
+
+    @Autowired
+    private EmailSpillQueue emailSpillQueue;
+
+    @Autowired
+    private EmailExecutorConfiguration emailExecutorConfiguration;
+
+    @Value("${async.email.spill-directory}")
+    private String spillDirectory;
+
+    /**
+     * A mocked EmailService
+     */
+    @Mock
+    private EmailService emailService;
+
+    /**
+     * A mocked email executor
+     */
+    @Mock
+    private InstrumentedThreadPoolTaskExecutor emailExecutor;
+
+    private Path directory;
+
+    private EmailSpillQueue queue;
+
+    @Before
+    public void setUp() throws IOException {
+        super.setUp();
+        MockitoAnnotations.initMocks(this);
+        directory = Files.createTempDirectory("email-spill");
+        queue = new EmailSpillQueue();
+        ReflectionTestUtils.setField(queue, "emailExecutorConfiguration",
+                emailExecutorConfiguration);
+        ReflectionTestUtils.setField(queue, "emailExecutor", emailExecutor);
+        ReflectionTestUtils.setField(queue, "emailService", emailService);
+        ReflectionTestUtils.setField(queue, "spillDirectory",
+                directory.toString());
+        queue.init();
+        when(emailExecutor.getQueueRemainingCapacity()).thenReturn(10);
+    }
+
+    @After
+    public void tearDown() {
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    @Test
+    public void testOfferDrainRoundTrip() throws IOException {
+
+        Greeting greeting = greeting(1L, "hello");
+
+        Assert.assertTrue("failure - expected greeting spilled",
+                queue.offer(greeting));
+        Assert.assertEquals("failure - expected one entry", 1,
+                entries(directory).size());
+
+        queue.drain();
+
+        ArgumentCaptor<Greeting> sent = ArgumentCaptor.forClass(Greeting.class);
+        verify(emailService, times(1)).sendAsync(sent.capture());
+        Assert.assertEquals("failure - expected id", greeting.getId(),
+                sent.getValue().getId());
+        Assert.assertEquals("failure - expected text", greeting.getText(),
+                sent.getValue().getText());
+        Assert.assertEquals("failure - expected referenceId",
+                greeting.getReferenceId(), sent.getValue().getReferenceId());
+        Assert.assertTrue("failure - expected entry deleted",
+                entries(directory).isEmpty());
+
+    }
+
+    @Test
+    public void testDrainOldestFirst() {
+
+        Greeting first = greeting(1L, "first");
+        Greeting second = greeting(2L, "second");
+        queue.offer(first);
+        queue.offer(second);
+
+        queue.drain();
+
+        InOrder order = inOrder(emailService);
+        order.verify(emailService).sendAsync(first);
+        order.verify(emailService).sendAsync(second);
+
+    }
+
+    @Test
+    public void testDrainStopsWithoutCapacity() throws IOException {
+
+        queue.offer(greeting(1L, "hello"));
+        when(emailExecutor.getQueueRemainingCapacity()).thenReturn(0);
+
+        queue.drain();
+
+        verify(emailService, never()).sendAsync(any(Greeting.class));
+        Assert.assertEquals("failure - expected entry kept", 1,
+                entries(directory).size());
+
+    }
+
+    @Test
+    public void testDrainKeepsRejectedEntry() throws IOException {
+
+        Greeting greeting = greeting(1L, "hello");
+        queue.offer(greeting);
+        doThrow(new TaskRejectedException("saturated")).when(emailService)
+                .sendAsync(any(Greeting.class));
+
+        queue.drain();
+
+        Assert.assertEquals("failure - expected entry kept", 1,
+                entries(directory).size());
+
+    }
+
+    @Test
+    public void testDrainQuarantinesUnreadableEntry() throws IOException {
+
+        Files.write(directory.resolve("0000000000000000000-0000000000000000001.spill"),
+                new byte[] { 1, 2, 3 });
+        Greeting greeting = greeting(2L, "hello");
+        queue.offer(greeting);
+
+        queue.drain();
+
+        verify(emailService, times(1)).sendAsync(greeting);
+        Assert.assertTrue("failure - expected entries drained",
+                entries(directory).isEmpty());
+        Assert.assertTrue("failure - expected entry quarantined",
+                Files.exists(directory.resolve(
+                        "0000000000000000000-0000000000000000001.spill.failed")));
+
+    }
+
+    @Test
+    public void testOfferRefusedWithoutSpillPolicy() {
+
+        EmailExecutorConfiguration abort = new EmailExecutorConfiguration();
+        ReflectionTestUtils.setField(abort, "rejectionPolicy",
+                RejectionPolicy.ABORT);
+        ReflectionTestUtils.setField(queue, "emailExecutorConfiguration", abort);
+
+        Assert.assertFalse("failure - expected greeting not spilled",
+                queue.offer(greeting(1L, "hello")));
+
+    }
+
+    @Test
+    public void testScheduledDrainResubmits() throws Exception {
+
+        Path applicationDirectory = Paths.get(spillDirectory);
+        Assert.assertTrue("failure - expected greeting spilled",
+                emailSpillQueue.offer(greeting(1L, "hello")));
+
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!entries(applicationDirectory).isEmpty()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+
+        Assert.assertTrue("failure - expected entry drained",
+                entries(applicationDirectory).isEmpty());
+
+    }
+
+    private static Greeting greeting(Long id, String text) {
+        Greeting greeting = new Greeting();
+        greeting.setId(id);
+        greeting.setText(text);
+        greeting.setReferenceId("reference-" + id);
+        return greeting;
+    }
+
+    private static List<Path> entries(Path directory) throws IOException {
+        List<Path> entries = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                "*.spill")) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+}
@@ -0,0 +1,235 @@
+package org.example.ws.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.example.ws.AbstractTest;
+import org.example.ws.model.Greeting;
+import org.example.ws.repository.GreetingRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit test methods for the GreetingBatchEngine.
+ *
+ * @author Matt Warman
+ */
+@ActiveProfiles("batch")
+@TestPropertySource(properties = {
+        "batch.greeting.cron=0 0 0 1 1 *",
+        "batch.partitions=2",
+        "batch.chunk-size=2" })
+public class GreetingBatchEngineTest extends AbstractTest {
+
+    private static final String JOB = "greetingEngineTest";
+
+    @Autowired
+    private GreetingBatchEngine engine;
+
+    @Autowired
+    private BatchCheckpointStore checkpointStore;
+
+    @Autowired
+    private GreetingRepository greetingRepository;
+
+    private Set<Long> allIds;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        checkpointStore.deleteByJobName(JOB);
+        allIds = new HashSet<Long>();
+        for (Greeting greeting : greetingRepository.findAll()) {
+            allIds.add(greeting.getId());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        checkpointStore.deleteByJobName(JOB);
+    }
+
+    @Test
+    public void testRunProcessesAllGreetingsInKeysetChunks() {
+
+        RecordingProcessor processor = new RecordingProcessor(null);
+
+        long rows = engine.run(JOB, processor);
+
+        Assert.assertEquals("failure - expected rows", allIds.size(), rows);
+        Assert.assertEquals("failure - expected every greeting once", allIds,
+                processor.ids());
+        Assert.assertEquals("failure - expected no duplicates", rows,
+                processor.count());
+        for (List<Long> chunk : processor.chunks) {
+            Assert.assertTrue("failure - expected chunk size",
+                    chunk.size() <= 2);
+            for (int i = 1; i < chunk.size(); i++) {
+                Assert.assertTrue("failure - expected ascending ids",
+                        chunk.get(i) > chunk.get(i - 1));
+            }
+        }
+        Assert.assertTrue("failure - expected checkpoints removed",
+                checkpointStore.findByJobName(JOB).isEmpty());
+
+    }
+
+    @Test
+    public void testRunFansOutPartitions() {
+
+        RecordingProcessor processor = new RecordingProcessor(
+                Collections.max(allIds));
+
+        try {
+            engine.run(JOB, processor);
+            Assert.fail("failure - expected BatchJobException");
+        } catch (BatchJobException e) {
+            // The failed job keeps its checkpoints.
+        }
+
+        List<BatchCheckpoint> checkpoints = checkpointStore.findByJobName(JOB);
+
+        Assert.assertEquals("failure - expected partitions", 2,
+                checkpoints.size());
+        Assert.assertEquals("failure - expected lower bound",
+                Collections.min(allIds).longValue(),
+                checkpoints.get(0).getLowerBound());
+        Assert.assertEquals("failure - expected contiguous partitions",
+                checkpoints.get(0).getUpperBound() + 1,
+                checkpoints.get(1).getLowerBound());
+        Assert.assertEquals("failure - expected upper bound",
+                Collections.max(allIds).longValue(),
+                checkpoints.get(1).getUpperBound());
+        for (String thread : processor.threads) {
+            Assert.assertTrue("failure - expected batch worker thread",
+                    thread.startsWith("batch-"));
+        }
+
+    }
+
+    @Test
+    public void testRunResumesFromCheckpointsAfterFailure() {
+
+        Long failingId = Collections.max(allIds);
+        RecordingProcessor failing = new RecordingProcessor(failingId);
+
+        try {
+            engine.run(JOB, failing);
+            Assert.fail("failure - expected BatchJobException");
+        } catch (BatchJobException e) {
+            // The next run resumes from the checkpoints.
+        }
+
+        Set<Long> firstRun = failing.ids();
+        Assert.assertFalse("failure - expected failed chunk not recorded",
+                firstRun.contains(failingId));
+
+        RecordingProcessor resumed = new RecordingProcessor(null);
+        long rows = engine.run(JOB, resumed);
+
+        Set<Long> secondRun = resumed.ids();
+        Assert.assertTrue("failure - expected failed chunk processed again",
+                secondRun.contains(failingId));
+        Assert.assertEquals("failure - expected rows", secondRun.size(), rows);
+        for (Long id : secondRun) {
+            Assert.assertFalse("failure - expected recorded chunk skipped",
+                    firstRun.contains(id));
+        }
+        Set<Long> processed = new HashSet<Long>(firstRun);
+        processed.addAll(secondRun);
+        Assert.assertEquals("failure - expected every greeting", allIds,
+                processed);
+        Assert.assertTrue("failure - expected checkpoints removed",
+                checkpointStore.findByJobName(JOB).isEmpty());
+
+    }
+
+    @Test
+    public void testRunProcessesChunksInTransactionsWithDetachedEntities() {
+
+        final Set<Boolean> inTransaction = Collections
+                .synchronizedSet(new HashSet<Boolean>());
+        final Long changedId = Collections.min(allIds);
+        final String text = greetingRepository.findOne(changedId).getText();
+
+        engine.run(JOB, chunk -> {
+            inTransaction.add(TransactionSynchronizationManager
+                    .isActualTransactionActive()
+                    && !TransactionSynchronizationManager
+                            .isCurrentTransactionReadOnly());
+            for (Greeting greeting : chunk) {
+                greeting.setText("changed by the batch processor");
+            }
+        });
+
+        Assert.assertEquals("failure - expected read-write chunk transactions",
+                Collections.singleton(Boolean.TRUE), inTransaction);
+        Assert.assertEquals("failure - expected greeting unchanged", text,
+                greetingRepository.findOne(changedId).getText());
+
+    }
+
+    /**
+     * Records the ids of the chunks it completes and the threads it runs on.
+     * Fails every chunk holding the failing id.
+     */
+    private static class RecordingProcessor
+            implements ChunkProcessor<Greeting> {
+
+        private final Long failingId;
+
+        private final List<List<Long>> chunks = Collections
+                .synchronizedList(new ArrayList<List<Long>>());
+
+        private final Set<String> threads = Collections
+                .synchronizedSet(new HashSet<String>());
+
+        RecordingProcessor(Long failingId) {
+            this.failingId = failingId;
+        }
+
+        @Override
+        public void process(List<Greeting> chunk) {
+            threads.add(Thread.currentThread().getName());
+            List<Long> ids = new ArrayList<Long>(chunk.size());
+            for (Greeting greeting : chunk) {
+                if (greeting.getId().equals(failingId)) {
+                    throw new IllegalStateException("Chunk failed.");
+                }
+                ids.add(greeting.getId());
+            }
+            chunks.add(ids);
+        }
+
+        Set<Long> ids() {
+            Set<Long> ids = new HashSet<Long>();
+            synchronized (chunks) {
+                for (List<Long> chunk : chunks) {
+                    ids.addAll(chunk);
+                }
+            }
+            return ids;
+        }
+
+        long count() {
+            long count = 0;
+            synchronized (chunks) {
+                for (List<Long> chunk : chunks) {
+                    count += chunk.size();
+                }
+            }
+            return count;
+        }
+
+    }
+
+}
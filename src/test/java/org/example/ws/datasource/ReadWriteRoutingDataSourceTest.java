@@ -0,0 +1,127 @@
+package org.example.ws.datasource;
+
+import static org.mockito.Mockito.when;
+
+import org.example.ws.AbstractTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Unit test methods for the ReadWriteRoutingDataSource.
+ *
+ * The routing decision is read inside transactions demarcated by the
+ * application transaction manager. The ReplicaLagMonitor is a Mockito mock.
+ *
+ * @author Matt Warman
+ */
+public class ReadWriteRoutingDataSourceTest extends AbstractTest {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * A mocked ReplicaLagMonitor
+     */
+    @Mock
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        MockitoAnnotations.initMocks(this);
+        routingDataSource = new ReadWriteRoutingDataSource(replicaLagMonitor);
+    }
+
+    @Test
+    public void testReadWriteTransactionRoutesToPrimary() {
+
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+
+        Object key = route(TransactionDefinition.PROPAGATION_REQUIRED, false);
+
+        Assert.assertEquals("failure - expected primary",
+                DataSourceType.PRIMARY, key);
+        Assert.assertEquals("failure - expected primary route", 1L,
+                metric("datasource.routing.primary"));
+
+    }
+
+    @Test
+    public void testReadOnlyTransactionRoutesToReplica() {
+
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+
+        Object key = route(TransactionDefinition.PROPAGATION_REQUIRED, true);
+
+        Assert.assertEquals("failure - expected replica",
+                DataSourceType.REPLICA, key);
+        Assert.assertEquals("failure - expected replica route", 1L,
+                metric("datasource.routing.replica"));
+
+    }
+
+    @Test
+    public void testReadOnlyTransactionFallsBackToPrimary() {
+
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(false);
+
+        Object key = route(TransactionDefinition.PROPAGATION_REQUIRED, true);
+
+        Assert.assertEquals("failure - expected primary",
+                DataSourceType.PRIMARY, key);
+        Assert.assertEquals("failure - expected fallback route", 1L,
+                metric("datasource.routing.fallback"));
+        Assert.assertEquals("failure - expected no replica route", 0L,
+                metric("datasource.routing.replica"));
+
+    }
+
+    @Test
+    public void testReadOnlyStoreCallInReadWriteScopeRoutesToPrimary() {
+
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+
+        // The cache-feeding service reads declare SUPPORTS and read-write
+        // around the read-only GreetingStore methods.
+        TransactionTemplate outer = template(
+                TransactionDefinition.PROPAGATION_SUPPORTS, false);
+        Object key = outer.execute(status -> route(
+                TransactionDefinition.PROPAGATION_SUPPORTS, true));
+
+        Assert.assertEquals("failure - expected primary",
+                DataSourceType.PRIMARY, key);
+
+    }
+
+    private Object route(int propagation, boolean readOnly) {
+        return template(propagation, readOnly)
+                .execute(status -> routingDataSource.determineCurrentLookupKey());
+    }
+
+    private TransactionTemplate template(int propagation, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(propagation);
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private long metric(String name) {
+        for (Metric<?> metric : routingDataSource.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+}
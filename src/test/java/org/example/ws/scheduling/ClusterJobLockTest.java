@@ -0,0 +1,214 @@
+package org.example.ws.scheduling;
+
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.example.ws.AbstractTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Unit test methods for the ClusterJobLock.
+ *
+ * Another application instance is simulated by writing its lease to the
+ * JobLock table directly.
+ *
+ * @author Matt Warman
+ */
+@TestPropertySource(properties = {
+        "scheduling.lock.lease-millis=300",
+        "scheduling.lock.at-least-millis=1000" })
+public class ClusterJobLockTest extends AbstractTest {
+
+    private static final String JOB = "clusterJobLockTest";
+
+    private static final String OTHER_INSTANCE = "other-instance";
+
+    /**
+     * Numbers the job of each test, as the metrics of a job accumulate.
+     */
+    private static final AtomicInteger TESTS = new AtomicInteger();
+
+    private String job;
+
+    @Autowired
+    private ClusterJobLock clusterJobLock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        job = JOB + TESTS.incrementAndGet();
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM JobLock WHERE jobName = ?", job);
+    }
+
+    @Test
+    public void testRunExclusivelyAcquiresLease() {
+
+        AtomicInteger runs = new AtomicInteger();
+        AtomicBoolean heldWhileRunning = new AtomicBoolean();
+
+        boolean ran = clusterJobLock.runExclusively(job, () -> {
+            runs.incrementAndGet();
+            heldWhileRunning.set(lockedUntil() > System.currentTimeMillis());
+        });
+
+        Assert.assertTrue("failure - expected job run", ran);
+        Assert.assertEquals("failure - expected one run", 1, runs.get());
+        Assert.assertTrue("failure - expected lease held while running",
+                heldWhileRunning.get());
+        Assert.assertEquals("failure - expected runs metric", 1L,
+                metric("runs"));
+
+    }
+
+    @Test
+    public void testRunExclusivelySkipsLeaseOfOtherInstance() {
+
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update(
+                "INSERT INTO JobLock (jobName, lockedBy, lockedAt, lockedUntil) VALUES (?, ?, ?, ?)",
+                job, OTHER_INSTANCE, new Timestamp(now),
+                new Timestamp(now + 60000L));
+        AtomicInteger runs = new AtomicInteger();
+
+        boolean ran = clusterJobLock.runExclusively(job,
+                () -> runs.incrementAndGet());
+
+        Assert.assertFalse("failure - expected job skipped", ran);
+        Assert.assertEquals("failure - expected no run", 0, runs.get());
+        Assert.assertEquals("failure - expected skipped metric", 1L,
+                metric("skipped"));
+        Assert.assertEquals("failure - expected lease kept by other instance",
+                OTHER_INSTANCE, lockedBy());
+
+    }
+
+    @Test
+    public void testRunExclusivelyTakesOverExpiredLease() {
+
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update(
+                "INSERT INTO JobLock (jobName, lockedBy, lockedAt, lockedUntil) VALUES (?, ?, ?, ?)",
+                job, OTHER_INSTANCE, new Timestamp(now - 60000L),
+                new Timestamp(now - 1L));
+
+        boolean ran = clusterJobLock.runExclusively(job, () -> {
+        });
+
+        Assert.assertTrue("failure - expected job run", ran);
+        Assert.assertNotEquals("failure - expected lease taken over",
+                OTHER_INSTANCE, lockedBy());
+
+    }
+
+    @Test
+    public void testReleaseKeepsLeaseAtLeastMinimum() {
+
+        long start = System.currentTimeMillis();
+        clusterJobLock.runExclusively(job, () -> {
+        });
+
+        Assert.assertTrue("failure - expected lease kept after release",
+                lockedUntil() >= start + 1000L);
+
+        AtomicInteger runs = new AtomicInteger();
+        boolean ran = clusterJobLock.runExclusively(job,
+                () -> runs.incrementAndGet());
+
+        Assert.assertFalse("failure - expected same tick skipped", ran);
+        Assert.assertEquals("failure - expected no second run", 0, runs.get());
+
+    }
+
+    @Test
+    public void testRenewalExtendsLease() {
+
+        AtomicBoolean heldAfterLease = new AtomicBoolean();
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        clusterJobLock.runExclusively(job, () -> {
+            try {
+                // Outlive the 300 ms lease twice over.
+                Thread.sleep(700L);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                return;
+            }
+            heldAfterLease.set(lockedUntil() > System.currentTimeMillis());
+        });
+
+        Assert.assertFalse("failure - expected job not interrupted",
+                interrupted.get());
+        Assert.assertTrue("failure - expected lease renewed",
+                heldAfterLease.get());
+        Assert.assertEquals("failure - expected no lost lease", 0L,
+                metric("lost"));
+
+    }
+
+    @Test
+    public void testLostLeaseInterruptsJob() {
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        boolean ran = clusterJobLock.runExclusively(job, () -> {
+            // Another instance takes over the lease.
+            jdbcTemplate.update(
+                    "UPDATE JobLock SET lockedBy = ? WHERE jobName = ?",
+                    OTHER_INSTANCE, job);
+            try {
+                Thread.sleep(5000L);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+
+        Assert.assertTrue("failure - expected job run", ran);
+        Assert.assertTrue("failure - expected job interrupted",
+                interrupted.get());
+        Assert.assertFalse("failure - expected interrupt cleared",
+                Thread.currentThread().isInterrupted());
+        Assert.assertEquals("failure - expected lost lease", 1L,
+                metric("lost"));
+        Assert.assertEquals("failure - expected lease kept by other instance",
+                OTHER_INSTANCE, lockedBy());
+
+    }
+
+    private long lockedUntil() {
+        return jdbcTemplate.queryForObject(
+                "SELECT lockedUntil FROM JobLock WHERE jobName = ?",
+                Timestamp.class, job).getTime();
+    }
+
+    private String lockedBy() {
+        return jdbcTemplate.queryForObject(
+                "SELECT lockedBy FROM JobLock WHERE jobName = ?",
+                String.class, job);
+    }
+
+    private long metric(String name) {
+        String metricName = "joblock." + job + "." + name;
+        for (Metric<?> metric : clusterJobLock.metrics()) {
+            if (metric.getName().equals(metricName)) {
+                return metric.getValue().longValue();
+            }
+        }
+        return 0L;
+    }
+
+}
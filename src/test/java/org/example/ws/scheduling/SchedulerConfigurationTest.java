@@ -0,0 +1,68 @@
+package org.example.ws.scheduling;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.example.ws.AbstractTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Unit test methods for the SchedulerConfiguration.
+ *
+ * @author Matt Warman
+ */
+public class SchedulerConfigurationTest extends AbstractTest {
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+    }
+
+    @Test
+    public void testSchedulerIsPooled() {
+
+        Assert.assertEquals("failure - expected configured pool size", 5,
+                taskScheduler.getScheduledThreadPoolExecutor()
+                        .getCorePoolSize());
+        Assert.assertEquals("failure - expected thread name prefix",
+                "scheduler-", taskScheduler.getThreadNamePrefix());
+
+    }
+
+    @Test
+    public void testBlockedJobDoesNotHoldOtherJobs()
+            throws InterruptedException {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        taskScheduler.execute(() -> {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            Assert.assertTrue("failure - expected long job started",
+                    blocked.await(5, TimeUnit.SECONDS));
+            taskScheduler.execute(() -> ran.countDown());
+
+            Assert.assertTrue("failure - expected other job run meanwhile",
+                    ran.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+
+    }
+
+}
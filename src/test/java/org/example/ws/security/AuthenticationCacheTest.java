@@ -0,0 +1,162 @@
+package org.example.ws.security;
+
+import java.util.Collections;
+
+import org.example.ws.AbstractTest;
+import org.example.ws.model.Account;
+import org.example.ws.repository.AccountRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Unit test methods for the AuthenticationCache.
+ *
+ * @author Matt Warman
+ */
+public class AuthenticationCacheTest extends AbstractTest {
+
+    private static final String USERNAME = "user";
+
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserDetails userDetails;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        authenticationCache.invalidateAll();
+        userDetails = new User(USERNAME, "{bcrypt}", Collections
+                .singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    @After
+    public void tearDown() {
+        authenticationCache.invalidateAll();
+    }
+
+    @Test
+    public void testGetVerifiedCredentials() {
+
+        long hits = metric("cache.authentication.hit");
+
+        authenticationCache.put(userDetails, PASSWORD);
+        UserDetails cached = authenticationCache.get(USERNAME, PASSWORD);
+
+        Assert.assertNotNull("failure - expected cached user", cached);
+        Assert.assertTrue("failure - expected verified user",
+                authenticationCache.isVerified(cached));
+        Assert.assertFalse("failure - expected loaded user not verified",
+                authenticationCache.isVerified(userDetails));
+        Assert.assertEquals("failure - expected username", USERNAME,
+                cached.getUsername());
+        Assert.assertEquals("failure - expected authorities",
+                userDetails.getAuthorities(), cached.getAuthorities());
+        Assert.assertEquals("failure - expected cache hit", hits + 1,
+                metric("cache.authentication.hit"));
+
+    }
+
+    @Test
+    public void testGetOtherCredentialsMisses() {
+
+        authenticationCache.put(userDetails, PASSWORD);
+
+        Assert.assertNull("failure - expected wrong password missed",
+                authenticationCache.get(USERNAME, "wrong"));
+        Assert.assertNull("failure - expected other username missed",
+                authenticationCache.get("operations", PASSWORD));
+        Assert.assertNull("failure - expected non-String credentials missed",
+                authenticationCache.get(USERNAME, PASSWORD.toCharArray()));
+
+    }
+
+    @Test
+    public void testDigestKeysUsernameAndPasswordApart() {
+
+        String digest = digest(authenticationCache, "user", "password");
+
+        Assert.assertEquals("failure - expected stable digest", digest,
+                digest(authenticationCache, "user", "password"));
+        Assert.assertNotEquals("failure - expected separated fields", digest,
+                digest(authenticationCache, "userp", "assword"));
+        Assert.assertFalse("failure - expected no clear text password",
+                digest.contains("password"));
+
+    }
+
+    @Test
+    public void testDigestKeyedPerInstance() {
+
+        AuthenticationCache other = new AuthenticationCache();
+        ReflectionTestUtils.setField(other, "maximumSize", 10L);
+        ReflectionTestUtils.setField(other, "ttlSeconds", 60L);
+        other.init();
+
+        Assert.assertNotEquals("failure - expected random HMAC key",
+                digest(authenticationCache, USERNAME, PASSWORD),
+                digest(other, USERNAME, PASSWORD));
+
+    }
+
+    @Test
+    public void testAccountChangeInvalidates() {
+
+        authenticationCache.put(userDetails, PASSWORD);
+        Assert.assertNotNull("failure - expected cached user",
+                authenticationCache.get(USERNAME, PASSWORD));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                transactionManager);
+        String password = transactionTemplate.execute(status -> {
+            Account account = accountRepository.findByUsername(USERNAME);
+            String original = account.getPassword();
+            account.setPassword(original + "-changed");
+            return original;
+        });
+        try {
+            Assert.assertNull("failure - expected cache cleared after commit",
+                    authenticationCache.get(USERNAME, PASSWORD));
+        } finally {
+            transactionTemplate.execute(status -> {
+                accountRepository.findByUsername(USERNAME).setPassword(password);
+                return null;
+            });
+        }
+
+    }
+
+    private static String digest(AuthenticationCache cache, String username,
+            String password) {
+        return ReflectionTestUtils.invokeMethod(cache, "digest", username,
+                password);
+    }
+
+    private long metric(String name) {
+        for (Metric<?> metric : authenticationCache.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.example.ws.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.NoResultException;
+
+import org.example.ws.AbstractTest;
+import org.example.ws.model.Greeting;
+import org.example.ws.repository.GreetingStore;
+import org.example.ws.repository.document.InMemoryGreetingDocumentStore;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Unit test methods for the GreetingServiceBean, run against the embedded
+ * in-memory document store.
+ *
+ * @author Matt Warman
+ */
+@ActiveProfiles("mongodb")
+@TestPropertySource(properties = {
+        "greeting.document-store.type=memory",
+        "search.index.directory=${java.io.tmpdir}/greeting-index-document-test" })
+public class DocumentGreetingServiceTest extends AbstractTest {
+
+    @Autowired
+    private GreetingService service;
+
+    @Autowired
+    private GreetingStore store;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        service.evictCache();
+    }
+
+    @Test
+    public void testDocumentStoreActive() {
+
+        Assert.assertTrue("failure - expected document store",
+                store instanceof InMemoryGreetingDocumentStore);
+
+    }
+
+    @Test
+    public void testCreateUpdateDelete() {
+
+        Greeting entity = new Greeting();
+        entity.setText("document");
+
+        Greeting created = service.create(entity);
+
+        Assert.assertNotNull("failure - expected id", created.getId());
+        Assert.assertEquals("failure - expected version", Integer.valueOf(0),
+                created.getVersion());
+        Assert.assertNotNull("failure - expected referenceId",
+                created.getReferenceId());
+
+        Greeting change = new Greeting();
+        change.setId(created.getId());
+        change.setText("document updated");
+
+        Assert.assertFalse("failure - expected stale version rejected",
+                service.updateIfVersion(change, 5));
+
+        Greeting updated = service.update(change);
+
+        Assert.assertEquals("failure - expected text", "document updated",
+                updated.getText());
+        Assert.assertEquals("failure - expected version", Integer.valueOf(1),
+                updated.getVersion());
+        Assert.assertEquals("failure - expected stored text",
+                "document updated", service.findOne(created.getId()).getText());
+
+        Assert.assertTrue("failure - expected deleted",
+                service.deleteIfVersion(created.getId(), 1));
+        Assert.assertNull("failure - expected null",
+                service.findOne(created.getId()));
+
+    }
+
+    @Test(expected = NoResultException.class)
+    public void testUpdateNotFound() {
+
+        Greeting entity = new Greeting();
+        entity.setId(Long.MAX_VALUE);
+        entity.setText("test");
+
+        service.update(entity);
+
+    }
+
+    @Test
+    public void testCreateAll() {
+
+        long count = service.count();
+        List<Greeting> greetings = new ArrayList<Greeting>();
+        for (int i = 0; i < 3; i++) {
+            Greeting greeting = new Greeting();
+            greeting.setText("bulk " + i);
+            greetings.add(greeting);
+        }
+
+        Collection<Greeting> created = service.createAll(greetings);
+
+        Assert.assertEquals("failure - expected size", 3, created.size());
+        Assert.assertEquals("failure - expected count", count + 3,
+                service.count());
+        Assert.assertEquals("failure - expected page", 3, service.findPage(
+                created.iterator().next().getId() - 1, 10).size());
+
+    }
+
+}
@@ -1,18 +1,39 @@
 package org.example.ws.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.persistence.EntityExistsException;
 import javax.persistence.NoResultException;
 
 import org.example.ws.AbstractTest;
+import org.example.ws.model.ChangeCursor;
 import org.example.ws.model.Greeting;
+import org.example.ws.model.GreetingChange;
+import org.example.ws.model.GreetingChanges;
+import org.example.ws.outbox.GreetingOutbox;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
 
 /**
  * Unit test methods for the GreetingService and GreetingServiceBean.
@@ -20,11 +41,23 @@ import org.springframework.transaction.annotation.Transactional;
  * @author Matt Warman
  */
 @Transactional
+@TestPropertySource(properties = {
+        "greeting.changes.settle-millis=0",
+        "greeting.bulk.chunk-size=2" })
 public class GreetingServiceTest extends AbstractTest {
 
     @Autowired
     private GreetingService service;
 
+    @Autowired
+    private GreetingOutbox outbox;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Before
     public void setUp() {
         super.setUp();
@@ -46,6 +79,153 @@ public class GreetingServiceTest extends AbstractTest {
 
     }
 
+    @Test
+    public void testFindAllCachedUntilWrite() {
+
+        Collection<Greeting> first = service.findAll();
+        Collection<Greeting> second = service.findAll();
+
+        Assert.assertSame("failure - expected cached list", first, second);
+
+        Greeting entity = new Greeting();
+        entity.setText("test");
+        service.create(entity);
+
+        Collection<Greeting> third = service.findAll();
+
+        Assert.assertNotSame("failure - expected fresh list", first, third);
+        Assert.assertEquals("failure - expected size", 6, third.size());
+
+    }
+
+    @Test
+    public void testWriteClearsListCache() {
+
+        service.findAll();
+        service.findPage(null, 3);
+        Cache<?, ?> greetingLists = (Cache<?, ?>) cacheManager
+                .getCache("greetingLists").getNativeCache();
+
+        Assert.assertEquals("failure - expected cached listings", 2,
+                greetingLists.asMap().size());
+
+        Greeting entity = new Greeting();
+        entity.setText("test");
+        service.create(entity);
+
+        Assert.assertTrue("failure - expected listings cleared",
+                greetingLists.asMap().isEmpty());
+
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testListingOfOlderGenerationNotServed() {
+
+        String version = service.findAllVersion();
+        org.springframework.cache.Cache greetingLists = cacheManager
+                .getCache("greetingLists");
+        CachedListing loadedBeforeWrite = (CachedListing) greetingLists
+                .get("version").get();
+
+        // A write completes; it is rolled back so that the data stays put.
+        TransactionTemplate template = new TransactionTemplate(
+                transactionManager);
+        template.execute(status -> {
+            Greeting entity = new Greeting();
+            entity.setText("test");
+            service.create(entity);
+            status.setRollbackOnly();
+            return null;
+        });
+        // A reader which loaded before the write completed stores its entry
+        // late.
+        greetingLists.put("version", new CachedListing(
+                loadedBeforeWrite.getGeneration(), "stale"));
+
+        Assert.assertEquals("failure - expected reloaded watermark", version,
+                service.findAllVersion());
+
+    }
+
+    @Test
+    public void testWritingTransactionBypassesListCache() {
+
+        service.findAll();
+
+        Greeting entity = new Greeting();
+        entity.setText("test");
+        service.create(entity);
+
+        Collection<Greeting> greetings = service.findAll();
+        Cache<?, ?> greetingLists = (Cache<?, ?>) cacheManager
+                .getCache("greetingLists").getNativeCache();
+
+        Assert.assertEquals("failure - expected own write", 6, greetings.size());
+        Assert.assertTrue("failure - expected uncommitted listing not cached",
+                greetingLists.asMap().isEmpty());
+
+    }
+
+    @Test
+    public void testCount() {
+
+        long count = service.count();
+
+        Assert.assertEquals("failure - expected count", 5, count);
+
+    }
+
+    @Test
+    public void testFindPage() {
+
+        Collection<Greeting> firstPage = service.findPage(null, 3);
+
+        Assert.assertNotNull("failure - expected not null", firstPage);
+        Assert.assertEquals("failure - expected page size", 3, firstPage.size());
+
+        Long lastId = null;
+        for (Greeting greeting : firstPage) {
+            if (lastId != null) {
+                Assert.assertTrue("failure - expected ascending ids",
+                        greeting.getId() > lastId);
+            }
+            lastId = greeting.getId();
+        }
+
+        Collection<Greeting> secondPage = service.findPage(lastId, 3);
+
+        Assert.assertEquals("failure - expected remaining page size", 2,
+                secondPage.size());
+        for (Greeting greeting : secondPage) {
+            Assert.assertTrue("failure - expected ids after cursor",
+                    greeting.getId() > lastId);
+        }
+
+    }
+
+    @Test
+    public void testStreamAll() {
+
+        final List<Greeting> streamed = new ArrayList<Greeting>();
+
+        service.streamAll(streamed::add);
+
+        Assert.assertEquals("failure - expected streamed size", 5,
+                streamed.size());
+
+    }
+
+    @Test
+    public void testSearch() {
+
+        List<Greeting> list = service.search("world OR mundo", 10);
+
+        Assert.assertNotNull("failure - expected not null", list);
+        Assert.assertEquals("failure - expected list size", 2, list.size());
+
+    }
+
     @Test
     public void testFindOne() {
 
@@ -59,6 +239,82 @@ public class GreetingServiceTest extends AbstractTest {
 
     }
 
+    @Test
+    public void testFindOneConcurrentMissesShareLoad() throws Exception {
+
+        final int threads = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        Callable<Greeting> lookup = () -> {
+            barrier.await();
+            return service.findOne(new Long(1));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Greeting> found = new ArrayList<Greeting>();
+        try {
+            List<Future<Greeting>> lookups = new ArrayList<Future<Greeting>>();
+            for (int i = 0; i < threads; i++) {
+                lookups.add(executor.submit(lookup));
+            }
+            for (Future<Greeting> greeting : lookups) {
+                found.add(greeting.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Greeting greeting : found) {
+            Assert.assertSame("failure - expected one shared load",
+                    found.get(0), greeting);
+        }
+
+    }
+
+    @Test
+    public void testFindByIds() {
+
+        Greeting cached = service.findOne(new Long(2));
+
+        List<Greeting> list = service.findByIds(Arrays.asList(3L, 2L,
+                Long.MAX_VALUE, 3L, 1L));
+
+        Assert.assertEquals("failure - expected list size", 3, list.size());
+        Assert.assertEquals("failure - expected id order", new Long(3),
+                list.get(0).getId());
+        Assert.assertSame("failure - expected cached entity", cached,
+                list.get(1));
+        Assert.assertEquals("failure - expected id order", new Long(1),
+                list.get(2).getId());
+        Assert.assertSame("failure - expected entity added to cache",
+                list.get(0), service.findOne(new Long(3)));
+
+    }
+
+    @Test
+    public void testFindByIdsKeepsGreetingCachedDuringLoad() {
+
+        org.springframework.cache.Cache greetings = cacheManager.getCache("greetings");
+        greetings.evict(new Long(1));
+        Greeting loaded = new Greeting();
+        loaded.setId(new Long(1));
+        loaded.setText("loaded");
+        Greeting newer = new Greeting();
+        newer.setId(new Long(1));
+        newer.setText("newer");
+
+        List<Greeting> list = BulkCacheLookup.findByIds(greetings,
+                Arrays.asList(1L), ids -> {
+                    // A concurrent update caches its Greeting mid-load.
+                    greetings.put(new Long(1), newer);
+                    return Arrays.asList(loaded);
+                });
+
+        Assert.assertSame("failure - expected concurrently cached entity",
+                newer, list.get(0));
+        Assert.assertSame("failure - expected cache entry kept", newer,
+                greetings.get(new Long(1)).get());
+
+    }
+
     @Test
     public void testFindOneNotFound() {
 
@@ -83,6 +339,8 @@ public class GreetingServiceTest extends AbstractTest {
                 createdEntity.getId());
         Assert.assertEquals("failure - expected text attribute match", "test",
                 createdEntity.getText());
+        Assert.assertNotNull("failure - expected referenceId attribute not null",
+                createdEntity.getReferenceId());
 
         Collection<Greeting> list = service.findAll();
 
@@ -90,6 +348,78 @@ public class GreetingServiceTest extends AbstractTest {
 
     }
 
+    @Test
+    public void testCreateAppendsOutboxEvent() {
+
+        long pending = outbox.count();
+
+        Greeting entity = new Greeting();
+        entity.setText("test");
+
+        service.create(entity);
+
+        Assert.assertEquals("failure - expected outbox event", pending + 1,
+                outbox.count());
+
+    }
+
+    @Test
+    public void testCreateAll() {
+
+        List<Greeting> entities = new ArrayList<Greeting>();
+        for (int i = 0; i < 3; i++) {
+            Greeting entity = new Greeting();
+            entity.setText("test " + i);
+            entities.add(entity);
+        }
+
+        Collection<Greeting> createdEntities = service.createAll(entities);
+
+        Assert.assertNotNull("failure - expected not null", createdEntities);
+        Assert.assertEquals("failure - expected size", 3,
+                createdEntities.size());
+        for (Greeting createdEntity : createdEntities) {
+            Assert.assertNotNull("failure - expected id attribute not null",
+                    createdEntity.getId());
+        }
+
+        Collection<Greeting> list = service.findAll();
+
+        Assert.assertEquals("failure - expected size", 8, list.size());
+
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testCreateAllRollsBackEarlierChunks() {
+
+        long count = service.count();
+        long events = outbox.count();
+
+        // The last of three chunks fails: the text column holds 100 chars.
+        List<Greeting> entities = new ArrayList<Greeting>();
+        for (int i = 0; i < 5; i++) {
+            Greeting entity = new Greeting();
+            entity.setText(i < 4 ? "test " + i : new String(new char[101]).replace('\0', 'x'));
+            entities.add(entity);
+        }
+
+        Exception exception = null;
+        try {
+            service.createAll(entities);
+        } catch (RuntimeException e) {
+            exception = e;
+        }
+
+        Assert.assertNotNull("failure - expected exception", exception);
+        Assert.assertEquals("failure - expected no greeting persisted", count,
+                service.count());
+        // The relay may drain earlier events meanwhile.
+        Assert.assertTrue("failure - expected no outbox event",
+                outbox.count() <= events);
+
+    }
+
     @Test
     public void testCreateWithId() {
 
@@ -132,6 +462,33 @@ public class GreetingServiceTest extends AbstractTest {
 
     }
 
+    @Test
+    public void testUpdateIfVersionChangesVersionWatermark() {
+
+        Long id = new Long(1);
+
+        String version = service.findAllVersion();
+        Greeting entity = service.findOne(id);
+
+        Greeting change = new Greeting();
+        change.setId(id);
+        change.setText(entity.getText() + " test");
+
+        Assert.assertTrue("failure - expected updated",
+                service.updateIfVersion(change, entity.getVersion()));
+        Assert.assertNotEquals("failure - expected new watermark", version,
+                service.findAllVersion());
+
+        Greeting updatedEntity = service.findOne(id);
+
+        Assert.assertEquals("failure - expected referenceId attribute match",
+                entity.getReferenceId(), updatedEntity.getReferenceId());
+        Assert.assertEquals("failure - expected version attribute match",
+                Integer.valueOf(entity.getVersion() + 1),
+                updatedEntity.getVersion());
+
+    }
+
     @Test
     public void testUpdateNotFound() {
 
@@ -174,4 +531,53 @@ public class GreetingServiceTest extends AbstractTest {
 
     }
 
+    @Test
+    public void testFindChangesPagesWithCursor() {
+
+        Greeting entity = new Greeting();
+        entity.setText("test");
+        Greeting created = service.create(entity);
+        Long deletedId = new Long(1);
+        service.delete(deletedId);
+
+        List<Long> upserts = new ArrayList<Long>();
+        Set<Long> deletes = new HashSet<Long>();
+        ChangeCursor since = ChangeCursor.START;
+        GreetingChanges page = service.findChanges(since, 2);
+        while (!page.getChanges().isEmpty()) {
+            Assert.assertTrue("failure - expected page size",
+                    page.getChanges().size() <= 2);
+            for (GreetingChange change : page.getChanges()) {
+                if (GreetingChange.DELETE.equals(change.getType())) {
+                    deletes.add(change.getId());
+                } else {
+                    upserts.add(change.getId());
+                }
+            }
+            Assert.assertNotEquals("failure - expected cursor to advance",
+                    since.toString(), page.getNext());
+            since = ChangeCursor.parse(page.getNext());
+            page = service.findChanges(since, 2);
+        }
+
+        Set<Long> expected = new HashSet<Long>();
+        for (Greeting greeting : service.findAll()) {
+            expected.add(greeting.getId());
+        }
+
+        Assert.assertEquals("failure - expected every greeting once",
+                expected.size(), upserts.size());
+        Assert.assertEquals("failure - expected every greeting",
+                expected, new HashSet<Long>(upserts));
+        Assert.assertTrue("failure - expected created greeting",
+                upserts.contains(created.getId()));
+        Assert.assertTrue("failure - expected deleted greeting",
+                deletes.contains(deletedId));
+        Assert.assertFalse("failure - expected deleted greeting not upserted",
+                upserts.contains(deletedId));
+        Assert.assertEquals("failure - expected cursor kept on empty page",
+                since.toString(), page.getNext());
+
+    }
+
 }
@@ -0,0 +1,60 @@
+package org.example.ws.service;
+
+import java.util.Collection;
+
+import org.example.ws.AbstractTest;
+import org.example.ws.model.Role;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Unit test methods for the RoleService and RoleServiceBean.
+ *
+ * @author Matt Warman
+ */
+public class RoleServiceTest extends AbstractTest {
+
+    @Autowired
+    private RoleService service;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        service.refresh();
+    }
+
+    @Test
+    public void testFindAllEffective() {
+
+        Collection<Role> roles = service.findAllEffective(new DateTime());
+
+        Assert.assertEquals("failure - expected size", 3, roles.size());
+        Assert.assertEquals("failure - expected ordinal order", "ROLE_USER",
+                roles.iterator().next().getCode());
+
+        Collection<Role> earlyRoles = service
+                .findAllEffective(new DateTime(2014, 1, 1, 0, 0));
+
+        Assert.assertTrue("failure - expected empty", earlyRoles.isEmpty());
+
+    }
+
+    @Test
+    public void testFindByCode() {
+
+        Role role = service.findByCode("ROLE_ADMIN", new DateTime());
+
+        Assert.assertNotNull("failure - expected not null", role);
+        Assert.assertEquals("failure - expected id", 2L,
+                role.getId().longValue());
+
+        Role missing = service.findByCode("ROLE_UNKNOWN", new DateTime());
+
+        Assert.assertNull("failure - expected null", missing);
+
+    }
+
+}
@@ -0,0 +1,153 @@
+package org.example.ws.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test methods for the SpanRingBuffer.
+ *
+ * @author Matt Warman
+ */
+public class SpanRingBufferTest {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int SPANS_PER_PRODUCER = 100000;
+
+    @Test
+    public void testCapacityRoundedUpToPowerOfTwo() {
+
+        Assert.assertEquals("failure - expected minimum capacity", 2,
+                new SpanRingBuffer(1).capacity());
+        Assert.assertEquals("failure - expected rounded capacity", 8,
+                new SpanRingBuffer(5).capacity());
+        Assert.assertEquals("failure - expected exact capacity", 8,
+                new SpanRingBuffer(8).capacity());
+
+    }
+
+    @Test
+    public void testOfferFailsWhenFull() {
+
+        SpanRingBuffer buffer = new SpanRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue("failure - expected span added",
+                    buffer.offer(span(0, i)));
+        }
+
+        Assert.assertFalse("failure - expected full buffer",
+                buffer.offer(span(0, 4)));
+        Assert.assertEquals("failure - expected size", 4, buffer.size());
+
+        Assert.assertEquals("failure - expected oldest span", 0L,
+                buffer.poll().getTraceId());
+        Assert.assertTrue("failure - expected freed slot reused",
+                buffer.offer(span(0, 4)));
+
+    }
+
+    @Test
+    public void testPollInOrderAcrossLaps() {
+
+        SpanRingBuffer buffer = new SpanRingBuffer(4);
+        long next = 0;
+        for (long i = 0; i < 50; i++) {
+            Assert.assertTrue("failure - expected span added",
+                    buffer.offer(span(0, i)));
+            if (i % 3 == 2) {
+                // Drain in bursts so head and tail wrap at different points.
+                Span span;
+                while ((span = buffer.poll()) != null) {
+                    Assert.assertEquals("failure - expected FIFO order", next++,
+                            span.getTraceId());
+                }
+            }
+        }
+        Span span;
+        while ((span = buffer.poll()) != null) {
+            Assert.assertEquals("failure - expected FIFO order", next++,
+                    span.getTraceId());
+        }
+
+        Assert.assertEquals("failure - expected every span", 50L, next);
+        Assert.assertNull("failure - expected empty buffer", buffer.poll());
+        Assert.assertEquals("failure - expected empty size", 0, buffer.size());
+
+    }
+
+    @Test
+    public void testConcurrentProducersSingleConsumer() throws Exception {
+
+        final SpanRingBuffer buffer = new SpanRingBuffer(64);
+        final CyclicBarrier start = new CyclicBarrier(PRODUCERS);
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        List<Future<Integer>> producers = new ArrayList<Future<Integer>>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    int full = 0;
+                    for (long i = 0; i < SPANS_PER_PRODUCER; i++) {
+                        // A small buffer is full often; retry until accepted.
+                        while (!buffer.offer(span(producer, i))) {
+                            full++;
+                            Thread.yield();
+                        }
+                    }
+                    return full;
+                }
+            }));
+        }
+
+        // The consumer sees each producer's spans once, in its order.
+        long[] next = new long[PRODUCERS];
+        long received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < (long) PRODUCERS * SPANS_PER_PRODUCER
+                && System.nanoTime() < deadline) {
+            Span span = buffer.poll();
+            if (span == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = Integer.parseInt(span.getName());
+            Assert.assertEquals("failure - expected producer order",
+                    next[producer], span.getTraceId());
+            next[producer]++;
+            received++;
+        }
+        for (Future<Integer> producer : producers) {
+            producer.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assert.assertEquals("failure - expected every span received",
+                (long) PRODUCERS * SPANS_PER_PRODUCER, received);
+        for (int p = 0; p < PRODUCERS; p++) {
+            Assert.assertEquals("failure - expected every span of producer " + p,
+                    SPANS_PER_PRODUCER, next[p]);
+        }
+        Assert.assertNull("failure - expected no extra span", buffer.poll());
+
+    }
+
+    /**
+     * Builds a Span naming its producer, with its sequence as trace id.
+     */
+    private static Span span(int producer, long sequence) {
+        return new Span(sequence, String.valueOf(producer), 0L, 0L, false,
+                "producer-" + producer);
+    }
+
+}
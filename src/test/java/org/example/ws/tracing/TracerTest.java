@@ -0,0 +1,152 @@
+package org.example.ws.tracing;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit test methods for the Tracer: the sampling decisions and the span
+ * writer thread.
+ *
+ * @author Matt Warman
+ */
+public class TracerTest {
+
+    private Tracer tracer;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        tracer.endTrace();
+        tracer.stop();
+    }
+
+    @Test
+    public void testSampledTraceRecordsAllSpans() throws InterruptedException {
+
+        tracer = tracer(true, 1.0, 64);
+
+        Assert.assertTrue("failure - expected trace sampled",
+                tracer.startTrace());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue("failure - expected span sampled",
+                    tracer.isSampled());
+            tracer.record("test", System.nanoTime(), i % 2 == 0);
+        }
+        tracer.endTrace();
+        tracer.stop();
+
+        Assert.assertEquals("failure - expected spans recorded", 10L,
+                metric("tracing.spans.recorded"));
+        Assert.assertEquals("failure - expected spans written on stop", 10L,
+                metric("tracing.spans.written"));
+        Assert.assertEquals("failure - expected no span dropped", 0L,
+                metric("tracing.spans.dropped"));
+
+    }
+
+    @Test
+    public void testDrainerWritesWhileRunning() throws InterruptedException {
+
+        tracer = tracer(true, 1.0, 64);
+
+        for (int i = 0; i < 5; i++) {
+            tracer.record("test", System.nanoTime(), false);
+        }
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (metric("tracing.spans.written") < 5L
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+
+        Assert.assertEquals("failure - expected spans written", 5L,
+                metric("tracing.spans.written"));
+        Assert.assertEquals("failure - expected empty buffer", 0L,
+                metric("tracing.buffer.size"));
+
+    }
+
+    @Test
+    public void testUnsampledTraceRecordsNothing() {
+
+        tracer = tracer(true, 0.0, 64);
+
+        Assert.assertFalse("failure - expected trace not sampled",
+                tracer.startTrace());
+        Assert.assertFalse("failure - expected span not sampled",
+                tracer.isSampled());
+        tracer.endTrace();
+        Assert.assertFalse("failure - expected span outside trace not sampled",
+                tracer.isSampled());
+
+    }
+
+    @Test
+    public void testDisabledTracerSamplesNothing() {
+
+        tracer = tracer(false, 1.0, 64);
+
+        Assert.assertFalse("failure - expected trace not sampled",
+                tracer.startTrace());
+        Assert.assertFalse("failure - expected span not sampled",
+                tracer.isSampled());
+
+    }
+
+    @Test
+    public void testSamplingDecidedOncePerTrace() {
+
+        tracer = tracer(true, 0.5, 64);
+
+        for (int trace = 0; trace < 20; trace++) {
+            boolean sampled = tracer.startTrace();
+            for (int i = 0; i < 20; i++) {
+                Assert.assertEquals("failure - expected decision of the trace",
+                        sampled, tracer.isSampled());
+            }
+            tracer.endTrace();
+        }
+
+    }
+
+    @Test
+    public void testFullBufferDropsSpans() throws InterruptedException {
+
+        tracer = tracer(true, 1.0, 2);
+        // Without the writer thread nothing frees the buffer.
+        tracer.stop();
+
+        for (int i = 0; i < 5; i++) {
+            tracer.record("test", System.nanoTime(), false);
+        }
+
+        Assert.assertEquals("failure - expected spans recorded", 5L,
+                metric("tracing.spans.recorded"));
+        Assert.assertEquals("failure - expected spans dropped", 3L,
+                metric("tracing.spans.dropped"));
+        Assert.assertEquals("failure - expected full buffer", 2L,
+                metric("tracing.buffer.size"));
+
+    }
+
+    private static Tracer tracer(boolean enabled, double sampleRate,
+            int bufferSize) {
+        Tracer tracer = new Tracer();
+        ReflectionTestUtils.setField(tracer, "enabled", enabled);
+        ReflectionTestUtils.setField(tracer, "sampleRate", sampleRate);
+        ReflectionTestUtils.setField(tracer, "bufferSize", bufferSize);
+        tracer.start();
+        return tracer;
+    }
+
+    private long metric(String name) {
+        for (Metric<?> metric : tracer.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.example.ws.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test methods for the TimeOrderedReferenceIdGenerator.
+ *
+ * @author Matt Warman
+ */
+public class TimeOrderedReferenceIdGeneratorTest {
+
+    private static final int THREADS = 8;
+
+    private static final int IDS_PER_THREAD = 50000;
+
+    private final TimeOrderedReferenceIdGenerator generator = new TimeOrderedReferenceIdGenerator();
+
+    @Test
+    public void testNextHoldsTimestampVersionAndVariant() {
+
+        long millis = System.currentTimeMillis();
+
+        UUID id = generator.next(millis);
+
+        Assert.assertEquals("failure - expected timestamp", millis,
+                id.getMostSignificantBits() >>> 16);
+        Assert.assertEquals("failure - expected version 7", 7, id.version());
+        Assert.assertEquals("failure - expected IETF variant", 2, id.variant());
+
+    }
+
+    @Test
+    public void testNextSortsInTimeOrder() {
+
+        long millis = System.currentTimeMillis();
+        UUID previous = generator.next(millis);
+        // Cross more than one block of random bytes.
+        for (int i = 1; i < 1000; i++) {
+            UUID id = generator.next(millis + i);
+
+            Assert.assertTrue("failure - expected UUID order",
+                    previous.compareTo(id) < 0);
+            Assert.assertTrue("failure - expected String order",
+                    previous.toString().compareTo(id.toString()) < 0);
+            previous = id;
+        }
+
+    }
+
+    @Test
+    public void testGenerateSortsInTimeOrder() throws InterruptedException {
+
+        String first = generator.generate();
+        Thread.sleep(2L);
+        String second = generator.generate();
+
+        Assert.assertTrue("failure - expected later id sorted after",
+                first.compareTo(second) < 0);
+        Assert.assertEquals("failure - expected lower case",
+                second.toLowerCase(), second);
+
+    }
+
+    @Test
+    public void testGenerateUniqueAcrossThreads() throws Exception {
+
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> generators = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < THREADS; t++) {
+            generators.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    int duplicates = 0;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        if (!ids.add(generator.generate())) {
+                            duplicates++;
+                        }
+                    }
+                    return duplicates;
+                }
+            }));
+        }
+
+        int duplicates = 0;
+        for (Future<Integer> future : generators) {
+            duplicates += future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assert.assertEquals("failure - expected no duplicate ids", 0,
+                duplicates);
+        Assert.assertEquals("failure - expected every id",
+                THREADS * IDS_PER_THREAD, ids.size());
+
+    }
+
+}
@@ -7,8 +7,12 @@ import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.AsyncListener;
 
 import org.example.ws.AbstractControllerTest;
+import org.example.ws.async.EmailSpillQueue;
 import org.example.ws.model.Greeting;
 import org.example.ws.service.EmailService;
 import org.example.ws.service.GreetingService;
@@ -17,11 +21,16 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 
 /**
  * Unit tests for the GreetingController using Mockito mocks and spies.
@@ -49,6 +58,12 @@ public class GreetingControllerMocksTest extends AbstractControllerTest {
     @Mock
     private EmailService emailService;
 
+    /**
+     * A mocked EmailSpillQueue
+     */
+    @Mock
+    private EmailSpillQueue emailSpillQueue;
+
     /**
      * A GreetingController instance with <code>@Mock</code> components injected
      * into it.
@@ -64,6 +79,7 @@ public class GreetingControllerMocksTest extends AbstractControllerTest {
     public void setUp() {
         // Initialize Mockito annotated components
         MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(greetingController, "sendTimeout", 30000L);
         // Prepare the Spring MVC Mock components for standalone testing
         setUp(greetingController);
     }
@@ -270,6 +286,147 @@ public class GreetingControllerMocksTest extends AbstractControllerTest {
 
     }
 
+    @Test
+    public void testSendGreetingWaitCompletesAsynchronously() throws Exception {
+
+        Long id = new Long(1);
+        Greeting entity = getEntityStubData();
+        CompletableFuture<Boolean> emailSent = new CompletableFuture<Boolean>();
+
+        when(greetingService.findOne(id)).thenReturn(entity);
+        when(emailService.sendAsyncWithResult(entity)).thenReturn(emailSent);
+
+        MvcResult result = sendGreeting(id, true);
+
+        // The request thread is released before the email is sent
+        Assert.assertTrue("failure - expected async started",
+                result.getRequest().isAsyncStarted());
+        Assert.assertFalse("failure - expected no result yet",
+                WebAsyncUtils.getAsyncManager(result.getRequest())
+                        .hasConcurrentResult());
+
+        emailSent.complete(Boolean.TRUE);
+        MvcResult dispatched = mvc.perform(MockMvcRequestBuilders
+                .asyncDispatch(result)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200,
+                dispatched.getResponse().getStatus());
+        Assert.assertTrue(
+                "failure - expected HTTP response body to have a value",
+                dispatched.getResponse().getContentAsString().trim().length() > 0);
+
+    }
+
+    @Test
+    public void testSendGreetingWaitTimesOut() throws Exception {
+
+        Long id = new Long(1);
+        Greeting entity = getEntityStubData();
+
+        when(greetingService.findOne(id)).thenReturn(entity);
+        when(emailService.sendAsyncWithResult(entity))
+                .thenReturn(new CompletableFuture<Boolean>());
+
+        MvcResult result = sendGreeting(id, true);
+
+        // Time out the async request as the servlet container would
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest()
+                .getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+        MvcResult dispatched = mvc.perform(MockMvcRequestBuilders
+                .asyncDispatch(result)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 503", 503,
+                dispatched.getResponse().getStatus());
+
+    }
+
+    @Test
+    public void testSendGreetingWaitFails() throws Exception {
+
+        Long id = new Long(1);
+        Greeting entity = getEntityStubData();
+        CompletableFuture<Boolean> emailSent = new CompletableFuture<Boolean>();
+
+        when(greetingService.findOne(id)).thenReturn(entity);
+        when(emailService.sendAsyncWithResult(entity)).thenReturn(emailSent);
+
+        MvcResult result = sendGreeting(id, true);
+        emailSent.completeExceptionally(new IllegalStateException("SMTP down"));
+        MvcResult dispatched = mvc.perform(MockMvcRequestBuilders
+                .asyncDispatch(result)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 500", 500,
+                dispatched.getResponse().getStatus());
+
+    }
+
+    @Test
+    public void testSendGreetingNotFound() throws Exception {
+
+        Long id = Long.MAX_VALUE;
+
+        when(greetingService.findOne(id)).thenReturn(null);
+
+        MvcResult dispatched = mvc.perform(MockMvcRequestBuilders
+                .asyncDispatch(sendGreeting(id, true))).andReturn();
+
+        verify(emailService, times(0)).sendAsyncWithResult(any(Greeting.class));
+        Assert.assertEquals("failure - expected HTTP status 404", 404,
+                dispatched.getResponse().getStatus());
+
+    }
+
+    @Test
+    public void testSendGreetingRejected() throws Exception {
+
+        Long id = new Long(1);
+        Greeting entity = getEntityStubData();
+
+        when(greetingService.findOne(id)).thenReturn(entity);
+        Mockito.doThrow(new TaskRejectedException("saturated"))
+                .when(emailService).sendAsync(entity);
+        when(emailSpillQueue.offer(entity)).thenReturn(false);
+
+        MvcResult dispatched = mvc.perform(MockMvcRequestBuilders
+                .asyncDispatch(sendGreeting(id, false))).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 503", 503,
+                dispatched.getResponse().getStatus());
+        Assert.assertEquals("failure - expected Retry-After header", "5",
+                dispatched.getResponse().getHeader("Retry-After"));
+
+    }
+
+    @Test
+    public void testSendGreetingRejectedIsSpilled() throws Exception {
+
+        Long id = new Long(1);
+        Greeting entity = getEntityStubData();
+
+        when(greetingService.findOne(id)).thenReturn(entity);
+        Mockito.doThrow(new TaskRejectedException("saturated"))
+                .when(emailService).sendAsync(entity);
+        when(emailSpillQueue.offer(entity)).thenReturn(true);
+
+        MvcResult dispatched = mvc.perform(MockMvcRequestBuilders
+                .asyncDispatch(sendGreeting(id, false))).andReturn();
+
+        verify(emailSpillQueue, times(1)).offer(entity);
+        Assert.assertEquals("failure - expected HTTP status 202", 202,
+                dispatched.getResponse().getStatus());
+
+    }
+
+    private MvcResult sendGreeting(Long id, boolean wait) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders
+                .post("/api/greetings/{id}/send", id)
+                .param("wait", String.valueOf(wait))
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+
     private Collection<Greeting> getEntityListStubData() {
         Collection<Greeting> list = new ArrayList<Greeting>();
         list.add(getEntityStubData());
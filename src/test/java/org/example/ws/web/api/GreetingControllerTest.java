@@ -3,15 +3,30 @@ package org.example.ws.web.api;
 import org.example.ws.AbstractControllerTest;
 import org.example.ws.model.Greeting;
 import org.example.ws.service.GreetingService;
+import org.example.ws.web.compression.CompressionFilter;
+import org.example.ws.web.converter.MediaTypes;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.StreamUtils;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+
 /**
  * Unit tests for the GreetingController using Spring MVC Mocks.
  * 
@@ -28,6 +43,9 @@ public class GreetingControllerTest extends AbstractControllerTest {
     @Autowired
     private GreetingService greetingService;
 
+    @Autowired
+    private CompressionFilter compressionFilter;
+
     @Before
     public void setUp() {
         super.setUp();
@@ -52,6 +70,163 @@ public class GreetingControllerTest extends AbstractControllerTest {
 
     }
 
+    @Test
+    public void testGetGreetingsPage() throws Exception {
+
+        String uri = "/api/greetings?limit={limit}";
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, 2)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+        String link = result.getResponse().getHeader("Link");
+
+        Assert.assertEquals("failure - expected HTTP status", 200, status);
+        Assert.assertEquals("failure - expected page size", 2,
+                super.mapFromJson(content, Greeting[].class).length);
+        Assert.assertNotNull("failure - expected Link header", link);
+        Assert.assertTrue("failure - expected next page cursor",
+                link.contains("after="));
+
+    }
+
+    @Test
+    public void testGetGreetingChanges() throws Exception {
+
+        String uri = "/api/greetings/changes?limit={limit}";
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, 10)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status", 200, status);
+        Assert.assertTrue("failure - expected next cursor",
+                content.contains("\"next\""));
+
+        result = mvc.perform(MockMvcRequestBuilders
+                .get("/api/greetings/changes?since={since}", "invalid")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 400", 400,
+                result.getResponse().getStatus());
+
+    }
+
+    @Test
+    public void testStreamGreetings() throws Exception {
+
+        String uri = "/api/greetings/stream";
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status", 200, status);
+        Assert.assertEquals("failure - expected streamed size", 5,
+                super.mapFromJson(content, Greeting[].class).length);
+
+    }
+
+    @Test
+    public void testGetGreetingsCompressed() throws Exception {
+
+        List<Greeting> greetings = new ArrayList<Greeting>();
+        for (int i = 0; i < 20; i++) {
+            Greeting greeting = new Greeting();
+            greeting.setText("compressed " + i);
+            greetings.add(greeting);
+        }
+        greetingService.createAll(greetings);
+        MockMvc compressingMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .addFilters(compressionFilter).build();
+
+        MvcResult result = compressingMvc.perform(MockMvcRequestBuilders
+                .get("/api/greetings").accept(MediaType.APPLICATION_JSON)
+                .header("Accept-Encoding", "gzip")).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status", 200,
+                result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected gzip content encoding", "gzip",
+                result.getResponse().getHeader("Content-Encoding"));
+        String content = new String(StreamUtils.copyToByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(
+                        result.getResponse().getContentAsByteArray()))),
+                "UTF-8");
+        Assert.assertEquals("failure - expected size", 25,
+                super.mapFromJson(content, Greeting[].class).length);
+
+        result = compressingMvc.perform(MockMvcRequestBuilders
+                .get("/api/greetings/{id}", 1L).accept(MediaType.APPLICATION_JSON)
+                .header("Accept-Encoding", "gzip")).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status", 200,
+                result.getResponse().getStatus());
+        Assert.assertNull("failure - expected small body uncompressed",
+                result.getResponse().getHeader("Content-Encoding"));
+        Assert.assertEquals("failure - expected greeting.id", 1L,
+                super.mapFromJson(result.getResponse().getContentAsString(),
+                        Greeting.class).getId().longValue());
+
+    }
+
+    @Test
+    public void testGetGreetingsCompressedEntityTag() throws Exception {
+
+        List<Greeting> greetings = new ArrayList<Greeting>();
+        for (int i = 0; i < 20; i++) {
+            Greeting greeting = new Greeting();
+            greeting.setText("compressed " + i);
+            greetings.add(greeting);
+        }
+        greetingService.createAll(greetings);
+        MockMvc compressingMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .addFilters(compressionFilter).build();
+        String uri = "/api/greetings";
+
+        MvcResult identity = compressingMvc.perform(MockMvcRequestBuilders
+                .get(uri).accept(MediaType.APPLICATION_JSON)).andReturn();
+        MvcResult gzip = compressingMvc.perform(MockMvcRequestBuilders
+                .get(uri).accept(MediaType.APPLICATION_JSON)
+                .header("Accept-Encoding", "gzip")).andReturn();
+
+        String identityTag = identity.getResponse().getHeader("ETag");
+        String gzipTag = gzip.getResponse().getHeader("ETag");
+
+        Assert.assertEquals("failure - expected gzip content encoding", "gzip",
+                gzip.getResponse().getHeader("Content-Encoding"));
+        Assert.assertEquals("failure - expected gzip ETag suffix",
+                identityTag.substring(0, identityTag.length() - 1) + "-gzip"",
+                gzipTag);
+
+        MvcResult result = compressingMvc.perform(MockMvcRequestBuilders
+                .get(uri).accept(MediaType.APPLICATION_JSON)
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzipTag)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 304", 304,
+                result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected gzip ETag repeated", gzipTag,
+                result.getResponse().getHeader("ETag"));
+
+        result = compressingMvc.perform(MockMvcRequestBuilders
+                .get(uri).accept(MediaType.APPLICATION_JSON)
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", identityTag)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 304", 304,
+                result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected identity ETag repeated",
+                identityTag, result.getResponse().getHeader("ETag"));
+
+    }
+
     @Test
     public void testGetGreeting() throws Exception {
 
@@ -71,6 +246,112 @@ public class GreetingControllerTest extends AbstractControllerTest {
 
     }
 
+    @Test
+    public void testGetGreetingSmile() throws Exception {
+
+        String uri = "/api/greetings/{id}";
+        Long id = new Long(1);
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, id)
+                .accept(MediaTypes.APPLICATION_SMILE)).andReturn();
+
+        int status = result.getResponse().getStatus();
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        smileMapper.registerModule(new JodaModule());
+        Greeting greeting = smileMapper.readValue(
+                result.getResponse().getContentAsByteArray(), Greeting.class);
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, status);
+        Assert.assertEquals("failure - expected Smile content type",
+                MediaTypes.APPLICATION_SMILE_VALUE,
+                result.getResponse().getContentType());
+        Assert.assertEquals("failure - expected id", id, greeting.getId());
+        Assert.assertNotNull("failure - expected createdAt",
+                greeting.getCreatedAt());
+
+    }
+
+    @Test
+    public void testCreateGreetingCbor() throws Exception {
+
+        String uri = "/api/greetings";
+        Greeting greeting = new Greeting();
+        greeting.setText("test");
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        cborMapper.registerModule(new JodaModule());
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post(uri)
+                .contentType(MediaTypes.APPLICATION_CBOR)
+                .accept(MediaTypes.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(greeting))).andReturn();
+
+        int status = result.getResponse().getStatus();
+        Greeting createdGreeting = cborMapper.readValue(
+                result.getResponse().getContentAsByteArray(), Greeting.class);
+
+        Assert.assertEquals("failure - expected HTTP status 201", 201, status);
+        Assert.assertNotNull("failure - expected id", createdGreeting.getId());
+        Assert.assertEquals("failure - expected text", "test",
+                createdGreeting.getText());
+
+    }
+
+    @Test
+    public void testGetGreetingsByIds() throws Exception {
+
+        String uri = "/api/greetings?ids={ids}";
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, "2,1,999")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+        Greeting[] greetings = super.mapFromJson(content, Greeting[].class);
+
+        Assert.assertEquals("failure - expected HTTP status", 200, status);
+        Assert.assertEquals("failure - expected size", 2, greetings.length);
+        Assert.assertEquals("failure - expected id order", new Long(2),
+                greetings[0].getId());
+
+    }
+
+    @Test
+    public void testGetGreetingsByIdsWithLimit() throws Exception {
+
+        String uri = "/api/greetings?ids={ids}&limit={limit}";
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, "2,1", 10)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 400", 400, status);
+
+    }
+
+    @Test
+    public void testLookupGreetings() throws Exception {
+
+        String uri = "/api/greetings/lookup";
+
+        MvcResult result = mvc
+                .perform(MockMvcRequestBuilders.post(uri)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(super.mapToJson(new Long[] { 1L, 3L })))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+        Greeting[] greetings = super.mapFromJson(content, Greeting[].class);
+
+        Assert.assertEquals("failure - expected HTTP status", 200, status);
+        Assert.assertEquals("failure - expected size", 2, greetings.length);
+        Assert.assertEquals("failure - expected id order", new Long(3),
+                greetings[1].getId());
+
+    }
+
     @Test
     public void testGetGreetingNotFound() throws Exception {
 
@@ -122,6 +403,39 @@ public class GreetingControllerTest extends AbstractControllerTest {
 
     }
 
+    @Test
+    public void testCreateGreetings() throws Exception {
+
+        String uri = "/api/greetings/batch";
+        Greeting first = new Greeting();
+        first.setText("test 1");
+        Greeting second = new Greeting();
+        second.setText("test 2");
+        String inputJson = super.mapToJson(new Greeting[] { first, second });
+
+        MvcResult result = mvc
+                .perform(MockMvcRequestBuilders.post(uri)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON).content(inputJson))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 201", 201, status);
+
+        Greeting[] createdGreetings = super.mapFromJson(content,
+                Greeting[].class);
+
+        Assert.assertEquals("failure - expected size", 2,
+                createdGreetings.length);
+        Assert.assertNotNull("failure - expected greeting.id not null",
+                createdGreetings[0].getId());
+        Assert.assertEquals("failure - expected greeting.text match", "test 2",
+                createdGreetings[1].getText());
+
+    }
+
     @Test
     public void testUpdateGreeting() throws Exception {
 
@@ -157,6 +471,120 @@ public class GreetingControllerTest extends AbstractControllerTest {
 
     }
 
+    @Test
+    public void testGetGreetingsNotModified() throws Exception {
+
+        String uri = "/api/greetings";
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String etag = result.getResponse().getHeader("ETag");
+
+        Assert.assertNotNull("failure - expected ETag header", etag);
+
+        result = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", etag)).andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 304", 304, status);
+        Assert.assertTrue("failure - expected HTTP response body to be empty",
+                content.trim().length() == 0);
+
+    }
+
+    @Test
+    public void testGetGreetingsEntityTagPerMediaType() throws Exception {
+
+        String uri = "/api/greetings";
+
+        MvcResult json = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+        MvcResult smile = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .accept(MediaTypes.APPLICATION_SMILE)).andReturn();
+
+        String jsonTag = json.getResponse().getHeader("ETag");
+        String smileTag = smile.getResponse().getHeader("ETag");
+
+        Assert.assertNotNull("failure - expected ETag header", smileTag);
+        Assert.assertNotEquals("failure - expected ETag per media type",
+                jsonTag, smileTag);
+        Assert.assertTrue("failure - expected Smile ETag suffix",
+                smileTag.endsWith("-smile\""));
+        Assert.assertTrue("failure - expected Vary: Accept",
+                json.getResponse().getHeaders("Vary").contains("Accept"));
+        Assert.assertTrue("failure - expected Vary: Accept",
+                smile.getResponse().getHeaders("Vary").contains("Accept"));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .accept(MediaTypes.APPLICATION_SMILE)
+                .header("If-None-Match", jsonTag)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200,
+                result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected Smile content type",
+                MediaTypes.APPLICATION_SMILE_VALUE,
+                result.getResponse().getContentType());
+
+        result = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .accept(MediaTypes.APPLICATION_SMILE)
+                .header("If-None-Match", smileTag)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 304", 304,
+                result.getResponse().getStatus());
+        Assert.assertTrue("failure - expected Vary: Accept",
+                result.getResponse().getHeaders("Vary").contains("Accept"));
+
+    }
+
+    @Test
+    public void testUpdateGreetingPreconditionFailed() throws Exception {
+
+        String uri = "/api/greetings/{id}";
+        Long id = new Long(1);
+        Greeting greeting = greetingService.findOne(id);
+        String staleTag = "\"" + (greeting.getVersion() + 1) + "\"";
+        greeting.setText(greeting.getText() + " test");
+        String inputJson = super.mapToJson(greeting);
+
+        MvcResult result = mvc
+                .perform(MockMvcRequestBuilders.put(uri, id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("If-Match", staleTag).content(inputJson))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 412", 412, status);
+
+    }
+
+    @Test
+    public void testUpdateGreetingWithGzipEntityTag() throws Exception {
+
+        String uri = "/api/greetings/{id}";
+        Long id = new Long(1);
+        Greeting greeting = greetingService.findOne(id);
+        String gzipTag = "\"" + greeting.getVersion() + "-gzip\"";
+        greeting.setText(greeting.getText() + " test");
+        String inputJson = super.mapToJson(greeting);
+
+        MvcResult result = mvc
+                .perform(MockMvcRequestBuilders.put(uri, id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("If-Match", gzipTag).content(inputJson))
+                .andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 204", 204,
+                result.getResponse().getStatus());
+
+    }
+
     @Test
     public void testDeleteGreeting() throws Exception {
 
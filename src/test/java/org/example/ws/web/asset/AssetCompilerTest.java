@@ -0,0 +1,167 @@
+package org.example.ws.web.asset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Unit test methods for the AssetCompiler.
+ *
+ * The compiler runs on a classes directory in a temporary folder. The brotli
+ * command is not available, so only gzip variants are written.
+ *
+ * @author Matt Warman
+ */
+public class AssetCompilerTest {
+
+    private static final String CSS = repeat("body { margin: 0; padding: 0; }\n", 100);
+
+    private static final String TEMPLATE = "<link th:href=\"@{/main.css}\" rel=\"stylesheet\"/>\n"
+            + "<link href=\"/css/site.css\" rel=\"stylesheet\"/>\n"
+            + "<img src=\"/logo.png\"/>\n"
+            + "<a href=\"/main.css.html\">unrelated</a>\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path classes;
+
+    @Before
+    public void setUp() throws IOException {
+        classes = folder.getRoot().toPath();
+        write("static/main.css", CSS);
+        write("static/css/site.css", "a {}");
+        write("static/logo.png", "png");
+        write("templates/index.html", TEMPLATE);
+    }
+
+    @Test
+    public void testCompileWritesFingerprintsAndManifest() throws Exception {
+
+        Map<String, String> manifest = compile();
+
+        String fingerprinted = "/assets/main-" + md5(CSS) + ".css";
+        Assert.assertEquals("failure - expected three assets", 3, manifest.size());
+        Assert.assertEquals("failure - expected fingerprinted URL",
+                fingerprinted, manifest.get("/main.css"));
+        Assert.assertEquals("failure - expected nested fingerprinted URL",
+                "/assets/css/site-" + md5("a {}") + ".css",
+                manifest.get("/css/site.css"));
+        Assert.assertEquals("failure - expected fingerprinted copy", CSS,
+                read("static" + fingerprinted));
+
+        Properties stored = new Properties();
+        try (InputStream in = Files.newInputStream(
+                classes.resolve("static/assets/manifest.properties"))) {
+            stored.load(in);
+        }
+        Assert.assertEquals("failure - expected manifest file", manifest, stored);
+
+    }
+
+    @Test
+    public void testCompileKeepsSmallerVariantsOnly() throws Exception {
+
+        Map<String, String> manifest = compile();
+
+        Path css = classes.resolve("static" + manifest.get("/main.css"));
+        Path gzip = css.resolveSibling(css.getFileName() + ".gz");
+        Assert.assertTrue("failure - expected gzip variant", Files.exists(gzip));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gzip))) {
+            Assert.assertEquals("failure - expected gzip content", CSS,
+                    new String(FileCopyUtils.copyToByteArray(in),
+                            StandardCharsets.UTF_8));
+        }
+        Path site = classes.resolve("static" + manifest.get("/css/site.css"));
+        Assert.assertFalse("failure - expected larger variant dropped",
+                Files.exists(site.resolveSibling(site.getFileName() + ".gz")));
+        Path logo = classes.resolve("static" + manifest.get("/logo.png"));
+        Assert.assertFalse("failure - expected incompressible file not compressed",
+                Files.exists(logo.resolveSibling(logo.getFileName() + ".gz")));
+        Assert.assertFalse("failure - expected no brotli variant",
+                Files.exists(css.resolveSibling(css.getFileName() + ".br")));
+
+    }
+
+    @Test
+    public void testCompileRewritesTemplates() throws Exception {
+
+        Map<String, String> manifest = compile();
+
+        String html = read("templates/index.html");
+        Assert.assertTrue("failure - expected link expression rewritten",
+                html.contains("@{" + manifest.get("/main.css") + "}"));
+        Assert.assertTrue("failure - expected quoted URL rewritten",
+                html.contains("\"" + manifest.get("/css/site.css") + "\""));
+        Assert.assertTrue("failure - expected quoted URL rewritten",
+                html.contains("\"" + manifest.get("/logo.png") + "\""));
+        Assert.assertTrue("failure - expected unrelated URL kept",
+                html.contains("\"/main.css.html\""));
+
+    }
+
+    @Test
+    public void testRecompileRemovesStaleFingerprints() throws Exception {
+
+        String first = compile().get("/main.css");
+        String changed = CSS + "p { color: red; }\n";
+        write("static/main.css", changed);
+
+        String second = compile().get("/main.css");
+
+        Assert.assertNotEquals("failure - expected new fingerprint", first, second);
+        Assert.assertFalse("failure - expected stale copy removed",
+                Files.exists(classes.resolve("static" + first)));
+        Assert.assertFalse("failure - expected stale variant removed",
+                Files.exists(classes.resolve("static" + first + ".gz")));
+        Assert.assertEquals("failure - expected current copy", changed,
+                read("static" + second));
+        String html = read("templates/index.html");
+        Assert.assertTrue("failure - expected template updated",
+                html.contains("@{" + second + "}"));
+        Assert.assertFalse("failure - expected stale URL replaced",
+                html.contains(first));
+
+    }
+
+    private Map<String, String> compile() throws Exception {
+        return new AssetCompiler(classes, "no-such-brotli-command").compile();
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = classes.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String path) throws IOException {
+        return new String(Files.readAllBytes(classes.resolve(path)),
+                StandardCharsets.UTF_8);
+    }
+
+    private static String md5(String content) {
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+}
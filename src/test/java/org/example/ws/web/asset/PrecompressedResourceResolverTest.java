@@ -0,0 +1,200 @@
+package org.example.ws.web.asset;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.web.servlet.resource.EncodedResource;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+/**
+ * Unit test methods for the PrecompressedResourceResolver and the
+ * <code>Vary</code> header of the fingerprinted assets.
+ *
+ * The assets are files in a temporary directory, resolved by a
+ * PathResourceResolver behind the PrecompressedResourceResolver.
+ *
+ * @author Matt Warman
+ */
+public class PrecompressedResourceResolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PrecompressedResourceResolver resolver;
+
+    private List<Resource> locations;
+
+    private ResourceResolverChain chain;
+
+    @Before
+    public void setUp() throws IOException {
+        write("main-0a1b.css", "body {}");
+        write("main-0a1b.css.gz", "gzip");
+        write("main-0a1b.css.br", "br");
+        write("app-2c3d.js", "var app;");
+        write("app-2c3d.js.gz", "gzip");
+        write("logo-4e5f.png", "png");
+
+        resolver = new PrecompressedResourceResolver();
+        locations = Collections.<Resource> singletonList(
+                new FileSystemResource(folder.getRoot().getPath() + "/"));
+        PathResourceResolver pathResolver = new PathResourceResolver();
+        chain = new ResourceResolverChain() {
+
+            @Override
+            public Resource resolveResource(HttpServletRequest request,
+                    String requestPath, List<? extends Resource> locations) {
+                return pathResolver.resolveResource(request, requestPath,
+                        locations, null);
+            }
+
+            @Override
+            public String resolveUrlPath(String resourcePath,
+                    List<? extends Resource> locations) {
+                return pathResolver.resolveUrlPath(resourcePath, locations, null);
+            }
+
+        };
+    }
+
+    @Test
+    public void testResolvePrefersBrotli() throws IOException {
+
+        Resource resource = resolve("main-0a1b.css", "gzip, deflate, br");
+
+        Assert.assertTrue("failure - expected EncodedResource",
+                resource instanceof EncodedResource);
+        Assert.assertEquals("failure - expected brotli", "br",
+                ((EncodedResource) resource).getContentEncoding());
+        Assert.assertEquals("failure - expected brotli content", "br",
+                read(resource));
+        Assert.assertEquals("failure - expected original file name",
+                "main-0a1b.css", resource.getFilename());
+
+    }
+
+    @Test
+    public void testResolveGzipWhenBrotliNotAccepted() throws IOException {
+
+        Resource resource = resolve("main-0a1b.css", "gzip, br;q=0");
+
+        Assert.assertEquals("failure - expected gzip", "gzip",
+                ((EncodedResource) resource).getContentEncoding());
+        Assert.assertEquals("failure - expected gzip content", "gzip",
+                read(resource));
+
+    }
+
+    @Test
+    public void testResolveGzipWhenBrotliMissing() throws IOException {
+
+        Resource resource = resolve("app-2c3d.js", "gzip, br");
+
+        Assert.assertEquals("failure - expected gzip", "gzip",
+                ((EncodedResource) resource).getContentEncoding());
+
+    }
+
+    @Test
+    public void testResolveIdentity() throws IOException {
+
+        Resource withoutHeader = resolve("main-0a1b.css", null);
+        Resource identity = resolve("main-0a1b.css", "identity");
+        Resource withoutVariant = resolve("logo-4e5f.png", "gzip, br");
+
+        Assert.assertFalse("failure - expected unencoded resource",
+                withoutHeader instanceof EncodedResource);
+        Assert.assertEquals("failure - expected original content", "body {}",
+                read(withoutHeader));
+        Assert.assertFalse("failure - expected unencoded resource",
+                identity instanceof EncodedResource);
+        Assert.assertFalse("failure - expected unencoded resource",
+                withoutVariant instanceof EncodedResource);
+        Assert.assertNull("failure - expected missing resource",
+                resolve("missing.css", "gzip"));
+
+    }
+
+    @Test
+    public void testAccepts() {
+
+        Assert.assertTrue("failure - expected gzip accepted",
+                PrecompressedResourceResolver.accepts("deflate, GZIP", "gzip"));
+        Assert.assertTrue("failure - expected gzip accepted",
+                PrecompressedResourceResolver.accepts("gzip;q=0.5", "gzip"));
+        Assert.assertFalse("failure - expected gzip refused",
+                PrecompressedResourceResolver.accepts("gzip; q=0", "gzip"));
+        Assert.assertFalse("failure - expected gzip refused",
+                PrecompressedResourceResolver.accepts("gzip;q=x", "gzip"));
+        Assert.assertFalse("failure - expected br not listed",
+                PrecompressedResourceResolver.accepts("gzip", "br"));
+
+    }
+
+    @Test
+    public void testVaryOnEveryCompressibleAssetResponse()
+            throws IOException, ServletException {
+
+        Assert.assertEquals("failure - expected Vary on variant response",
+                HttpHeaders.ACCEPT_ENCODING,
+                filter("/assets/main-0a1b.css", "gzip"));
+        Assert.assertEquals("failure - expected Vary on identity response",
+                HttpHeaders.ACCEPT_ENCODING,
+                filter("/assets/main-0a1b.css", null));
+        Assert.assertNull("failure - expected no Vary on incompressible asset",
+                filter("/assets/logo-4e5f.png", "gzip"));
+
+    }
+
+    private Resource resolve(String path, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET",
+                "/assets/" + path);
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return resolver.resolveResource(request, path, locations, chain);
+    }
+
+    private String filter(String uri, String acceptEncoding)
+            throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new StaticAssetConfiguration.VaryAcceptEncodingFilter()
+                .doFilter(request, response, new MockFilterChain());
+        return response.getHeader(HttpHeaders.VARY);
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(new File(folder.getRoot(), name).toPath(),
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Resource resource) throws IOException {
+        return new String(FileCopyUtils.copyToByteArray(resource.getInputStream()),
+                StandardCharsets.UTF_8);
+    }
+
+}